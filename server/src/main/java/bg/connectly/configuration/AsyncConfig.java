@@ -0,0 +1,162 @@
+package bg.connectly.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration for background work that should not run on request threads.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    /**
+     * Executor used to fan out new posts into the timelines of the author's followers.
+     * When the queue is full the caller runs the task itself, which slows down writers instead of dropping posts.
+     * With virtual threads every fan-out gets its own thread, and callers block once as many fan-outs are
+     * outstanding as the platform pool would hold.
+     */
+    @Bean(name = "timelineExecutor")
+    public Executor timelineExecutor(@Value("${connectly.timeline.fan-out-threads:4}") int threads,
+                                     @Value("${connectly.timeline.fan-out-queue:10000}") int queueCapacity,
+                                     Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("timeline-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(threads + queueCapacity);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("timeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor that runs password hashing and verification, bounded to a few threads so BCrypt cannot take
+     * every CPU. When the queue is full new hashes are rejected, and the caller answers with 503.
+     * Hashing is CPU-bound, so it stays on platform threads even when virtual threads are enabled.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${connectly.password.hash-threads:2}") int threads,
+                                                          @Value("${connectly.password.hash-queue:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor that decodes and resizes uploaded images. Resizing is CPU-bound, so it stays on a few platform
+     * threads even when virtual threads are enabled. When the queue is full new images are skipped rather than
+     * resized on the request thread; they are queued again the next time they are attached to a post.
+     */
+    @Bean(name = "derivativeExecutor")
+    public ThreadPoolTaskExecutor derivativeExecutor(@Value("${connectly.media.derivative-threads:2}") int threads,
+                                                     @Value("${connectly.media.derivative-queue:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("derivative-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Derivative queue is full, skipping images until it drains"));
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor that writes streamed responses, such as the NDJSON export, after the request thread is released.
+     * The application defines its own executors, so Spring Boot does not create a default one and Spring MVC
+     * would otherwise start an unbounded thread per streamed response. When the queue is full new streams are
+     * rejected and answered with 503.
+     */
+    @Bean(name = "streamingExecutor")
+    public AsyncTaskExecutor streamingExecutor(@Value("${connectly.streaming.threads:8}") int threads,
+                                               @Value("${connectly.streaming.queue:100}") int queueCapacity,
+                                               Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("streaming-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(threads + queueCapacity);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("streaming-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor that writes pushed events to subscribed connections. A task only runs while a subscriber has
+     * undelivered events, so a few threads serve many idle connections. When the queue is full the broker drops
+     * the subscriber it could not schedule, and the client reconnects.
+     */
+    @Bean(name = "eventExecutor")
+    public Executor eventExecutor(@Value("${connectly.events.threads:4}") int threads,
+                                  @Value("${connectly.events.queue:10000}") int queueCapacity,
+                                  Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("event-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(threads + queueCapacity);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Fork-join pool that computes follow suggestions. The traversal is CPU-bound and splits into many small
+     * tasks, so it runs on its own few threads rather than the common pool, and never takes every CPU.
+     */
+    @Bean(name = "suggestionPool", destroyMethod = "shutdown")
+    public ForkJoinPool suggestionPool(@Value("${connectly.suggestions.parallelism:2}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean
+    public WebMvcConfigurer streamingAsyncSupport(@Qualifier("streamingExecutor") AsyncTaskExecutor executor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(executor);
+            }
+        };
+    }
+}
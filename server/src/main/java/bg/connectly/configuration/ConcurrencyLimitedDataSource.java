@@ -0,0 +1,122 @@
+package bg.connectly.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data source that bounds how many connections are in use at once with a fair semaphore.
+ * With one platform thread per request the size of the request thread pool used to limit database
+ * concurrency implicitly; with virtual threads there is no such limit, so it is made explicit here and the
+ * connection pool is sized to it. A caller that cannot get a permit within the timeout fails instead of
+ * queueing without bound.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitedDataSource.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMillis;
+    private final Counter rejections;
+
+    public ConcurrencyLimitedDataSource(DataSource delegate,
+                                        int maxConcurrent,
+                                        long acquireTimeoutMillis,
+                                        MeterRegistry meterRegistry) {
+        super(delegate);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.rejections = Counter.builder("connectly.jdbc.limiter.rejected")
+                .description("Connection requests that timed out waiting for the concurrency limiter")
+                .register(meterRegistry);
+        Gauge.builder("connectly.jdbc.limiter.active", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .description("Connections in use under the concurrency limiter")
+                .register(meterRegistry);
+        Gauge.builder("connectly.jdbc.limiter.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for the concurrency limiter")
+                .register(meterRegistry);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return open(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return open(() -> super.getConnection(username, password));
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejections.increment();
+                logger.warn("No database connection permit within {} ms, {} callers waiting",
+                        acquireTimeoutMillis, permits.getQueueLength());
+                throw new SQLTransientConnectionException("Database concurrency limit of " + maxConcurrent
+                        + " reached, no connection available within " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    /**
+     * Opens a connection whose permit is released when it is closed, or right away if opening it fails.
+     */
+    private Connection open(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            // Closing twice must not release a second permit
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
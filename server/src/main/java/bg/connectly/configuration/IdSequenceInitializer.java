@@ -0,0 +1,55 @@
+package bg.connectly.configuration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the id sequences past the ids already in their tables.
+ * Posts, comments, users and follow requests used to get their ids from identity columns, so in an existing
+ * database the sequences created for them start below the highest id. Runs after the entity manager factory
+ * has updated the schema, and before the server accepts requests.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+    // Sequence name to the table whose ids it generates
+    static final Map<String, String> SEQUENCES = Map.of(
+            "posts_seq", "posts",
+            "comments_seq", "comments",
+            "users_seq", "users",
+            "follow_requests_seq", "follow_requests");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Sets every sequence that is behind the highest id of its table to that id.
+     * The pooled optimizer treats a sequence value as the upper end of a block, so the next block starts
+     * right after the highest id.
+     */
+    @PostConstruct
+    public void synchronizeSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            // A sequence that was never called has not handed out its start value yet
+            Long lastValue = jdbcTemplate.queryForObject(
+                    "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM " + sequence, Long.class);
+            if (maxId != null && lastValue != null && maxId > lastValue) {
+                jdbcTemplate.queryForObject("SELECT setval(CAST(? AS regclass), ?)", Long.class, sequence, maxId);
+                logger.info("Moved sequence {} from {} to {}", sequence, lastValue, maxId);
+            }
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package bg.connectly.configuration;
 
+import bg.connectly.exception.AuthenticationException;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,21 +27,20 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String authenticationHeader = request.getHeader("Authorization");
 
-        String email = null;
-        String jwtToken = null;
-
-        if (authenticationHeader != null && authenticationHeader.startsWith("Bearer ")) {
-            jwtToken = authenticationHeader.substring(7);
-            email = jwtUtil.extractEmail(jwtToken);
-        }
-
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwtToken)) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(email, null, new ArrayList<>());
+        if (authenticationHeader != null && authenticationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwtToken = authenticationHeader.substring(7);
+            try {
+                // Verified once here; the credentials are the digest, so later lookups can match the token
+                // without the raw token being kept in the security context
+                Claims claims = jwtUtil.verify(jwtToken);
 
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        claims.getSubject(), JwtUtil.digest(jwtToken), new ArrayList<>());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+            } catch (AuthenticationException e) {
+                logger.debug("Rejected JWT token: " + e.getMessage());
             }
         }
 
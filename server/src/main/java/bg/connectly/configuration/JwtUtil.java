@@ -1,12 +1,22 @@
 package bg.connectly.configuration;
 
+import bg.connectly.exception.AuthenticationException;
+import bg.connectly.store.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 
 @Component
@@ -14,6 +24,16 @@ public class JwtUtil {
     private static final long EXPIRATION_TIME = 86400000;  // 1 day in milliseconds
     private final Key SECRET_KEY = Keys.hmacShaKeyFor("random_key_secret_secret_key_secret".getBytes());
 
+    // Parsers are immutable and thread-safe, so one is shared by all requests
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(SECRET_KEY).build();
+
+    // Verified tokens keyed by their SHA-256 digest, so raw tokens are not kept in memory
+    private final BoundedCache<String, Claims> verifiedTokens;
+
+    @Autowired
+    public JwtUtil(@Value("${connectly.jwt.cache-size:10000}") int cacheSize) {
+        this.verifiedTokens = new BoundedCache<>(cacheSize);
+    }
 
     //generate token
     public String generateToken(String email) {
@@ -25,25 +45,57 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiration of a token and returns its claims.
+     * Tokens verified before are answered from a bounded cache until they expire,
+     * so the signature is checked once per token instead of once per request.
+     *
+     * @param token the JWT token without the Bearer prefix
+     * @return the claims of the token
+     * @throws AuthenticationException if the token is malformed, forged or expired
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+        Claims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new AuthenticationException("Invalid token");
+        }
+        // Cached until the token expires
+        Date expiration = claims.getExpiration();
+        verifiedTokens.put(digest, claims, expiration != null ? expiration.getTime() : BoundedCache.NEVER);
+        return claims;
+    }
+
     //get email for token
     public String extractEmail(String token) {
-        return extractClaims(token).getSubject();
+        return verify(token).getSubject();
     }
 
     //is token valid
     public Boolean validateToken(String token) {
-        return extractEmail(token) != null && !isTokenExpired(token);
-    }
-
-    private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        try {
+            return verify(token).getSubject() != null;
+        } catch (AuthenticationException e) {
+            return false;
+        }
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractClaims(token).getExpiration().before(new Date());
+    /**
+     * Returns the SHA-256 digest of a token, which stands in for the token wherever it is kept in memory.
+     */
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,122 @@
+package bg.connectly.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter that limits the request rate of each client per route, answering 429 with Retry-After once a
+ * client runs out of tokens. It runs after {@link JwtRequestFilter}, so signed-in clients are limited by
+ * their email and anonymous ones by their IP address.
+ * Rules are written as {@code pattern=permits/seconds} and the first rule whose pattern matches the path
+ * applies; paths without a rule are not limited.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimiter rateLimiter;
+    private final List<Rule> rules;
+
+    public RateLimitFilter(RateLimiter rateLimiter, String[] rules, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.rules = new ArrayList<>(rules.length);
+        for (String rule : rules) {
+            this.rules.add(Rule.parse(rule.trim(), this.rules.size(), meterRegistry));
+        }
+        Gauge.builder("connectly.rate-limit.buckets", rateLimiter, RateLimiter::size)
+                .description("Clients with a rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Rule rule = match(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rateLimiter.acquire(rule.id + getClientKey(request), rule.intervalNanos, rule.permits);
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        rule.rejections.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, divideRoundingUp(waitNanos))));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many requests, please retry later");
+    }
+
+    private Rule match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (Rule rule : rules) {
+            if (rule.pattern.matches(path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    // Behind a proxy the remote address is the proxy's unless server.forward-headers-strategy is set
+    private static String getClientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long divideRoundingUp(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return (nanos + second - 1) / second;
+    }
+
+    private record Rule(String id, PathPattern pattern, int permits, long intervalNanos, Counter rejections) {
+
+        /**
+         * Parses a rule such as {@code /api/auth/**=10/60}: at most 10 requests per 60 seconds, all of which
+         * may come at once.
+         */
+        static Rule parse(String rule, int index, MeterRegistry meterRegistry) {
+            int equals = rule.lastIndexOf('=');
+            int slash = rule.lastIndexOf('/');
+            if (equals < 0 || slash < equals) {
+                throw new IllegalArgumentException("Rate limit rule must look like pattern=permits/seconds: " + rule);
+            }
+            String pattern = rule.substring(0, equals);
+            int permits = Integer.parseInt(rule.substring(equals + 1, slash));
+            long seconds = Long.parseLong(rule.substring(slash + 1));
+            if (permits < 1 || seconds < 1) {
+                throw new IllegalArgumentException("Rate limit rule needs at least 1 permit and 1 second: " + rule);
+            }
+            Counter rejections = Counter.builder("connectly.rate-limit.rejected")
+                    .description("Requests answered with 429 because the client ran out of tokens")
+                    .tag("pattern", pattern)
+                    .register(meterRegistry);
+            return new Rule(index + ":", PathPatternParser.defaultInstance.parse(pattern), permits,
+                    TimeUnit.SECONDS.toNanos(seconds) / permits, rejections);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package bg.connectly.configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets keyed by client.
+ * A bucket is kept as a single number, the time at which it would be full again (the generic cell rate
+ * algorithm), so taking a token and refilling for the time passed is one compare-and-set, and a bucket that
+ * is full again holds no state worth keeping. The map is a {@link ConcurrentHashMap}, whose bins are
+ * updated independently, so clients on different keys never contend.
+ * <p>
+ * When the map is full, the buckets that are full again are dropped first. If that is not enough, the buckets
+ * closest to refilling are dropped too, so their clients get a fresh burst only slightly early, and a new client
+ * is always served; turning new clients away instead would let anyone with many addresses lock out everyone
+ * else. The check is not atomic with the insert, so concurrent new clients may overshoot the capacity slightly.
+ */
+public class RateLimiter {
+    private final int capacity;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public RateLimiter(int capacity) {
+        this(capacity, System::nanoTime);
+    }
+
+    RateLimiter(int capacity, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the bucket of the given key. A bucket holds {@code burst} tokens and gains one every
+     * {@code intervalNanos}.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token
+     */
+    public long acquire(String key, long intervalNanos, int burst) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= capacity) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long tolerance = intervalNanos * (burst - 1);
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Drops the buckets that are full again, then, if more than three quarters of the capacity is left, the
+     * buckets closest to refilling down to that mark, so the scan is paid once per quarter of the capacity.
+     * Only one caller evicts at a time; the others go on without waiting.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+            int excess = buckets.size() - capacity * 3 / 4;
+            if (excess > 0) {
+                long[] fullAts = buckets.values().stream().mapToLong(AtomicLong::get).sorted().toArray();
+                if (fullAts.length > 0) {
+                    long threshold = fullAts[Math.min(excess, fullAts.length) - 1];
+                    buckets.values().removeIf(bucket -> bucket.get() <= threshold);
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package bg.connectly.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled tasks, such as flushing the in-memory counters to the database.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
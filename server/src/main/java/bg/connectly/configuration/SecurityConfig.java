@@ -1,8 +1,12 @@
 package bg.connectly.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -19,14 +23,24 @@ public class SecurityConfig {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    /**
+     * BCrypt encoder whose hashing runs on the bounded password hashing executor instead of request threads.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+                                           @Value("${connectly.password.retry-after-seconds:1}") long retryAfterSeconds,
+                                           MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), executor.getThreadPoolExecutor(),
+                retryAfterSeconds, meterRegistry);
     }
 
     //TODO Temporary disabled for testing purposes
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${connectly.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                                                   @Value("${connectly.rate-limit.rules:/api/**=600/60}") String[] rateLimitRules,
+                                                   @Value("${connectly.rate-limit.cache-size:100000}") int rateLimitCacheSize,
+                                                   MeterRegistry meterRegistry) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
                 .authorizeHttpRequests(auth -> auth
@@ -37,6 +51,12 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Stateless session for JWT
                 )
                 .addFilterBefore(jwtRequestFilter,  UsernamePasswordAuthenticationFilter.class);
+        if (rateLimitEnabled) {
+            // Created here rather than as a bean, so it only runs inside the security filter chain
+            RateLimitFilter rateLimitFilter = new RateLimitFilter(new RateLimiter(rateLimitCacheSize),
+                    rateLimitRules, meterRegistry);
+            http.addFilterAfter(rateLimitFilter, JwtRequestFilter.class);
+        }
 
         return http.build();
     }
@@ -0,0 +1,73 @@
+package bg.connectly.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration of the threading mode of the server.
+ * Setting {@code spring.threads.virtual.enabled} runs request handling, scheduled jobs and the timeline fan-out
+ * on virtual threads. Virtual threads need Java 21; on older runtimes the setting is ignored and the server
+ * keeps its platform thread pools. In both modes database concurrency is bounded by
+ * {@link ConcurrencyLimitedDataSource} rather than by the number of threads.
+ */
+@Configuration
+public class ThreadingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private final Environment environment;
+
+    public ThreadingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Logs the threading mode in use, and warns when virtual threads were requested but are not available.
+     */
+    @PostConstruct
+    public void logThreadingMode() {
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Running requests and background work on virtual threads");
+        } else if (requested) {
+            logger.warn("Virtual threads require Java 21 but the server runs on Java {}, using platform threads",
+                    JavaVersion.getJavaVersion());
+        } else {
+            logger.info("Running requests and background work on platform threads");
+        }
+    }
+
+    /**
+     * Wraps the data source in a {@link ConcurrencyLimitedDataSource}.
+     * The limit defaults to the size of the connection pool, so callers wait on the fair limiter instead of
+     * the pool.
+     */
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            @Value("${connectly.jdbc.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${connectly.jdbc.acquire-timeout-ms:5000}") long acquireTimeoutMillis,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    logger.info("Limiting data source {} to {} concurrent connections", beanName, maxConcurrent);
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrent, acquireTimeoutMillis,
+                            meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
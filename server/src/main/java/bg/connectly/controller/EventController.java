@@ -0,0 +1,90 @@
+package bg.connectly.controller;
+
+import bg.connectly.exception.AuthenticationException;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.EventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controller class for pushing new content to clients.
+ * This class provides server-sent event streams of the comments of a post and of the home feed, so clients
+ * do not have to poll for them.
+ */
+@RestController
+@RequestMapping("/api/events")
+@Tag(name = "Event", description = "Endpoints for streaming new comments and posts")
+public class EventController {
+    // Keeps reverse proxies such as nginx from buffering the stream
+    private static final String ACCEL_BUFFERING = "X-Accel-Buffering";
+
+    private final EventService eventService;
+    private final AuthService authService;
+
+    @Autowired
+    public EventController(EventService eventService, AuthService authService) {
+        this.eventService = eventService;
+        this.authService = authService;
+    }
+
+    /**
+     * Endpoint for streaming the new comments of a post.
+     *
+     * The stream is only opened for viewers allowed to see the post.
+     *
+     * @param postId the ID of the post
+     * @param token the authorization token, optional
+     * @return a stream with a {@code comment} event for every new comment or reply
+     */
+    @Operation(summary = "Stream new comments of a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened successfully"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    @GetMapping(value = "/post/{postId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamComments(@PathVariable Long postId,
+                                                     @RequestHeader(value = "Authorization", required = false) String token) {
+        SseEmitter emitter = eventService.subscribeToPost(postId, getViewerEmail(token));
+        return ResponseEntity.ok().header(ACCEL_BUFFERING, "no").body(emitter);
+    }
+
+    /**
+     * Endpoint for streaming the new posts of the users the authenticated user follows.
+     *
+     * @param token the authorization token
+     * @return a stream with a {@code post} event for every new post
+     */
+    @Operation(summary = "Stream new posts of the home feed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamFeed(@RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        SseEmitter emitter = eventService.subscribeToFeed(email);
+        return ResponseEntity.ok().header(ACCEL_BUFFERING, "no").body(emitter);
+    }
+
+    /**
+     * Returns the email of the viewer of a stream that works without signing in. Without a token, or with one
+     * that is invalid or expired, the viewer is anonymous rather than rejected.
+     */
+    private String getViewerEmail(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return authService.getEmailFromToken(token);
+        } catch (AuthenticationException e) {
+            return null;
+        }
+    }
+}
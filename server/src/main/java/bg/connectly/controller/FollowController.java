@@ -0,0 +1,223 @@
+package bg.connectly.controller;
+
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.dto.response.FollowStatsDto;
+import bg.connectly.dto.response.SuggestionDto;
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.SuggestionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller class for managing follows.
+ * This class provides endpoints for following users, handling follow requests and listing followers.
+ */
+@RestController
+@RequestMapping("/api/follow")
+@Tag(name = "Follow", description = "Endpoints for following users")
+public class FollowController {
+    private final FollowService followService;
+    private final SuggestionService suggestionService;
+    private final AuthService authService;
+
+    @Autowired
+    public FollowController(FollowService followService, SuggestionService suggestionService,
+                            AuthService authService) {
+        this.followService = followService;
+        this.suggestionService = suggestionService;
+        this.authService = authService;
+    }
+
+    /**
+     * Endpoint for following a user. Following a private account sends a request it has to accept.
+     *
+     * @param userId the ID of the user to follow
+     * @param token  the authorization token
+     * @return the follow request, ACCEPTED if the user is followed now
+     */
+    @Operation(summary = "Follow a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User followed or request sent"),
+            @ApiResponse(responseCode = "400", description = "Users cannot follow themselves"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @PostMapping("/{userId}")
+    public ResponseEntity<FollowRequestResponseDto> follow(@PathVariable Long userId,
+                                                           @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        FollowRequestResponseDto followRequest = followService.follow(email, userId);
+        return ResponseEntity.ok(followRequest);
+    }
+
+    /**
+     * Endpoint for unfollowing a user, or withdrawing a request that was not accepted yet.
+     *
+     * @param userId the ID of the followed user
+     * @param token  the authorization token
+     * @return an empty response
+     */
+    @Operation(summary = "Unfollow a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User unfollowed"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Follow not found")
+    })
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<?> unfollow(@PathVariable Long userId, @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        followService.unfollow(email, userId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint for retrieving the follow requests waiting for the authenticated user.
+     *
+     * @param token the authorization token
+     * @return the pending requests, newest first
+     */
+    @Operation(summary = "Get pending follow requests")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Requests retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/requests")
+    public ResponseEntity<List<FollowRequestResponseDto>> getPendingRequests(@RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        List<FollowRequestResponseDto> requests = followService.getPendingRequests(email);
+        return ResponseEntity.ok(requests);
+    }
+
+    /**
+     * Endpoint for accepting a follow request.
+     *
+     * @param requestId the ID of the request
+     * @param token     the authorization token
+     * @return the accepted request
+     */
+    @Operation(summary = "Accept a follow request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Request accepted"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Follow request not found")
+    })
+    @PostMapping("/requests/{requestId}/accept")
+    public ResponseEntity<FollowRequestResponseDto> acceptRequest(@PathVariable Long requestId,
+                                                                  @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        FollowRequestResponseDto followRequest = followService.acceptRequest(email, requestId);
+        return ResponseEntity.ok(followRequest);
+    }
+
+    /**
+     * Endpoint for declining a follow request.
+     *
+     * @param requestId the ID of the request
+     * @param token     the authorization token
+     * @return an empty response
+     */
+    @Operation(summary = "Decline a follow request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Request declined"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Follow request not found")
+    })
+    @DeleteMapping("/requests/{requestId}")
+    public ResponseEntity<?> declineRequest(@PathVariable Long requestId,
+                                            @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        followService.declineRequest(email, requestId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint for retrieving users the authenticated user may want to follow: the users followed by the
+     * most of the users they follow.
+     *
+     * @param limit the maximum number of suggestions
+     * @param token the authorization token
+     * @return the suggested users, best first
+     */
+    @Operation(summary = "Get users to follow")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<SuggestionDto>> getSuggestions(@RequestParam(defaultValue = "10") int limit,
+                                                              @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        List<SuggestionDto> suggestions = suggestionService.getSuggestions(email, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
+    /**
+     * Endpoint for retrieving the followers of a user.
+     *
+     * @param userId the ID of the user
+     * @param offset the number of followers to skip
+     * @param limit  the maximum number of followers, at most 100
+     * @return the followers, ordered by user id
+     */
+    @Operation(summary = "Get followers of a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Followers retrieved successfully")
+    })
+    @GetMapping("/{userId}/followers")
+    public ResponseEntity<List<UserResponseDto>> getFollowers(@PathVariable Long userId,
+                                                              @RequestParam(defaultValue = "0") int offset,
+                                                              @RequestParam(defaultValue = "20") int limit) {
+        List<UserResponseDto> followers = followService.getFollowers(userId, offset, limit);
+        return ResponseEntity.ok(followers);
+    }
+
+    /**
+     * Endpoint for retrieving the users a user follows.
+     *
+     * @param userId the ID of the user
+     * @param offset the number of followed users to skip
+     * @param limit  the maximum number of followed users, at most 100
+     * @return the followed users, ordered by user id
+     */
+    @Operation(summary = "Get users followed by a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Followed users retrieved successfully")
+    })
+    @GetMapping("/{userId}/following")
+    public ResponseEntity<List<UserResponseDto>> getFollowing(@PathVariable Long userId,
+                                                              @RequestParam(defaultValue = "0") int offset,
+                                                              @RequestParam(defaultValue = "20") int limit) {
+        List<UserResponseDto> following = followService.getFollowing(userId, offset, limit);
+        return ResponseEntity.ok(following);
+    }
+
+    /**
+     * Endpoint for retrieving the follower and following counts of a user.
+     * With a token the response also tells whether the authenticated user follows the user.
+     *
+     * @param userId the ID of the user
+     * @param token  the authorization token, optional
+     * @return the follow counts of the user
+     */
+    @Operation(summary = "Get follow counts of a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counts retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/{userId}/stats")
+    public ResponseEntity<FollowStatsDto> getStats(@PathVariable Long userId,
+                                                   @RequestHeader(value = "Authorization", required = false) String token) {
+        String email = token != null ? authService.getEmailFromToken(token) : null;
+        FollowStatsDto stats = followService.getStats(userId, email);
+        return ResponseEntity.ok(stats);
+    }
+}
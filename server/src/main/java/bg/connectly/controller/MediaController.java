@@ -0,0 +1,288 @@
+package bg.connectly.controller;
+
+import bg.connectly.dto.response.MediaResponseDto;
+import bg.connectly.dto.response.UploadResponseDto;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.MediaService;
+import bg.connectly.store.MediaStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Controller class for uploading and downloading media.
+ * Uploads are sent in chunks, each at the offset the server reported, so an interrupted upload can resume.
+ * Downloads support byte ranges and are sent straight from the file to the socket.
+ */
+@RestController
+@RequestMapping("/api/media")
+@Tag(name = "Media", description = "Endpoints for uploading and downloading images and videos")
+public class MediaController {
+    // Request attributes of the Tomcat connector for sending a file with sendfile
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Stored media never changes, so it can be cached for a year without revalidation
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final MediaService mediaService;
+    private final AuthService authService;
+
+    @Autowired
+    public MediaController(MediaService mediaService, AuthService authService) {
+        this.mediaService = mediaService;
+        this.authService = authService;
+    }
+
+    /**
+     * Endpoint for starting an upload.
+     *
+     * @param token the authorization token
+     * @return the upload with its id
+     */
+    @Operation(summary = "Start an upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload started successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "409", description = "Too many uploads in progress")
+    })
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadResponseDto> startUpload(@RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        UploadResponseDto upload = mediaService.startUpload(email);
+        return ResponseEntity.status(HttpStatus.CREATED).body(upload);
+    }
+
+    /**
+     * Endpoint for retrieving the state of an upload.
+     *
+     * @param uploadId the ID of the upload
+     * @param token    the authorization token
+     * @return the upload with the offset of the next chunk
+     */
+    @Operation(summary = "Get the state of an upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Upload not found")
+    })
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadResponseDto> getUpload(@PathVariable String uploadId,
+                                                       @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        return ResponseEntity.ok(mediaService.getUpload(uploadId, email));
+    }
+
+    /**
+     * Endpoint for sending the next chunk of an upload as the raw request body.
+     *
+     * @param uploadId the ID of the upload
+     * @param offset   the position of the chunk in the file
+     * @param token    the authorization token
+     * @param request  the request whose body is the chunk
+     * @return the upload with the offset of the next chunk
+     */
+    @Operation(summary = "Append a chunk to an upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Chunk stored successfully"),
+            @ApiResponse(responseCode = "400", description = "Upload too large"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Upload not found"),
+            @ApiResponse(responseCode = "409", description = "Offset does not match the upload")
+    })
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadResponseDto> appendChunk(@PathVariable String uploadId,
+                                                         @RequestParam long offset,
+                                                         @RequestHeader("Authorization") String token,
+                                                         HttpServletRequest request) throws IOException {
+        String email = authService.getEmailFromToken(token);
+        return ResponseEntity.ok(mediaService.appendChunk(uploadId, email, offset, request.getInputStream()));
+    }
+
+    /**
+     * Endpoint for completing an upload.
+     *
+     * @param uploadId the ID of the upload
+     * @param token    the authorization token
+     * @return the stored media with its URL
+     */
+    @Operation(summary = "Complete an upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Media stored successfully"),
+            @ApiResponse(responseCode = "400", description = "Not a supported image or video"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Upload not found")
+    })
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<MediaResponseDto> completeUpload(@PathVariable String uploadId,
+                                                           @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        MediaResponseDto media = mediaService.completeUpload(uploadId, email);
+        return ResponseEntity.created(URI.create(media.getUrl())).body(media);
+    }
+
+    /**
+     * Endpoint for downloading media.
+     *
+     * @param mediaId  the ID of the media
+     * @param request  the request
+     * @param response the response the file is written to
+     */
+    @Operation(summary = "Download media")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Media retrieved successfully"),
+            @ApiResponse(responseCode = "206", description = "Range of the media retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Media not modified"),
+            @ApiResponse(responseCode = "404", description = "Media not found"),
+            @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @RequestMapping(value = "/{mediaId}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getMedia(@PathVariable String mediaId,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        // The ETag is the content hash, so a client that has the file is answered before the store is touched
+        String tag = mediaId;
+        String etag = "\"" + tag + "\"";
+        if (isNotModified(mediaId, tag, request, response)) {
+            return;
+        }
+        serve(mediaService.getMedia(mediaId), etag, request, response);
+    }
+
+    /**
+     * Endpoint for downloading a resized copy of an image, as listed in the srcset of a post.
+     *
+     * @param mediaId  the ID of the original image
+     * @param width    the width of the copy
+     * @param request  the request
+     * @param response the response the file is written to
+     */
+    @Operation(summary = "Download a resized copy of an image")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Media retrieved successfully"),
+            @ApiResponse(responseCode = "206", description = "Range of the media retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Media not modified"),
+            @ApiResponse(responseCode = "404", description = "Media or copy not found"),
+            @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @RequestMapping(value = "/{mediaId}/{width}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getDerivative(@PathVariable String mediaId,
+                              @PathVariable int width,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        String tag = mediaId + "-" + width;
+        String etag = "\"" + tag + "\"";
+        if (isNotModified(mediaId, tag, request, response)) {
+            return;
+        }
+        serve(mediaService.getDerivative(mediaId, width), etag, request, response);
+    }
+
+    /**
+     * Answers 304 when If-None-Match holds the given tag, without looking the media up. Nothing is set on the
+     * response otherwise, so a missing file still gets a plain 404 rather than the caching headers of a file.
+     */
+    private boolean isNotModified(String mediaId,
+                                  String tag,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || !MediaStore.isMediaId(mediaId)
+                || ETag.parse(ifNoneMatch).stream().noneMatch(candidate -> tag.equals(candidate.tag()))) {
+            return false;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, "\"" + tag + "\"");
+        response.setStatus(HttpStatus.NOT_MODIFIED.value());
+        return true;
+    }
+
+    /**
+     * Writes a stored file. A single byte range is answered with 206; several ranges or a malformed Range header
+     * get the whole file.
+     */
+    private void serve(MediaStore.StoredMedia media,
+                       String etag,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+
+        long size = media.size();
+        long start = 0;
+        long end = size;
+        HttpRange range = singleRange(request, etag);
+        if (range != null) {
+            start = range.getRangeStart(size);
+            end = range.getRangeEnd(size) + 1;
+            if (start >= size) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+        }
+        response.setContentType(media.contentType() != null ? media.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(end - start);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector sends the file with sendfile once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, media.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(media.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += file.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    /**
+     * Returns the range to send, or null if the whole file should be sent. The range is ignored when it is
+     * malformed, asks for several parts, or was made for another version of the file (If-Range).
+     */
+    private static HttpRange singleRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader == null || (ifRange != null && !ifRange.equals(etag))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
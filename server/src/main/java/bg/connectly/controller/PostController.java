@@ -2,11 +2,15 @@ package bg.connectly.controller;
 
 import bg.connectly.dto.CommentDto;
 import bg.connectly.dto.PostDto;
-import bg.connectly.model.Comment;
-import bg.connectly.model.Post;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.exception.AuthenticationException;
 import bg.connectly.service.AuthService;
 import bg.connectly.service.CommentService;
 import bg.connectly.service.PostService;
+import bg.connectly.store.VersionStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -15,8 +19,11 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -28,6 +35,9 @@ import java.util.List;
 @RequestMapping("/api/post")
 @Tag(name = "Post", description = "Endpoints for managing posts and comments")
 public class PostController {
+    // Lets clients keep polled lists, but makes them revalidate with the ETag on every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final PostService postService;
     private final CommentService commentService;
     private final AuthService authService;
@@ -43,35 +53,144 @@ public class PostController {
 
     /**
      * Endpoint for retrieving posts by email.
+     * Friends-only and private posts are only returned to viewers allowed to see them.
+     * Answers 304 without querying the posts when the client's ETag matches the posts of the author.
      *
      * @param email the email of the author
      * @param pageable the pagination information
+     * @param token the authorization token, optional
+     * @param webRequest the request, checked for If-None-Match and If-Modified-Since
      * @return a page of posts by the given email
      */
     @Operation(summary = "Get posts by email")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Posts retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Posts not modified")
     })
     @GetMapping("/user")
-    public ResponseEntity<Page<Post>> getUserPosts(@RequestParam String email, Pageable pageable) {
-        Page<Post> posts = postService.getPostsByEmail(email, pageable);
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<Page<PostResponseDto>> getUserPosts(@RequestParam String email, Pageable pageable,
+                                                              @RequestHeader(value = "Authorization", required = false) String token,
+                                                              WebRequest webRequest) {
+        String viewerEmail = getViewerEmail(token);
+        VersionStore.Stamp stamp = postService.getPostsStamp(email, viewerEmail);
+        if (webRequest.checkNotModified(stamp.etag(), stamp.lastModified())) {
+            return null;
+        }
+        Page<PostResponseDto> posts = postService.getPostsByEmail(email, pageable, viewerEmail);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(posts);
     }
 
 
     /**
      * Endpoint for retrieving all posts.
      *
+     * Friends-only and private posts are only returned to viewers allowed to see them.
+     * Answers 304 without querying the posts when the client's ETag matches the latest change of any post.
+     *
      * @param pageable the pagination information
+     * @param token the authorization token, optional
+     * @param webRequest the request, checked for If-None-Match and If-Modified-Since
      * @return a page of all posts
      */
     @Operation(summary = "Get all posts")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Posts retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "Posts retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Posts not modified")
     })
     @GetMapping("/get")
-    public ResponseEntity<Page<Post>> getPosts(Pageable pageable) {
-        Page<Post> posts = postService.getPosts(pageable);
+    public ResponseEntity<Page<PostResponseDto>> getPosts(Pageable pageable,
+                                                          @RequestHeader(value = "Authorization", required = false) String token,
+                                                          WebRequest webRequest) {
+        String viewerEmail = getViewerEmail(token);
+        VersionStore.Stamp stamp = postService.getPostsStamp(viewerEmail);
+        if (webRequest.checkNotModified(stamp.etag(), stamp.lastModified())) {
+            return null;
+        }
+        Page<PostResponseDto> posts = postService.getPosts(pageable, viewerEmail);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(posts);
+    }
+
+    /**
+     * Endpoint for searching posts by content and tags.
+     *
+     * @param query    the search text
+     * @param pageable the pagination information
+     * @return a page of matching posts, best matches first
+     */
+    @Operation(summary = "Search posts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts retrieved successfully")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<Page<PostSearchResultDto>> searchPosts(@RequestParam String query, Pageable pageable) {
+        Page<PostSearchResultDto> posts = postService.searchPosts(query, pageable);
+        return ResponseEntity.ok(posts);
+    }
+
+
+    /**
+     * Endpoint for scrolling through posts by email using a cursor.
+     *
+     * @param email the email of the author
+     * @param cursor the cursor returned with the previous slice, omitted for the first slice
+     * @param size the maximum number of posts to return
+     * @param token the authorization token, optional
+     * @return a slice of posts by the given email with the cursor of the next slice
+     */
+    @Operation(summary = "Scroll posts by email")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping("/user/scroll")
+    public ResponseEntity<CursorPage<PostResponseDto>> scrollUserPosts(@RequestParam String email,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "20") int size,
+                                                                       @RequestHeader(value = "Authorization", required = false) String token) {
+        CursorPage<PostResponseDto> posts = postService.getPostsByEmail(email, cursor, size, getViewerEmail(token));
+        return ResponseEntity.ok(posts);
+    }
+
+
+    /**
+     * Endpoint for scrolling through all posts using a cursor.
+     *
+     * @param cursor the cursor returned with the previous slice, omitted for the first slice
+     * @param size the maximum number of posts to return
+     * @param token the authorization token, optional
+     * @return a slice of posts with the cursor of the next slice
+     */
+    @Operation(summary = "Scroll all posts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<PostResponseDto>> scrollPosts(@RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int size,
+                                                                   @RequestHeader(value = "Authorization", required = false) String token) {
+        CursorPage<PostResponseDto> posts = postService.getPosts(cursor, size, getViewerEmail(token));
+        return ResponseEntity.ok(posts);
+    }
+
+
+    /**
+     * Endpoint for retrieving the home timeline of the current user.
+     *
+     * @param token the authorization token
+     * @param pageable the pagination information
+     * @return a slice of posts from the user and the users they follow
+     */
+    @Operation(summary = "Get home timeline")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Timeline retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping("/timeline")
+    public ResponseEntity<Slice<PostResponseDto>> getTimeline(@RequestHeader("Authorization") String token, Pageable pageable) {
+        String email = authService.getEmailFromToken(token);
+        Slice<PostResponseDto> posts = postService.getTimeline(email, pageable);
         return ResponseEntity.ok(posts);
     }
 
@@ -90,10 +209,10 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @PostMapping("/add")
-    public ResponseEntity<Post> createPost(@Valid @RequestBody PostDto postDto,
-                                           @RequestHeader("Authorization") String token) {
+    public ResponseEntity<PostResponseDto> createPost(@Valid @RequestBody PostDto postDto,
+                                                      @RequestHeader("Authorization") String token) {
         String email = authService.getEmailFromToken(token);
-        Post post = postService.createPost(postDto, email);
+        PostResponseDto post = postService.createPost(postDto, email);
         return ResponseEntity.ok(post);
     }
 
@@ -134,11 +253,11 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Post or User not found")
     })
     @PutMapping("/update/{id}")
-    public ResponseEntity<Post> updatePost(@PathVariable Long id,
-                                           @RequestHeader("Authorization") String token,
-                                           @Valid @RequestBody PostDto updatePostDto) {
+    public ResponseEntity<PostResponseDto> updatePost(@PathVariable Long id,
+                                                      @RequestHeader("Authorization") String token,
+                                                      @Valid @RequestBody PostDto updatePostDto) {
         String email = authService.getEmailFromToken(token);
-        Post updatedPost = postService.updatePost(id, email, updatePostDto);
+        PostResponseDto updatedPost = postService.updatePost(id, email, updatePostDto);
         return ResponseEntity.ok(updatedPost);
     }
 
@@ -158,11 +277,11 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Post or User not found")
     })
     @PostMapping("/{postId}/comment")
-    public ResponseEntity<Comment> addComment(@PathVariable Long postId,
-                                              @RequestHeader("Authorization") String token,
-                                              @Valid @RequestBody CommentDto commentDto) {
+    public ResponseEntity<CommentResponseDto> addComment(@PathVariable Long postId,
+                                                         @RequestHeader("Authorization") String token,
+                                                         @Valid @RequestBody CommentDto commentDto) {
         String email = authService.getEmailFromToken(token);
-        Comment comment = commentService.createComment(postId, email, commentDto);
+        CommentResponseDto comment = commentService.createComment(postId, email, commentDto);
         return ResponseEntity.ok(comment);
     }
 
@@ -170,34 +289,202 @@ public class PostController {
     /**
      * Endpoint for retrieving comments for a post.
      *
+     * Comments are only returned to viewers allowed to see the post.
+     * Answers 304 without querying the comments when the client's ETag matches the comments of the post.
+     *
      * @param postId the ID of the post
-     * @return a list of comments for the given post
+     * @param token the authorization token, optional
+     * @param webRequest the request, checked for If-None-Match and If-Modified-Since
+     * @return the first top-level comments for the given post with their first replies
      */
     @Operation(summary = "Get comments for a post")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Comments retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Comments not modified"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
     })
     @GetMapping("/{postId}/comments")
-    public ResponseEntity<List<Comment>> getComments(@PathVariable Long postId) {
-        List<Comment> comments = commentService.getComments(postId);
+    public ResponseEntity<List<CommentResponseDto>> getComments(@PathVariable Long postId,
+                                                                @RequestHeader(value = "Authorization", required = false) String token,
+                                                                WebRequest webRequest) {
+        String viewerEmail = getViewerEmail(token);
+        VersionStore.Stamp stamp = commentService.getCommentsStamp(postId, viewerEmail);
+        if (webRequest.checkNotModified(stamp.etag(), stamp.lastModified())) {
+            return null;
+        }
+        List<CommentResponseDto> comments = commentService.getComments(postId, viewerEmail);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(comments);
+    }
+
+
+    /**
+     * Endpoint for retrieving a comment thread of a post.
+     *
+     * @param postId the ID of the post
+     * @param offset the number of top-level comments to skip
+     * @param limit the maximum number of top-level comments
+     * @param depth the maximum number of reply levels, top-level comments included
+     * @param replies the maximum number of replies loaded under each comment
+     * @param token the authorization token, optional
+     * @return the top-level comments with their replies nested
+     */
+    @Operation(summary = "Get a comment thread for a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Comments retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    @GetMapping("/{postId}/comments/thread")
+    public ResponseEntity<List<CommentResponseDto>> getCommentThread(@PathVariable Long postId,
+                                                                     @RequestParam(defaultValue = "0") int offset,
+                                                                     @RequestParam(defaultValue = "20") int limit,
+                                                                     @RequestParam(defaultValue = "3") int depth,
+                                                                     @RequestParam(defaultValue = "5") int replies,
+                                                                     @RequestHeader(value = "Authorization", required = false) String token) {
+        List<CommentResponseDto> comments = commentService.getCommentThread(postId, offset, limit, depth, replies,
+                getViewerEmail(token));
         return ResponseEntity.ok(comments);
     }
 
 
+    /**
+     * Endpoint for loading more replies to a comment.
+     *
+     * @param commentId the ID of the parent comment
+     * @param offset the number of direct replies to skip
+     * @param limit the maximum number of direct replies
+     * @param depth the maximum number of reply levels, direct replies included
+     * @param replies the maximum number of replies loaded under each nested reply
+     * @param token the authorization token, optional
+     * @return the direct replies with their own replies nested
+     */
+    @Operation(summary = "Get replies to a comment")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Replies retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Comment not found")
+    })
+    @GetMapping("/comment/{commentId}/replies")
+    public ResponseEntity<List<CommentResponseDto>> getReplies(@PathVariable Long commentId,
+                                                               @RequestParam(defaultValue = "0") int offset,
+                                                               @RequestParam(defaultValue = "20") int limit,
+                                                               @RequestParam(defaultValue = "3") int depth,
+                                                               @RequestParam(defaultValue = "5") int replies,
+                                                               @RequestHeader(value = "Authorization", required = false) String token) {
+        List<CommentResponseDto> comments = commentService.getReplies(commentId, offset, limit, depth, replies,
+                getViewerEmail(token));
+        return ResponseEntity.ok(comments);
+    }
+
+
+    /**
+     * Endpoint for scrolling through comments for a post using a cursor.
+     *
+     * @param postId the ID of the post
+     * @param cursor the cursor returned with the previous slice, omitted for the first slice
+     * @param size the maximum number of comments to return
+     * @param token the authorization token, optional
+     * @return a slice of comments, oldest first, with the cursor of the next slice
+     */
+    @Operation(summary = "Scroll comments for a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Comments retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    @GetMapping("/{postId}/comments/scroll")
+    public ResponseEntity<CursorPage<CommentResponseDto>> scrollComments(@PathVariable Long postId,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "20") int size,
+                                                                         @RequestHeader(value = "Authorization", required = false) String token) {
+        CursorPage<CommentResponseDto> comments = commentService.getComments(postId, cursor, size,
+                getViewerEmail(token));
+        return ResponseEntity.ok(comments);
+    }
+
+
+    /**
+     * Endpoint for liking a post.
+     *
+     * @param postId the ID of the post to like
+     * @param token the authorization token
+     * @return the liked post
+     */
+    @Operation(summary = "Like a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Post liked successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Post or User not found")
+    })
+    @PostMapping("/{postId}/like")
+    public ResponseEntity<PostResponseDto> likePost(@PathVariable Long postId,
+                                                    @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        PostResponseDto post = postService.likePost(postId, email);
+        return ResponseEntity.ok(post);
+    }
+
+
+    /**
+     * Endpoint for removing a like from a post.
+     *
+     * @param postId the ID of the post to unlike
+     * @param token the authorization token
+     * @return the unliked post
+     */
+    @Operation(summary = "Unlike a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Post unliked successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Post or User not found")
+    })
+    @DeleteMapping("/{postId}/like")
+    public ResponseEntity<PostResponseDto> unlikePost(@PathVariable Long postId,
+                                                      @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        PostResponseDto post = postService.unlikePost(postId, email);
+        return ResponseEntity.ok(post);
+    }
+
+
     /**
      * Endpoint for liking a comment.
      *
      * @param commentId the ID of the comment to like
+     * @param token the authorization token
      * @return the liked comment
      */
     @Operation(summary = "Like a comment")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Comment liked successfully"),
-            @ApiResponse(responseCode = "404", description = "Comment not found")
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Comment or User not found")
     })
     @PostMapping("comment/{commentId}/like")
-    public ResponseEntity<Comment> likeComment(@PathVariable Long commentId) {
-        Comment comment = commentService.likeComment(commentId);
+    public ResponseEntity<CommentResponseDto> likeComment(@PathVariable Long commentId,
+                                                          @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        CommentResponseDto comment = commentService.likeComment(commentId, email);
+        return ResponseEntity.ok(comment);
+    }
+
+
+    /**
+     * Endpoint for removing a like from a comment.
+     *
+     * @param commentId the ID of the comment to unlike
+     * @param token the authorization token
+     * @return the unliked comment
+     */
+    @Operation(summary = "Unlike a comment")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Comment unliked successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Comment or User not found")
+    })
+    @DeleteMapping("/comment/{commentId}/like")
+    public ResponseEntity<CommentResponseDto> unlikeComment(@PathVariable Long commentId,
+                                                            @RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        CommentResponseDto comment = commentService.unlikeComment(commentId, email);
         return ResponseEntity.ok(comment);
     }
 
@@ -216,11 +503,26 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Comment or User not found")
     })
     @PostMapping("/comment/{commentId}/reply")
-    public ResponseEntity<Comment> replyToComment(@PathVariable Long commentId,
-                                                  @RequestHeader("Authorization") String token,
-                                                  @Valid @RequestBody CommentDto commentDto) {
+    public ResponseEntity<CommentResponseDto> replyToComment(@PathVariable Long commentId,
+                                                             @RequestHeader("Authorization") String token,
+                                                             @Valid @RequestBody CommentDto commentDto) {
         String email = authService.getEmailFromToken(token);
-        Comment comment = commentService.replyToComment(commentId, email, commentDto);
+        CommentResponseDto comment = commentService.replyToComment(commentId, email, commentDto);
         return ResponseEntity.ok(comment);
     }
+
+    /**
+     * Returns the email of the viewer of a read that works without signing in. Without a token, or with one
+     * that is invalid or expired, the read is anonymous rather than rejected.
+     */
+    private String getViewerEmail(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return authService.getEmailFromToken(token);
+        } catch (AuthenticationException e) {
+            return null;
+        }
+    }
 }
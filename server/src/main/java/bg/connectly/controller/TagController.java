@@ -0,0 +1,48 @@
+package bg.connectly.controller;
+
+import bg.connectly.dto.response.TrendingTagDto;
+import bg.connectly.service.TagService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller class for tag statistics.
+ * This class provides the endpoint for trending tags.
+ */
+@RestController
+@RequestMapping("/api/tags")
+@Tag(name = "Tag", description = "Endpoints for tag statistics")
+public class TagController {
+    private final TagService tagService;
+
+    @Autowired
+    public TagController(TagService tagService) {
+        this.tagService = tagService;
+    }
+
+    /**
+     * Endpoint for retrieving the most used tags of recent posts.
+     *
+     * @param window the window to count over, one of 1h, 24h or 7d
+     * @param limit  the maximum number of tags
+     * @return the trending tags with their estimated counts
+     */
+    @Operation(summary = "Get trending tags")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trending tags retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Unknown window")
+    })
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingTagDto>> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        List<TrendingTagDto> tags = tagService.getTrending(window, limit);
+        return ResponseEntity.ok(tags);
+    }
+}
@@ -1,9 +1,12 @@
 package bg.connectly.controller;
 
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.model.User;
 import bg.connectly.service.AuthService;
+import bg.connectly.service.ExportService;
 import bg.connectly.service.UserService;
+import bg.connectly.store.VersionStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -12,12 +15,19 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 /**
  * Controller class for managing user-related operations.
- * This class provides endpoints for editing user details and searching users.
+ * This class provides endpoints for editing user details, searching users and exporting their history.
  */
 @RestController
 @RequestMapping("/api/user")
@@ -25,11 +35,13 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
     private final UserService userService;
     private final AuthService authService;
+    private final ExportService exportService;
 
     @Autowired
-    public UserController(UserService userService, AuthService authService) {
+    public UserController(UserService userService, AuthService authService, ExportService exportService) {
         this.userService = userService;
         this.authService = authService;
+        this.exportService = exportService;
     }
 
     /**
@@ -71,5 +83,68 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Endpoint for suggesting users while the search text is typed.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the users whose name or email starts with the prefix
+     */
+    @Operation(summary = "Autocomplete users")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully")
+    })
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserResponseDto>> autocompleteUsers(@RequestParam String prefix,
+                                                                   @RequestParam(defaultValue = "10") int limit) {
+        List<UserResponseDto> users = this.userService.autocomplete(prefix, limit);
+        return ResponseEntity.ok(users);
+    }
+
+    /**
+     * Endpoint for retrieving the public profile of a user.
+     * Answers 304 when the client's ETag matches the profile, and asks clients to revalidate on every use.
+     *
+     * @param email the email of the user
+     * @param webRequest the request, checked for If-None-Match and If-Modified-Since
+     * @return the profile of the user
+     */
+    @Operation(summary = "Get the profile of a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Profile retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Profile not modified"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @GetMapping("/profile")
+    public ResponseEntity<UserResponseDto> getProfile(@RequestParam String email, WebRequest webRequest) {
+        VersionStore.Stamp stamp = userService.getProfileStamp(email);
+        if (webRequest.checkNotModified(stamp.etag(), stamp.lastModified())) {
+            return null;
+        }
+        UserResponseDto profile = userService.getProfile(email);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(profile);
+    }
 
+    /**
+     * Endpoint for exporting the full history of the authenticated user.
+     * The posts and comments are streamed as NDJSON while they are read, so the export has no size limit.
+     *
+     * @param token the authorization token
+     * @return the history of the user, one JSON record per line
+     */
+    @Operation(summary = "Export the history of the user as NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "503", description = "Too many exports are running")
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUser(@RequestHeader("Authorization") String token) {
+        String email = authService.getEmailFromToken(token);
+        StreamingResponseBody body = outputStream -> exportService.exportUser(email, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"connectly-export.ndjson\"")
+                .body(body);
+    }
 }
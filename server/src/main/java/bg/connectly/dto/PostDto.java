@@ -1,6 +1,7 @@
 package bg.connectly.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
@@ -15,9 +16,11 @@ public class PostDto {
     @Size(max = 1000, message = "Content cannot exceed 1000 characters")
     private String content;
 
-    private List<String> mediaUrls;
+    // Ids of media uploaded to the media store
+    private List<String> mediaIds;
     private Set<String> tags;
 
+    @Pattern(regexp = "public|friends-only|private", message = "Visibility must be public, friends-only or private")
     private String visibility;
 
     private String location;
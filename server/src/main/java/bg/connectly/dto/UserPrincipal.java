@@ -0,0 +1,18 @@
+package bg.connectly.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Lightweight, immutable view of an authenticated user: the id needed to link new rows to the user
+ * and the profile fields shown next to their content. Shared between requests through the principal cache.
+ */
+@Getter
+@AllArgsConstructor
+public class UserPrincipal {
+    private final Long id;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final String profilePicture;
+}
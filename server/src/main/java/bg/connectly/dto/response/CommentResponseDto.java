@@ -1,4 +1,23 @@
 package bg.connectly.dto.response;
 
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
 public class CommentResponseDto {
+    private Long id;
+    private String content;
+    private UserResponseDto author;
+    private Long parentId;
+    private Integer likesCount;
+    private Boolean likedByViewer;
+    private Long replyCount; // total number of direct replies, including the ones not loaded yet
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private List<CommentResponseDto> replies = new ArrayList<>();
 }
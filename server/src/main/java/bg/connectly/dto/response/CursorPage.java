@@ -0,0 +1,47 @@
+package bg.connectly.dto.response;
+
+import bg.connectly.dto.Cursor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A slice of results with an opaque cursor pointing after its last element.
+ * Unlike a Spring Page it carries no total count, so no count query is needed to build it.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final int MAX_SIZE = 100;
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public static <T> CursorPage<T> of(Slice<T> slice, Function<T, Cursor> cursorOf) {
+        List<T> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? cursorOf.apply(content.get(content.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(content, nextCursor, slice.hasNext());
+    }
+
+    /**
+     * Converts the content of this page in one call, keeping the cursor.
+     */
+    public <R> CursorPage<R> map(Function<List<T>, List<R>> converter) {
+        return new CursorPage<>(converter.apply(content), nextCursor, hasNext);
+    }
+
+    /**
+     * Builds the pageable for a keyset query: always the first page, with the size capped to {@link #MAX_SIZE}.
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_SIZE)));
+    }
+}
@@ -0,0 +1,19 @@
+package bg.connectly.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A follow request with its state: PENDING until a private account accepts it, ACCEPTED once it is a follow.
+ */
+@Getter
+@Setter
+public class FollowRequestResponseDto {
+    private Long id;
+    private String status;
+    private UserResponseDto sender;
+    private Long receiverId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,18 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowStatsDto {
+    private Long userId;
+    private int followersCount;
+    private int followingCount;
+    // Null when the request is not authenticated
+    private Boolean followedByViewer;
+}
@@ -0,0 +1,17 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaResponseDto {
+    private String id;
+    private String contentType;
+    private Long size;
+    private String url;
+}
@@ -0,0 +1,18 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostMediaDto {
+    private String url;
+    // The smallest resized copy, or the original while the copies are being created
+    private String thumbnailUrl;
+    // Resized copies in the format of the img srcset attribute, null while they are being created
+    private String srcset;
+}
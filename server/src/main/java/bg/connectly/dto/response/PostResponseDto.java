@@ -1,4 +1,27 @@
 package bg.connectly.dto.response;
 
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
 public class PostResponseDto {
+    private Long id;
+    private String content;
+    private UserResponseDto author;
+    private List<String> mediaUrls;
+    private List<PostMediaDto> media;
+    private Set<String> tags;
+    private Integer likesCount;
+    private Integer commentsCount;
+    private Boolean likedByViewer;
+    private String visibility;
+    private String location;
+    private String postType;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 }
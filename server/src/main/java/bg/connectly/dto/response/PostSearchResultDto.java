@@ -0,0 +1,18 @@
+package bg.connectly.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Getter
+@Setter
+public class PostSearchResultDto {
+    private Long id;
+    private String content;
+    private UserResponseDto author;
+    private Set<String> tags;
+    private Double score;
+    private LocalDateTime createdAt;
+}
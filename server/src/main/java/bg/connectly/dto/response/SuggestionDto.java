@@ -0,0 +1,18 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A user suggested to follow, with the number of followed users who already follow them.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+    private UserResponseDto user;
+    private int mutualCount;
+}
@@ -0,0 +1,15 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingTagDto {
+    private String tag;
+    private Long count;
+}
@@ -0,0 +1,16 @@
+package bg.connectly.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResponseDto {
+    private String uploadId;
+    // Number of bytes received so far, where the next chunk has to start
+    private Long offset;
+}
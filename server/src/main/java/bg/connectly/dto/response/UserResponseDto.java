@@ -1,4 +1,17 @@
 package bg.connectly.dto.response;
 
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Public summary of a user, safe to embed in posts and comments.
+ */
+@Getter
+@Setter
 public class UserResponseDto {
+    private Long id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String profilePicture;
 }
@@ -0,0 +1,7 @@
+package bg.connectly.exception;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
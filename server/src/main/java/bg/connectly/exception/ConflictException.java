@@ -0,0 +1,7 @@
+package bg.connectly.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
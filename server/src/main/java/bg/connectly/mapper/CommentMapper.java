@@ -1,9 +1,16 @@
 package bg.connectly.mapper;
 
 import bg.connectly.dto.CommentDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.model.Comment;
 import bg.connectly.model.Post;
 import bg.connectly.model.User;
+import bg.connectly.repository.CommentRow;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -13,6 +20,14 @@ import java.time.LocalDateTime;
  */
 @Component
 public class CommentMapper {
+    private final UserMapper userMapper;
+    private final CounterStore counterStore;
+
+    @Autowired
+    public CommentMapper(UserMapper userMapper, CounterStore counterStore) {
+        this.userMapper = userMapper;
+        this.counterStore = counterStore;
+    }
 
     /**
      * Converts a CommentDto to a Comment entity.
@@ -38,4 +53,63 @@ public class CommentMapper {
         comment.setUpdatedAt(LocalDateTime.now());
         return comment;
     }
+
+    /**
+     * Converts a Comment entity to a CommentResponseDto without its replies.
+     * The like count includes likes that are not flushed to the database yet.
+     *
+     * @param comment the Comment entity with its author loaded
+     * @return the created CommentResponseDto
+     */
+    public CommentResponseDto toCommentResponseDto(Comment comment) {
+        CommentResponseDto commentResponseDto = new CommentResponseDto();
+        commentResponseDto.setId(comment.getId());
+        commentResponseDto.setContent(comment.getContent());
+        commentResponseDto.setAuthor(userMapper.toUserResponseDto(comment.getAuthor()));
+        commentResponseDto.setParentId(comment.getParentComment() != null ? comment.getParentComment().getId() : null);
+        commentResponseDto.setLikesCount(counterStore.overlay(CounterType.COMMENT_LIKES, comment.getId(), comment.getLikesCount()));
+        commentResponseDto.setCreatedAt(comment.getCreatedAt());
+        commentResponseDto.setUpdatedAt(comment.getUpdatedAt());
+        return commentResponseDto;
+    }
+
+    /**
+     * Converts a Comment entity written by the given principal to a CommentResponseDto without its replies.
+     * The author is taken from the principal, so the author does not have to be loaded.
+     *
+     * @param comment the Comment entity
+     * @param author  the principal of the author
+     * @return the created CommentResponseDto
+     */
+    public CommentResponseDto toCommentResponseDto(Comment comment, UserPrincipal author) {
+        CommentResponseDto commentResponseDto = toCommentResponseDto(comment);
+        commentResponseDto.setAuthor(userMapper.toUserResponseDto(author));
+        return commentResponseDto;
+    }
+
+    /**
+     * Converts a row of a comment thread query to a CommentResponseDto without its replies.
+     *
+     * @param row the thread row
+     * @return the created CommentResponseDto
+     */
+    public CommentResponseDto toCommentResponseDto(CommentRow row) {
+        UserResponseDto author = new UserResponseDto();
+        author.setId(row.getAuthorId());
+        author.setEmail(row.getAuthorEmail());
+        author.setFirstName(row.getAuthorFirstName());
+        author.setLastName(row.getAuthorLastName());
+        author.setProfilePicture(row.getAuthorProfilePicture());
+
+        CommentResponseDto commentResponseDto = new CommentResponseDto();
+        commentResponseDto.setId(row.getId());
+        commentResponseDto.setContent(row.getContent());
+        commentResponseDto.setAuthor(author);
+        commentResponseDto.setParentId(row.getParentId());
+        commentResponseDto.setLikesCount(counterStore.overlay(CounterType.COMMENT_LIKES, row.getId(), row.getLikesCount()));
+        commentResponseDto.setReplyCount(row.getReplyCount());
+        commentResponseDto.setCreatedAt(row.getCreatedAt());
+        commentResponseDto.setUpdatedAt(row.getUpdatedAt());
+        return commentResponseDto;
+    }
 }
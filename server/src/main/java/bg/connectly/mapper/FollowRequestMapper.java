@@ -0,0 +1,36 @@
+package bg.connectly.mapper;
+
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.model.FollowRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapper class for converting FollowRequest entities to their responses.
+ */
+@Component
+public class FollowRequestMapper {
+    private final UserMapper userMapper;
+
+    @Autowired
+    public FollowRequestMapper(UserMapper userMapper) {
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * Converts a FollowRequest entity to a FollowRequestResponseDto.
+     * The receiver is mapped to its id only, so the receiver does not have to be loaded.
+     *
+     * @param followRequest the FollowRequest entity
+     * @return the created FollowRequestResponseDto
+     */
+    public FollowRequestResponseDto toFollowRequestResponseDto(FollowRequest followRequest) {
+        FollowRequestResponseDto followRequestResponseDto = new FollowRequestResponseDto();
+        followRequestResponseDto.setId(followRequest.getId());
+        followRequestResponseDto.setStatus(followRequest.getStatus());
+        followRequestResponseDto.setSender(userMapper.toUserResponseDto(followRequest.getSender()));
+        followRequestResponseDto.setReceiverId(followRequest.getReceiver().getId());
+        followRequestResponseDto.setCreatedAt(followRequest.getCreatedAt());
+        return followRequestResponseDto;
+    }
+}
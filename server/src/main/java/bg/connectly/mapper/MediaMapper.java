@@ -0,0 +1,77 @@
+package bg.connectly.mapper;
+
+import bg.connectly.dto.response.MediaResponseDto;
+import bg.connectly.dto.response.PostMediaDto;
+import bg.connectly.dto.response.UploadResponseDto;
+import bg.connectly.store.DerivativeStore;
+import bg.connectly.store.MediaStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Mapper class for converting uploads and stored media to their response DTOs.
+ */
+@Component
+public class MediaMapper {
+    public static final String MEDIA_PATH = "/api/media/";
+
+    private final DerivativeStore derivativeStore;
+
+    @Autowired
+    public MediaMapper(DerivativeStore derivativeStore) {
+        this.derivativeStore = derivativeStore;
+    }
+
+    /**
+     * Converts an upload in progress to an UploadResponseDto.
+     *
+     * @param upload the upload
+     * @return the created UploadResponseDto
+     */
+    public UploadResponseDto toUploadResponseDto(MediaStore.Upload upload) {
+        return new UploadResponseDto(upload.getId(), upload.getSize());
+    }
+
+    /**
+     * Converts a stored media file to a MediaResponseDto.
+     *
+     * @param media the stored media
+     * @return the created MediaResponseDto
+     */
+    public MediaResponseDto toMediaResponseDto(MediaStore.StoredMedia media) {
+        return new MediaResponseDto(media.id(), media.contentType(), media.size(), toMediaUrl(media.id()));
+    }
+
+    /**
+     * Converts a media id to the URL it is served from.
+     * Posts created before the media store hold external URLs, which are returned unchanged.
+     *
+     * @param mediaId the media id or legacy URL
+     * @return the URL of the media
+     */
+    public String toMediaUrl(String mediaId) {
+        return MediaStore.isMediaId(mediaId) ? MEDIA_PATH + mediaId : mediaId;
+    }
+
+    /**
+     * Converts a media id of a post to a PostMediaDto with the URLs of its resized copies.
+     * Until the copies are created, and for videos and legacy URLs, the original is used as the thumbnail.
+     *
+     * @param mediaId the media id or legacy URL
+     * @return the created PostMediaDto
+     */
+    public PostMediaDto toPostMediaDto(String mediaId) {
+        String url = toMediaUrl(mediaId);
+        List<DerivativeStore.Derivative> derivatives = derivativeStore.find(mediaId);
+        if (derivatives == null || derivatives.isEmpty()) {
+            return new PostMediaDto(url, url, null);
+        }
+        String srcset = derivatives.stream()
+                .map(derivative -> url + "/" + derivative.width() + " " + derivative.width() + "w")
+                .collect(Collectors.joining(", "));
+        return new PostMediaDto(url, url + "/" + derivatives.get(0).width(), srcset);
+    }
+}
@@ -1,17 +1,39 @@
 package bg.connectly.mapper;
 
 import bg.connectly.dto.PostDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.model.Post;
 import bg.connectly.model.User;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import bg.connectly.store.PostDocument;
+import bg.connectly.store.PostSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Mapper class for converting between PostDto and Post entities.
  */
 @Component
 public class PostMapper {
+    private final UserMapper userMapper;
+    private final CounterStore counterStore;
+    private final MediaMapper mediaMapper;
+
+    @Autowired
+    public PostMapper(UserMapper userMapper, CounterStore counterStore, MediaMapper mediaMapper) {
+        this.userMapper = userMapper;
+        this.counterStore = counterStore;
+        this.mediaMapper = mediaMapper;
+    }
 
     /**
      * Converts a PostDto to a Post entity.
@@ -23,9 +45,9 @@ public class PostMapper {
     public Post toPost(PostDto postDto, User existingUser) {
         Post post = new Post();
         post.setContent(postDto.getContent());
-        post.setMediaUrls(postDto.getMediaUrls());
+        post.setMediaIds(postDto.getMediaIds());
         post.setTags(postDto.getTags());
-        post.setVisibility(postDto.getVisibility());
+        post.setVisibility(postDto.getVisibility() != null ? postDto.getVisibility() : Post.VISIBILITY_PUBLIC);
         post.setLocation(postDto.getLocation());
         post.setPostType(postDto.getPostType());
         post.setAuthor(existingUser);
@@ -51,8 +73,8 @@ public class PostMapper {
             post.setContent(postDto.getContent());
             isUpdated = true;
         }
-        if (postDto.getMediaUrls() != null && !postDto.getMediaUrls().equals(post.getMediaUrls())) {
-            post.setMediaUrls(postDto.getMediaUrls());
+        if (postDto.getMediaIds() != null && !postDto.getMediaIds().equals(post.getMediaIds())) {
+            post.setMediaIds(postDto.getMediaIds());
             isUpdated = true;
         }
         if (postDto.getTags() != null && !postDto.getTags().equals(post.getTags())) {
@@ -78,4 +100,80 @@ public class PostMapper {
 
         return isUpdated;
     }
+
+    /**
+     * Converts a Post entity to a PostResponseDto.
+     * The collections are passed in separately so they can be loaded in bulk for a whole page of posts.
+     * The counters include changes that are not flushed to the database yet.
+     *
+     * @param post      the Post entity with its author loaded
+     * @param mediaIds the media ids of the post
+     * @param tags     the tags of the post
+     * @return the created PostResponseDto
+     */
+    public PostResponseDto toPostResponseDto(Post post, List<String> mediaIds, Set<String> tags) {
+        PostResponseDto postResponseDto = new PostResponseDto();
+        postResponseDto.setId(post.getId());
+        postResponseDto.setContent(post.getContent());
+        postResponseDto.setAuthor(userMapper.toUserResponseDto(post.getAuthor()));
+        // Copied so the DTO does not hold lazy entity collections past the transaction
+        postResponseDto.setMediaUrls(mediaIds != null ? mediaIds.stream().map(mediaMapper::toMediaUrl).toList() : List.of());
+        postResponseDto.setMedia(mediaIds != null ? mediaIds.stream().map(mediaMapper::toPostMediaDto).toList() : List.of());
+        postResponseDto.setTags(tags != null ? new HashSet<>(tags) : Set.of());
+        postResponseDto.setLikesCount(counterStore.overlay(CounterType.POST_LIKES, post.getId(), post.getLikesCount()));
+        postResponseDto.setCommentsCount(counterStore.overlay(CounterType.POST_COMMENTS, post.getId(), post.getCommentsCount()));
+        postResponseDto.setVisibility(post.getVisibility());
+        postResponseDto.setLocation(post.getLocation());
+        postResponseDto.setPostType(post.getPostType());
+        postResponseDto.setCreatedAt(post.getCreatedAt());
+        postResponseDto.setUpdatedAt(post.getUpdatedAt());
+        return postResponseDto;
+    }
+
+    /**
+     * Converts a Post entity written by the given principal to a PostResponseDto.
+     * The author is taken from the principal, so the author does not have to be loaded.
+     *
+     * @param post   the Post entity with its collections loaded or loadable
+     * @param author the principal of the author
+     * @return the created PostResponseDto
+     */
+    public PostResponseDto toPostResponseDto(Post post, UserPrincipal author) {
+        PostResponseDto postResponseDto = toPostResponseDto(post, post.getMediaIds(), post.getTags());
+        postResponseDto.setAuthor(userMapper.toUserResponseDto(author));
+        return postResponseDto;
+    }
+
+    /**
+     * Converts a Post entity to the document stored in the post search index.
+     *
+     * @param post the Post entity with its tags loaded or loadable
+     * @return the created PostDocument
+     */
+    public PostDocument toPostDocument(Post post) {
+        Set<String> tags = post.getTags() != null ? new HashSet<>(post.getTags()) : Set.of();
+        return new PostDocument(post.getId(), post.getAuthor().getId(), post.getContent(), tags, post.getCreatedAt());
+    }
+
+    /**
+     * Converts a post search hit to a PostSearchResultDto.
+     * Only the stored fields of the index are used, so the author is mapped to its id.
+     *
+     * @param hit the search hit with its score
+     * @return the created PostSearchResultDto
+     */
+    public PostSearchResultDto toPostSearchResultDto(PostSearchIndex.SearchHit hit) {
+        PostDocument document = hit.document();
+        UserResponseDto author = new UserResponseDto();
+        author.setId(document.authorId());
+
+        PostSearchResultDto postSearchResultDto = new PostSearchResultDto();
+        postSearchResultDto.setId(document.id());
+        postSearchResultDto.setContent(document.content());
+        postSearchResultDto.setAuthor(author);
+        postSearchResultDto.setTags(new HashSet<>(document.tags()));
+        postSearchResultDto.setScore(hit.score());
+        postSearchResultDto.setCreatedAt(document.createdAt());
+        return postSearchResultDto;
+    }
 }
@@ -3,7 +3,10 @@ package bg.connectly.mapper;
 
 import bg.connectly.dto.RegisterRequestDto;
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.model.User;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -42,6 +45,8 @@ public class UserMapper {
         user.setDateOfBirth(registerRequestDto.getDateOfBirth());
 
         //default values
+        user.setFollowersCount(0);
+        user.setFollowingCount(0);
         user.setLastLogin(LocalDateTime.now());
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
@@ -95,4 +100,51 @@ public class UserMapper {
 
         return user;
     }
+
+    /**
+     * Converts a User entity to its public summary.
+     *
+     * @param user the User entity
+     * @return the user summary without credentials or private fields
+     */
+    public UserResponseDto toUserResponseDto(User user) {
+        UserResponseDto userResponseDto = new UserResponseDto();
+        userResponseDto.setId(user.getId());
+        if (!Hibernate.isInitialized(user)) {
+            // An unloaded reference is mapped to its id only, so mapping never reads the users table
+            return userResponseDto;
+        }
+        userResponseDto.setEmail(user.getEmail());
+        userResponseDto.setFirstName(user.getFirstName());
+        userResponseDto.setLastName(user.getLastName());
+        userResponseDto.setProfilePicture(user.getProfilePicture());
+        return userResponseDto;
+    }
+
+    /**
+     * Converts a User entity to its principal.
+     *
+     * @param user the User entity
+     * @return the principal of the user
+     */
+    public UserPrincipal toUserPrincipal(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getProfilePicture());
+    }
+
+    /**
+     * Converts a resolved principal to a UserResponseDto.
+     *
+     * @param principal the principal of the user
+     * @return the created UserResponseDto
+     */
+    public UserResponseDto toUserResponseDto(UserPrincipal principal) {
+        UserResponseDto userResponseDto = new UserResponseDto();
+        userResponseDto.setId(principal.getId());
+        userResponseDto.setEmail(principal.getEmail());
+        userResponseDto.setFirstName(principal.getFirstName());
+        userResponseDto.setLastName(principal.getLastName());
+        userResponseDto.setProfilePicture(principal.getProfilePicture());
+        return userResponseDto;
+    }
 }
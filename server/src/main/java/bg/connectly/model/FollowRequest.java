@@ -9,18 +9,25 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "follow_requests")
+@Table(name = "follow_requests", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_follow_requests_sender_receiver", columnNames = {"sender_id", "receiver_id"})
+}, indexes = {
+        @Index(name = "idx_follow_requests_receiver_status", columnList = "receiver_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class FollowRequest {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_ACCEPTED = "ACCEPTED";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "follow_requests_seq")
+    @SequenceGenerator(name = "follow_requests_seq", sequenceName = "follow_requests_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
-    private String status;
+    private String status; // PENDING or ACCEPTED
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
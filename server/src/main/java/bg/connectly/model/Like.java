@@ -0,0 +1,40 @@
+package bg.connectly.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "likes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_likes_user_target", columnNames = {"user_id", "target_type", "target_id"})
+}, indexes = {
+        @Index(name = "idx_likes_target", columnList = "target_type, target_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Like {
+    public static final String TARGET_POST = "POST";
+    public static final String TARGET_COMMENT = "COMMENT";
+
+    @Id
+    // Stays IDENTITY: likes are added by a native INSERT ... ON CONFLICT that relies on the column default
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, length = 16)
+    private String targetType; // POST or COMMENT
+
+    @Column(nullable = false)
+    private Long targetId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
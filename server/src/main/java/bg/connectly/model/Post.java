@@ -1,6 +1,8 @@
 package bg.connectly.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,43 +12,59 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "posts")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_posts_user_created_at_id", columnList = "user_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Post {
+    // Visible to everyone; posts without a visibility are public too
+    public static final String VISIBILITY_PUBLIC = "public";
+    // Visible to the author and the users who follow them
+    public static final String VISIBILITY_FRIENDS = "friends-only";
+    // Visible to the author only
+    public static final String VISIBILITY_PRIVATE = "private";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 1000)
     private String content;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "post_media", joinColumns = @JoinColumn(name = "post_id"))
-    @Column(name = "media_url")
-    private List<String> mediaUrls; // URLs of images or videos
+    @Column(name = "media_url") // named before media was stored locally
+    private List<String> mediaIds; // ids of images or videos in the media store
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User author;
 
-    @Column(nullable = false)
+    // Only CounterStore flushes change it, so saving a loaded entity never writes back a stale count
+    @Column(nullable = false, updatable = false)
     private Integer likesCount = 0;
 
-    @Column(nullable = false)
+    // Also left to CounterStore
+    @Column(nullable = false, updatable = false)
     private Integer commentsCount = 0;
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Comment> comments;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "post_tags", joinColumns = @JoinColumn(name = "post_id"))
     @Column(name = "tag")
     private Set<String> tags;
 
-    private String visibility; // e.g., public, private, friends-only
+    private String visibility; // public, friends-only or private
 
     private String location; // Geotagging
 
@@ -1,6 +1,8 @@
 package bg.connectly.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +12,7 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "users", uniqueConstraints = @UniqueConstraint(columnNames = {"email"}))
 @Data
 @NoArgsConstructor
@@ -17,7 +20,8 @@ import java.util.Set;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -38,12 +42,15 @@ public class User {
     private Boolean isVerified;
     private Boolean isPublic;
 
+    // Set on insert, then only by LastLoginStore flushes, whose UPDATE never moves it backwards
+    @Column(updatable = false)
     private LocalDateTime lastLogin;
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
     @ElementCollection(fetch = FetchType.EAGER) // or FetchType.LAZY
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role")
     private Set<String> roles; // Roles like USER, ADMIN
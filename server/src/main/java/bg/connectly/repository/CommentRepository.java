@@ -1,10 +1,75 @@
 package bg.connectly.repository;
 
 import bg.connectly.model.Comment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface  CommentRepository extends JpaRepository<Comment, Long> {
+    String THREAD_COLUMNS = "SELECT c.id AS id, c.content AS content, c.parent_comment_id AS parentId, " +
+            "c.likes_count AS likesCount, c.created_at AS createdAt, c.updated_at AS updatedAt, " +
+            "(SELECT count(*) FROM comments r WHERE r.parent_comment_id = c.id) AS replyCount, " +
+            "u.id AS authorId, u.email AS authorEmail, u.first_name AS authorFirstName, " +
+            "u.last_name AS authorLastName, u.profile_picture AS authorProfilePicture " +
+            "FROM thread t JOIN comments c ON c.id = t.id JOIN users u ON u.id = c.user_id " +
+            "ORDER BY t.depth, c.created_at, c.id";
+
+    // Every level below the first is expanded with a LATERAL subquery capped at :replyLimit,
+    // so the cost depends on the number of returned comments, not on the size of the thread.
+    String THREAD_REPLIES = "UNION ALL " +
+            "SELECT r.id, t.depth + 1 FROM thread t CROSS JOIN LATERAL (" +
+            "SELECT c.id FROM comments c WHERE c.parent_comment_id = t.id " +
+            "ORDER BY c.created_at, c.id LIMIT :replyLimit) r " +
+            "WHERE t.depth < :depth) ";
+
     List<Comment> findByPostId(Long postId);
+
+    @Query(nativeQuery = true, value = "WITH RECURSIVE thread(id, depth) AS (" +
+            "(SELECT c.id, 1 FROM comments c WHERE c.post_id = :postId AND c.parent_comment_id IS NULL " +
+            "ORDER BY c.created_at, c.id OFFSET :offset LIMIT :limit) " +
+            THREAD_REPLIES + THREAD_COLUMNS)
+    List<CommentRow> findThreadByPostId(Long postId, int offset, int limit, int depth, int replyLimit);
+
+    @Query(nativeQuery = true, value = "WITH RECURSIVE thread(id, depth) AS (" +
+            "(SELECT c.id, 1 FROM comments c WHERE c.parent_comment_id = :commentId " +
+            "ORDER BY c.created_at, c.id OFFSET :offset LIMIT :limit) " +
+            THREAD_REPLIES + THREAD_COLUMNS)
+    List<CommentRow> findThreadByParentId(Long commentId, int offset, int limit, int depth, int replyLimit);
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.id = :id")
+    Optional<Comment> findWithAuthorById(Long id);
+
+    @Query("SELECT CASE WHEN count(c) > 0 THEN true ELSE false END FROM Comment c JOIN c.post p " +
+            "WHERE c.id = :id AND " + PostRepository.VISIBLE_TO_VIEWER)
+    boolean existsVisibleById(Long id, Long viewerId);
+
+    // Keyset pagination in conversation order: the pageable must always start at offset 0
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<Comment> findOldestByPostId(Long postId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.post.id = :postId " +
+            "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<Comment> findOldestByPostIdAfter(Long postId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    // Next chunk after the given id of the comments on the posts of a user and the comments the user wrote elsewhere
+
+    @QueryHints({
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author a JOIN c.post p " +
+            "WHERE (p.author.id = :userId OR a.id = :userId) AND c.id > :afterId ORDER BY c.id")
+    List<Comment> findExportChunk(Long userId, Long afterId, Pageable pageable);
 }
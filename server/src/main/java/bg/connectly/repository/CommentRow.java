@@ -0,0 +1,32 @@
+package bg.connectly.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat row of a comment thread, as returned by the recursive thread queries.
+ */
+public interface CommentRow {
+    Long getId();
+
+    String getContent();
+
+    Long getParentId();
+
+    Integer getLikesCount();
+
+    Long getReplyCount();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getAuthorId();
+
+    String getAuthorEmail();
+
+    String getAuthorFirstName();
+
+    String getAuthorLastName();
+
+    String getAuthorProfilePicture();
+}
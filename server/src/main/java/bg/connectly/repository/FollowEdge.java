@@ -0,0 +1,10 @@
+package bg.connectly.repository;
+
+/**
+ * Projection of an accepted follow, read when the follow graph is loaded.
+ */
+public interface FollowEdge {
+    Long getFollowerId();
+
+    Long getFollowedId();
+}
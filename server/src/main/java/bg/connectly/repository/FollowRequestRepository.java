@@ -0,0 +1,63 @@
+package bg.connectly.repository;
+
+import bg.connectly.model.FollowRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FollowRequestRepository extends JpaRepository<FollowRequest, Long> {
+    @Query("SELECT f.sender.id FROM FollowRequest f WHERE f.receiver.id = :userId AND f.status = 'ACCEPTED'")
+    List<Long> findFollowerIds(Long userId);
+
+    @Query("SELECT f.receiver.id FROM FollowRequest f WHERE f.sender.id = :userId AND f.status = 'ACCEPTED'")
+    List<Long> findFollowingIds(Long userId);
+
+    @Query("SELECT f FROM FollowRequest f WHERE f.sender.id = :senderId AND f.receiver.id = :receiverId")
+    Optional<FollowRequest> findBySenderIdAndReceiverId(Long senderId, Long receiverId);
+
+    // Loads the senders with the requests, so listing them does not query every sender
+    @Query("SELECT f FROM FollowRequest f JOIN FETCH f.sender " +
+            "WHERE f.receiver.id = :receiverId AND f.status = 'PENDING' ORDER BY f.createdAt DESC")
+    List<FollowRequest> findPendingByReceiverId(Long receiverId);
+
+    @Query("SELECT max(f.id) FROM FollowRequest f")
+    Long findMaxId();
+
+    @Query("SELECT f.sender.id AS followerId, f.receiver.id AS followedId FROM FollowRequest f " +
+            "WHERE f.id >= :fromId AND f.id < :toId AND f.status = 'ACCEPTED'")
+    List<FollowEdge> findAcceptedByIdRange(long fromId, long toId);
+
+    /**
+     * Accepts a pending request addressed to the given user.
+     *
+     * @return 1 if the request was accepted, 0 if there is no such pending request
+     */
+    @Modifying
+    @Query("UPDATE FollowRequest f SET f.status = 'ACCEPTED' " +
+            "WHERE f.id = :id AND f.receiver.id = :receiverId AND f.status = 'PENDING'")
+    int acceptPending(Long id, Long receiverId);
+
+    /**
+     * Removes a pending request addressed to the given user.
+     *
+     * @return 1 if the request was removed, 0 if there is no such pending request
+     */
+    @Modifying
+    @Query("DELETE FROM FollowRequest f WHERE f.id = :id AND f.receiver.id = :receiverId AND f.status = 'PENDING'")
+    int deletePending(Long id, Long receiverId);
+
+    /**
+     * Removes the request or follow from one user to another in the given state.
+     *
+     * @return 1 if it was removed, 0 if there was none in that state
+     */
+    @Modifying
+    @Query("DELETE FROM FollowRequest f " +
+            "WHERE f.sender.id = :senderId AND f.receiver.id = :receiverId AND f.status = :status")
+    int deleteBySenderIdAndReceiverIdAndStatus(Long senderId, Long receiverId, String status);
+}
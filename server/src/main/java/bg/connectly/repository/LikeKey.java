@@ -0,0 +1,12 @@
+package bg.connectly.repository;
+
+/**
+ * Projection of the identifying columns of a like.
+ */
+public interface LikeKey {
+    Long getUserId();
+
+    String getTargetType();
+
+    Long getTargetId();
+}
@@ -0,0 +1,57 @@
+package bg.connectly.repository;
+
+import bg.connectly.model.Like;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+@Repository
+public interface LikeRepository extends JpaRepository<Like, Long> {
+
+    /**
+     * Inserts a like unless the user already liked the target.
+     *
+     * @return 1 if the like was added, 0 if it already existed
+     */
+    // Declares the touched table, so Hibernate does not invalidate every second-level cache region
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "likes"))
+    @Query(value = "INSERT INTO likes (user_id, target_type, target_id, created_at) " +
+            "VALUES (:userId, :targetType, :targetId, now()) " +
+            "ON CONFLICT (user_id, target_type, target_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("targetType") String targetType,
+                       @Param("targetId") Long targetId);
+
+    /**
+     * Removes the like of a user from a target.
+     *
+     * @return 1 if the like was removed, 0 if there was none
+     */
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.user.id = :userId AND l.targetType = :targetType AND l.targetId = :targetId")
+    int deleteByUserAndTarget(@Param("userId") Long userId,
+                              @Param("targetType") String targetType,
+                              @Param("targetId") Long targetId);
+
+    @Query("SELECT l.targetId FROM Like l " +
+            "WHERE l.user.id = :userId AND l.targetType = :targetType AND l.targetId IN :targetIds")
+    List<Long> findLikedTargetIds(@Param("userId") Long userId,
+                                  @Param("targetType") String targetType,
+                                  @Param("targetIds") Collection<Long> targetIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT l.user.id AS userId, l.targetType AS targetType, l.targetId AS targetId FROM Like l")
+    Stream<LikeKey> streamAllKeys();
+}
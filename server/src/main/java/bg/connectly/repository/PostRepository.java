@@ -1,15 +1,113 @@
 package bg.connectly.repository;
 
+import bg.connectly.model.FollowRequest;
 import bg.connectly.model.Post;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
-    @Query("SELECT p FROM Post p WHERE p.author.email = :email ORDER BY p.createdAt DESC")
-    Page<Post> findByAuthorEmail(String email, Pageable pageable);
-    Page<Post> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    // Whether :viewerId may see post p: public posts to everyone, friends-only posts to the author's followers,
+    // and every post to its author. A null viewer sees public posts only. The follow is probed through the
+    // unique sender and receiver index, and only for friends-only posts, so the cost per row does not grow with
+    // the number of users the viewer follows.
+    String VISIBLE_TO_VIEWER = "(p.visibility IS NULL OR p.visibility = '" + Post.VISIBILITY_PUBLIC + "' " +
+            "OR p.author.id = :viewerId " +
+            "OR (p.visibility = '" + Post.VISIBILITY_FRIENDS + "' AND EXISTS (SELECT 1 FROM FollowRequest f " +
+            "WHERE f.sender.id = :viewerId AND f.receiver.id = p.author.id " +
+            "AND f.status = '" + FollowRequest.STATUS_ACCEPTED + "')))";
+
+    @Query(value = "SELECT p FROM Post p JOIN FETCH p.author a WHERE a.email = :email AND " + VISIBLE_TO_VIEWER +
+            " ORDER BY p.createdAt DESC",
+            countQuery = "SELECT count(p) FROM Post p WHERE p.author.email = :email AND " + VISIBLE_TO_VIEWER)
+    Page<Post> findByAuthorEmail(String email, Long viewerId, Pageable pageable);
+
+    @Query(value = "SELECT p FROM Post p JOIN FETCH p.author WHERE " + VISIBLE_TO_VIEWER + " ORDER BY p.createdAt DESC",
+            countQuery = "SELECT count(p) FROM Post p WHERE " + VISIBLE_TO_VIEWER)
+    Page<Post> findAllByOrderByCreatedAtDesc(Long viewerId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.id = :id")
+    Optional<Post> findWithAuthorById(Long id);
+
+    @Query("SELECT CASE WHEN count(p) > 0 THEN true ELSE false END FROM Post p " +
+            "WHERE p.id = :id AND " + VISIBLE_TO_VIEWER)
+    boolean existsVisibleById(Long id, Long viewerId);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.id IN :ids")
+    List<Post> findAllWithAuthorByIdIn(Collection<Long> ids);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.id IN :ids AND " + VISIBLE_TO_VIEWER)
+    List<Post> findVisibleWithAuthorByIdIn(Collection<Long> ids, Long viewerId);
+
+    // The authors are the viewer and users they follow, so only the private posts of others are left out
+    @Query("SELECT p.id FROM Post p WHERE p.author.id IN :authorIds " +
+            "AND (p.visibility IS NULL OR p.visibility <> '" + Post.VISIBILITY_PRIVATE + "' OR p.author.id = :viewerId) " +
+            "ORDER BY p.id DESC")
+    List<Long> findIdsByAuthorIds(Collection<Long> authorIds, Long viewerId, Pageable pageable);
+
+    // Collections of a whole page of posts, loaded in bulk instead of one lazy load per post
+
+    @Query("SELECT p.id AS postId, m AS item FROM Post p JOIN p.mediaIds m WHERE p.id IN :postIds")
+    List<PostValue> findMediaIdsByPostIds(Collection<Long> postIds);
+
+    @Query("SELECT p.id AS postId, t AS item FROM Post p JOIN p.tags t WHERE p.id IN :postIds")
+    List<PostValue> findTagsByPostIds(Collection<Long> postIds);
+
+    // Bulk reads by id range, used to rebuild the post search index
+
+    @Query("SELECT max(p.id) FROM Post p")
+    Long findMaxId();
+
+    // Only public posts are searchable
+    @Query("SELECT p.id AS id, p.author.id AS authorId, p.content AS content, p.createdAt AS createdAt " +
+            "FROM Post p WHERE p.id >= :fromId AND p.id < :toId " +
+            "AND (p.visibility IS NULL OR p.visibility = '" + Post.VISIBILITY_PUBLIC + "')")
+    List<PostSearchRow> findSearchRowsByIdRange(Long fromId, Long toId);
+
+    @Query("SELECT p.id AS postId, t AS item FROM Post p JOIN p.tags t WHERE p.id >= :fromId AND p.id < :toId")
+    List<PostValue> findTagsByIdRange(Long fromId, Long toId);
+
+    // Keyset pagination: the slice size comes from the pageable, which must always start at offset 0
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE " + VISIBLE_TO_VIEWER +
+            " ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findLatest(Long viewerId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author " +
+            "WHERE (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) AND " + VISIBLE_TO_VIEWER +
+            " ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findLatestBefore(LocalDateTime createdAt, Long id, Long viewerId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author a WHERE a.email = :email AND " + VISIBLE_TO_VIEWER +
+            " ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findLatestByAuthorEmail(String email, Long viewerId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author a WHERE a.email = :email " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) AND " + VISIBLE_TO_VIEWER +
+            " ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findLatestByAuthorEmailBefore(String email, LocalDateTime createdAt, Long id, Long viewerId,
+                                              Pageable pageable);
+
+    // Next chunk of the posts of an author after the given id, read-only and bypassing the query cache
+
+    @QueryHints({
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Post p JOIN FETCH p.author a WHERE a.id = :authorId AND p.id > :afterId ORDER BY p.id")
+    List<Post> findExportChunk(Long authorId, Long afterId, Pageable pageable);
 }
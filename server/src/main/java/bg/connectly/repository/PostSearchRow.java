@@ -0,0 +1,16 @@
+package bg.connectly.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the searchable columns of a post, read when the post search index is rebuilt.
+ */
+public interface PostSearchRow {
+    Long getId();
+
+    Long getAuthorId();
+
+    String getContent();
+
+    LocalDateTime getCreatedAt();
+}
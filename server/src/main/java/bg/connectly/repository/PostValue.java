@@ -0,0 +1,11 @@
+package bg.connectly.repository;
+
+/**
+ * Projection of a single element of a post collection (a media URL or a tag) together with the post id.
+ * Used to load the collections of a whole page of posts in one query.
+ */
+public interface PostValue {
+    Long getPostId();
+
+    String getItem();
+}
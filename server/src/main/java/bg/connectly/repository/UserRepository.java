@@ -1,13 +1,62 @@
 package bg.connectly.repository;
 
+import bg.connectly.dto.UserPrincipal;
 import bg.connectly.model.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
+    // Cached in the query cache when the l2cache profile is active
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
+
+    // Reads only the profile columns, without the eagerly fetched roles
+    @Query("SELECT new bg.connectly.dto.UserPrincipal(u.id, u.email, u.firstName, u.lastName, u.profilePicture) " +
+            "FROM User u WHERE u.email = :email")
+    Optional<UserPrincipal> findPrincipalByEmail(String email);
+
+    // Streams the profile columns of all users to build the user search index
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new bg.connectly.dto.UserPrincipal(u.id, u.email, u.firstName, u.lastName, u.profilePicture) " +
+            "FROM User u")
+    Stream<UserPrincipal> streamAllPrincipals();
+
+    @Query("SELECT new bg.connectly.dto.UserPrincipal(u.id, u.email, u.firstName, u.lastName, u.profilePicture) " +
+            "FROM User u WHERE u.id IN :ids")
+    List<UserPrincipal> findPrincipalsByIds(Collection<Long> ids);
+
+    // Locks the rows in id order, so two follows between the same users cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id IN :ids ORDER BY u.id")
+    List<User> findAllForUpdate(Collection<Long> ids);
+
+    /**
+     * Fills in the follower and following counts of users that never had them maintained.
+     *
+     * @return the number of users updated
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE users u SET " +
+            "followers_count = (SELECT count(*) FROM follow_requests f WHERE f.receiver_id = u.id AND f.status = 'ACCEPTED'), " +
+            "following_count = (SELECT count(*) FROM follow_requests f WHERE f.sender_id = u.id AND f.status = 'ACCEPTED') " +
+            "WHERE u.followers_count IS NULL OR u.following_count IS NULL", nativeQuery = true)
+    int initializeFollowCounts();
 }
@@ -1,17 +1,31 @@
 package bg.connectly.service;
 
 import bg.connectly.dto.CommentDto;
-import bg.connectly.model.Comment;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.store.VersionStore;
 import jakarta.validation.Valid;
 
 import java.util.List;
 
 public interface CommentService {
-    Comment createComment(Long postId, String email, @Valid CommentDto commentDto);
+    CommentResponseDto createComment(Long postId, String email, @Valid CommentDto commentDto);
 
-    Comment likeComment(Long commentId);
+    CommentResponseDto likeComment(Long commentId, String email);
 
-    Comment replyToComment(Long commentId, String email, @Valid CommentDto commentDto);
+    CommentResponseDto unlikeComment(Long commentId, String email);
 
-    List<Comment> getComments(Long postId);
+    CommentResponseDto replyToComment(Long commentId, String email, @Valid CommentDto commentDto);
+
+    List<CommentResponseDto> getComments(Long postId, String viewerEmail);
+
+    List<CommentResponseDto> getCommentThread(Long postId, int offset, int limit, int depth, int replyLimit,
+                                              String viewerEmail);
+
+    List<CommentResponseDto> getReplies(Long commentId, int offset, int limit, int depth, int replyLimit,
+                                        String viewerEmail);
+
+    CursorPage<CommentResponseDto> getComments(Long postId, String cursor, int size, String viewerEmail);
+
+    VersionStore.Stamp getCommentsStamp(Long postId, String viewerEmail);
 }
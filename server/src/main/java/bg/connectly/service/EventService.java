@@ -0,0 +1,9 @@
+package bg.connectly.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface EventService {
+    SseEmitter subscribeToPost(Long postId, String viewerEmail);
+
+    SseEmitter subscribeToFeed(String email);
+}
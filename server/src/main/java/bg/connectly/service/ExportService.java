@@ -0,0 +1,8 @@
+package bg.connectly.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportUser(String email, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,31 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.dto.response.FollowStatsDto;
+import bg.connectly.dto.response.UserResponseDto;
+
+import java.util.List;
+
+public interface FollowService {
+    FollowRequestResponseDto follow(String email, Long userId);
+
+    void unfollow(String email, Long userId);
+
+    List<FollowRequestResponseDto> getPendingRequests(String email);
+
+    FollowRequestResponseDto acceptRequest(String email, Long requestId);
+
+    void declineRequest(String email, Long requestId);
+
+    List<UserResponseDto> getFollowers(Long userId, int offset, int limit);
+
+    List<UserResponseDto> getFollowing(Long userId, int offset, int limit);
+
+    FollowStatsDto getStats(Long userId, String viewerEmail);
+
+    List<Long> getFollowerIds(Long userId);
+
+    List<Long> getFollowingIds(Long userId);
+
+    void loadGraph();
+}
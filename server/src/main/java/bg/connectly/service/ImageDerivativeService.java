@@ -0,0 +1,7 @@
+package bg.connectly.service;
+
+import java.util.Collection;
+
+public interface ImageDerivativeService {
+    void createDerivatives(Collection<String> mediaIds);
+}
@@ -0,0 +1,12 @@
+package bg.connectly.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface LikeService {
+    boolean like(Long userId, String targetType, Long targetId);
+
+    boolean unlike(Long userId, String targetType, Long targetId);
+
+    Set<Long> getLikedTargetIds(Long userId, String targetType, Collection<Long> targetIds);
+}
@@ -0,0 +1,26 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.MediaResponseDto;
+import bg.connectly.dto.response.UploadResponseDto;
+import bg.connectly.store.MediaStore;
+
+import java.io.InputStream;
+import java.util.Collection;
+
+public interface MediaService {
+    UploadResponseDto startUpload(String email);
+
+    UploadResponseDto getUpload(String uploadId, String email);
+
+    UploadResponseDto appendChunk(String uploadId, String email, long offset, InputStream chunk);
+
+    MediaResponseDto completeUpload(String uploadId, String email);
+
+    MediaStore.StoredMedia getMedia(String mediaId);
+
+    MediaStore.StoredMedia getDerivative(String mediaId, int width);
+
+    void validateMediaIds(Collection<String> mediaIds);
+
+    void validateMediaIds(Collection<String> mediaIds, Collection<String> keptMediaIds);
+}
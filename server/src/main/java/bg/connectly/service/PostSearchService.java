@@ -0,0 +1,16 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.model.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface PostSearchService {
+    Page<PostSearchResultDto> search(String query, Pageable pageable);
+
+    void index(Post post);
+
+    void remove(Long postId);
+
+    void rebuild();
+}
@@ -1,19 +1,39 @@
 package bg.connectly.service;
 
 import bg.connectly.dto.PostDto;
-import bg.connectly.model.Post;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.store.VersionStore;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 public interface PostService {
-    Page<Post> getPostsByEmail(String email, Pageable pageable);
+    Page<PostResponseDto> getPostsByEmail(String email, Pageable pageable, String viewerEmail);
 
-    Page<Post> getPosts(Pageable pageable);
+    Page<PostResponseDto> getPosts(Pageable pageable, String viewerEmail);
 
-    Post createPost(@Valid PostDto postDto, String email);
+    Page<PostSearchResultDto> searchPosts(String query, Pageable pageable);
+
+    Slice<PostResponseDto> getTimeline(String email, Pageable pageable);
+
+    CursorPage<PostResponseDto> getPosts(String cursor, int size, String viewerEmail);
+
+    CursorPage<PostResponseDto> getPostsByEmail(String email, String cursor, int size, String viewerEmail);
+
+    PostResponseDto createPost(@Valid PostDto postDto, String email);
 
     void deletePost(Long id, String email);
 
-    Post updatePost(Long id, String email, @Valid PostDto updatePostDto);
+    PostResponseDto updatePost(Long id, String email, @Valid PostDto updatePostDto);
+
+    PostResponseDto likePost(Long id, String email);
+
+    PostResponseDto unlikePost(Long id, String email);
+
+    VersionStore.Stamp getPostsStamp(String viewerEmail);
+
+    VersionStore.Stamp getPostsStamp(String email, String viewerEmail);
 }
@@ -0,0 +1,9 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.UserPrincipal;
+
+public interface PrincipalService {
+    UserPrincipal getPrincipal(String email);
+
+    void evict(String email);
+}
@@ -0,0 +1,9 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.SuggestionDto;
+
+import java.util.List;
+
+public interface SuggestionService {
+    List<SuggestionDto> getSuggestions(String email, int limit);
+}
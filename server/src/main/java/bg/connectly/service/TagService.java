@@ -0,0 +1,12 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.TrendingTagDto;
+import bg.connectly.model.Post;
+
+import java.util.List;
+
+public interface TagService {
+    void recordTags(Post post);
+
+    List<TrendingTagDto> getTrending(String window, int limit);
+}
@@ -0,0 +1,9 @@
+package bg.connectly.service;
+
+import java.util.List;
+
+public interface TimelineService {
+    void fanOutPost(Long authorId, Long postId, String visibility);
+
+    List<Long> getTimelinePostIds(Long userId, int offset, int limit);
+}
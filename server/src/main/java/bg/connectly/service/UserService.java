@@ -1,13 +1,23 @@
 package bg.connectly.service;
 
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.model.User;
+import bg.connectly.store.VersionStore;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface UserService {
     User updateUser(@Valid UserDto userDto, String email);
 
     Page<User> searchUsers(String searchText, Pageable pageable);
+
+    List<UserResponseDto> autocomplete(String prefix, int limit);
+
+    UserResponseDto getProfile(String email);
+
+    VersionStore.Stamp getProfileStamp(String email);
 }
@@ -9,9 +9,13 @@ import bg.connectly.mapper.UserMapper;
 import bg.connectly.model.User;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.AuthService;
+import bg.connectly.store.LastLoginStore;
+import bg.connectly.store.UserSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -29,15 +33,21 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final UserMapper userMapper;
+    private final UserSearchIndex userSearchIndex;
+    private final LastLoginStore lastLoginStore;
 
     @Autowired
     public AuthServiceImpl(UserRepository userRepository,
                            PasswordEncoder passwordEncoder,
-                           JwtUtil jwtUtil, UserMapper userMapper) {
+                           JwtUtil jwtUtil, UserMapper userMapper,
+                           UserSearchIndex userSearchIndex,
+                           LastLoginStore lastLoginStore) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.userMapper = userMapper;
+        this.userSearchIndex = userSearchIndex;
+        this.lastLoginStore = lastLoginStore;
     }
 
     /**
@@ -59,8 +69,8 @@ public class AuthServiceImpl implements AuthService {
             throw new AuthenticationException("Incorrect password");
         }
 
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        // Written behind in a batch instead of updating the whole user row on every login
+        lastLoginStore.record(user.getId(), LocalDateTime.now());
         logger.info("User authenticated successfully: {}", loginRequestDto.getEmail());
 
         return jwtUtil.generateToken(user.getEmail());
@@ -81,6 +91,7 @@ public class AuthServiceImpl implements AuthService {
 
         User user = userMapper.toUser(registerRequestDto);
         userRepository.save(user);
+        userSearchIndex.add(userMapper.toUserPrincipal(user));
 
         logger.info("User created successfully: {}", registerRequestDto.getEmail());
         return jwtUtil.generateToken(user.getEmail());
@@ -88,13 +99,24 @@ public class AuthServiceImpl implements AuthService {
 
     /**
      * Extracts the email from the provided JWT token.
+     * When the request filter already verified the same token, the email is taken from the security context.
      *
-     * @param token the JWT token
+     * @param token the authorization header value with the Bearer prefix
      * @return the email extracted from the token
+     * @throws AuthenticationException if the token is missing or invalid
      */
     @Override
     public String getEmailFromToken(String token) {
-        return jwtUtil.extractEmail(token.substring(7));
+        if (token == null || !token.startsWith("Bearer ")) {
+            throw new AuthenticationException("Invalid token");
+        }
+        String jwtToken = token.substring(7);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && JwtUtil.digest(jwtToken).equals(authentication.getCredentials())) {
+            return authentication.getName();
+        }
+        return jwtUtil.extractEmail(jwtToken);
     }
 
     /**
@@ -1,23 +1,38 @@
 package bg.connectly.service.impl;
 
 import bg.connectly.dto.CommentDto;
+import bg.connectly.dto.Cursor;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.CursorPage;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.CommentMapper;
 import bg.connectly.model.Comment;
+import bg.connectly.model.Like;
 import bg.connectly.model.Post;
-import bg.connectly.model.User;
 import bg.connectly.repository.CommentRepository;
+import bg.connectly.repository.CommentRow;
 import bg.connectly.repository.PostRepository;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.CommentService;
+import bg.connectly.service.LikeService;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import bg.connectly.store.EventBroker;
+import bg.connectly.store.VersionStore;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for managing comment-related operations.
@@ -27,33 +42,123 @@ import java.util.List;
 @Service
 public class CommentServiceImpl implements CommentService {
     private static final Logger logger = LoggerFactory.getLogger(CommentServiceImpl.class);
+    private static final int DEFAULT_THREAD_LIMIT = 20;
+    private static final int DEFAULT_THREAD_DEPTH = 3;
+    private static final int DEFAULT_REPLY_LIMIT = 5;
+    private static final int MAX_THREAD_LIMIT = 100;
+    private static final int MAX_THREAD_DEPTH = 10;
 
     private final CommentMapper commentMapper;
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
     private final PostRepository postRepository;
+    private final CounterStore counterStore;
+    private final LikeService likeService;
+    private final PrincipalService principalService;
+    private final VersionStore versionStore;
+    private final EventBroker eventBroker;
 
     @Autowired
     public CommentServiceImpl(CommentMapper commentMapper,
                               CommentRepository commentRepository,
                               UserRepository userRepository,
-                              PostRepository postRepository) {
+                              PostRepository postRepository,
+                              CounterStore counterStore,
+                              LikeService likeService,
+                              PrincipalService principalService,
+                              VersionStore versionStore,
+                              EventBroker eventBroker) {
         this.commentMapper = commentMapper;
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.postRepository = postRepository;
+        this.counterStore = counterStore;
+        this.likeService = likeService;
+        this.principalService = principalService;
+        this.versionStore = versionStore;
+        this.eventBroker = eventBroker;
     }
 
     /**
-     * Fetches comments for a given post ID.
+     * Fetches the first comments of a post as a thread, with the default depth and page sizes.
      *
-     * @param postId the ID of the post
-     * @return a list of comments for the given post ID
+     * @param postId      the ID of the post
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the top-level comments of the post with their first replies
+     * @throws NotFoundException if the post does not exist or the viewer may not see it
      */
     @Override
-    public List<Comment> getComments(Long postId) {
+    public List<CommentResponseDto> getComments(Long postId, String viewerEmail) {
         logger.info("Fetching comments for post id: {}", postId);
-        return commentRepository.findByPostId(postId);
+        return getCommentThread(postId, 0, DEFAULT_THREAD_LIMIT, DEFAULT_THREAD_DEPTH, DEFAULT_REPLY_LIMIT,
+                viewerEmail);
+    }
+
+    /**
+     * Fetches a comment thread of a post with a single recursive query.
+     *
+     * @param postId     the ID of the post
+     * @param offset     the number of top-level comments to skip
+     * @param limit      the maximum number of top-level comments
+     * @param depth      the maximum number of levels to load, top-level comments included
+     * @param replyLimit  the maximum number of replies loaded under each comment
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the top-level comments with their replies nested
+     * @throws NotFoundException if the post does not exist or the viewer may not see it
+     */
+    @Override
+    public List<CommentResponseDto> getCommentThread(Long postId, int offset, int limit, int depth, int replyLimit,
+                                                     String viewerEmail) {
+        logger.info("Fetching comment thread for post id: {} with depth: {}", postId, depth);
+        checkPostVisible(postId, getViewerId(viewerEmail));
+        List<CommentRow> rows = commentRepository.findThreadByPostId(postId, Math.max(offset, 0),
+                clamp(limit, MAX_THREAD_LIMIT), clamp(depth, MAX_THREAD_DEPTH), clamp(replyLimit, MAX_THREAD_LIMIT));
+        return buildTree(rows);
+    }
+
+    /**
+     * Fetches the replies of a comment as a thread, used to load more replies than the thread view shows.
+     *
+     * @param commentId  the ID of the parent comment
+     * @param offset     the number of direct replies to skip
+     * @param limit      the maximum number of direct replies
+     * @param depth      the maximum number of levels to load, direct replies included
+     * @param replyLimit  the maximum number of replies loaded under each nested reply
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the direct replies with their own replies nested
+     * @throws NotFoundException if the comment does not exist or the viewer may not see its post
+     */
+    @Override
+    public List<CommentResponseDto> getReplies(Long commentId, int offset, int limit, int depth, int replyLimit,
+                                               String viewerEmail) {
+        logger.info("Fetching replies for comment id: {} with depth: {}", commentId, depth);
+        checkCommentVisible(commentId, getViewerId(viewerEmail));
+        List<CommentRow> rows = commentRepository.findThreadByParentId(commentId, Math.max(offset, 0),
+                clamp(limit, MAX_THREAD_LIMIT), clamp(depth, MAX_THREAD_DEPTH), clamp(replyLimit, MAX_THREAD_LIMIT));
+        return buildTree(rows);
+    }
+
+    /**
+     * Fetches a slice of comments for a given post ID, oldest first, using keyset pagination.
+     *
+     * @param postId the ID of the post
+     * @param cursor the cursor returned with the previous slice, or null for the first slice
+     * @param size        the maximum number of comments to return
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return a slice of comments with the cursor of the next slice
+     * @throws NotFoundException if the post does not exist or the viewer may not see it
+     */
+    @Override
+    public CursorPage<CommentResponseDto> getComments(Long postId, String cursor, int size, String viewerEmail) {
+        logger.info("Fetching comments for post id: {} after cursor: {}", postId, cursor);
+        checkPostVisible(postId, getViewerId(viewerEmail));
+        Cursor after = Cursor.decode(cursor);
+        Slice<Comment> comments = after == null
+                ? commentRepository.findOldestByPostId(postId, CursorPage.limit(size))
+                : commentRepository.findOldestByPostIdAfter(postId, after.getCreatedAt(), after.getId(),
+                CursorPage.limit(size));
+        return CursorPage.of(comments, comment -> new Cursor(comment.getCreatedAt(), comment.getId()))
+                .map(page -> page.stream().map(commentMapper::toCommentResponseDto).toList());
     }
 
     /**
@@ -63,35 +168,75 @@ public class CommentServiceImpl implements CommentService {
      * @param email         the email of the author
      * @param commentDto the data transfer object containing comment details
      * @return the created comment
+     * @throws NotFoundException if the post does not exist or the author may not see it
      */
     @Override
     @Transactional
-    public Comment createComment(Long postId, String email, @Valid CommentDto commentDto) {
+    public CommentResponseDto createComment(Long postId, String email, @Valid CommentDto commentDto) {
         logger.info("Creating comment for post id: {} by email: {}", postId, email);
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+        UserPrincipal principal = principalService.getPrincipal(email);
+        checkPostVisible(postId, principal.getId());
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new NotFoundException("Post not found"));
 
-        Comment comment = commentMapper.toComment(commentDto, user, post, null);
+        Comment comment = commentMapper.toComment(commentDto, userRepository.getReferenceById(principal.getId()), post, null);
         postRepository.save(post);
 
-        return commentRepository.save(comment);
+        Comment savedComment = commentRepository.save(comment);
+        counterStore.increment(CounterType.POST_COMMENTS, postId, 1);
+        bumpComments(post);
+        return publishComment(postId, commentMapper.toCommentResponseDto(savedComment, principal));
     }
 
     /**
-     * Increments the like count of a comment by its ID.
+     * Likes a comment on behalf of the user with the given email.
+     * Liking a comment the user already liked has no effect.
      *
      * @param commentId the ID of the comment to like
-     * @return the updated comment with incremented like count
+     * @param email     the email of the user
+     * @return the comment with its like count
+     * @throws NotFoundException if the comment does not exist or the user may not see its post
+     */
+    @Override
+    @Transactional
+    public CommentResponseDto likeComment(Long commentId, String email) {
+        logger.info("Liking comment with id: {} by email: {}", commentId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        checkCommentVisible(commentId, principal.getId());
+        Comment comment = commentRepository.findWithAuthorById(commentId)
+                .orElseThrow(() -> new NotFoundException("Comment not found"));
+
+        if (likeService.like(principal.getId(), Like.TARGET_COMMENT, commentId)) {
+            versionStore.bump(VersionStore.commentsOf(comment.getPost().getId()));
+        }
+        CommentResponseDto commentResponseDto = commentMapper.toCommentResponseDto(comment);
+        commentResponseDto.setLikedByViewer(true);
+        return commentResponseDto;
+    }
+
+    /**
+     * Removes the like of the user with the given email from a comment.
+     *
+     * @param commentId the ID of the comment to unlike
+     * @param email     the email of the user
+     * @return the comment with its like count
+     * @throws NotFoundException if the comment does not exist or the user may not see its post
      */
     @Override
-    public Comment likeComment(Long commentId) {
-        logger.info("Liking comment with id: {}", commentId);
-        Comment comment = commentRepository.findById(commentId)
+    @Transactional
+    public CommentResponseDto unlikeComment(Long commentId, String email) {
+        logger.info("Unliking comment with id: {} by email: {}", commentId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        checkCommentVisible(commentId, principal.getId());
+        Comment comment = commentRepository.findWithAuthorById(commentId)
                 .orElseThrow(() -> new NotFoundException("Comment not found"));
-        comment.setLikesCount(comment.getLikesCount() + 1);
-        return commentRepository.save(comment);
+
+        if (likeService.unlike(principal.getId(), Like.TARGET_COMMENT, commentId)) {
+            versionStore.bump(VersionStore.commentsOf(comment.getPost().getId()));
+        }
+        CommentResponseDto commentResponseDto = commentMapper.toCommentResponseDto(comment);
+        commentResponseDto.setLikedByViewer(false);
+        return commentResponseDto;
     }
 
     /**
@@ -101,26 +246,105 @@ public class CommentServiceImpl implements CommentService {
      * @param email         the email of the author
      * @param commentDto the data transfer object containing reply details
      * @return the created reply comment
+     * @throws NotFoundException if the comment does not exist or the author may not see its post
      */
     @Override
     @Transactional
-    public Comment replyToComment(Long commentId, String email, @Valid CommentDto commentDto) {
+    public CommentResponseDto replyToComment(Long commentId, String email, @Valid CommentDto commentDto) {
         logger.info("Replying to comment with id: {} by email: {}", commentId, email);
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+        UserPrincipal principal = principalService.getPrincipal(email);
+        checkCommentVisible(commentId, principal.getId());
 
         Comment parentComment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new NotFoundException("Comment not found"));
 
-        Comment reply = commentMapper.toComment(commentDto, user, parentComment.getPost(), parentComment);
+        // The reply owns the parent relation, so only the reply is saved. Adding it to the parent's
+        // replies and saving the parent would make the cascade merge a second copy of the reply.
+        Comment reply = commentMapper.toComment(commentDto, userRepository.getReferenceById(principal.getId()),
+                parentComment.getPost(), parentComment);
+
+        Comment savedReply = commentRepository.save(reply);
+        counterStore.increment(CounterType.POST_COMMENTS, parentComment.getPost().getId(), 1);
+        bumpComments(parentComment.getPost());
+        return publishComment(parentComment.getPost().getId(), commentMapper.toCommentResponseDto(savedReply, principal));
+    }
+
+    /**
+     * Returns the version stamp of the comments of a post, which changes whenever a comment is added or liked,
+     * or the profile of an author changes.
+     *
+     * The post is checked first, so a viewer who may not see it gets a 404 rather than a 304.
+     *
+     * @param postId      the ID of the post
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the stamp to validate cached comments of the post
+     * @throws NotFoundException if the post does not exist or the viewer may not see it
+     */
+    @Override
+    public VersionStore.Stamp getCommentsStamp(Long postId, String viewerEmail) {
+        checkPostVisible(postId, getViewerId(viewerEmail));
+        return versionStore.stamp(VersionStore.commentsOf(postId));
+    }
+
+    /**
+     * Comments are as visible as their post. A post the viewer may not see is reported as missing, so its
+     * existence is not revealed either.
+     */
+    private void checkPostVisible(Long postId, Long viewerId) {
+        if (!postRepository.existsVisibleById(postId, viewerId)) {
+            throw new NotFoundException("Post not found");
+        }
+    }
+
+    private void checkCommentVisible(Long commentId, Long viewerId) {
+        if (!commentRepository.existsVisibleById(commentId, viewerId)) {
+            throw new NotFoundException("Comment not found");
+        }
+    }
+
+    private Long getViewerId(String viewerEmail) {
+        return viewerEmail != null ? principalService.getPrincipal(viewerEmail).getId() : null;
+    }
+
+    /**
+     * A new comment changes the comments of the post, and the comment count shown in the post lists.
+     */
+    private void bumpComments(Post post) {
+        versionStore.bump(VersionStore.commentsOf(post.getId()), VersionStore.POSTS,
+                VersionStore.postsOf(post.getAuthor().getId()));
+    }
 
-        if (parentComment.getReplies() == null) {
-            parentComment.setReplies(List.of(reply));
-        } else {
-            parentComment.getReplies().add(reply);
+    /**
+     * Pushes a new comment to the clients that have the post open, once the comment is committed.
+     */
+    private CommentResponseDto publishComment(Long postId, CommentResponseDto comment) {
+        eventBroker.publish(EventBroker.postTopic(postId), "comment", comment);
+        return comment;
+    }
+
+    /**
+     * Builds the reply tree from thread rows in linear time.
+     * Rows are ordered by depth, so every parent is seen before its replies.
+     * Rows whose parent is not in the result are the top level of the requested thread.
+     */
+    private List<CommentResponseDto> buildTree(List<CommentRow> rows) {
+        Map<Long, CommentResponseDto> commentsById = new HashMap<>(rows.size() * 2);
+        List<CommentResponseDto> roots = new ArrayList<>();
+        for (CommentRow row : rows) {
+            CommentResponseDto comment = commentMapper.toCommentResponseDto(row);
+            commentsById.put(comment.getId(), comment);
+
+            CommentResponseDto parent = comment.getParentId() != null ? commentsById.get(comment.getParentId()) : null;
+            if (parent != null) {
+                parent.getReplies().add(comment);
+            } else {
+                roots.add(comment);
+            }
         }
-        commentRepository.save(parentComment);
+        return roots;
+    }
 
-        return commentRepository.save(reply);
+    private static int clamp(int value, int max) {
+        return Math.max(1, Math.min(value, max));
     }
 }
@@ -0,0 +1,117 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.service.EventService;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.store.EventBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for pushing new comments and posts to clients over server-sent events.
+ * Every stream is a subscription of the event broker; the request thread is released as soon as the stream
+ * is open, so an idle stream holds a connection but no thread.
+ */
+@Service
+public class EventServiceImpl implements EventService {
+    private static final Logger logger = LoggerFactory.getLogger(EventServiceImpl.class);
+
+    private final EventBroker eventBroker;
+    private final PostRepository postRepository;
+    private final FollowService followService;
+    private final PrincipalService principalService;
+    private final long timeoutMillis;
+
+    @Autowired
+    public EventServiceImpl(EventBroker eventBroker,
+                            PostRepository postRepository,
+                            FollowService followService,
+                            PrincipalService principalService,
+                            @Value("${connectly.events.timeout-ms:1800000}") long timeoutMillis) {
+        this.eventBroker = eventBroker;
+        this.postRepository = postRepository;
+        this.followService = followService;
+        this.principalService = principalService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Opens a stream of the new comments and replies of a post.
+     *
+     * @param postId      the ID of the post
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the stream, which receives a {@code comment} event for every new comment
+     * @throws NotFoundException if the post does not exist or the viewer may not see it
+     */
+    @Override
+    public SseEmitter subscribeToPost(Long postId, String viewerEmail) {
+        logger.debug("Subscribing to comments of post id: {}", postId);
+        Long viewerId = viewerEmail != null ? principalService.getPrincipal(viewerEmail).getId() : null;
+        if (!postRepository.existsVisibleById(postId, viewerId)) {
+            throw new NotFoundException("Post not found");
+        }
+        return subscribe(List.of(EventBroker.postTopic(postId)));
+    }
+
+    /**
+     * Opens a stream of the new posts of the users the given user follows, and of the user's own posts.
+     * The followed users are read when the stream opens, so a follow takes effect on the next reconnect.
+     *
+     * @param email the email of the user
+     * @return the stream, which receives a {@code post} event for every new post
+     */
+    @Override
+    public SseEmitter subscribeToFeed(String email) {
+        UserPrincipal principal = principalService.getPrincipal(email);
+        logger.debug("Subscribing to feed of user id: {}", principal.getId());
+        List<String> topics = new ArrayList<>();
+        topics.add(EventBroker.authorTopic(principal.getId()));
+        for (Long followingId : followService.getFollowingIds(principal.getId())) {
+            topics.add(EventBroker.authorTopic(followingId));
+        }
+        return subscribe(topics);
+    }
+
+    private SseEmitter subscribe(List<String> topics) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        EventBroker.Subscription subscription = eventBroker.subscribe(topics, new EventBroker.EventSink() {
+            @Override
+            public void send(EventBroker.Event event) throws IOException {
+                if (event == EventBroker.HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment(""));
+                } else {
+                    emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+                }
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        try {
+            // Commits the response, so the client knows the stream is open before the first event
+            emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException e) {
+            subscription.close();
+            throw new UncheckedIOException("Failed to open event stream", e);
+        }
+        return emitter;
+    }
+}
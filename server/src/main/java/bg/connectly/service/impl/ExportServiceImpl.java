@@ -0,0 +1,205 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.exception.ServiceUnavailableException;
+import bg.connectly.mapper.CommentMapper;
+import bg.connectly.mapper.PostMapper;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.model.Comment;
+import bg.connectly.model.Post;
+import bg.connectly.model.User;
+import bg.connectly.repository.CommentRepository;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostValue;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.ExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for exporting the full history of a user.
+ * The export is written as NDJSON, one record per line: first the user, then every post of the user with its
+ * media and tags, then every comment on those posts and every comment the user wrote on other posts.
+ * Posts and comments are read in chunks by id, each in its own short read-only transaction, and a chunk is
+ * written to the client only after its transaction has ended, so a slow download never holds a database
+ * connection and memory stays constant no matter how long the history is. The chunks are not one snapshot,
+ * so records changed while an export runs may appear in their old or new state.
+ * At most {@code maxConcurrent} exports run at once; further requests are answered with 503.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final UserMapper userMapper;
+    private final PostMapper postMapper;
+    private final CommentMapper commentMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore exports;
+    private final long retryAfterSeconds;
+
+    @Autowired
+    public ExportServiceImpl(UserRepository userRepository,
+                             PostRepository postRepository,
+                             CommentRepository commentRepository,
+                             UserMapper userMapper,
+                             PostMapper postMapper,
+                             CommentMapper commentMapper,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${connectly.export.max-concurrent:2}") int maxConcurrent,
+                             @Value("${connectly.export.retry-after-seconds:10}") long retryAfterSeconds) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.userMapper = userMapper;
+        this.postMapper = postMapper;
+        this.commentMapper = commentMapper;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exports = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Writes the history of a user to the given stream as NDJSON.
+     * Every line is an object with a {@code type} of user, post or comment and the record under {@code data};
+     * comment lines also carry the {@code postId}. The stream is flushed after every chunk and left open.
+     *
+     * @param email        the email of the user
+     * @param outputStream the stream to write to
+     * @throws NotFoundException           if the user does not exist
+     * @throws ServiceUnavailableException if the maximum number of exports is already running
+     * @throws IOException                 if writing to the stream fails
+     */
+    @Override
+    public void exportUser(String email, OutputStream outputStream) throws IOException {
+        if (!exports.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many exports are running, please retry later",
+                    retryAfterSeconds);
+        }
+        try {
+            export(email, outputStream);
+        } finally {
+            exports.release();
+        }
+    }
+
+    private void export(String email, OutputStream outputStream) throws IOException {
+        logger.info("Exporting history of user: {}", email);
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by newlines instead of the default space between root values
+            generator.setRootValueSeparator(null);
+
+            writeRecord(generator, new Line("user", null, userMapper.toUserResponseDto(user)));
+            long posts = exportChunks(generator, afterId -> readPosts(user.getId(), afterId));
+            long comments = exportChunks(generator, afterId -> readComments(user.getId(), afterId));
+            generator.flush();
+            logger.info("Exported {} posts and {} comments of user: {}", posts, comments, email);
+        }
+    }
+
+    /**
+     * Reads chunks until one comes back short, writing and flushing each after its transaction has ended.
+     */
+    private long exportChunks(JsonGenerator generator, LongFunction<Chunk> readChunk) throws IOException {
+        long count = 0;
+        long afterId = 0;
+        while (true) {
+            long cursor = afterId;
+            Chunk chunk = readOnlyTransaction.execute(status -> readChunk.apply(cursor));
+            for (Line line : chunk.lines()) {
+                writeRecord(generator, line);
+            }
+            generator.flush();
+            count += chunk.lines().size();
+            if (chunk.lines().size() < CHUNK_SIZE) {
+                return count;
+            }
+            afterId = chunk.lastId();
+        }
+    }
+
+    /**
+     * Reads a chunk of posts with their media and tags, loaded with one query each.
+     */
+    private Chunk readPosts(Long userId, long afterId) {
+        List<Post> posts = postRepository.findExportChunk(userId, afterId, Pageable.ofSize(CHUNK_SIZE));
+        if (posts.isEmpty()) {
+            return new Chunk(List.of(), afterId);
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+        Map<Long, List<String>> mediaIds = postRepository.findMediaIdsByPostIds(postIds).stream()
+                .collect(Collectors.groupingBy(PostValue::getPostId,
+                        Collectors.mapping(PostValue::getItem, Collectors.toList())));
+        Map<Long, Set<String>> tags = postRepository.findTagsByPostIds(postIds).stream()
+                .collect(Collectors.groupingBy(PostValue::getPostId,
+                        Collectors.mapping(PostValue::getItem, Collectors.toCollection(HashSet::new))));
+
+        List<Line> lines = posts.stream()
+                .map(post -> new Line("post", null, postMapper.toPostResponseDto(post,
+                        mediaIds.getOrDefault(post.getId(), List.of()),
+                        tags.getOrDefault(post.getId(), Set.of()))))
+                .toList();
+        return new Chunk(lines, postIds.get(postIds.size() - 1));
+    }
+
+    private Chunk readComments(Long userId, long afterId) {
+        List<Comment> comments = commentRepository.findExportChunk(userId, afterId, Pageable.ofSize(CHUNK_SIZE));
+        if (comments.isEmpty()) {
+            return new Chunk(List.of(), afterId);
+        }
+        List<Line> lines = comments.stream()
+                .map(comment -> new Line("comment", comment.getPost().getId(),
+                        commentMapper.toCommentResponseDto(comment)))
+                .toList();
+        return new Chunk(lines, comments.get(comments.size() - 1).getId());
+    }
+
+    private void writeRecord(JsonGenerator generator, Line line) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", line.type());
+        if (line.postId() != null) {
+            generator.writeNumberField("postId", line.postId());
+        }
+        generator.writeObjectField("data", line.data());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private record Line(String type, Long postId, Object data) {
+    }
+
+    /**
+     * The lines of a chunk and the id the next chunk starts after.
+     */
+    private record Chunk(List<Line> lines, long lastId) {
+    }
+}
@@ -0,0 +1,414 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.dto.response.FollowStatsDto;
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.exception.BadRequestException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.mapper.FollowRequestMapper;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.model.FollowRequest;
+import bg.connectly.model.User;
+import bg.connectly.repository.FollowEdge;
+import bg.connectly.repository.FollowRequestRepository;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.store.FollowGraph;
+import bg.connectly.store.TimelineStore;
+import bg.connectly.store.VersionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * Service class for managing follows between users.
+ * A follow starts as a request, which is accepted at once unless the followed account is private.
+ * Accepted follows are mirrored in the in-memory follow graph, which answers follower lists, counts and
+ * "does A follow B" without the database; until the graph is loaded these fall back to queries.
+ */
+@Service
+public class FollowServiceImpl implements FollowService {
+    private static final Logger logger = LoggerFactory.getLogger(FollowServiceImpl.class);
+    private static final int LOAD_CHUNK_SIZE = 100_000;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final FollowRequestRepository followRequestRepository;
+    private final UserRepository userRepository;
+    private final FollowRequestMapper followRequestMapper;
+    private final UserMapper userMapper;
+    private final PrincipalService principalService;
+    private final FollowGraph followGraph;
+    private final TimelineStore timelineStore;
+    private final VersionStore versionStore;
+    private final int loadThreads;
+
+    @Autowired
+    public FollowServiceImpl(FollowRequestRepository followRequestRepository,
+                             UserRepository userRepository,
+                             FollowRequestMapper followRequestMapper,
+                             UserMapper userMapper,
+                             PrincipalService principalService,
+                             FollowGraph followGraph,
+                             TimelineStore timelineStore,
+                             VersionStore versionStore,
+                             @Value("${connectly.follows.load-threads:4}") int loadThreads) {
+        this.followRequestRepository = followRequestRepository;
+        this.userRepository = userRepository;
+        this.followRequestMapper = followRequestMapper;
+        this.userMapper = userMapper;
+        this.principalService = principalService;
+        this.followGraph = followGraph;
+        this.timelineStore = timelineStore;
+        this.versionStore = versionStore;
+        this.loadThreads = loadThreads;
+    }
+
+    /**
+     * Follows a user, or asks to follow them if their account is private.
+     * Following a user again returns the existing request or follow.
+     *
+     * @param email  the email of the follower
+     * @param userId the ID of the user to follow
+     * @return the follow request, ACCEPTED if it is already a follow
+     * @throws BadRequestException if the user tries to follow themselves
+     * @throws NotFoundException   if the user to follow does not exist
+     */
+    @Override
+    @Transactional
+    public FollowRequestResponseDto follow(String email, Long userId) {
+        logger.info("Following user id: {} by email: {}", userId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        if (principal.getId().equals(userId)) {
+            throw new BadRequestException("Users cannot follow themselves");
+        }
+        // Locking both users first serializes follows between them, so the request cannot be created twice
+        Map<Long, User> users = lockUsers(principal.getId(), userId);
+        User receiver = users.get(userId);
+        if (receiver == null) {
+            throw new NotFoundException("User not found");
+        }
+        FollowRequest existing = followRequestRepository.findBySenderIdAndReceiverId(principal.getId(), userId)
+                .orElse(null);
+        if (existing != null) {
+            return followRequestMapper.toFollowRequestResponseDto(existing);
+        }
+
+        FollowRequest followRequest = new FollowRequest();
+        followRequest.setSender(users.get(principal.getId()));
+        followRequest.setReceiver(receiver);
+        followRequest.setStatus(Boolean.FALSE.equals(receiver.getIsPublic())
+                ? FollowRequest.STATUS_PENDING : FollowRequest.STATUS_ACCEPTED);
+        followRequest.setCreatedAt(LocalDateTime.now());
+        FollowRequest savedRequest = followRequestRepository.save(followRequest);
+
+        if (FollowRequest.STATUS_ACCEPTED.equals(savedRequest.getStatus())) {
+            applyFollow(users, principal.getId(), userId, true);
+        }
+        return followRequestMapper.toFollowRequestResponseDto(savedRequest);
+    }
+
+    /**
+     * Stops following a user, or withdraws a request that was not accepted yet.
+     *
+     * @param email  the email of the follower
+     * @param userId the ID of the followed user
+     * @throws NotFoundException if the user neither follows nor asked to follow the other user
+     */
+    @Override
+    @Transactional
+    public void unfollow(String email, Long userId) {
+        logger.info("Unfollowing user id: {} by email: {}", userId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        if (followRequestRepository.deleteBySenderIdAndReceiverIdAndStatus(principal.getId(), userId,
+                FollowRequest.STATUS_ACCEPTED) == 1) {
+            applyFollow(lockUsers(principal.getId(), userId), principal.getId(), userId, false);
+            return;
+        }
+        if (followRequestRepository.deleteBySenderIdAndReceiverIdAndStatus(principal.getId(), userId,
+                FollowRequest.STATUS_PENDING) == 0) {
+            throw new NotFoundException("Follow not found");
+        }
+    }
+
+    /**
+     * Fetches the requests waiting for the given user to accept them, newest first.
+     *
+     * @param email the email of the user
+     * @return the pending requests with their senders
+     */
+    @Override
+    public List<FollowRequestResponseDto> getPendingRequests(String email) {
+        UserPrincipal principal = principalService.getPrincipal(email);
+        return followRequestRepository.findPendingByReceiverId(principal.getId()).stream()
+                .map(followRequestMapper::toFollowRequestResponseDto)
+                .toList();
+    }
+
+    /**
+     * Accepts a pending request addressed to the given user, which makes the sender a follower.
+     * The status changes with a conditional update, so accepting the same request twice counts it once.
+     *
+     * @param email     the email of the user the request is addressed to
+     * @param requestId the ID of the request
+     * @return the accepted request
+     * @throws NotFoundException if there is no such pending request for the user
+     */
+    @Override
+    @Transactional
+    public FollowRequestResponseDto acceptRequest(String email, Long requestId) {
+        logger.info("Accepting follow request id: {} by email: {}", requestId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        if (followRequestRepository.acceptPending(requestId, principal.getId()) == 0) {
+            throw new NotFoundException("Follow request not found");
+        }
+        FollowRequest followRequest = followRequestRepository.findById(requestId)
+                .orElseThrow(() -> new NotFoundException("Follow request not found"));
+        Long senderId = followRequest.getSender().getId();
+        applyFollow(lockUsers(senderId, principal.getId()), senderId, principal.getId(), true);
+        return followRequestMapper.toFollowRequestResponseDto(followRequest);
+    }
+
+    /**
+     * Declines a pending request addressed to the given user.
+     *
+     * @param email     the email of the user the request is addressed to
+     * @param requestId the ID of the request
+     * @throws NotFoundException if there is no such pending request for the user
+     */
+    @Override
+    @Transactional
+    public void declineRequest(String email, Long requestId) {
+        logger.info("Declining follow request id: {} by email: {}", requestId, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        if (followRequestRepository.deletePending(requestId, principal.getId()) == 0) {
+            throw new NotFoundException("Follow request not found");
+        }
+    }
+
+    /**
+     * Fetches a page of the followers of a user, ordered by user id.
+     *
+     * @param userId the ID of the user
+     * @param offset the number of followers to skip
+     * @param limit  the maximum number of followers
+     * @return the followers
+     */
+    @Override
+    public List<UserResponseDto> getFollowers(Long userId, int offset, int limit) {
+        int pageSize = clamp(limit);
+        List<Long> ids = followGraph.isLoaded()
+                ? toList(followGraph.getFollowerIds(userId, offset, pageSize))
+                : page(followRequestRepository.findFollowerIds(userId), offset, pageSize);
+        return toUsers(ids);
+    }
+
+    /**
+     * Fetches a page of the users a user follows, ordered by user id.
+     *
+     * @param userId the ID of the user
+     * @param offset the number of followed users to skip
+     * @param limit  the maximum number of followed users
+     * @return the followed users
+     */
+    @Override
+    public List<UserResponseDto> getFollowing(Long userId, int offset, int limit) {
+        int pageSize = clamp(limit);
+        List<Long> ids = followGraph.isLoaded()
+                ? toList(followGraph.getFollowingIds(userId, offset, pageSize))
+                : page(followRequestRepository.findFollowingIds(userId), offset, pageSize);
+        return toUsers(ids);
+    }
+
+    /**
+     * Returns the follower and following counts of a user, and whether the viewer follows the user.
+     *
+     * @param userId      the ID of the user
+     * @param viewerEmail the email of the viewer, or null for anonymous requests
+     * @return the follow counts of the user
+     */
+    @Override
+    public FollowStatsDto getStats(Long userId, String viewerEmail) {
+        Boolean followedByViewer = null;
+        if (viewerEmail != null) {
+            Long viewerId = principalService.getPrincipal(viewerEmail).getId();
+            followedByViewer = followGraph.isLoaded()
+                    ? followGraph.isFollowing(viewerId, userId)
+                    : followRequestRepository.findFollowingIds(viewerId).contains(userId);
+        }
+        if (followGraph.isLoaded()) {
+            return new FollowStatsDto(userId, followGraph.getFollowerCount(userId),
+                    followGraph.getFollowingCount(userId), followedByViewer);
+        }
+        return new FollowStatsDto(userId, followRequestRepository.findFollowerIds(userId).size(),
+                followRequestRepository.findFollowingIds(userId).size(), followedByViewer);
+    }
+
+    /**
+     * Returns the ids of the followers of a user, from the follow graph once it is loaded.
+     */
+    @Override
+    public List<Long> getFollowerIds(Long userId) {
+        return followGraph.isLoaded()
+                ? toList(followGraph.getFollowerIds(userId))
+                : followRequestRepository.findFollowerIds(userId);
+    }
+
+    /**
+     * Returns the ids of the users a user follows, from the follow graph once it is loaded.
+     */
+    @Override
+    public List<Long> getFollowingIds(Long userId) {
+        return followGraph.isLoaded()
+                ? toList(followGraph.getFollowingIds(userId))
+                : followRequestRepository.findFollowingIds(userId);
+    }
+
+    /**
+     * Loads the follow graph once the application has started. The id range of the follow requests is split
+     * into chunks that are read in parallel, and the graph is built from all of them at once.
+     * Also fills in the stored counts of users that never had them maintained.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadGraph() {
+        long start = System.currentTimeMillis();
+        int initialized = userRepository.initializeFollowCounts();
+        if (initialized > 0) {
+            logger.info("Initialized follow counts of {} users", initialized);
+        }
+
+        List<long[][]> chunks = new ArrayList<>();
+        Long maxId = followRequestRepository.findMaxId();
+        if (maxId != null) {
+            ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+            try {
+                List<Future<long[][]>> futures = new ArrayList<>();
+                for (long fromId = 0; fromId <= maxId; fromId += LOAD_CHUNK_SIZE) {
+                    long chunkStart = fromId;
+                    futures.add(executor.submit(() -> readRange(chunkStart, chunkStart + LOAD_CHUNK_SIZE)));
+                }
+                for (Future<long[][]> future : futures) {
+                    chunks.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Follow graph load was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Follow graph load failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        int total = chunks.stream().mapToInt(chunk -> chunk[0].length).sum();
+        long[] followerIds = new long[total];
+        long[] followedIds = new long[total];
+        int position = 0;
+        for (long[][] chunk : chunks) {
+            System.arraycopy(chunk[0], 0, followerIds, position, chunk[0].length);
+            System.arraycopy(chunk[1], 0, followedIds, position, chunk[1].length);
+            position += chunk[0].length;
+        }
+        followGraph.load(followerIds, followedIds);
+        logger.info("Built follow graph in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private long[][] readRange(long fromId, long toId) {
+        List<FollowEdge> edges = followRequestRepository.findAcceptedByIdRange(fromId, toId);
+        long[] followerIds = new long[edges.size()];
+        long[] followedIds = new long[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            followerIds[i] = edges.get(i).getFollowerId();
+            followedIds[i] = edges.get(i).getFollowedId();
+        }
+        return new long[][]{followerIds, followedIds};
+    }
+
+    /**
+     * Locks the rows of both users in id order, so concurrent changes to their counts are serialized.
+     */
+    private Map<Long, User> lockUsers(Long followerId, Long followedId) {
+        return userRepository.findAllForUpdate(List.of(followerId, followedId)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    /**
+     * Updates the stored counts of both users, and once the transaction commits, the follow graph and the
+     * timeline of the follower, which is rebuilt with the posts of the followed user on its next read.
+     */
+    private void applyFollow(Map<Long, User> users, Long followerId, Long followedId, boolean follow) {
+        int delta = follow ? 1 : -1;
+        User follower = users.get(followerId);
+        if (follower != null) {
+            follower.setFollowingCount(Math.max(0, count(follower.getFollowingCount()) + delta));
+        }
+        User followed = users.get(followedId);
+        if (followed != null) {
+            followed.setFollowersCount(Math.max(0, count(followed.getFollowersCount()) + delta));
+        }
+        // A rolled back follow never reaches the graph
+        afterCommit(() -> {
+            if (follow) {
+                followGraph.follow(followerId, followedId);
+            } else {
+                followGraph.unfollow(followerId, followedId);
+            }
+            timelineStore.remove(followerId);
+        });
+        versionStore.bump(VersionStore.followsOf(followerId));
+    }
+
+    private List<UserResponseDto> toUsers(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserPrincipal> principals = userRepository.findPrincipalsByIds(ids).stream()
+                .collect(Collectors.toMap(UserPrincipal::getId, Function.identity()));
+        return ids.stream()
+                .map(principals::get)
+                .filter(principal -> principal != null)
+                .map(userMapper::toUserResponseDto)
+                .toList();
+    }
+
+    // The database fallback is unordered, so it is sorted to page like the graph
+    private static List<Long> page(List<Long> ids, int offset, int limit) {
+        List<Long> sorted = ids.stream().sorted().toList();
+        int from = Math.min(Math.max(offset, 0), sorted.size());
+        return sorted.subList(from, Math.min(from + limit, sorted.size()));
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    private static int count(Integer value) {
+        return value != null ? value : 0;
+    }
+
+}
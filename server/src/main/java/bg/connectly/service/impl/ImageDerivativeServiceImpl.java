@@ -0,0 +1,191 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.service.ImageDerivativeService;
+import bg.connectly.store.DerivativeStore;
+import bg.connectly.store.MediaStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service class for creating resized copies of uploaded images.
+ * Images are decoded and resized on the derivative executor, never on request threads. Every image is
+ * processed once: images already processed or being processed are skipped, so attaching the same image to
+ * many posts does not decode it again.
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+    // Types ImageIO can decode without plugins; WebP and video are served as uploaded
+    private static final Set<String> DECODABLE_TYPES = Set.of("image/jpeg", "image/png", "image/gif");
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final MediaStore mediaStore;
+    private final DerivativeStore derivativeStore;
+    private final List<Integer> widths;
+    private final long maxPixels;
+
+    @Autowired
+    public ImageDerivativeServiceImpl(MediaStore mediaStore,
+                                      DerivativeStore derivativeStore,
+                                      @Value("${connectly.media.derivative-widths:160,320,640,1280}") List<Integer> widths,
+                                      @Value("${connectly.media.max-decode-pixels:50000000}") long maxPixels) {
+        this.mediaStore = mediaStore;
+        this.derivativeStore = derivativeStore;
+        // Largest first, so every width is scaled down from the next larger one
+        this.widths = widths.stream().sorted((a, b) -> b - a).toList();
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Creates the derivatives of the given images in the background.
+     * Videos, WebP images and images that were already processed are skipped.
+     *
+     * @param mediaIds the ids of the images
+     */
+    @Override
+    @Async("derivativeExecutor")
+    public void createDerivatives(Collection<String> mediaIds) {
+        for (String mediaId : mediaIds) {
+            if (!derivativeStore.claim(mediaId)) {
+                continue;
+            }
+            try {
+                derivativeStore.save(mediaId, resize(mediaId));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to create derivatives of media {}", mediaId, e);
+            } finally {
+                derivativeStore.release(mediaId);
+            }
+        }
+    }
+
+    /**
+     * Encodes the image at every configured width smaller than the image itself.
+     * Returns no derivatives if the image cannot be decoded, so it is not tried again.
+     */
+    private Map<DerivativeStore.Derivative, byte[]> resize(String mediaId) throws IOException {
+        Map<DerivativeStore.Derivative, byte[]> derivatives = new LinkedHashMap<>();
+        MediaStore.StoredMedia media = mediaStore.get(mediaId);
+        if (media == null || !DECODABLE_TYPES.contains(media.contentType())) {
+            return derivatives;
+        }
+        long started = System.nanoTime();
+        BufferedImage image = decode(media);
+        if (image == null) {
+            return derivatives;
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        String format = alpha ? DerivativeStore.Derivative.PNG : DerivativeStore.Derivative.JPEG;
+        for (int width : widths) {
+            if (width >= image.getWidth()) {
+                continue;
+            }
+            image = scale(image, width, alpha);
+            derivatives.put(new DerivativeStore.Derivative(width, format), encode(image, format));
+        }
+        logger.info("Created {} derivatives of media {} in {} ms", derivatives.size(), mediaId,
+                (System.nanoTime() - started) / 1_000_000);
+        return derivatives;
+    }
+
+    /**
+     * Decodes the first frame of an image. Large images are subsampled while decoding, so only as many pixels
+     * as the largest derivative needs are held in memory. Returns null for images that are corrupt or too large.
+     */
+    private BufferedImage decode(MediaStore.StoredMedia media) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(media.path().toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Media {} is {}x{} pixels, which is too large to resize", media.id(), width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the largest width so the final scaling step still has detail to average
+                int subsampling = Math.max(1, width / (2 * widths.get(0)));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Media {} could not be decoded: {}", media.id(), e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image down to the given width, halving the size in steps so bilinear filtering does not skip
+     * pixels when the reduction is large.
+     */
+    static BufferedImage scale(BufferedImage source, int width, boolean alpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (DerivativeStore.Derivative.PNG.equals(format)) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,132 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.model.Like;
+import bg.connectly.repository.LikeKey;
+import bg.connectly.repository.LikeRepository;
+import bg.connectly.service.LikeService;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import bg.connectly.store.LikeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * Service class for managing likes of posts and comments.
+ * Each user can like a target once. The like counters are kept in the CounterStore
+ * and a LikeFilter answers most "has the user liked this" checks without a query.
+ */
+@Service
+public class LikeServiceImpl implements LikeService {
+    private static final Logger logger = LoggerFactory.getLogger(LikeServiceImpl.class);
+
+    private final LikeRepository likeRepository;
+    private final LikeFilter likeFilter;
+    private final CounterStore counterStore;
+
+    @Autowired
+    public LikeServiceImpl(LikeRepository likeRepository,
+                           LikeFilter likeFilter,
+                           CounterStore counterStore) {
+        this.likeRepository = likeRepository;
+        this.likeFilter = likeFilter;
+        this.counterStore = counterStore;
+    }
+
+    /**
+     * Adds the like of a user to a target, unless the user already liked it.
+     *
+     * @param userId     the ID of the user
+     * @param targetType the type of the target, POST or COMMENT
+     * @param targetId   the ID of the target
+     * @return true if the like was added, false if the user already liked the target
+     */
+    @Override
+    @Transactional
+    public boolean like(Long userId, String targetType, Long targetId) {
+        logger.info("User {} liking {} {}", userId, targetType, targetId);
+        boolean added = likeRepository.insertIfAbsent(userId, targetType, targetId) > 0;
+        if (added) {
+            // A rolled back like never reaches the filter or the counters
+            afterCommit(() -> {
+                likeFilter.add(userId, targetType, targetId);
+                counterStore.increment(counterType(targetType), targetId, 1);
+            });
+        }
+        return added;
+    }
+
+    /**
+     * Removes the like of a user from a target.
+     *
+     * @param userId     the ID of the user
+     * @param targetType the type of the target, POST or COMMENT
+     * @param targetId   the ID of the target
+     * @return true if the like was removed, false if the user had not liked the target
+     */
+    @Override
+    @Transactional
+    public boolean unlike(Long userId, String targetType, Long targetId) {
+        logger.info("User {} unliking {} {}", userId, targetType, targetId);
+        boolean removed = likeRepository.deleteByUserAndTarget(userId, targetType, targetId) > 0;
+        if (removed) {
+            afterCommit(() -> counterStore.increment(counterType(targetType), targetId, -1));
+        }
+        return removed;
+    }
+
+    /**
+     * Returns which of the given targets the user has liked.
+     * Targets the filter rules out are skipped, the rest are confirmed with a single query.
+     *
+     * @param userId     the ID of the user
+     * @param targetType the type of the targets, POST or COMMENT
+     * @param targetIds  the IDs of the targets
+     * @return the IDs of the liked targets
+     */
+    @Override
+    public Set<Long> getLikedTargetIds(Long userId, String targetType, Collection<Long> targetIds) {
+        List<Long> candidates = targetIds.stream()
+                .filter(targetId -> likeFilter.mightContain(userId, targetType, targetId))
+                .toList();
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(likeRepository.findLikedTargetIds(userId, targetType, candidates));
+    }
+
+    /**
+     * Loads all existing likes into the filter once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadFilter() {
+        long count = 0;
+        try (Stream<LikeKey> keys = likeRepository.streamAllKeys()) {
+            for (LikeKey key : (Iterable<LikeKey>) keys::iterator) {
+                likeFilter.add(key.getUserId(), key.getTargetType(), key.getTargetId());
+                count++;
+            }
+        }
+        likeFilter.markLoaded();
+        logger.info("Loaded {} likes into the like filter", count);
+    }
+
+    private static CounterType counterType(String targetType) {
+        return Like.TARGET_POST.equals(targetType) ? CounterType.POST_LIKES : CounterType.COMMENT_LIKES;
+    }
+
+}
@@ -0,0 +1,211 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.response.MediaResponseDto;
+import bg.connectly.dto.response.UploadResponseDto;
+import bg.connectly.exception.BadRequestException;
+import bg.connectly.exception.ConflictException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.mapper.MediaMapper;
+import bg.connectly.service.MediaService;
+import bg.connectly.store.DerivativeStore;
+import bg.connectly.store.MediaStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service class for uploading and serving media.
+ * Uploads are chunked and belong to the user who started them; completed media is content-addressed and
+ * public, so it can be cached by browsers and proxies forever.
+ */
+@Service
+public class MediaServiceImpl implements MediaService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaServiceImpl.class);
+
+    private final MediaStore mediaStore;
+    private final DerivativeStore derivativeStore;
+    private final MediaMapper mediaMapper;
+
+    @Autowired
+    public MediaServiceImpl(MediaStore mediaStore, DerivativeStore derivativeStore, MediaMapper mediaMapper) {
+        this.mediaStore = mediaStore;
+        this.derivativeStore = derivativeStore;
+        this.mediaMapper = mediaMapper;
+    }
+
+    /**
+     * Starts a new upload for the given email.
+     *
+     * @param email the email of the uploader
+     * @return the upload with its id and an offset of zero
+     * @throws ConflictException if the uploader already has the maximum number of uploads in progress
+     */
+    @Override
+    public UploadResponseDto startUpload(String email) {
+        try {
+            MediaStore.Upload upload = mediaStore.startUpload(email);
+            logger.info("Started upload {} for email: {}", upload.getId(), email);
+            return mediaMapper.toUploadResponseDto(upload);
+        } catch (IllegalStateException e) {
+            throw new ConflictException(e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start upload", e);
+        }
+    }
+
+    /**
+     * Fetches the state of an upload, so an interrupted client knows where to resume.
+     *
+     * @param uploadId the ID of the upload
+     * @param email    the email of the uploader
+     * @return the upload with the number of bytes received
+     * @throws NotFoundException if the upload does not exist or belongs to someone else
+     */
+    @Override
+    public UploadResponseDto getUpload(String uploadId, String email) {
+        return mediaMapper.toUploadResponseDto(findUpload(uploadId, email));
+    }
+
+    /**
+     * Appends a chunk to an upload.
+     *
+     * @param uploadId the ID of the upload
+     * @param email    the email of the uploader
+     * @param offset   the position of the chunk, which must be the number of bytes received so far
+     * @param chunk    the content of the chunk
+     * @return the upload with the number of bytes received
+     * @throws NotFoundException   if the upload does not exist or belongs to someone else
+     * @throws ConflictException   if the offset does not match or another chunk is being written
+     * @throws BadRequestException if the upload would exceed the maximum size
+     */
+    @Override
+    public UploadResponseDto appendChunk(String uploadId, String email, long offset, InputStream chunk) {
+        MediaStore.Upload upload = findUpload(uploadId, email);
+        try {
+            mediaStore.append(upload, offset, chunk);
+            return mediaMapper.toUploadResponseDto(upload);
+        } catch (IllegalStateException e) {
+            throw new ConflictException(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write chunk", e);
+        }
+    }
+
+    /**
+     * Completes an upload and stores the media under its content hash.
+     *
+     * @param uploadId the ID of the upload
+     * @param email    the email of the uploader
+     * @return the stored media
+     * @throws NotFoundException   if the upload does not exist or belongs to someone else
+     * @throws ConflictException   if the upload is already completed
+     * @throws BadRequestException if the upload is not a supported image or video
+     */
+    @Override
+    public MediaResponseDto completeUpload(String uploadId, String email) {
+        MediaStore.Upload upload = findUpload(uploadId, email);
+        try {
+            MediaStore.StoredMedia media = mediaStore.complete(upload);
+            logger.info("Completed upload {} as media {} ({} bytes)", uploadId, media.id(), media.size());
+            return mediaMapper.toMediaResponseDto(media);
+        } catch (IllegalStateException e) {
+            throw new ConflictException(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to complete upload", e);
+        }
+    }
+
+    /**
+     * Fetches a stored media file.
+     *
+     * @param mediaId the ID of the media
+     * @return the stored media
+     * @throws NotFoundException if there is no media with the given ID
+     */
+    @Override
+    public MediaStore.StoredMedia getMedia(String mediaId) {
+        try {
+            MediaStore.StoredMedia media = mediaStore.get(mediaId);
+            if (media == null) {
+                throw new NotFoundException("Media not found");
+            }
+            return media;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read media", e);
+        }
+    }
+
+    /**
+     * Fetches a resized copy of a stored image.
+     *
+     * @param mediaId the ID of the original image
+     * @param width   the width of the copy
+     * @return the stored copy
+     * @throws NotFoundException if there is no copy of the given width yet
+     */
+    @Override
+    public MediaStore.StoredMedia getDerivative(String mediaId, int width) {
+        try {
+            MediaStore.StoredMedia derivative = derivativeStore.get(mediaId, width);
+            if (derivative == null) {
+                throw new NotFoundException("Media not found");
+            }
+            return derivative;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read media", e);
+        }
+    }
+
+    /**
+     * Checks that every given ID refers to stored media, so posts cannot point at anything else.
+     *
+     * @param mediaIds the IDs to check, may be null
+     * @throws BadRequestException if an ID does not refer to stored media
+     */
+    @Override
+    public void validateMediaIds(Collection<String> mediaIds) {
+        validateMediaIds(mediaIds, List.of());
+    }
+
+    /**
+     * Checks that every given ID that is not already kept on a post refers to stored media. Values stored before
+     * media was uploaded, such as plain URLs, stay valid on the post they belong to.
+     *
+     * @param mediaIds     the IDs to check, may be null
+     * @param keptMediaIds the values already stored on the post, may be null
+     * @throws BadRequestException if a new ID does not refer to stored media
+     */
+    @Override
+    public void validateMediaIds(Collection<String> mediaIds, Collection<String> keptMediaIds) {
+        if (mediaIds == null) {
+            return;
+        }
+        for (String mediaId : mediaIds) {
+            if (keptMediaIds != null && keptMediaIds.contains(mediaId)) {
+                continue;
+            }
+            if (!mediaStore.exists(mediaId)) {
+                throw new BadRequestException("Unknown media: " + mediaId);
+            }
+        }
+    }
+
+    private MediaStore.Upload findUpload(String uploadId, String email) {
+        MediaStore.Upload upload = mediaStore.getUpload(uploadId);
+        if (upload == null || !upload.getOwner().equals(email)) {
+            throw new NotFoundException("Upload not found");
+        }
+        return upload;
+    }
+}
@@ -0,0 +1,180 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.mapper.PostMapper;
+import bg.connectly.model.Post;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostSearchRow;
+import bg.connectly.repository.PostValue;
+import bg.connectly.service.PostSearchService;
+import bg.connectly.store.PostDocument;
+import bg.connectly.store.PostSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * Service class for full-text search over posts.
+ * Searches are answered from the post search index only. The index is kept in sync by the post service,
+ * loaded from its segments on startup, and rebuilt from the posts table when there are none.
+ */
+@Service
+public class PostSearchServiceImpl implements PostSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchServiceImpl.class);
+    private static final int REBUILD_CHUNK_SIZE = 5000;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final PostSearchIndex postSearchIndex;
+    private final PostRepository postRepository;
+    private final PostMapper postMapper;
+    private final int rebuildThreads;
+    private final boolean rebuildOnStartup;
+
+    @Autowired
+    public PostSearchServiceImpl(PostSearchIndex postSearchIndex,
+                                 PostRepository postRepository,
+                                 PostMapper postMapper,
+                                 @Value("${connectly.post-search.rebuild-threads:4}") int rebuildThreads,
+                                 @Value("${connectly.post-search.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.postSearchIndex = postSearchIndex;
+        this.postRepository = postRepository;
+        this.postMapper = postMapper;
+        this.rebuildThreads = rebuildThreads;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /**
+     * Searches posts by content and tags, best matches first.
+     *
+     * @param query    the search text
+     * @param pageable the pagination information; its sort is not applied
+     * @return a page of matching posts with their scores
+     */
+    @Override
+    public Page<PostSearchResultDto> search(String query, Pageable pageable) {
+        logger.info("Searching posts with query: {}", query);
+        int size = Math.min(pageable.getPageSize(), MAX_PAGE_SIZE);
+        PostSearchIndex.SearchResult result = postSearchIndex.search(query, (int) pageable.getOffset(), size);
+        List<PostSearchResultDto> posts = result.hits().stream().map(postMapper::toPostSearchResultDto).toList();
+        return new PageImpl<>(posts, pageable, result.total());
+    }
+
+    /**
+     * Indexes a created or updated post once the surrounding transaction commits.
+     * The document is read from the post right away, while its tags can still be loaded.
+     * Only public posts are searchable, so a post made friends-only or private is removed instead.
+     *
+     * @param post the saved post
+     */
+    @Override
+    public void index(Post post) {
+        if (post.getVisibility() != null && !Post.VISIBILITY_PUBLIC.equals(post.getVisibility())) {
+            remove(post.getId());
+            return;
+        }
+        PostDocument document = postMapper.toPostDocument(post);
+        // A rolled back write never reaches the index
+        afterCommit(() -> postSearchIndex.add(document));
+    }
+
+    /**
+     * Removes a deleted post from the index once the surrounding transaction commits.
+     *
+     * @param postId the ID of the deleted post
+     */
+    @Override
+    public void remove(Long postId) {
+        afterCommit(() -> postSearchIndex.remove(postId));
+    }
+
+    /**
+     * Loads the index from its segments once the application has started, or rebuilds it if there are none.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (!rebuildOnStartup && postSearchIndex.loadSegments()) {
+            postSearchIndex.markLoaded();
+            logger.info("Loaded {} posts into the post search index", postSearchIndex.size());
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the posts table. The id range is split into chunks that are read and indexed
+     * in parallel, and the result is written as a single snapshot segment.
+     */
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        postSearchIndex.clear();
+        Long maxId = postRepository.findMaxId();
+
+        if (maxId != null) {
+            ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+            try {
+                List<Future<?>> chunks = new ArrayList<>();
+                for (long fromId = 0; fromId <= maxId; fromId += REBUILD_CHUNK_SIZE) {
+                    long chunkStart = fromId;
+                    chunks.add(executor.submit(() -> indexRange(chunkStart, chunkStart + REBUILD_CHUNK_SIZE)));
+                }
+                for (Future<?> chunk : chunks) {
+                    chunk.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Post search index rebuild was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Post search index rebuild failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        try {
+            postSearchIndex.compact();
+        } catch (IOException e) {
+            logger.warn("Failed to write post search snapshot, the next flush will retry", e);
+        }
+        postSearchIndex.markLoaded();
+        logger.info("Rebuilt post search index with {} posts in {} ms", postSearchIndex.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private void indexRange(long fromId, long toId) {
+        List<PostSearchRow> rows = postRepository.findSearchRowsByIdRange(fromId, toId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<String>> tagsByPostId = new HashMap<>();
+        for (PostValue tag : postRepository.findTagsByIdRange(fromId, toId)) {
+            tagsByPostId.computeIfAbsent(tag.getPostId(), id -> new HashSet<>()).add(tag.getItem());
+        }
+        for (PostSearchRow row : rows) {
+            postSearchIndex.addIfAbsent(new PostDocument(row.getId(), row.getAuthorId(), row.getContent(),
+                    tagsByPostId.getOrDefault(row.getId(), Set.of()), row.getCreatedAt()));
+        }
+    }
+
+}
@@ -1,22 +1,47 @@
 package bg.connectly.service.impl;
 
+import bg.connectly.dto.Cursor;
 import bg.connectly.dto.PostDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.dto.response.PostSearchResultDto;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.PostMapper;
+import bg.connectly.model.Like;
 import bg.connectly.model.Post;
-import bg.connectly.model.User;
 import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostValue;
 import bg.connectly.repository.UserRepository;
+import bg.connectly.service.ImageDerivativeService;
+import bg.connectly.service.LikeService;
+import bg.connectly.service.MediaService;
+import bg.connectly.service.PostSearchService;
 import bg.connectly.service.PostService;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.service.TagService;
+import bg.connectly.service.TimelineService;
+import bg.connectly.store.EventBroker;
+import bg.connectly.store.VersionStore;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing post-related operations.
@@ -30,26 +55,56 @@ public class PostServiceImpl implements PostService {
     private final PostMapper postMapper;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final TimelineService timelineService;
+    private final LikeService likeService;
+    private final PrincipalService principalService;
+    private final PostSearchService postSearchService;
+    private final TagService tagService;
+    private final MediaService mediaService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final VersionStore versionStore;
+    private final EventBroker eventBroker;
+
     @Autowired
     public PostServiceImpl(PostMapper postMapper,
                            PostRepository postRepository,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           TimelineService timelineService,
+                           LikeService likeService,
+                           PrincipalService principalService,
+                           PostSearchService postSearchService,
+                           TagService tagService,
+                           MediaService mediaService,
+                           ImageDerivativeService imageDerivativeService,
+                           VersionStore versionStore,
+                           EventBroker eventBroker) {
         this.postMapper = postMapper;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
+        this.timelineService = timelineService;
+        this.likeService = likeService;
+        this.principalService = principalService;
+        this.postSearchService = postSearchService;
+        this.tagService = tagService;
+        this.mediaService = mediaService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.versionStore = versionStore;
+        this.eventBroker = eventBroker;
     }
 
     /**
-     * Fetches posts by the given email.
+     * Fetches the posts by the given email that the viewer may see.
      *
-     * @param email the email of the author
-     * @param pageable the pagination information
+     * @param email       the email of the author
+     * @param pageable    the pagination information
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
      * @return a page of posts by the given email
      */
     @Override
-    public Page<Post> getPostsByEmail(String email, Pageable pageable) {
+    public Page<PostResponseDto> getPostsByEmail(String email, Pageable pageable, String viewerEmail) {
         logger.info("Fetching posts for email: {}", email);
-        return postRepository.findByAuthorEmail(email, pageable);
+        Page<Post> posts = postRepository.findByAuthorEmail(email, getViewerId(viewerEmail), pageable);
+        return new PageImpl<>(toPostResponseDtos(posts.getContent()), posts.getPageable(), posts.getTotalElements());
     }
 
     /**
@@ -60,13 +115,25 @@ public class PostServiceImpl implements PostService {
      * @return the created post
      */
     @Override
-    public Post createPost(@Valid PostDto postDto, String email) {
+    public PostResponseDto createPost(@Valid PostDto postDto, String email) {
         logger.info("Creating post for email: {}", email);
-        User existingUser = userRepository
-                .findByEmail(email).orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+        UserPrincipal principal = principalService.getPrincipal(email);
+        mediaService.validateMediaIds(postDto.getMediaIds());
 
-        Post post = postMapper.toPost(postDto, existingUser);
-        return postRepository.save(post);
+        Post post = postMapper.toPost(postDto, userRepository.getReferenceById(principal.getId()));
+        Post savedPost = postRepository.save(post);
+
+        timelineService.fanOutPost(principal.getId(), savedPost.getId(), savedPost.getVisibility());
+        postSearchService.index(savedPost);
+        tagService.recordTags(savedPost);
+        createDerivatives(postDto.getMediaIds());
+        versionStore.bump(VersionStore.POSTS, VersionStore.postsOf(principal.getId()));
+        PostResponseDto postResponseDto = postMapper.toPostResponseDto(savedPost, principal);
+        // Feed subscribers of the author are their followers, who may not see private posts
+        if (!Post.VISIBILITY_PRIVATE.equals(savedPost.getVisibility())) {
+            eventBroker.publish(EventBroker.authorTopic(principal.getId()), "post", postResponseDto);
+        }
+        return postResponseDto;
     }
 
     /**
@@ -80,17 +147,18 @@ public class PostServiceImpl implements PostService {
     public void deletePost(Long id, String email) {
         logger.info("Deleting post with id: {} for email: {}", id, email);
 
-        User existingUser = userRepository
-                .findByEmail(email).orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+        UserPrincipal principal = principalService.getPrincipal(email);
 
         Post existingPost = postRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Post not found"));
 
-        if (!existingPost.getAuthor().equals(existingUser)) {
+        if (!existingPost.getAuthor().getId().equals(principal.getId())) {
             throw new NotFoundException("Post not found");
         }
 
         postRepository.delete(existingPost);
+        postSearchService.remove(id);
+        versionStore.bump(VersionStore.POSTS, VersionStore.postsOf(principal.getId()), VersionStore.commentsOf(id));
     }
 
     /**
@@ -103,36 +171,273 @@ public class PostServiceImpl implements PostService {
      */
     @Override
     @Transactional
-    public Post updatePost(Long id, String email, @Valid PostDto updatePostDto) {
+    public PostResponseDto updatePost(Long id, String email, @Valid PostDto updatePostDto) {
         logger.info("Updating post with id: {} for email: {}", id, email);
-        User existingUser = userRepository
-                .findByEmail(email).orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+        UserPrincipal principal = principalService.getPrincipal(email);
 
         Post existingPost = postRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Post not found"));
 
-        if (!existingPost.getAuthor().equals(existingUser)) {
+        if (!existingPost.getAuthor().getId().equals(principal.getId())) {
             throw new NotFoundException("Post not found");
         }
+        mediaService.validateMediaIds(updatePostDto.getMediaIds(), existingPost.getMediaIds());
 
         boolean isUpdated = postMapper.updatePostFromDto(updatePostDto, existingPost);
         if (isUpdated) {
             logger.info("Post updated successfully: {}", id);
-            return postRepository.save(existingPost);
+            existingPost = postRepository.save(existingPost);
+            postSearchService.index(existingPost);
+            createDerivatives(updatePostDto.getMediaIds());
+            versionStore.bump(VersionStore.POSTS, VersionStore.postsOf(principal.getId()));
         }
-        return existingPost;
+        return postMapper.toPostResponseDto(existingPost, principal);
     }
 
     /**
-     * Fetches all posts with pagination.
+     * Searches posts by content and tags. The search is answered from the post search index.
      *
+     * @param query    the search text
      * @param pageable the pagination information
+     * @return a page of matching posts, best matches first
+     */
+    @Override
+    public Page<PostSearchResultDto> searchPosts(String query, Pageable pageable) {
+        return postSearchService.search(query, pageable);
+    }
+
+    /**
+     * Fetches all posts the viewer may see with pagination.
+     *
+     * @param pageable    the pagination information
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
      * @return a page of all posts
      */
     @Override
-    public Page<Post> getPosts(Pageable pageable) {
+    public Page<PostResponseDto> getPosts(Pageable pageable, String viewerEmail) {
         logger.info("Fetching all posts");
-        return postRepository.findAllByOrderByCreatedAtDesc(pageable);
+        Page<Post> posts = postRepository.findAllByOrderByCreatedAtDesc(getViewerId(viewerEmail), pageable);
+        return new PageImpl<>(toPostResponseDtos(posts.getContent()), posts.getPageable(), posts.getTotalElements());
+    }
+
+    /**
+     * Fetches a page of the home timeline of the given email.
+     * The timeline holds the posts of the user and everyone they follow, newest first.
+     *
+     * @param email    the email of the user
+     * @param pageable the pagination information
+     * @return a slice of timeline posts
+     */
+    @Override
+    public Slice<PostResponseDto> getTimeline(String email, Pageable pageable) {
+        logger.info("Fetching timeline for email: {}", email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+
+        // Fetch one extra id to know whether there is a next page
+        List<Long> postIds = timelineService.getTimelinePostIds(principal.getId(),
+                (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = postIds.size() > pageable.getPageSize();
+        if (hasNext) {
+            postIds = postIds.subList(0, pageable.getPageSize());
+        }
+
+        // Keep the timeline order, skipping posts deleted or hidden from the user since they were fanned out
+        Map<Long, Post> postsById = postRepository.findVisibleWithAuthorByIdIn(postIds, principal.getId()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = postIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        List<PostResponseDto> postResponseDtos = toPostResponseDtos(posts);
+        Set<Long> likedPostIds = likeService.getLikedTargetIds(principal.getId(), Like.TARGET_POST,
+                posts.stream().map(Post::getId).toList());
+        postResponseDtos.forEach(post -> post.setLikedByViewer(likedPostIds.contains(post.getId())));
+        return new SliceImpl<>(postResponseDtos, pageable, hasNext);
     }
 
+    /**
+     * Likes a post on behalf of the user with the given email.
+     * Liking a post the user already liked has no effect.
+     *
+     * @param id    the ID of the post to like
+     * @param email the email of the user
+     * @return the post with its like count
+     * @throws NotFoundException if the post does not exist or the user may not see it
+     */
+    @Override
+    @Transactional
+    public PostResponseDto likePost(Long id, String email) {
+        logger.info("Liking post with id: {} by email: {}", id, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        // A post the user may not see cannot be liked, and is reported as missing like in the reads
+        if (!postRepository.existsVisibleById(id, principal.getId())) {
+            throw new NotFoundException("Post not found");
+        }
+        Post existingPost = postRepository.findWithAuthorById(id)
+                .orElseThrow(() -> new NotFoundException("Post not found"));
+
+        if (likeService.like(principal.getId(), Like.TARGET_POST, id)) {
+            versionStore.bump(VersionStore.POSTS, VersionStore.postsOf(existingPost.getAuthor().getId()));
+        }
+        PostResponseDto postResponseDto = postMapper.toPostResponseDto(existingPost,
+                existingPost.getMediaIds(), existingPost.getTags());
+        postResponseDto.setLikedByViewer(true);
+        return postResponseDto;
+    }
+
+    /**
+     * Removes the like of the user with the given email from a post.
+     *
+     * @param id    the ID of the post to unlike
+     * @param email the email of the user
+     * @return the post with its like count
+     * @throws NotFoundException if the post does not exist or the user may not see it
+     */
+    @Override
+    @Transactional
+    public PostResponseDto unlikePost(Long id, String email) {
+        logger.info("Unliking post with id: {} by email: {}", id, email);
+        UserPrincipal principal = principalService.getPrincipal(email);
+        // Hidden posts stay hidden here too, so the response does not leak their content
+        if (!postRepository.existsVisibleById(id, principal.getId())) {
+            throw new NotFoundException("Post not found");
+        }
+        Post existingPost = postRepository.findWithAuthorById(id)
+                .orElseThrow(() -> new NotFoundException("Post not found"));
+
+        if (likeService.unlike(principal.getId(), Like.TARGET_POST, id)) {
+            versionStore.bump(VersionStore.POSTS, VersionStore.postsOf(existingPost.getAuthor().getId()));
+        }
+        PostResponseDto postResponseDto = postMapper.toPostResponseDto(existingPost,
+                existingPost.getMediaIds(), existingPost.getTags());
+        postResponseDto.setLikedByViewer(false);
+        return postResponseDto;
+    }
+
+    /**
+     * Fetches a slice of all posts the viewer may see, newest first, using keyset pagination.
+     *
+     * @param cursor      the cursor returned with the previous slice, or null for the first slice
+     * @param size        the maximum number of posts to return
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return a slice of posts with the cursor of the next slice
+     */
+    @Override
+    public CursorPage<PostResponseDto> getPosts(String cursor, int size, String viewerEmail) {
+        logger.info("Fetching all posts after cursor: {}", cursor);
+        Cursor after = Cursor.decode(cursor);
+        Long viewerId = getViewerId(viewerEmail);
+        Slice<Post> posts = after == null
+                ? postRepository.findLatest(viewerId, CursorPage.limit(size))
+                : postRepository.findLatestBefore(after.getCreatedAt(), after.getId(), viewerId,
+                CursorPage.limit(size));
+        return CursorPage.of(posts, post -> new Cursor(post.getCreatedAt(), post.getId()))
+                .map(this::toPostResponseDtos);
+    }
+
+    /**
+     * Fetches a slice of the posts by the given email that the viewer may see, newest first, using keyset
+     * pagination.
+     *
+     * @param email       the email of the author
+     * @param cursor      the cursor returned with the previous slice, or null for the first slice
+     * @param size        the maximum number of posts to return
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return a slice of posts with the cursor of the next slice
+     */
+    @Override
+    public CursorPage<PostResponseDto> getPostsByEmail(String email, String cursor, int size, String viewerEmail) {
+        logger.info("Fetching posts for email: {} after cursor: {}", email, cursor);
+        Cursor after = Cursor.decode(cursor);
+        Long viewerId = getViewerId(viewerEmail);
+        Slice<Post> posts = after == null
+                ? postRepository.findLatestByAuthorEmail(email, viewerId, CursorPage.limit(size))
+                : postRepository.findLatestByAuthorEmailBefore(email, after.getCreatedAt(), after.getId(), viewerId,
+                CursorPage.limit(size));
+        return CursorPage.of(posts, post -> new Cursor(post.getCreatedAt(), post.getId()))
+                .map(this::toPostResponseDtos);
+    }
+
+    /**
+     * Returns the version stamp of the list of all posts, which changes whenever a post, its counters or
+     * the profile of an author changes, and for a signed-in viewer whenever they follow or unfollow someone.
+     *
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the stamp to validate cached pages of all posts
+     */
+    @Override
+    public VersionStore.Stamp getPostsStamp(String viewerEmail) {
+        Long viewerId = getViewerId(viewerEmail);
+        return viewerId != null
+                ? versionStore.stamp(VersionStore.POSTS, VersionStore.followsOf(viewerId))
+                : versionStore.stamp(VersionStore.POSTS);
+    }
+
+    /**
+     * Returns the version stamp of the posts of the given email, as seen by the viewer.
+     * For an email without a user the stamp only changes with profiles, since the list stays empty.
+     *
+     * @param email       the email of the author
+     * @param viewerEmail the email of the viewer, or null for an anonymous viewer
+     * @return the stamp to validate cached pages of the posts of the author
+     */
+    @Override
+    public VersionStore.Stamp getPostsStamp(String email, String viewerEmail) {
+        UserPrincipal principal;
+        try {
+            principal = principalService.getPrincipal(email);
+        } catch (NotFoundException e) {
+            return versionStore.stamp();
+        }
+        Long viewerId = getViewerId(viewerEmail);
+        return viewerId != null
+                ? versionStore.stamp(VersionStore.postsOf(principal.getId()), VersionStore.followsOf(viewerId))
+                : versionStore.stamp(VersionStore.postsOf(principal.getId()));
+    }
+
+    /**
+     * Resolves the viewer of a read once, so the visibility of every post is checked against an id.
+     */
+    private Long getViewerId(String viewerEmail) {
+        return viewerEmail != null ? principalService.getPrincipal(viewerEmail).getId() : null;
+    }
+
+    /**
+     * Queues the resized copies of newly attached images. The images are decoded in the background, and
+     * images that already have their copies are skipped there.
+     */
+    private void createDerivatives(List<String> mediaIds) {
+        if (mediaIds != null && !mediaIds.isEmpty()) {
+            imageDerivativeService.createDerivatives(List.copyOf(mediaIds));
+        }
+    }
+
+    /**
+     * Converts a page of posts to response DTOs.
+     * The media and tags of all posts are loaded with one query each, so the number of
+     * statements does not depend on the page size. The authors must already be fetched with the posts.
+     *
+     * @param posts the posts to convert
+     * @return the response DTOs in the same order
+     */
+    private List<PostResponseDto> toPostResponseDtos(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+
+        Map<Long, List<String>> mediaIds = postRepository.findMediaIdsByPostIds(postIds).stream()
+                .collect(Collectors.groupingBy(PostValue::getPostId,
+                        Collectors.mapping(PostValue::getItem, Collectors.toList())));
+        Map<Long, Set<String>> tags = postRepository.findTagsByPostIds(postIds).stream()
+                .collect(Collectors.groupingBy(PostValue::getPostId,
+                        Collectors.mapping(PostValue::getItem, Collectors.toCollection(HashSet::new))));
+
+        return posts.stream()
+                .map(post -> postMapper.toPostResponseDto(post,
+                        mediaIds.getOrDefault(post.getId(), List.of()),
+                        tags.getOrDefault(post.getId(), Set.of())))
+                .toList();
+    }
 }
@@ -0,0 +1,78 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.store.PrincipalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Service class for resolving the email of an authenticated user to their id and profile.
+ * A principal is resolved at most once per request and is shared between requests through the PrincipalCache,
+ * so write paths can link new rows to the user without reading the users table.
+ */
+@Service
+public class PrincipalServiceImpl implements PrincipalService {
+    private static final Logger logger = LoggerFactory.getLogger(PrincipalServiceImpl.class);
+    private static final String REQUEST_ATTRIBUTE = PrincipalServiceImpl.class.getName() + ".principal.";
+
+    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+
+    @Autowired
+    public PrincipalServiceImpl(UserRepository userRepository, PrincipalCache principalCache) {
+        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+    }
+
+    /**
+     * Resolves the principal of the user with the given email.
+     *
+     * @param email the email of the user
+     * @return the id and profile of the user
+     * @throws NotFoundException if no user has the given email
+     */
+    @Override
+    public UserPrincipal getPrincipal(String email) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            Object resolved = request.getAttribute(REQUEST_ATTRIBUTE + email, RequestAttributes.SCOPE_REQUEST);
+            if (resolved instanceof UserPrincipal principal) {
+                return principal;
+            }
+        }
+
+        UserPrincipal principal = principalCache.get(email);
+        if (principal == null) {
+            logger.info("Resolving principal for email: {}", email);
+            principal = userRepository.findPrincipalByEmail(email)
+                    .orElseThrow(() -> new NotFoundException("Email " + email + " not found"));
+            principalCache.put(principal);
+        }
+
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE + email, principal, RequestAttributes.SCOPE_REQUEST);
+        }
+        return principal;
+    }
+
+    /**
+     * Removes the cached principal of the given email, to be called after the user changes.
+     *
+     * @param email the email of the user
+     */
+    @Override
+    public void evict(String email) {
+        principalCache.remove(email);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(REQUEST_ATTRIBUTE + email, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.SuggestionDto;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.PrincipalService;
+import bg.connectly.service.SuggestionService;
+import bg.connectly.store.FollowGraph;
+import bg.connectly.store.SuggestionCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for suggesting users to follow.
+ * Suggestions are the users followed by the most of the users someone follows, found by a two-hop walk over
+ * the follow graph on a fork-join pool. The walk is bounded three ways, so a user who follows celebrities
+ * cannot hold the pool: at most {@code maxFollowing} followed users are sampled, each contributes a random
+ * window of at most {@code maxFanOut} of their own follows, and the whole walk reads at most {@code maxEdges}.
+ * The result is cached per user and refreshed in the background once it expires.
+ */
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionServiceImpl.class);
+    // Followed users walked by one task before it stops splitting
+    private static final int LEAF_SIZE = 64;
+
+    private final FollowGraph followGraph;
+    private final SuggestionCache suggestionCache;
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final PrincipalService principalService;
+    private final ForkJoinPool suggestionPool;
+    private final int size;
+    private final int maxFollowing;
+    private final int maxFanOut;
+    private final long maxEdges;
+
+    @Autowired
+    public SuggestionServiceImpl(FollowGraph followGraph,
+                                 SuggestionCache suggestionCache,
+                                 UserRepository userRepository,
+                                 UserMapper userMapper,
+                                 PrincipalService principalService,
+                                 @Qualifier("suggestionPool") ForkJoinPool suggestionPool,
+                                 @Value("${connectly.suggestions.size:20}") int size,
+                                 @Value("${connectly.suggestions.max-following:1000}") int maxFollowing,
+                                 @Value("${connectly.suggestions.max-fan-out:1000}") int maxFanOut,
+                                 @Value("${connectly.suggestions.max-edges:200000}") long maxEdges) {
+        this.followGraph = followGraph;
+        this.suggestionCache = suggestionCache;
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.principalService = principalService;
+        this.suggestionPool = suggestionPool;
+        this.size = size;
+        this.maxFollowing = maxFollowing;
+        this.maxFanOut = maxFanOut;
+        this.maxEdges = maxEdges;
+    }
+
+    /**
+     * Fetches users the given user may want to follow, best first.
+     * The first call of a user computes the suggestions; later calls are served from the cache, and an expired
+     * entry is served once more while it is recomputed in the background. Users followed since the suggestions
+     * were computed are left out. Until the follow graph is loaded there are no suggestions.
+     *
+     * @param email the email of the user
+     * @param limit the maximum number of suggestions
+     * @return the suggested users, with the number of followed users who follow each of them
+     */
+    @Override
+    public List<SuggestionDto> getSuggestions(String email, int limit) {
+        UserPrincipal principal = principalService.getPrincipal(email);
+        Long userId = principal.getId();
+        if (!followGraph.isLoaded()) {
+            return List.of();
+        }
+
+        SuggestionCache.Suggestions suggestions = suggestionCache.get(userId);
+        if (suggestions == null) {
+            suggestions = compute(userId);
+        } else if (suggestions.isExpired() && suggestionCache.startRefresh(userId)) {
+            refreshInBackground(userId);
+        }
+
+        int count = Math.max(1, Math.min(limit, size));
+        List<Long> ids = new ArrayList<>(count);
+        List<Integer> mutualCounts = new ArrayList<>(count);
+        for (int i = 0; i < suggestions.userIds().length && ids.size() < count; i++) {
+            long candidateId = suggestions.userIds()[i];
+            if (!followGraph.isFollowing(userId, candidateId)) {
+                ids.add(candidateId);
+                mutualCounts.add(suggestions.mutualCounts()[i]);
+            }
+        }
+        return toSuggestions(ids, mutualCounts);
+    }
+
+    private void refreshInBackground(Long userId) {
+        try {
+            suggestionPool.execute(() -> {
+                try {
+                    compute(userId);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to refresh follow suggestions of user {}", userId, e);
+                } finally {
+                    suggestionCache.finishRefresh(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            suggestionCache.finishRefresh(userId);
+            logger.warn("Suggestion pool rejected the refresh of user {}", userId);
+        }
+    }
+
+    /**
+     * Walks two hops from a user, counts how many followed users follow each user reached, and caches the
+     * best counts. Users the user already follows, and the user themselves, are not counted.
+     */
+    private SuggestionCache.Suggestions compute(long userId) {
+        long[] following = followGraph.getFollowingIds(userId);
+        long[] sampled = sample(following, maxFollowing);
+        LongIntCounter counts = suggestionPool.invoke(new WalkTask(sampled, 0, sampled.length,
+                new AtomicLong(maxEdges)));
+
+        Top top = counts.top(size, candidateId ->
+                candidateId != userId && Arrays.binarySearch(following, candidateId) < 0);
+        return suggestionCache.put(userId, top.ids, top.counts);
+    }
+
+    private List<SuggestionDto> toSuggestions(List<Long> ids, List<Integer> mutualCounts) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserPrincipal> principals = userRepository.findPrincipalsByIds(ids).stream()
+                .collect(Collectors.toMap(UserPrincipal::getId, Function.identity()));
+        List<SuggestionDto> suggestions = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            UserPrincipal principal = principals.get(ids.get(i));
+            if (principal != null) {
+                suggestions.add(new SuggestionDto(userMapper.toUserResponseDto(principal), mutualCounts.get(i)));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns at most {@code max} of the ids, chosen at random when there are more.
+     */
+    private static long[] sample(long[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        long[] shuffled = ids.clone();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < max; i++) {
+            int j = random.nextInt(i, shuffled.length);
+            long swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        return Arrays.copyOf(shuffled, max);
+    }
+
+    /**
+     * Counts the follows of a range of followed users. Large ranges are split in half and the counts of the
+     * halves merged; all tasks of one walk draw on the same edge budget.
+     */
+    private class WalkTask extends RecursiveTask<LongIntCounter> {
+        private final long[] followedIds;
+        private final int from;
+        private final int to;
+        private final AtomicLong budget;
+
+        WalkTask(long[] followedIds, int from, int to, AtomicLong budget) {
+            this.followedIds = followedIds;
+            this.from = from;
+            this.to = to;
+            this.budget = budget;
+        }
+
+        @Override
+        protected LongIntCounter compute() {
+            if (to - from <= LEAF_SIZE) {
+                return walk();
+            }
+            int middle = (from + to) >>> 1;
+            WalkTask left = new WalkTask(followedIds, from, middle, budget);
+            left.fork();
+            LongIntCounter right = new WalkTask(followedIds, middle, to, budget).compute();
+            return left.join().mergeFrom(right);
+        }
+
+        private LongIntCounter walk() {
+            LongIntCounter counter = new LongIntCounter(64);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = from; i < to; i++) {
+                long followedId = followedIds[i];
+                int degree = followGraph.getFollowingCount(followedId);
+                if (degree == 0) {
+                    continue;
+                }
+                int take = Math.min(degree, maxFanOut);
+                if (budget.addAndGet(-take) < 0) {
+                    break;
+                }
+                int offset = degree > take ? random.nextInt(degree - take + 1) : 0;
+                for (long candidateId : followGraph.getFollowingIds(followedId, offset, take)) {
+                    counter.increment(candidateId);
+                }
+            }
+            return counter;
+        }
+    }
+
+    private record Top(long[] ids, int[] counts) {
+    }
+
+    /**
+     * Open-addressing map from user id to count, so a walk over many follows does not box every id.
+     */
+    static final class LongIntCounter {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntCounter(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            int slot = find(keys, key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        void increment(long key) {
+            add(key, 1);
+        }
+
+        void add(long key, int count) {
+            int slot = find(keys, key);
+            if (keys[slot] == key) {
+                values[slot] += count;
+                return;
+            }
+            keys[slot] = key;
+            values[slot] = count;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        /**
+         * Adds the counts of the other counter into the larger of the two and returns it.
+         */
+        LongIntCounter mergeFrom(LongIntCounter other) {
+            LongIntCounter target = size >= other.size ? this : other;
+            LongIntCounter source = target == this ? other : this;
+            for (int i = 0; i < source.keys.length; i++) {
+                if (source.keys[i] != EMPTY) {
+                    target.add(source.keys[i], source.values[i]);
+                }
+            }
+            return target;
+        }
+
+        /**
+         * Returns the {@code n} accepted keys with the highest counts, ties broken by the lower key.
+         */
+        Top top(int n, LongPredicate accept) {
+            long[] topIds = new long[n];
+            int[] topCounts = new int[n];
+            int found = 0;
+            for (int i = 0; i < keys.length; i++) {
+                long key = keys[i];
+                if (key == EMPTY || !accept.test(key)) {
+                    continue;
+                }
+                int count = values[i];
+                int at = found;
+                while (at > 0 && (topCounts[at - 1] < count || (topCounts[at - 1] == count && topIds[at - 1] > key))) {
+                    at--;
+                }
+                if (at == n) {
+                    continue;
+                }
+                int moved = Math.min(found, n - 1) - at;
+                System.arraycopy(topIds, at, topIds, at + 1, moved);
+                System.arraycopy(topCounts, at, topCounts, at + 1, moved);
+                topIds[at] = key;
+                topCounts[at] = count;
+                found = Math.min(found + 1, n);
+            }
+            return new Top(Arrays.copyOf(topIds, found), Arrays.copyOf(topCounts, found));
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        /**
+         * Returns the slot holding the key, or the empty slot where it belongs.
+         */
+        private static int find(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+}
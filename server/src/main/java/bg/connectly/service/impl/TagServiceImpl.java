@@ -0,0 +1,72 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.dto.response.TrendingTagDto;
+import bg.connectly.exception.BadRequestException;
+import bg.connectly.model.Post;
+import bg.connectly.service.TagService;
+import bg.connectly.store.TrendingTags;
+import bg.connectly.store.TrendingWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * Service class for tag statistics.
+ * Trending tags are counted from the tags of new public posts as they are created and read from memory.
+ */
+@Service
+public class TagServiceImpl implements TagService {
+    private static final Logger logger = LoggerFactory.getLogger(TagServiceImpl.class);
+
+    private final TrendingTags trendingTags;
+
+    @Autowired
+    public TagServiceImpl(TrendingTags trendingTags) {
+        this.trendingTags = trendingTags;
+    }
+
+    /**
+     * Counts the tags of a new post towards the trending tags once the surrounding transaction commits.
+     * Trending tags are public, so the tags of friends-only and private posts are not counted.
+     *
+     * @param post the saved post
+     */
+    @Override
+    public void recordTags(Post post) {
+        if (post.getTags() == null
+                || (post.getVisibility() != null && !Post.VISIBILITY_PUBLIC.equals(post.getVisibility()))) {
+            return;
+        }
+        Set<String> tags = Set.copyOf(post.getTags());
+        // A rolled back post is never counted
+        afterCommit(() -> trendingTags.record(tags));
+    }
+
+    /**
+     * Fetches the most used tags of a window. The counts are estimates and may be a few seconds old.
+     *
+     * @param window the window label, one of 1h, 24h or 7d
+     * @param limit  the maximum number of tags
+     * @return the trending tags, most used first
+     * @throws BadRequestException if the window is unknown
+     */
+    @Override
+    public List<TrendingTagDto> getTrending(String window, int limit) {
+        logger.info("Fetching trending tags for window: {}", window);
+        TrendingWindow trendingWindow = TrendingWindow.fromLabel(window);
+        if (trendingWindow == null) {
+            throw new BadRequestException("Unknown window " + window + ", expected 1h, 24h or 7d");
+        }
+        int clampedLimit = Math.max(1, Math.min(limit, trendingTags.getTopK()));
+        return trendingTags.top(trendingWindow, clampedLimit).stream()
+                .map(tagCount -> new TrendingTagDto(tagCount.tag(), tagCount.count()))
+                .toList();
+    }
+
+}
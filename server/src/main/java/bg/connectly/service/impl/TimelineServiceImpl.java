@@ -0,0 +1,101 @@
+package bg.connectly.service.impl;
+
+import bg.connectly.model.Post;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.TimelineService;
+import bg.connectly.store.TimelineStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for managing precomputed home timelines.
+ * New posts are pushed into the timelines of the author's followers when they are created (fan-out on write),
+ * so reading a timeline page is a single in-memory lookup.
+ */
+@Service
+public class TimelineServiceImpl implements TimelineService {
+    private static final Logger logger = LoggerFactory.getLogger(TimelineServiceImpl.class);
+
+    private final TimelineStore timelineStore;
+    private final FollowService followService;
+    private final PostRepository postRepository;
+
+    @Autowired
+    public TimelineServiceImpl(TimelineStore timelineStore,
+                               FollowService followService,
+                               PostRepository postRepository) {
+        this.timelineStore = timelineStore;
+        this.followService = followService;
+        this.postRepository = postRepository;
+    }
+
+    /**
+     * Pushes a new post into the timelines of its author and the author's followers.
+     * A private post only goes into the author's own timeline; friends-only posts are for followers, so they
+     * are fanned out like public ones.
+     * Runs asynchronously so post creation does not wait for the fan-out.
+     *
+     * @param authorId   the ID of the author of the post
+     * @param postId     the ID of the new post
+     * @param visibility the visibility of the post
+     */
+    @Override
+    @Async("timelineExecutor")
+    public void fanOutPost(Long authorId, Long postId, String visibility) {
+        timelineStore.push(authorId, postId);
+        if (Post.VISIBILITY_PRIVATE.equals(visibility)) {
+            return;
+        }
+
+        List<Long> followerIds = followService.getFollowerIds(authorId);
+        logger.info("Fanning out post id: {} to {} followers", postId, followerIds.size());
+        for (Long followerId : followerIds) {
+            timelineStore.push(followerId, postId);
+        }
+    }
+
+    /**
+     * Fetches a page of post ids from the home timeline of the given user.
+     * The timeline is built from the posts of followed users on first access.
+     *
+     * @param userId the ID of the user
+     * @param offset the index of the first post id to return
+     * @param limit  the maximum number of post ids to return
+     * @return the post ids, newest first
+     */
+    @Override
+    public List<Long> getTimelinePostIds(Long userId, int offset, int limit) {
+        TimelineStore.Timeline timeline = timelineStore.getOrCreate(userId);
+        if (!timeline.isLoaded()) {
+            backfill(userId, timeline);
+        }
+
+        long[] ids = timeline.page(offset, limit);
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the most recent posts of the user and everyone they follow into an empty timeline.
+     */
+    private void backfill(Long userId, TimelineStore.Timeline timeline) {
+        logger.info("Building timeline for user id: {}", userId);
+        List<Long> authorIds = new ArrayList<>(followService.getFollowingIds(userId));
+        authorIds.add(userId);
+
+        List<Long> postIds = postRepository.findIdsByAuthorIds(authorIds, userId,
+                PageRequest.of(0, timelineStore.getCapacity()));
+        timeline.backfill(postIds.stream().mapToLong(Long::longValue).toArray());
+    }
+}
@@ -1,19 +1,39 @@
 package bg.connectly.service.impl;
 
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.exception.AlreadyExistsException;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.UserMapper;
 import bg.connectly.model.User;
 import bg.connectly.repository.UserRepository;
+import bg.connectly.service.PrincipalService;
 import bg.connectly.service.UserService;
+import bg.connectly.store.LastLoginStore;
+import bg.connectly.store.UserSearchIndex;
+import bg.connectly.store.VersionStore;
 import jakarta.persistence.criteria.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
 
 
 /**
@@ -24,19 +44,36 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    private static final int MAX_AUTOCOMPLETE_LIMIT = 50;
 
     private final UserMapper userMapper;
     private final UserRepository userRepository;
+    private final PrincipalService principalService;
+    private final UserSearchIndex userSearchIndex;
+    private final LastLoginStore lastLoginStore;
+    private final VersionStore versionStore;
 
     @Autowired
-    public UserServiceImpl(UserMapper userMapper, UserRepository userRepository) {
+    public UserServiceImpl(UserMapper userMapper,
+                           UserRepository userRepository,
+                           PrincipalService principalService,
+                           UserSearchIndex userSearchIndex,
+                           LastLoginStore lastLoginStore,
+                           VersionStore versionStore) {
         this.userMapper = userMapper;
         this.userRepository = userRepository;
+        this.principalService = principalService;
+        this.userSearchIndex = userSearchIndex;
+        this.lastLoginStore = lastLoginStore;
+        this.versionStore = versionStore;
     }
 
     /**
      * Searches for users based on the provided search text.
      * The search is performed on email, first name, and last name fields.
+     * Matches come from the user search index, ranked exact match first, then prefix match, then substring match,
+     * so the sort of the pageable is not applied. Until the index is loaded, and for blank search text,
+     * the users table is queried instead. Last login times not yet flushed are applied to the users.
      *
      * @param searchText the text to search for
      * @param pageable   the pagination information
@@ -45,6 +82,71 @@ public class UserServiceImpl implements UserService {
     @Override
     public Page<User> searchUsers(String searchText, Pageable pageable) {
         logger.info("Searching users with text: {}", searchText);
+        Page<User> users = !userSearchIndex.isLoaded() || searchText.isBlank()
+                ? searchUsersInDatabase(searchText, pageable)
+                : searchUsersInIndex(searchText, pageable);
+        users.forEach(this::applyPendingLastLogin);
+        return users;
+    }
+
+    private Page<User> searchUsersInIndex(String searchText, Pageable pageable) {
+        List<UserPrincipal> matches = userSearchIndex.search(searchText);
+        List<Long> ids = page(matches, pageable).stream().map(UserPrincipal::getId).toList();
+
+        // Loaded by primary key, then put back in ranked order
+        Map<Long, User> usersById = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return new PageImpl<>(users, pageable, matches.size());
+    }
+
+    /**
+     * Suggests users whose first name, last name, full name or email starts with the given prefix.
+     * The suggestions are served from the user search index without reading the users table.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the suggested users, best matches first
+     */
+    @Override
+    public List<UserResponseDto> autocomplete(String prefix, int limit) {
+        logger.info("Autocompleting users with prefix: {}", prefix);
+        int clampedLimit = Math.max(1, Math.min(limit, MAX_AUTOCOMPLETE_LIMIT));
+        if (!userSearchIndex.isLoaded()) {
+            return searchUsersInDatabase(prefix, PageRequest.of(0, clampedLimit)).stream()
+                    .map(userMapper::toUserResponseDto)
+                    .toList();
+        }
+        return userSearchIndex.autocomplete(prefix, clampedLimit).stream()
+                .map(userMapper::toUserResponseDto)
+                .toList();
+    }
+
+    /**
+     * Loads all existing users into the user search index once the application has started.
+     * Users registered or updated while the index loads are indexed by those operations and not overwritten.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadSearchIndex() {
+        try (Stream<UserPrincipal> principals = userRepository.streamAllPrincipals()) {
+            principals.forEach(userSearchIndex::addIfAbsent);
+        }
+        userSearchIndex.markLoaded();
+        logger.info("Loaded {} users into the user search index", userSearchIndex.size());
+    }
+
+    /**
+     * Searches the users table with a case-insensitive substring match on email, first name, and last name.
+     * The leading wildcard rules out index use, so this is only the fallback of the user search index.
+     */
+    private Page<User> searchUsersInDatabase(String searchText, Pageable pageable) {
         // Perform a custom query using JPA Criteria API
         return userRepository.findAll((root, query, criteriaBuilder) -> {
             String likeSearch = "%" + searchText.toLowerCase() + "%";
@@ -62,12 +164,15 @@ public class UserServiceImpl implements UserService {
     /**
      * Updates the user information based on the provided EditUserDto.
      * Validates the availability of the new email if they are changed.
+     * Once the update commits, evicts the cached principal of the user, so the next request sees the new
+     * profile, and re-indexes the user for search.
      *
      * @param userDto  the user data transfer object containing updated information
      * @param email the email of the user to update
      * @return the updated user
      */
     @Override
+    @Transactional
     public User updateUser(UserDto userDto, String email) {
         logger.info("Updating user: {}", email);
         User existingUser = userRepository.findByEmail(email)
@@ -79,10 +184,63 @@ public class UserServiceImpl implements UserService {
         }
 
         existingUser = userMapper.updateUserFromDto(userDto, existingUser);
+        // last_login is not updatable, so this only shows the pending login in the returned user
+        applyPendingLastLogin(existingUser);
+        User savedUser = userRepository.save(existingUser);
+
+        // The cached principal holds the old profile, and the old email no longer resolves. Applied after the
+        // commit, so a rolled back update never reaches the cache or the index
+        String newEmail = savedUser.getEmail();
+        UserPrincipal principal = userMapper.toUserPrincipal(savedUser);
+        afterCommit(() -> {
+            principalService.evict(email);
+            principalService.evict(newEmail);
+            userSearchIndex.add(principal);
+        });
+        // Profiles are embedded in every post and comment list
+        versionStore.bump(VersionStore.PROFILES, VersionStore.profile(savedUser.getId()));
         logger.info("User updated successfully: {}", email);
-        return userRepository.save(existingUser);
+        return savedUser;
+    }
+
+
+    /**
+     * Fetches the public profile of a user. The profile is built from the cached principal, so repeated reads
+     * do not query the database.
+     *
+     * @param email the email of the user
+     * @return the profile of the user
+     * @throws NotFoundException if the user does not exist
+     */
+    @Override
+    public UserResponseDto getProfile(String email) {
+        return userMapper.toUserResponseDto(principalService.getPrincipal(email));
     }
 
+    /**
+     * Returns the version stamp of the profile of a user.
+     *
+     * @param email the email of the user
+     * @return the stamp to validate a cached profile
+     * @throws NotFoundException if the user does not exist
+     */
+    @Override
+    public VersionStore.Stamp getProfileStamp(String email) {
+        return versionStore.stamp(VersionStore.profile(principalService.getPrincipal(email).getId()));
+    }
+
+    private void applyPendingLastLogin(User user) {
+        user.setLastLogin(lastLoginStore.overlay(user.getId(), user.getLastLogin()));
+    }
+
+    private static <T> List<T> page(List<T> items, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return items;
+        }
+        int from = (int) Math.min(pageable.getOffset(), items.size());
+        int to = Math.min(from + pageable.getPageSize(), items.size());
+        return items.subList(from, to);
+    }
 
     /**
      * Validates the availability of the provided email address.
@@ -0,0 +1,184 @@
+package bg.connectly.store;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local map of at most about {@code capacity} entries, each of which may expire.
+ * An entry expires a fixed time after it is written, or after it was last read when the cache expires after
+ * access, or at a time given by the caller. Once the map is full, the next insertion drops the expired entries
+ * and then the entries closest to expiring, down to half the capacity, so the sweep runs once per many
+ * insertions. Only one caller sweeps at a time; the others go on without waiting.
+ */
+public class BoundedCache<K, V> {
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final boolean expireAfterAccess;
+    private final Runnable beforeEvict;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Creates a cache whose entries expire only when the caller gives them an expiry time.
+     */
+    public BoundedCache(int capacity) {
+        this(capacity, 0, false, () -> { });
+    }
+
+    /**
+     * Creates a cache whose entries expire the given time after they are written.
+     */
+    public BoundedCache(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, false, () -> { });
+    }
+
+    /**
+     * @param ttlMillis         the lifetime of an entry, or 0 for entries that do not expire
+     * @param expireAfterAccess whether reading an entry starts its lifetime over
+     * @param beforeEvict       runs before entries are dropped to make room
+     */
+    public BoundedCache(int capacity, long ttlMillis, boolean expireAfterAccess, Runnable beforeEvict) {
+        this(capacity, ttlMillis, expireAfterAccess, beforeEvict, System::currentTimeMillis);
+    }
+
+    BoundedCache(int capacity, long ttlMillis, boolean expireAfterAccess, Runnable beforeEvict, LongSupplier clock) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.expireAfterAccess = expireAfterAccess;
+        this.beforeEvict = beforeEvict;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the value of the key, or null if it is missing or expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (entry.isExpired(now)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        touch(entry, now);
+        return entry.value;
+    }
+
+    /**
+     * Returns the value of the key even if it has expired, without counting as an access.
+     */
+    public V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public void put(K key, V value) {
+        long now = clock.getAsLong();
+        put(key, value, expiresAt(now), now);
+    }
+
+    /**
+     * Stores a value that expires at the given time in milliseconds since the epoch, or {@link #NEVER}.
+     */
+    public void put(K key, V value, long expiresAt) {
+        put(key, value, expiresAt, clock.getAsLong());
+    }
+
+    /**
+     * Returns the value of the key, storing a new one if it is missing or expired.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> create) {
+        long now = clock.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            touch(entry, now);
+            return entry.value;
+        }
+        makeRoom(now);
+        return entries.compute(key, (k, existing) -> {
+            if (existing != null && !existing.isExpired(now)) {
+                touch(existing, now);
+                return existing;
+            }
+            return new Entry<>(create.apply(k), expiresAt(now));
+        }).value;
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void put(K key, V value, long expiresAt, long now) {
+        makeRoom(now);
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    private void touch(Entry<V> entry, long now) {
+        if (expireAfterAccess) {
+            entry.expiresAt = expiresAt(now);
+        }
+    }
+
+    private long expiresAt(long now) {
+        return ttlMillis > 0 ? now + ttlMillis : NEVER;
+    }
+
+    /**
+     * Drops the expired entries of a full cache, and then the entries closest to expiring until it is half full.
+     */
+    private void makeRoom(long now) {
+        if (entries.size() < capacity || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            beforeEvict.run();
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            int excess = entries.size() - capacity / 2;
+            if (excess <= 0) {
+                return;
+            }
+            long[] expiries = entries.values().stream().mapToLong(entry -> entry.expiresAt).toArray();
+            if (expiries.length == 0) {
+                return;
+            }
+            Arrays.sort(expiries);
+            long threshold = expiries[Math.min(excess, expiries.length) - 1];
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (excess > 0 && iterator.hasNext()) {
+                if (iterator.next().expiresAt <= threshold) {
+                    iterator.remove();
+                    excess--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
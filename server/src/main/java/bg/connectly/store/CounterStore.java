@@ -0,0 +1,202 @@
+package bg.connectly.store;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind store for hot counters such as likes and comment counts.
+ * Increments are accumulated in memory in striped cells, so concurrent writers on the same row do not
+ * contend on a single lock, and are periodically flushed as batched atomic
+ * {@code UPDATE ... SET column = column + ?} statements. Reads add the pending deltas to the stored value.
+ */
+@Component
+public class CounterStore {
+    private static final Logger logger = LoggerFactory.getLogger(CounterStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<CounterType, ConcurrentHashMap<Long, Cell>> pending = new EnumMap<>(CounterType.class);
+    private final Map<CounterType, ConcurrentHashMap<Long, Long>> inFlight = new EnumMap<>(CounterType.class);
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    public CounterStore(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        for (CounterType type : CounterType.values()) {
+            pending.put(type, new ConcurrentHashMap<>());
+            inFlight.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Adds a delta to a counter. The change reaches the database with the next flush.
+     */
+    public void increment(CounterType type, Long id, long delta) {
+        ConcurrentHashMap<Long, Cell> cells = pending.get(type);
+        while (true) {
+            Cell cell = cells.computeIfAbsent(id, key -> new Cell());
+            cell.add(delta);
+            if (!cell.retired) {
+                return;
+            }
+            // The flusher retired this cell concurrently and may have missed the delta.
+            // Whatever is still in the cell was not flushed, so move it to a fresh cell.
+            delta = cell.drain();
+            if (delta == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the delta of a counter that is not yet visible in the database.
+     */
+    public long getPending(CounterType type, Long id) {
+        Cell cell = pending.get(type).get(id);
+        long value = cell != null ? cell.sum() : 0;
+        return value + inFlight.get(type).getOrDefault(id, 0L);
+    }
+
+    /**
+     * Returns the stored value of a counter with the pending delta applied.
+     */
+    public int overlay(CounterType type, Long id, Integer storedValue) {
+        long base = storedValue != null ? storedValue : 0;
+        return (int) (base + getPending(type, id));
+    }
+
+    /**
+     * Flushes all pending deltas in one transaction, one JDBC batch per counter type.
+     * Deltas that fail to flush are put back and retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${connectly.counters.flush-interval-ms:1000}")
+    public void flush() {
+        // A lock rather than a synchronized method, which would pin the carrier while waiting on JDBC
+        flushLock.lock();
+        try {
+            Map<CounterType, List<Object[]>> batches = new EnumMap<>(CounterType.class);
+            for (CounterType type : CounterType.values()) {
+                List<Object[]> batch = drain(type);
+                if (!batch.isEmpty()) {
+                    batches.put(type, batch);
+                }
+            }
+            if (batches.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        batches.forEach((type, batch) -> jdbcTemplate.batchUpdate(type.incrementSql(), batch)));
+            } catch (RuntimeException e) {
+                // Any failure, including one to begin or commit the transaction, rolled back every batch
+                logger.warn("Failed to flush counters, retrying on next flush", e);
+                batches.forEach((type, batch) -> batch.forEach(args -> increment(type, (Long) args[1], (Long) args[0])));
+                return;
+            } finally {
+                inFlight.values().forEach(Map::clear);
+            }
+            logger.debug("Flushed counters: {}", batches.keySet());
+            evictCachedEntities(batches);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * The updates bypass Hibernate, so cached copies of the updated rows are evicted from the second-level cache.
+     */
+    private void evictCachedEntities(Map<CounterType, List<Object[]>> batches) {
+        Cache cache = entityManagerFactory.getCache();
+        batches.forEach((type, batch) -> batch.forEach(args -> cache.evict(type.getEntityClass(), args[1])));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Moves the deltas of one counter type to the in-flight map and returns them as batch arguments.
+     * Cells that saw no increments since the previous flush are retired to keep the map small.
+     */
+    private List<Object[]> drain(CounterType type) {
+        ConcurrentHashMap<Long, Cell> cells = pending.get(type);
+        ConcurrentHashMap<Long, Long> flushing = inFlight.get(type);
+        List<Object[]> batch = new ArrayList<>();
+
+        for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+            Long id = entry.getKey();
+            Cell cell = entry.getValue();
+
+            long drained = cell.drain();
+            if (drained != 0) {
+                flushing.merge(id, drained, Long::sum);
+            } else {
+                cells.remove(id, cell);
+                cell.retired = true;
+                drained = cell.drain();
+                flushing.merge(id, drained, Long::sum);
+            }
+            if (drained != 0) {
+                batch.add(new Object[]{drained, id});
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Counter cell split into padded stripes, in the style of {@link java.util.concurrent.atomic.LongAdder}.
+     * Unlike LongAdder it can be drained atomically, stripe by stripe, so no concurrent increment is lost.
+     */
+    static final class Cell {
+        private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 16));
+        private static final int PADDING = 8; // one stripe per 64-byte cache line
+
+        private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * PADDING);
+        volatile boolean retired;
+
+        void add(long delta) {
+            long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            int stripe = (int) (hash >>> 32) & (STRIPES - 1);
+            stripes.addAndGet(stripe * PADDING, delta);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += stripes.get(i * PADDING);
+            }
+            return sum;
+        }
+
+        long drain() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += stripes.getAndSet(i * PADDING, 0);
+            }
+            return sum;
+        }
+    }
+}
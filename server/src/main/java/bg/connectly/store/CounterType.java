@@ -0,0 +1,37 @@
+package bg.connectly.store;
+
+import bg.connectly.model.Comment;
+import bg.connectly.model.Post;
+
+/**
+ * Counter columns maintained through the {@link CounterStore}.
+ */
+public enum CounterType {
+    POST_LIKES(Post.class, "posts", "likes_count"),
+    POST_COMMENTS(Post.class, "posts", "comments_count"),
+    COMMENT_LIKES(Comment.class, "comments", "likes_count");
+
+    private final Class<?> entityClass;
+    private final String table;
+    private final String column;
+
+    CounterType(Class<?> entityClass, String table, String column) {
+        this.entityClass = entityClass;
+        this.table = table;
+        this.column = column;
+    }
+
+    /**
+     * Entity holding the counter, evicted from the second-level cache after a flush.
+     */
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Atomic increment statement for this counter, taking the delta and the row id as parameters.
+     */
+    public String incrementSql() {
+        return "UPDATE " + table + " SET " + column + " = " + column + " + ? WHERE id = ?";
+    }
+}
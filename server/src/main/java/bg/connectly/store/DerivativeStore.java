@@ -0,0 +1,203 @@
+package bg.connectly.store;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of resized copies of stored images, such as thumbnails and the widths used in srcset.
+ * The derivatives of one image are written to a temporary directory and moved into place together, so a
+ * media id either has all of its derivatives or none. An image that cannot be resized gets an empty directory,
+ * so it is not decoded again. The list of derivatives of recently used images is kept in memory.
+ */
+@Component
+public class DerivativeStore {
+    private final Path directory;
+    private final Path temporaryDirectory;
+    // Lists of recently used images; they are cheap to read again from disk
+    private final BoundedCache<String, List<Derivative>> derivatives;
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    public DerivativeStore(@Value("${connectly.media.directory:data/media}") String directory,
+                           @Value("${connectly.media.derivative-cache-size:10000}") int capacity) {
+        this.directory = Paths.get(directory, "derivatives");
+        this.temporaryDirectory = Paths.get(directory, "derivatives-tmp");
+        this.derivatives = new BoundedCache<>(capacity);
+    }
+
+    /**
+     * Creates the store directory and drops the temporary directories of runs interrupted by a restart.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+            deleteRecursively(temporaryDirectory);
+            Files.createDirectories(temporaryDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to initialize derivative store", e);
+        }
+    }
+
+    /**
+     * Returns the derivatives of an image from the smallest to the largest, or null if they were not created yet.
+     */
+    public List<Derivative> find(String mediaId) {
+        if (!MediaStore.isMediaId(mediaId)) {
+            return null;
+        }
+        List<Derivative> cached = derivatives.get(mediaId);
+        if (cached != null) {
+            return cached;
+        }
+        Path mediaDirectory = mediaDirectory(mediaId);
+        if (!Files.isDirectory(mediaDirectory)) {
+            return null;
+        }
+        List<Derivative> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(mediaDirectory)) {
+            for (Path file : files) {
+                Derivative derivative = Derivative.fromFileName(file.getFileName().toString());
+                if (derivative != null) {
+                    found.add(derivative);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        found.sort(Comparator.comparingInt(Derivative::width));
+        List<Derivative> sorted = List.copyOf(found);
+        derivatives.put(mediaId, sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the file of the derivative of the given width, or null if there is none.
+     */
+    public MediaStore.StoredMedia get(String mediaId, int width) throws IOException {
+        List<Derivative> found = find(mediaId);
+        if (found == null) {
+            return null;
+        }
+        for (Derivative derivative : found) {
+            if (derivative.width() == width) {
+                Path path = mediaDirectory(mediaId).resolve(derivative.fileName());
+                return new MediaStore.StoredMedia(mediaId, path, Files.size(path), derivative.contentType());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims an image for creating its derivatives.
+     *
+     * @return false if the derivatives already exist or are being created by another thread
+     */
+    public boolean claim(String mediaId) {
+        if (!inProgress.add(mediaId)) {
+            return false;
+        }
+        if (find(mediaId) != null) {
+            inProgress.remove(mediaId);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String mediaId) {
+        inProgress.remove(mediaId);
+    }
+
+    /**
+     * Stores the derivatives of an image, replacing nothing if another node already stored them.
+     *
+     * @param mediaId  the id of the original image
+     * @param contents the encoded derivatives, empty if the image cannot be resized
+     */
+    public void save(String mediaId, Map<Derivative, byte[]> contents) throws IOException {
+        Path target = mediaDirectory(mediaId);
+        Path temporary = Files.createDirectory(temporaryDirectory.resolve(UUID.randomUUID().toString()));
+        try {
+            for (Map.Entry<Derivative, byte[]> entry : contents.entrySet()) {
+                Files.write(temporary.resolve(entry.getKey().fileName()), entry.getValue());
+            }
+            Files.createDirectories(target.getParent());
+            if (!Files.exists(target)) {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            if (!Files.isDirectory(target)) {
+                throw e;
+            }
+            // The same derivatives were stored concurrently
+        } finally {
+            deleteRecursively(temporary);
+        }
+        derivatives.remove(mediaId);
+        find(mediaId);
+    }
+
+    // Same fan-out as the originals: ab/cd/abcd.../
+    private Path mediaDirectory(String mediaId) {
+        return directory.resolve(mediaId.substring(0, 2)).resolve(mediaId.substring(2, 4)).resolve(mediaId);
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * A resized copy of an image, stored as JPEG unless the image has transparency.
+     */
+    public record Derivative(int width, String format) {
+        public static final String JPEG = "jpg";
+        public static final String PNG = "png";
+
+        public String fileName() {
+            return width + "." + format;
+        }
+
+        public String contentType() {
+            return PNG.equals(format) ? "image/png" : "image/jpeg";
+        }
+
+        static Derivative fromFileName(String fileName) {
+            int dot = fileName.indexOf('.');
+            if (dot <= 0) {
+                return null;
+            }
+            String format = fileName.substring(dot + 1);
+            if (!JPEG.equals(format) && !PNG.equals(format)) {
+                return null;
+            }
+            try {
+                return new Derivative(Integer.parseInt(fileName.substring(0, dot)), format);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package bg.connectly.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * In-process broker that pushes events to subscribed connections, such as the comments of a post to everyone
+ * who has the post open.
+ * Publishing never blocks: an event is serialized once and offered to a bounded queue per subscriber, and the
+ * queue is drained on the event executor. A subscriber whose queue is full is too slow to keep up and is
+ * dropped, so one stalled connection cannot hold events in memory or delay the others. Idle subscribers hold
+ * no thread, only their queue.
+ */
+@Component
+public class EventBroker {
+    private static final Logger logger = LoggerFactory.getLogger(EventBroker.class);
+    // Sent as an SSE comment, which clients ignore, to keep proxies from closing idle connections
+    public static final Event HEARTBEAT = new Event(null, null);
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int bufferSize;
+    private final ConcurrentHashMap<String, Set<Subscription>> topics = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+
+    @Autowired
+    public EventBroker(ObjectMapper objectMapper,
+                       @Qualifier("eventExecutor") Executor executor,
+                       @Value("${connectly.events.buffer-size:64}") int bufferSize,
+                       MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.dropped = Counter.builder("connectly.events.dropped")
+                .description("Subscribers dropped because they could not keep up with their events")
+                .register(meterRegistry);
+        Gauge.builder("connectly.events.subscribers", subscriptions, Set::size)
+                .description("Open event subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The topic of the comments of a post.
+     */
+    public static String postTopic(Long postId) {
+        return "post:" + postId;
+    }
+
+    /**
+     * The topic of the new posts of an author.
+     */
+    public static String authorTopic(Long authorId) {
+        return "author:" + authorId;
+    }
+
+    /**
+     * Subscribes a sink to the given topics. The subscription stays open until it is closed, or the sink
+     * fails or falls behind.
+     */
+    public Subscription subscribe(Collection<String> topicNames, EventSink sink) {
+        Subscription subscription = new Subscription(List.copyOf(topicNames), sink, bufferSize);
+        subscriptions.add(subscription);
+        for (String topic : subscription.topics) {
+            // Added inside compute, so an unsubscribe cannot remove the set between creating and adding to it
+            topics.compute(topic, (key, subscribers) -> {
+                Set<Subscription> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        return subscription;
+    }
+
+    /**
+     * Publishes an event to the subscribers of a topic. Inside a transaction the event is published after
+     * the commit, so subscribers never see data that was rolled back.
+     *
+     * @param topic the topic to publish to
+     * @param name  the event name
+     * @param data  the payload, serialized to JSON once for all subscribers
+     */
+    public void publish(String topic, String name, Object data) {
+        if (!topics.containsKey(topic)) {
+            return;
+        }
+        Event event;
+        try {
+            event = new Event(name, objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize {} event for topic {}", name, topic, e);
+            return;
+        }
+        // Subscribers never see an event for data that was rolled back
+        afterCommit(() -> deliver(topic, event));
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Sends a heartbeat to every subscriber, which also finds connections the client closed without notice.
+     */
+    @Scheduled(fixedDelayString = "${connectly.events.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        for (Subscription subscription : subscriptions) {
+            offer(subscription, HEARTBEAT);
+        }
+    }
+
+    private void deliver(String topic, Event event) {
+        Set<Subscription> subscribers = topics.get(topic);
+        if (subscribers != null) {
+            for (Subscription subscription : subscribers) {
+                offer(subscription, event);
+            }
+        }
+    }
+
+    private void offer(Subscription subscription, Event event) {
+        if (subscription.closed.get()) {
+            return;
+        }
+        if (!subscription.queue.offer(event)) {
+            dropped.increment();
+            logger.debug("Dropping subscriber of {} with {} undelivered events", subscription.topics, bufferSize);
+            drop(subscription);
+            return;
+        }
+        schedule(subscription);
+    }
+
+    /**
+     * Starts a drain of the subscriber's queue unless one is already running, so events of a subscriber are
+     * sent in order by one thread at a time.
+     */
+    private void schedule(Subscription subscription) {
+        if (!subscription.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(subscription));
+        } catch (RejectedExecutionException e) {
+            subscription.draining.set(false);
+            dropped.increment();
+            drop(subscription);
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            Event event;
+            while (!subscription.closed.get() && (event = subscription.queue.poll()) != null) {
+                subscription.sink.send(event);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The client went away; the connection is already broken, so there is nothing to complete
+            logger.debug("Failed to send event to subscriber of {}: {}", subscription.topics, e.toString());
+            unsubscribe(subscription);
+        } finally {
+            subscription.draining.set(false);
+        }
+        // An event offered after the last poll but before the flag was cleared would otherwise wait for the next one
+        if (!subscription.queue.isEmpty() && !subscription.closed.get()) {
+            schedule(subscription);
+        }
+    }
+
+    private void drop(Subscription subscription) {
+        if (unsubscribe(subscription)) {
+            subscription.sink.close();
+        }
+    }
+
+    private boolean unsubscribe(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscriptions.remove(subscription);
+        for (String topic : subscription.topics) {
+            topics.computeIfPresent(topic, (key, subscribers) -> {
+                subscribers.remove(subscription);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        subscription.queue.clear();
+        return true;
+    }
+
+    /**
+     * An event with its payload already serialized. The heartbeat has neither name nor data.
+     */
+    public record Event(String name, String data) {
+    }
+
+    /**
+     * The connection an event is written to.
+     */
+    public interface EventSink {
+
+        /**
+         * Writes an event to the connection. Called by one thread at a time.
+         */
+        void send(Event event) throws IOException;
+
+        /**
+         * Closes the connection after the subscriber was dropped.
+         */
+        void close();
+    }
+
+    /**
+     * An open subscription with its queue of undelivered events.
+     */
+    public final class Subscription {
+        private final List<String> topics;
+        private final EventSink sink;
+        private final ArrayBlockingQueue<Event> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(List<String> topics, EventSink sink, int bufferSize) {
+            this.topics = topics;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        public List<String> getTopics() {
+            return topics;
+        }
+
+        public boolean isClosed() {
+            return closed.get();
+        }
+
+        /**
+         * Removes the subscription from the broker, after the connection completed, timed out or failed.
+         */
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package bg.connectly.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory index of accepted follows, answering follower and following lists, counts and "does A follow B"
+ * without the database.
+ * Both directions are kept in compressed sparse row form: a sorted array of user ids, an array of offsets
+ * into one array holding every row of ids back to back, each row sorted. A follow or unfollow rewrites the
+ * two affected rows into a small overlay, copy-on-write, and the overlay is merged into new arrays once it
+ * holds enough rows. Readers never lock; writers are serialized.
+ */
+@Component
+public class FollowGraph {
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraph.class);
+    private static final long[] NO_IDS = new long[0];
+
+    private final int compactThreshold;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentHashMap<Long, long[]> followersOverlay = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, long[]> followingOverlay = new ConcurrentHashMap<>();
+    // Changes made while the initial load was running, replayed on top of it
+    private final List<Change> pending = new ArrayList<>();
+    private volatile Rows followers = Rows.EMPTY;
+    private volatile Rows following = Rows.EMPTY;
+    private volatile boolean loaded;
+
+    public FollowGraph(@Value("${connectly.follows.compact-threshold:10000}") int compactThreshold) {
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Returns whether all existing follows are indexed. Until then, callers fall back to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replaces the index with the given follows and replays the changes recorded while they were read.
+     * The two arrays hold the follower and the followed user of each follow at the same index.
+     */
+    public void load(long[] followerIds, long[] followedIds) {
+        Rows newFollowers = Rows.build(followedIds, followerIds);
+        Rows newFollowing = Rows.build(followerIds, followedIds);
+        writeLock.lock();
+        try {
+            followers = newFollowers;
+            following = newFollowing;
+            followersOverlay.clear();
+            followingOverlay.clear();
+            // A change the load already saw is replayed as a no-op
+            for (Change change : pending) {
+                apply(change.followerId, change.followedId, change.follow);
+            }
+            pending.clear();
+            loaded = true;
+        } finally {
+            writeLock.unlock();
+        }
+        logger.info("Loaded {} follows of {} users into the follow graph", followerIds.length, newFollowing.size());
+    }
+
+    public void follow(long followerId, long followedId) {
+        change(followerId, followedId, true);
+    }
+
+    public void unfollow(long followerId, long followedId) {
+        change(followerId, followedId, false);
+    }
+
+    /**
+     * Returns the ids of the followers of a user, sorted.
+     */
+    public long[] getFollowerIds(long userId) {
+        long[] row = followersOverlay.get(userId);
+        return row != null ? row.clone() : followers.row(userId);
+    }
+
+    /**
+     * Returns the ids of the users a user follows, sorted.
+     */
+    public long[] getFollowingIds(long userId) {
+        long[] row = followingOverlay.get(userId);
+        return row != null ? row.clone() : following.row(userId);
+    }
+
+    /**
+     * Returns a page of the ids of the followers of a user, sorted, copying only the page.
+     */
+    public long[] getFollowerIds(long userId, int offset, int limit) {
+        long[] row = followersOverlay.get(userId);
+        return row != null ? slice(row, 0, row.length, offset, limit) : followers.slice(userId, offset, limit);
+    }
+
+    /**
+     * Returns a page of the ids of the users a user follows, sorted, copying only the page.
+     */
+    public long[] getFollowingIds(long userId, int offset, int limit) {
+        long[] row = followingOverlay.get(userId);
+        return row != null ? slice(row, 0, row.length, offset, limit) : following.slice(userId, offset, limit);
+    }
+
+    public int getFollowerCount(long userId) {
+        long[] row = followersOverlay.get(userId);
+        return row != null ? row.length : followers.degree(userId);
+    }
+
+    public int getFollowingCount(long userId) {
+        long[] row = followingOverlay.get(userId);
+        return row != null ? row.length : following.degree(userId);
+    }
+
+    public boolean isFollowing(long followerId, long followedId) {
+        long[] row = followingOverlay.get(followerId);
+        return row != null ? Arrays.binarySearch(row, followedId) >= 0 : following.contains(followerId, followedId);
+    }
+
+    private void change(long followerId, long followedId, boolean follow) {
+        writeLock.lock();
+        try {
+            if (!loaded) {
+                pending.add(new Change(followerId, followedId, follow));
+                return;
+            }
+            apply(followerId, followedId, follow);
+            if (followersOverlay.size() + followingOverlay.size() >= compactThreshold) {
+                compact();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void apply(long followerId, long followedId, boolean follow) {
+        long[] followersRow = getFollowerIds(followedId);
+        long[] followingRow = getFollowingIds(followerId);
+        followersOverlay.put(followedId, follow ? insert(followersRow, followerId) : delete(followersRow, followerId));
+        followingOverlay.put(followerId, follow ? insert(followingRow, followedId) : delete(followingRow, followedId));
+    }
+
+    /**
+     * Merges the overlay into new row arrays. The new arrays are published before the overlay is cleared,
+     * so a reader sees the same row from either.
+     */
+    private void compact() {
+        followers = followers.merge(followersOverlay);
+        followersOverlay.clear();
+        following = following.merge(followingOverlay);
+        followingOverlay.clear();
+        logger.debug("Compacted follow graph to {} users", following.size());
+    }
+
+    private static long[] slice(long[] values, int from, int to, int offset, int limit) {
+        int start = (int) Math.min((long) from + Math.max(offset, 0), to);
+        int end = (int) Math.min((long) start + Math.max(limit, 0), to);
+        return Arrays.copyOfRange(values, start, end);
+    }
+
+    private static long[] insert(long[] row, long id) {
+        int index = Arrays.binarySearch(row, id);
+        if (index >= 0) {
+            return row;
+        }
+        int at = -index - 1;
+        long[] updated = new long[row.length + 1];
+        System.arraycopy(row, 0, updated, 0, at);
+        updated[at] = id;
+        System.arraycopy(row, at, updated, at + 1, row.length - at);
+        return updated;
+    }
+
+    private static long[] delete(long[] row, long id) {
+        int at = Arrays.binarySearch(row, id);
+        if (at < 0) {
+            return row;
+        }
+        long[] updated = new long[row.length - 1];
+        System.arraycopy(row, 0, updated, 0, at);
+        System.arraycopy(row, at + 1, updated, at, row.length - at - 1);
+        return updated;
+    }
+
+    private record Change(long followerId, long followedId, boolean follow) {
+    }
+
+    /**
+     * Immutable rows in compressed sparse row form. The row of {@code keys[i]} is
+     * {@code values[offsets[i]]} up to {@code values[offsets[i + 1]]}.
+     */
+    static final class Rows {
+        static final Rows EMPTY = new Rows(NO_IDS, new int[1], NO_IDS);
+
+        private final long[] keys;
+        private final int[] offsets;
+        private final long[] values;
+
+        private Rows(long[] keys, int[] offsets, long[] values) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        long[] row(long key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? Arrays.copyOfRange(values, offsets[index], offsets[index + 1]) : NO_IDS;
+        }
+
+        long[] slice(long key, int offset, int limit) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? FollowGraph.slice(values, offsets[index], offsets[index + 1], offset, limit) : NO_IDS;
+        }
+
+        int degree(long key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? offsets[index + 1] - offsets[index] : 0;
+        }
+
+        boolean contains(long key, long value) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 && Arrays.binarySearch(values, offsets[index], offsets[index + 1], value) >= 0;
+        }
+
+        /**
+         * Builds rows from pairs of key and value: the keys are sorted and deduplicated, the values are placed
+         * by counting, and every row is sorted on its own. Sorting runs in parallel.
+         */
+        static Rows build(long[] pairKeys, long[] pairValues) {
+            long[] sortedKeys = pairKeys.clone();
+            Arrays.parallelSort(sortedKeys);
+            int distinct = 0;
+            for (int i = 0; i < sortedKeys.length; i++) {
+                if (i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+                    sortedKeys[distinct++] = sortedKeys[i];
+                }
+            }
+            long[] keys = Arrays.copyOf(sortedKeys, distinct);
+
+            int[] offsets = new int[keys.length + 1];
+            int[] slots = new int[pairKeys.length];
+            for (int i = 0; i < pairKeys.length; i++) {
+                slots[i] = Arrays.binarySearch(keys, pairKeys[i]);
+                offsets[slots[i] + 1]++;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            long[] values = new long[pairValues.length];
+            int[] cursors = Arrays.copyOf(offsets, keys.length);
+            for (int i = 0; i < pairValues.length; i++) {
+                values[cursors[slots[i]]++] = pairValues[i];
+            }
+            IntStream.range(0, keys.length).parallel()
+                    .forEach(i -> Arrays.sort(values, offsets[i], offsets[i + 1]));
+            return dedupe(keys, offsets, values);
+        }
+
+        /**
+         * Returns new rows with the rows of the overlay in place of the current ones. Empty rows are dropped.
+         */
+        Rows merge(Map<Long, long[]> overlay) {
+            long[] overlayKeys = overlay.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            long[] mergedKeys = new long[keys.length + overlayKeys.length];
+            int[] mergedOffsets = new int[mergedKeys.length + 1];
+            int total = values.length;
+            for (long[] row : overlay.values()) {
+                total += row.length;
+            }
+            long[] mergedValues = new long[total];
+
+            int count = 0;
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < keys.length || j < overlayKeys.length) {
+                long key;
+                long[] source;
+                int from;
+                int length;
+                if (j == overlayKeys.length || (i < keys.length && keys[i] < overlayKeys[j])) {
+                    key = keys[i];
+                    source = values;
+                    from = offsets[i];
+                    length = offsets[i + 1] - offsets[i];
+                    i++;
+                } else {
+                    key = overlayKeys[j];
+                    source = overlay.get(key);
+                    from = 0;
+                    length = source.length;
+                    if (i < keys.length && keys[i] == key) {
+                        i++;
+                    }
+                    j++;
+                }
+                if (length == 0) {
+                    continue;
+                }
+                mergedKeys[count] = key;
+                System.arraycopy(source, from, mergedValues, size, length);
+                size += length;
+                mergedOffsets[++count] = size;
+            }
+            return new Rows(Arrays.copyOf(mergedKeys, count), Arrays.copyOf(mergedOffsets, count + 1),
+                    Arrays.copyOf(mergedValues, size));
+        }
+
+        /**
+         * Removes repeated values within each row, left by duplicate follow requests in the table.
+         */
+        private static Rows dedupe(long[] keys, int[] offsets, long[] values) {
+            int[] newOffsets = new int[offsets.length];
+            int size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    if (k == offsets[i] || values[k] != values[k - 1]) {
+                        values[size++] = values[k];
+                    }
+                }
+                newOffsets[i + 1] = size;
+            }
+            return new Rows(keys, newOffsets, size == values.length ? values : Arrays.copyOf(values, size));
+        }
+    }
+}
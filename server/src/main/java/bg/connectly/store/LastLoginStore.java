@@ -0,0 +1,132 @@
+package bg.connectly.store;
+
+import bg.connectly.model.User;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind store for the last login time of users.
+ * Logins only record the time in memory, keeping the newest time per user, and a periodic flush writes all
+ * of them as one batched UPDATE. Reads overlay the pending time on the stored one.
+ */
+@Component
+public class LastLoginStore {
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginStore.class);
+    // Never moves the time backwards, so an older pending value cannot overwrite a newer one
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_login = ? WHERE id = ? AND (last_login IS NULL OR last_login < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LocalDateTime> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    public LastLoginStore(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Records a login. The time reaches the database with the next flush.
+     */
+    public void record(Long userId, LocalDateTime loginTime) {
+        pending.merge(userId, loginTime, LastLoginStore::latest);
+    }
+
+    /**
+     * Returns the newest of the stored last login time and the time not yet visible in the database.
+     */
+    public LocalDateTime overlay(Long userId, LocalDateTime storedValue) {
+        LocalDateTime value = latest(storedValue, inFlight.get(userId));
+        return latest(value, pending.get(userId));
+    }
+
+    /**
+     * Flushes all pending login times in one batched UPDATE.
+     * Times that fail to flush are put back and retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${connectly.last-login.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch));
+            } catch (RuntimeException e) {
+                // Any failure, including one to begin or commit the transaction, rolled back the whole batch
+                logger.warn("Failed to flush last login times, retrying on next flush", e);
+                inFlight.forEach(this::record);
+                return;
+            } finally {
+                inFlight.clear();
+            }
+            logger.debug("Flushed {} last login times", batch.size());
+            evictCachedUsers(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Moves the pending times to the in-flight map and returns them as batch arguments.
+     * A time is copied before it is removed, so reads never miss it.
+     */
+    private List<Object[]> drain() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+            Long userId = entry.getKey();
+            LocalDateTime loginTime = entry.getValue();
+            inFlight.put(userId, loginTime);
+            // A newer login recorded meanwhile stays pending for the next flush
+            pending.remove(userId, loginTime);
+            Timestamp timestamp = Timestamp.valueOf(loginTime);
+            batch.add(new Object[]{timestamp, userId, timestamp});
+        }
+        return batch;
+    }
+
+    /**
+     * The update bypasses Hibernate, so cached copies of the users are evicted from the second-level cache.
+     */
+    private void evictCachedUsers(List<Object[]> batch) {
+        Cache cache = entityManagerFactory.getCache();
+        batch.forEach(args -> cache.evict(User.class, args[1]));
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second.isAfter(first) ? second : first;
+    }
+}
@@ -0,0 +1,79 @@
+package bg.connectly.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over all (user, target) likes, used to skip the database for targets a user has not liked.
+ * A negative answer is exact, a positive answer has to be confirmed against the likes table.
+ * Removed likes stay in the filter until the next restart, which only costs an extra confirmation.
+ * Until the initial load has finished every target is reported as possibly liked.
+ */
+@Component
+public class LikeFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private volatile boolean loaded;
+
+    @Autowired
+    public LikeFilter(@Value("${connectly.likes.filter-bits:16777216}") long bits,
+                      @Value("${connectly.likes.filter-hashes:5}") int hashes) {
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = (long) wordCount * 64;
+        this.hashes = hashes;
+    }
+
+    public void add(Long userId, String targetType, Long targetId) {
+        long h1 = hash(userId, targetType, targetId);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+        }
+    }
+
+    public boolean mightContain(Long userId, String targetType, Long targetId) {
+        if (!loaded) {
+            return true;
+        }
+        long h1 = hash(userId, targetType, targetId);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the initial load as finished, after which negative answers are trusted.
+     */
+    public void markLoaded() {
+        this.loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private static long hash(Long userId, String targetType, Long targetId) {
+        return mix(mix(userId * 31 + targetType.hashCode()) ^ targetId);
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
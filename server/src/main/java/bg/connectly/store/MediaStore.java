@@ -0,0 +1,403 @@
+package bg.connectly.store;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of uploaded media on the local filesystem.
+ * A file is stored once under the SHA-256 hash of its content, so uploading the same image twice keeps one
+ * copy, and a stored file never changes. Uploads arrive in chunks that are appended to a temporary file while
+ * the hash is computed, and the file is moved into place when the upload is completed.
+ */
+@Component
+public class MediaStore {
+    private static final Logger logger = LoggerFactory.getLogger(MediaStore.class);
+    private static final Pattern MEDIA_ID = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SNIFF_LENGTH = 16;
+
+    private final Path objectsDirectory;
+    private final Path uploadsDirectory;
+    private final long maxSize;
+    private final Duration uploadTtl;
+    private final int maxPendingUploads;
+    // Stored files never change, so what was learned about one, including its sniffed type, stays true
+    private final BoundedCache<String, StoredMedia> storedMedia;
+    private final ConcurrentHashMap<String, Upload> uploads = new ConcurrentHashMap<>();
+    // Uploads started and neither completed nor expired, per owner
+    private final ConcurrentHashMap<String, Integer> pendingUploads = new ConcurrentHashMap<>();
+
+    public MediaStore(@Value("${connectly.media.directory:data/media}") String directory,
+                      @Value("${connectly.media.max-size-bytes:52428800}") long maxSize,
+                      @Value("${connectly.media.upload-ttl-minutes:60}") long uploadTtlMinutes,
+                      @Value("${connectly.media.max-pending-uploads-per-user:5}") int maxPendingUploads,
+                      @Value("${connectly.media.metadata-cache-size:10000}") int metadataCacheSize) {
+        this.objectsDirectory = Paths.get(directory, "objects");
+        this.uploadsDirectory = Paths.get(directory, "uploads");
+        this.maxSize = maxSize;
+        this.uploadTtl = Duration.ofMinutes(uploadTtlMinutes);
+        this.maxPendingUploads = maxPendingUploads;
+        this.storedMedia = new BoundedCache<>(metadataCacheSize);
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Creates the store directories and drops the temporary files of uploads interrupted by a restart.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(objectsDirectory);
+            Files.createDirectories(uploadsDirectory);
+            try (DirectoryStream<Path> parts = Files.newDirectoryStream(uploadsDirectory)) {
+                for (Path part : parts) {
+                    Files.deleteIfExists(part);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to initialize media store", e);
+        }
+    }
+
+    public static boolean isMediaId(String value) {
+        return value != null && MEDIA_ID.matcher(value).matches();
+    }
+
+    public boolean exists(String mediaId) {
+        return isMediaId(mediaId) && (storedMedia.get(mediaId) != null || Files.isRegularFile(objectPath(mediaId)));
+    }
+
+    /**
+     * Returns the stored file with the given id, or null if there is none. The file is only opened to sniff its
+     * type the first time it is asked for since the start, or since it fell out of the cache.
+     */
+    public StoredMedia get(String mediaId) throws IOException {
+        if (!isMediaId(mediaId)) {
+            return null;
+        }
+        StoredMedia cached = storedMedia.get(mediaId);
+        if (cached != null) {
+            return cached;
+        }
+        Path path = objectPath(mediaId);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        MediaType type = MediaType.sniff(readHead(path));
+        StoredMedia media = new StoredMedia(mediaId, path, Files.size(path), type != null ? type.contentType : null);
+        storedMedia.put(mediaId, media);
+        return media;
+    }
+
+    /**
+     * Starts a new upload owned by the given user. Each upload may hold up to the maximum size on disk until it
+     * expires, so a user can only have a few uploads pending at a time.
+     *
+     * @throws IllegalStateException if the user already has the maximum number of pending uploads
+     */
+    public Upload startUpload(String owner) throws IOException {
+        pendingUploads.compute(owner, (key, pending) -> {
+            int count = pending != null ? pending : 0;
+            if (count >= maxPendingUploads) {
+                throw new IllegalStateException("Cannot have more than " + maxPendingUploads + " uploads in progress");
+            }
+            return count + 1;
+        });
+        String uploadId = UUID.randomUUID().toString();
+        Upload upload = new Upload(uploadId, owner, uploadsDirectory.resolve(uploadId + ".part"));
+        try {
+            Files.createFile(upload.part);
+        } catch (IOException e) {
+            release(owner);
+            throw e;
+        }
+        uploads.put(uploadId, upload);
+        return upload;
+    }
+
+    /**
+     * Returns the upload with the given id, or null if there is none or it expired.
+     */
+    public Upload getUpload(String uploadId) {
+        return uploadId != null ? uploads.get(uploadId) : null;
+    }
+
+    /**
+     * Appends a chunk to an upload. The chunk must start where the upload ends, so a client that lost a
+     * response can ask for the current size and resume from there.
+     *
+     * @return the size of the upload after the chunk
+     * @throws IllegalStateException    if the offset is not the end of the upload or the upload is busy
+     * @throws IllegalArgumentException if the upload would exceed the maximum size
+     */
+    public long append(Upload upload, long offset, InputStream chunk) throws IOException {
+        if (!upload.lock.tryLock()) {
+            throw new IllegalStateException("Another chunk of this upload is being written");
+        }
+        try {
+            if (upload.closed) {
+                throw new IllegalStateException("Upload is already completed or expired");
+            }
+            if (offset != upload.size) {
+                throw new IllegalStateException("Chunk starts at " + offset + " but the upload has " + upload.size + " bytes");
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (FileChannel channel = FileChannel.open(upload.part, StandardOpenOption.WRITE)) {
+                channel.position(upload.size);
+                int read;
+                while ((read = chunk.read(buffer)) != -1) {
+                    if (upload.size + read > maxSize) {
+                        // Keep what was written before this chunk, so the client can still complete or retry
+                        upload.reset(offset);
+                        throw new IllegalArgumentException("Media cannot exceed " + maxSize + " bytes");
+                    }
+                    channel.write(ByteBuffer.wrap(buffer, 0, read));
+                    upload.digest.update(buffer, 0, read);
+                    upload.size += read;
+                }
+            }
+            upload.touch();
+            return upload.size;
+        } catch (IOException e) {
+            upload.reset(offset);
+            throw e;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * Completes an upload and moves it to its content address. If the same content is already stored the
+     * upload is dropped and the existing file is used.
+     *
+     * @throws IllegalArgumentException if the upload is empty or not a supported image or video
+     */
+    public StoredMedia complete(Upload upload) throws IOException {
+        upload.lock.lock();
+        try {
+            if (upload.closed) {
+                throw new IllegalStateException("Upload is already completed or expired");
+            }
+            upload.closed = true;
+            uploads.remove(upload.id);
+            release(upload.owner);
+            MediaType type = upload.size > 0 ? MediaType.sniff(readHead(upload.part)) : null;
+            if (type == null) {
+                Files.deleteIfExists(upload.part);
+                throw new IllegalArgumentException("Upload is empty or not a supported image or video");
+            }
+            String mediaId = HexFormat.of().formatHex(upload.digest.digest());
+            Path target = objectPath(mediaId);
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                Files.delete(upload.part);
+                logger.debug("Upload {} is a duplicate of media {}", upload.id, mediaId);
+            } else {
+                try {
+                    Files.move(upload.part, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // The same content was completed concurrently
+                    Files.deleteIfExists(upload.part);
+                }
+            }
+            StoredMedia media = new StoredMedia(mediaId, target, upload.size, type.contentType);
+            storedMedia.put(mediaId, media);
+            return media;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops uploads that received no chunk within the upload TTL.
+     */
+    @Scheduled(fixedDelayString = "${connectly.media.cleanup-interval-ms:60000}")
+    public void removeExpiredUploads() {
+        long cutoff = System.nanoTime() - uploadTtl.toNanos();
+        uploads.values().removeIf(upload -> {
+            if (upload.lastActivity - cutoff >= 0 || !upload.lock.tryLock()) {
+                return false;
+            }
+            try {
+                if (upload.closed) {
+                    // Completed concurrently, which already released it
+                    return true;
+                }
+                upload.closed = true;
+                release(upload.owner);
+                Files.deleteIfExists(upload.part);
+            } catch (IOException e) {
+                logger.warn("Failed to delete expired upload {}", upload.id, e);
+            } finally {
+                upload.lock.unlock();
+            }
+            return true;
+        });
+    }
+
+    private void release(String owner) {
+        pendingUploads.computeIfPresent(owner, (key, pending) -> pending > 1 ? pending - 1 : null);
+    }
+
+    // Two levels of fan-out keep directories small: ab/cd/abcd...
+    private Path objectPath(String mediaId) {
+        return objectsDirectory.resolve(mediaId.substring(0, 2)).resolve(mediaId.substring(2, 4)).resolve(mediaId);
+    }
+
+    private static byte[] readHead(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(SNIFF_LENGTH);
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                // read until the buffer is full or the file ends
+            }
+            byte[] bytes = new byte[head.position()];
+            head.flip().get(bytes);
+            return bytes;
+        }
+    }
+
+    public record StoredMedia(String id, Path path, long size, String contentType) {
+    }
+
+    /**
+     * An upload in progress. Chunks are appended in order while the hash of the content is computed.
+     */
+    public static final class Upload {
+        private final String id;
+        private final String owner;
+        private final Path part;
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest digest = newDigest();
+        private volatile long size;
+        private volatile long lastActivity = System.nanoTime();
+        private volatile boolean closed;
+
+        Upload(String id, String owner, Path part) {
+            this.id = id;
+            this.owner = owner;
+            this.part = part;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        private void touch() {
+            lastActivity = System.nanoTime();
+        }
+
+        /**
+         * Rolls back to the given size after a failed chunk by hashing the kept bytes again.
+         */
+        private void reset(long newSize) throws IOException {
+            MessageDigest rehashed = newDigest();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(part)) {
+                long remaining = newSize;
+                int read;
+                while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    rehashed.update(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                channel.truncate(newSize);
+            }
+            digest = rehashed;
+            size = newSize;
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * Media types accepted by the store, recognized by the signature at the start of the file rather than by
+     * what the client claims, so the store never serves content a browser could run as a page.
+     */
+    enum MediaType {
+        JPEG("image/jpeg"),
+        PNG("image/png"),
+        GIF("image/gif"),
+        WEBP("image/webp"),
+        MP4("video/mp4");
+
+        private final String contentType;
+
+        MediaType(String contentType) {
+            this.contentType = contentType;
+        }
+
+        static MediaType sniff(byte[] head) {
+            if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+                return JPEG;
+            }
+            if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+                return PNG;
+            }
+            if (startsWith(head, 0, 'G', 'I', 'F', '8')) {
+                return GIF;
+            }
+            if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+                return WEBP;
+            }
+            if (startsWith(head, 4, 'f', 't', 'y', 'p')) {
+                return MP4;
+            }
+            return null;
+        }
+
+        private static boolean startsWith(byte[] head, int offset, int... signature) {
+            if (head.length < offset + signature.length) {
+                return false;
+            }
+            for (int i = 0; i < signature.length; i++) {
+                if ((head[offset + i] & 0xFF) != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
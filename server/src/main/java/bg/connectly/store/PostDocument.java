@@ -0,0 +1,11 @@
+package bg.connectly.store;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * The stored fields of a post in the post search index.
+ * Search results are built from these fields alone, so the query path never reads the posts table.
+ */
+public record PostDocument(Long id, Long authorId, String content, Set<String> tags, LocalDateTime createdAt) {
+}
@@ -0,0 +1,465 @@
+package bg.connectly.store;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text index of posts over their content and tags, ranked with BM25.
+ * Tag terms count {@value #TAG_BOOST} times as much as content terms.
+ * <p>
+ * The index lives in memory and is persisted as a sequence of immutable segment files. Each flush writes the
+ * posts added, updated or deleted since the previous flush as a new segment, and loading replays the segments
+ * in order. When there are too many segments, they are compacted into a single snapshot segment.
+ * Changes made after the last flush are lost on a crash, which is why the index can also be rebuilt from the
+ * posts table.
+ */
+@Component
+public class PostSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TAG_BOOST = 2;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final int SEGMENT_MAGIC = 0x434E5053;
+    private static final int SEGMENT_VERSION = 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int maxSegments;
+    private final ConcurrentHashMap<Long, Indexed> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Integer>> postings = new ConcurrentHashMap<>();
+    private final AtomicLong totalLength = new AtomicLong();
+    // Ids of posts changed since the last flush, written to the next segment
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Ids of posts deleted while the index is rebuilt, so the rebuild does not bring them back
+    private final Set<Long> tombstones = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private long nextSegment;
+    private volatile boolean loaded;
+
+    public PostSearchIndex(@Value("${connectly.post-search.directory:data/post-index}") String directory,
+                           @Value("${connectly.post-search.max-segments:16}") int maxSegments) {
+        this.directory = Paths.get(directory);
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Indexes a post, replacing the previously indexed version of the same post.
+     */
+    public void add(PostDocument document) {
+        put(document);
+        dirty.add(document.id());
+    }
+
+    /**
+     * Indexes a post read by a rebuild unless the post was indexed or deleted in the meantime.
+     */
+    public void addIfAbsent(PostDocument document) {
+        if (tombstones.contains(document.id())) {
+            return;
+        }
+        documents.computeIfAbsent(document.id(), id -> {
+            Indexed indexed = new Indexed(document);
+            link(indexed);
+            dirty.add(id);
+            return indexed;
+        });
+    }
+
+    public void remove(Long postId) {
+        delete(postId);
+        dirty.add(postId);
+        if (!loaded) {
+            tombstones.add(postId);
+        }
+    }
+
+    public void markLoaded() {
+        loaded = true;
+        tombstones.clear();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns one page of the posts matching any term of the query, highest BM25 score first.
+     *
+     * @param query  the search text
+     * @param offset the number of best matches to skip
+     * @param limit  the maximum number of matches to return
+     * @return the matches of the page and the total number of matching posts
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        int documentCount = documents.size();
+        if (terms.isEmpty() || documentCount == 0) {
+            return new SearchResult(List.of(), 0);
+        }
+        double averageLength = Math.max(1.0, (double) totalLength.get() / documentCount);
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            int documentFrequency = termPostings.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            termPostings.forEach((postId, frequency) -> {
+                Indexed indexed = documents.get(postId);
+                if (indexed == null) {
+                    return;
+                }
+                double norm = K1 * (1 - B + B * indexed.length / averageLength);
+                scores.merge(postId, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            });
+        }
+
+        // Keep only the best offset + limit matches instead of sorting all of them
+        int wanted = offset + limit;
+        Comparator<SearchHit> byRank = Comparator.comparingDouble(SearchHit::score)
+                .thenComparing(hit -> hit.document().id());
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(byRank);
+        scores.forEach((postId, score) -> {
+            Indexed indexed = documents.get(postId);
+            if (indexed == null || wanted == 0) {
+                return;
+            }
+            SearchHit hit = new SearchHit(indexed.document, score);
+            if (best.size() < wanted) {
+                best.add(hit);
+            } else if (byRank.compare(hit, best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
+        });
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(byRank.reversed());
+        List<SearchHit> page = offset < hits.size() ? hits.subList(offset, hits.size()) : List.of();
+        return new SearchResult(new ArrayList<>(page), scores.size());
+    }
+
+    /**
+     * Writes the posts changed since the previous flush as a new segment.
+     * Posts that fail to be written stay dirty and are retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${connectly.post-search.flush-interval-ms:5000}")
+    public void flush() {
+        if (!loaded) {
+            return;
+        }
+        segmentLock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(dirty);
+            // Cleared before the documents are read, so a change made meanwhile is written again next time
+            ids.forEach(dirty::remove);
+            List<Object> entries = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Indexed indexed = documents.get(id);
+                entries.add(indexed != null ? indexed.document : id);
+            }
+            try {
+                writeSegment(entries);
+            } catch (IOException e) {
+                logger.warn("Failed to write post search segment, retrying on next flush", e);
+                dirty.addAll(ids);
+                return;
+            }
+            if (listSegments().size() > maxSegments) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list post search segments", e);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Writes all indexed posts as a single segment and deletes the older segments.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void compact() throws IOException {
+        segmentLock.lock();
+        try {
+            List<Path> previous = listSegments();
+            // The snapshot covers every pending change, and changes made while it is taken are marked dirty again
+            dirty.clear();
+            writeSegment(new ArrayList<>(documents.values().stream().map(indexed -> indexed.document).toList()));
+            for (Path segment : previous) {
+                Files.deleteIfExists(segment);
+            }
+            logger.info("Compacted {} post search segments into a snapshot of {} posts", previous.size(),
+                    documents.size());
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the segments on disk into the index.
+     *
+     * @return false if there are no segments or one of them cannot be read, in which case the index is empty
+     */
+    public boolean loadSegments() {
+        segmentLock.lock();
+        try {
+            List<Path> segments = listSegments();
+            for (Path segment : segments) {
+                readSegment(segment);
+            }
+            return !segments.isEmpty();
+        } catch (IOException e) {
+            logger.warn("Failed to read post search segments, the index will be rebuilt", e);
+            clear();
+            return false;
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Empties the index in memory. The segments on disk are replaced by the next compaction.
+     */
+    public void clear() {
+        documents.keySet().forEach(this::delete);
+        dirty.clear();
+    }
+
+    private void put(PostDocument document) {
+        documents.compute(document.id(), (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            Indexed indexed = new Indexed(document);
+            link(indexed);
+            return indexed;
+        });
+    }
+
+    private void delete(Long postId) {
+        documents.computeIfPresent(postId, (id, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    private void link(Indexed indexed) {
+        Long id = indexed.document.id();
+        indexed.frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(id, frequency));
+        totalLength.addAndGet(indexed.length);
+    }
+
+    private void unlink(Indexed indexed) {
+        Long id = indexed.document.id();
+        for (String term : indexed.frequencies.keySet()) {
+            postings.computeIfPresent(term, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        totalLength.addAndGet(-indexed.length);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Writes the entries to a temporary file and moves it into place, so a segment is either complete or absent.
+     * An entry is either a document to index or the id of a deleted post.
+     */
+    private void writeSegment(List<Object> entries) throws IOException {
+        Files.createDirectories(directory);
+        if (nextSegment == 0) {
+            List<Path> segments = listSegments();
+            nextSegment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        }
+        Path segment = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX));
+        Path temporary = directory.resolve(segment.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(SEGMENT_VERSION);
+            out.writeInt(entries.size());
+            for (Object entry : entries) {
+                if (entry instanceof PostDocument document) {
+                    out.writeBoolean(true);
+                    writeDocument(out, document);
+                } else {
+                    out.writeBoolean(false);
+                    out.writeLong((Long) entry);
+                }
+            }
+        }
+        Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        nextSegment++;
+    }
+
+    private void readSegment(Path segment) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_VERSION) {
+                throw new IOException("Unsupported post search segment " + segment);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                if (in.readBoolean()) {
+                    put(readDocument(in));
+                } else {
+                    delete(in.readLong());
+                }
+            }
+        }
+        nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+    }
+
+    private static void writeDocument(DataOutputStream out, PostDocument document) throws IOException {
+        out.writeLong(document.id());
+        out.writeLong(document.authorId());
+        out.writeUTF(document.content());
+        Set<String> tags = document.tags() != null ? document.tags() : Set.of();
+        out.writeInt(tags.size());
+        for (String tag : tags) {
+            out.writeUTF(tag);
+        }
+        out.writeLong(document.createdAt().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(document.createdAt().getNano());
+    }
+
+    private static PostDocument readDocument(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long authorId = in.readLong();
+        String content = in.readUTF();
+        int tagCount = in.readInt();
+        Set<String> tags = new HashSet<>(tagCount * 2);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(in.readUTF());
+        }
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        return new PostDocument(id, authorId, content, tags, createdAt);
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Splits text into lower-case terms of letters and digits. Terms shorter than two characters are dropped.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(c);
+                }
+            } else if (!term.isEmpty()) {
+                if (term.length() >= MIN_TERM_LENGTH) {
+                    terms.add(term.toString().toLowerCase(Locale.ROOT));
+                }
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * A document with its term frequencies, tag terms weighted by the tag boost, and its length in terms.
+     */
+    private static final class Indexed {
+        private final PostDocument document;
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private final int length;
+
+        Indexed(PostDocument document) {
+            this.document = document;
+            int terms = 0;
+            for (String term : tokenize(document.content())) {
+                frequencies.merge(term, 1, Integer::sum);
+                terms++;
+            }
+            if (document.tags() != null) {
+                for (String tag : document.tags()) {
+                    for (String term : tokenize(tag)) {
+                        frequencies.merge(term, TAG_BOOST, Integer::sum);
+                        terms++;
+                    }
+                }
+            }
+            this.length = terms;
+        }
+    }
+
+    public record SearchHit(PostDocument document, double score) {
+    }
+
+    public record SearchResult(List<SearchHit> hits, long total) {
+    }
+}
@@ -0,0 +1,34 @@
+package bg.connectly.store;
+
+import bg.connectly.dto.UserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Node-local cache of resolved principals keyed by email.
+ * Entries expire after a fixed time, which bounds how long a change made through another node stays invisible.
+ */
+@Component
+public class PrincipalCache {
+    private final BoundedCache<String, UserPrincipal> principals;
+
+    public PrincipalCache(@Value("${connectly.principal.cache-size:10000}") int capacity,
+                          @Value("${connectly.principal.ttl-seconds:300}") long ttlSeconds) {
+        this.principals = new BoundedCache<>(capacity, ttlSeconds * 1000);
+    }
+
+    /**
+     * Returns the cached principal for the given email, or null if it is missing or expired.
+     */
+    public UserPrincipal get(String email) {
+        return principals.get(email);
+    }
+
+    public void put(UserPrincipal principal) {
+        principals.put(principal.getEmail(), principal);
+    }
+
+    public void remove(String email) {
+        principals.remove(email);
+    }
+}
@@ -0,0 +1,65 @@
+package bg.connectly.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node-local cache of the follow suggestions of each user.
+ * An expired entry is still served while a single refresh recomputes it, so a user only waits for the
+ * computation the first time.
+ */
+@Component
+public class SuggestionCache {
+    private final long ttlMillis;
+    private final BoundedCache<Long, Suggestions> suggestions;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    public SuggestionCache(@Value("${connectly.suggestions.cache-size:10000}") int capacity,
+                           @Value("${connectly.suggestions.ttl-minutes:30}") long ttlMinutes) {
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.suggestions = new BoundedCache<>(capacity);
+    }
+
+    /**
+     * Returns the cached suggestions of a user, expired or not, or null if there are none.
+     */
+    public Suggestions get(Long userId) {
+        return suggestions.peek(userId);
+    }
+
+    /**
+     * Caches the suggestions of a user until the TTL passes.
+     *
+     * @return the cached entry
+     */
+    public Suggestions put(Long userId, long[] userIds, int[] mutualCounts) {
+        Suggestions entry = new Suggestions(userIds, mutualCounts, System.currentTimeMillis() + ttlMillis);
+        suggestions.put(userId, entry, entry.expiresAt());
+        return entry;
+    }
+
+    /**
+     * Claims the refresh of a user's suggestions.
+     *
+     * @return true if the caller should refresh them, false if another refresh is running
+     */
+    public boolean startRefresh(Long userId) {
+        return refreshing.add(userId);
+    }
+
+    public void finishRefresh(Long userId) {
+        refreshing.remove(userId);
+    }
+
+    /**
+     * Suggested user ids, best first, with the number of followed users who follow each of them.
+     */
+    public record Suggestions(long[] userIds, int[] mutualCounts, long expiresAt) {
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
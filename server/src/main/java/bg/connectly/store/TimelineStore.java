@@ -0,0 +1,148 @@
+package bg.connectly.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory store of precomputed home timelines.
+ * Each user has a bounded list of post ids ordered from newest to oldest.
+ * Only timelines of users who have read their feed are materialized; the rest are built on first read.
+ * A timeline not read for the idle TTL is dropped, as are the least recently read ones once more than
+ * {@code maxUsers} are materialized, and is built again on the next read.
+ */
+@Component
+public class TimelineStore {
+    private final int capacity;
+    private final BoundedCache<Long, Timeline> timelines;
+
+    public TimelineStore(@Value("${connectly.timeline.capacity:800}") int capacity,
+                         @Value("${connectly.timeline.max-users:20000}") int maxUsers,
+                         @Value("${connectly.timeline.idle-ttl-minutes:60}") long idleTtlMinutes) {
+        this.capacity = capacity;
+        this.timelines = new BoundedCache<>(maxUsers, idleTtlMinutes * 60_000, true, () -> { });
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the timeline of the given user, or null if it has not been materialized yet.
+     */
+    public Timeline get(Long userId) {
+        return timelines.get(userId);
+    }
+
+    /**
+     * Materializes an empty timeline for the given user, or returns the existing one.
+     * Posts pushed while the caller back-fills the timeline are kept.
+     */
+    public Timeline getOrCreate(Long userId) {
+        return timelines.computeIfAbsent(userId, id -> new Timeline(capacity));
+    }
+
+    /**
+     * Adds a post to the timeline of the given user if it is materialized.
+     */
+    public void push(Long userId, long postId) {
+        // A push is not a read, so it does not keep an idle timeline alive
+        Timeline timeline = timelines.peek(userId);
+        if (timeline != null) {
+            timeline.push(postId);
+        }
+    }
+
+    public void remove(Long userId) {
+        timelines.remove(userId);
+    }
+
+    /**
+     * Bounded list of post ids kept in descending id order, so the newest post is always first.
+     * Guarded by a lock instead of synchronized methods, which would pin the carrier of a virtual thread.
+     */
+    public static class Timeline {
+        private final int capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] ids = new long[0];
+        private volatile boolean loaded;
+
+        Timeline(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * Inserts a single post id, dropping the oldest entry when the timeline is full.
+         */
+        public void push(long postId) {
+            lock.lock();
+            try {
+                merge(new long[]{postId});
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Merges older post ids loaded from the database and marks the timeline as loaded.
+         *
+         * @param postIds post ids in descending order
+         */
+        public void backfill(long[] postIds) {
+            lock.lock();
+            try {
+                merge(postIds);
+                loaded = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns up to {@code limit} post ids starting at {@code offset}.
+         */
+        public long[] page(int offset, int limit) {
+            lock.lock();
+            try {
+                if (offset >= ids.length) {
+                    return new long[0];
+                }
+                return Arrays.copyOfRange(ids, offset, Math.min(ids.length, offset + limit));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            lock.lock();
+            try {
+                return ids.length;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void merge(long[] incoming) {
+            long[] merged = new long[Math.min(capacity, ids.length + incoming.length)];
+            int i = 0, j = 0, k = 0;
+            while (k < merged.length && (i < ids.length || j < incoming.length)) {
+                long next;
+                if (j >= incoming.length || (i < ids.length && ids[i] >= incoming[j])) {
+                    next = ids[i++];
+                } else {
+                    next = incoming[j++];
+                }
+                if (k == 0 || merged[k - 1] != next) {
+                    merged[k++] = next;
+                }
+            }
+            ids = k == merged.length ? merged : Arrays.copyOf(merged, k);
+        }
+    }
+}
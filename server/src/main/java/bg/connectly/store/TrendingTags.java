@@ -0,0 +1,370 @@
+package bg.connectly.store;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streaming counts of the tags of new posts, used to find trending tags without scanning post_tags.
+ * Every {@link TrendingWindow} keeps one count-min sketch per bucket plus their sum, and a bounded set of
+ * candidate heavy hitters. The top tags of each window are recomputed periodically, so reads only return
+ * a precomputed list. The sketches are checkpointed to disk and restored on startup.
+ */
+@Component
+public class TrendingTags {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingTags.class);
+    private static final int CHECKPOINT_MAGIC = 0x434E5454;
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private final int topK;
+    private final Path checkpointFile;
+    private final Map<TrendingWindow, Sketch> sketches = new EnumMap<>(TrendingWindow.class);
+
+    public TrendingTags(@Value("${connectly.trending.top-k:50}") int topK,
+                        @Value("${connectly.trending.checkpoint-file:data/trending-tags.bin}") String checkpointFile) {
+        this.topK = topK;
+        this.checkpointFile = Paths.get(checkpointFile);
+        for (TrendingWindow window : TrendingWindow.values()) {
+            sketches.put(window, new Sketch(window, topK * 4));
+        }
+    }
+
+    /**
+     * Counts one occurrence of each of the given tags, as used by a new post.
+     */
+    public void record(Collection<String> tags) {
+        record(tags, System.currentTimeMillis());
+    }
+
+    void record(Collection<String> tags, long now) {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String value = normalize(tag);
+            if (!value.isEmpty()) {
+                normalized.add(value);
+            }
+        }
+        for (Sketch sketch : sketches.values()) {
+            sketch.add(normalized, now);
+        }
+    }
+
+    /**
+     * Returns the most used tags of the window as of the last refresh, most used first.
+     */
+    public List<TagCount> top(TrendingWindow window, int limit) {
+        List<TagCount> top = sketches.get(window).top;
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Drops expired buckets and recomputes the top tags of every window.
+     */
+    @Scheduled(fixedDelayString = "${connectly.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        refresh(System.currentTimeMillis());
+    }
+
+    void refresh(long now) {
+        for (Sketch sketch : sketches.values()) {
+            sketch.refresh(now, topK);
+        }
+    }
+
+    /**
+     * Writes all sketches to the checkpoint file, replacing the previous checkpoint atomically.
+     */
+    @Scheduled(fixedDelayString = "${connectly.trending.checkpoint-interval-ms:60000}",
+            initialDelayString = "${connectly.trending.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        try {
+            Path parent = checkpointFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = parent.resolve(checkpointFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeInt(sketches.size());
+                for (Sketch sketch : sketches.values()) {
+                    sketch.write(out);
+                }
+            }
+            Files.move(temporary, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to checkpoint trending tags", e);
+        }
+    }
+
+    /**
+     * Restores the sketches from the last checkpoint, if there is one, and drops the buckets that expired
+     * while the application was down.
+     */
+    @PostConstruct
+    public void restore() {
+        if (Files.exists(checkpointFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+                if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                    throw new IOException("Unsupported trending tags checkpoint " + checkpointFile);
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    TrendingWindow window = TrendingWindow.valueOf(in.readUTF());
+                    sketches.get(window).read(in);
+                }
+                logger.info("Restored trending tags from {}", checkpointFile);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Failed to restore trending tags, starting empty", e);
+                for (TrendingWindow window : TrendingWindow.values()) {
+                    sketches.put(window, new Sketch(window, topK * 4));
+                }
+            }
+        }
+        refresh();
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    static String normalize(String tag) {
+        if (tag == null) {
+            return "";
+        }
+        String value = tag.trim().toLowerCase(Locale.ROOT);
+        while (value.startsWith("#")) {
+            value = value.substring(1);
+        }
+        return value.length() > MAX_TAG_LENGTH ? value.substring(0, MAX_TAG_LENGTH) : value;
+    }
+
+    public record TagCount(String tag, long count) {
+    }
+
+    /**
+     * Count-min sketch over a sliding window, kept as one sketch per bucket plus the sum of all buckets.
+     * Adding a tag updates the current bucket and the sum; a bucket that leaves the window is subtracted
+     * from the sum and cleared. Estimates never undercount, and overcount only on hash collisions.
+     */
+    static final class Sketch {
+        private static final int DEPTH = 4;
+        private static final int WIDTH = 2048;
+        private static final Comparator<TagCount> BY_RANK = Comparator.comparingLong(TagCount::count).reversed()
+                .thenComparing(TagCount::tag);
+
+        private final TrendingWindow window;
+        private final int candidateCapacity;
+        private final int[][] buckets;
+        private final long[] total = new long[DEPTH * WIDTH];
+        private final Map<String, Long> candidates = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private long currentSlot = -1;
+        volatile List<TagCount> top = List.of();
+
+        Sketch(TrendingWindow window, int candidateCapacity) {
+            this.window = window;
+            this.candidateCapacity = candidateCapacity;
+            this.buckets = new int[window.getBuckets()][DEPTH * WIDTH];
+        }
+
+        void add(Collection<String> tags, long now) {
+            lock.lock();
+            try {
+                advance(now);
+                int[] bucket = buckets[(int) (currentSlot % buckets.length)];
+                for (String tag : tags) {
+                    long estimate = Long.MAX_VALUE;
+                    long hash = hash(tag);
+                    for (int row = 0; row < DEPTH; row++) {
+                        int cell = cell(hash, row);
+                        bucket[cell]++;
+                        estimate = Math.min(estimate, ++total[cell]);
+                    }
+                    candidates.put(tag, estimate);
+                    if (candidates.size() > candidateCapacity) {
+                        evictSmallestCandidate();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long estimate(String tag) {
+            lock.lock();
+            try {
+                return estimateLocked(tag);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Re-estimates the candidates, drops those no longer in the window, and selects the top tags with a
+         * min-heap of size k.
+         */
+        void refresh(long now, int k) {
+            lock.lock();
+            try {
+                advance(now);
+                // The head of the heap is the worst of the best k tags seen so far
+                PriorityQueue<TagCount> heap = new PriorityQueue<>(BY_RANK.reversed());
+                candidates.entrySet().removeIf(entry -> {
+                    long estimate = estimateLocked(entry.getKey());
+                    entry.setValue(estimate);
+                    return estimate <= 0;
+                });
+                candidates.forEach((tag, count) -> {
+                    heap.add(new TagCount(tag, count));
+                    if (heap.size() > k) {
+                        heap.poll();
+                    }
+                });
+                List<TagCount> result = new ArrayList<>(heap);
+                result.sort(BY_RANK);
+                top = List.copyOf(result);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves the window to the bucket of the given time, clearing every bucket that left the window.
+         */
+        private void advance(long now) {
+            long slot = now / window.getBucketMillis();
+            if (currentSlot < 0 || slot - currentSlot >= buckets.length) {
+                for (int[] bucket : buckets) {
+                    Arrays.fill(bucket, 0);
+                }
+                Arrays.fill(total, 0);
+                currentSlot = slot;
+                return;
+            }
+            while (currentSlot < slot) {
+                currentSlot++;
+                int[] expired = buckets[(int) (currentSlot % buckets.length)];
+                for (int i = 0; i < expired.length; i++) {
+                    total[i] -= expired[i];
+                }
+                Arrays.fill(expired, 0);
+            }
+        }
+
+        private long estimateLocked(String tag) {
+            long estimate = Long.MAX_VALUE;
+            long hash = hash(tag);
+            for (int row = 0; row < DEPTH; row++) {
+                estimate = Math.min(estimate, total[cell(hash, row)]);
+            }
+            return estimate;
+        }
+
+        private void evictSmallestCandidate() {
+            String smallest = null;
+            long smallestCount = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                if (entry.getValue() < smallestCount) {
+                    smallest = entry.getKey();
+                    smallestCount = entry.getValue();
+                }
+            }
+            candidates.remove(smallest);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            lock.lock();
+            try {
+                out.writeUTF(window.name());
+                out.writeInt(buckets.length);
+                out.writeInt(total.length);
+                out.writeLong(currentSlot);
+                for (int[] bucket : buckets) {
+                    for (int value : bucket) {
+                        out.writeInt(value);
+                    }
+                }
+                out.writeInt(candidates.size());
+                for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            lock.lock();
+            try {
+                if (in.readInt() != buckets.length || in.readInt() != total.length) {
+                    throw new IOException("Trending tags checkpoint of " + window + " has a different layout");
+                }
+                currentSlot = in.readLong();
+                Arrays.fill(total, 0);
+                for (int[] bucket : buckets) {
+                    for (int i = 0; i < bucket.length; i++) {
+                        bucket[i] = in.readInt();
+                        total[i] += bucket[i];
+                    }
+                }
+                candidates.clear();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    candidates.put(in.readUTF(), in.readLong());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static int cell(long hash, int row) {
+            // Double hashing: row i uses h1 + i * h2
+            long h2 = (hash >>> 32) | 1;
+            int column = (int) Math.floorMod(hash + row * h2, (long) WIDTH);
+            return row * WIDTH + column;
+        }
+
+        private static long hash(String tag) {
+            long z = tag.hashCode() * 0x9E3779B97F4A7C15L + tag.length();
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package bg.connectly.store;
+
+import java.time.Duration;
+
+/**
+ * Sliding windows over which trending tags are counted.
+ * Each window is split into buckets; the oldest bucket is dropped as time moves on.
+ */
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofHours(1), 12),
+    DAY("24h", Duration.ofHours(24), 24),
+    WEEK("7d", Duration.ofDays(7), 28);
+
+    private final String label;
+    private final long bucketMillis;
+    private final int buckets;
+
+    TrendingWindow(String label, Duration length, int buckets) {
+        this.label = label;
+        this.bucketMillis = length.toMillis() / buckets;
+        this.buckets = buckets;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Returns the window with the given label, such as 1h, 24h or 7d, or null if there is none.
+     */
+    public static TrendingWindow fromLabel(String label) {
+        for (TrendingWindow window : values()) {
+            if (window.label.equalsIgnoreCase(label)) {
+                return window;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,274 @@
+package bg.connectly.store;
+
+import bg.connectly.dto.UserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory search index over the names and emails of users.
+ * Substring queries are answered from a trigram inverted index: the posting sets of the query's trigrams
+ * are intersected, and the few remaining candidates are checked against the actual text.
+ * Prefix queries, and queries too short to have a trigram, are answered from a sorted map of whole terms.
+ * Matches are ranked exact match first, then prefix match, then any other substring match.
+ */
+@Component
+public class UserSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int SUBSTRING = 2;
+
+    private final int maxResults;
+    private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Long>> grams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+
+    public UserSearchIndex(@Value("${connectly.user-search.max-results:1000}") int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Indexes a user, replacing the previously indexed name and email of the same user.
+     */
+    public void add(UserPrincipal principal) {
+        documents.compute(principal.getId(), (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            Document document = new Document(principal);
+            link(document);
+            return document;
+        });
+    }
+
+    /**
+     * Indexes a user unless it is already indexed.
+     * Used by the initial load, which must not overwrite users re-indexed while it was running.
+     */
+    public void addIfAbsent(UserPrincipal principal) {
+        documents.computeIfAbsent(principal.getId(), id -> {
+            Document document = new Document(principal);
+            link(document);
+            return document;
+        });
+    }
+
+    public void remove(Long userId) {
+        documents.computeIfPresent(userId, (id, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Returns whether all existing users are indexed. Until then, callers fall back to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns the users whose name or email contains the query, best matches first.
+     * Queries shorter than a trigram match the start of a name or email only.
+     */
+    public List<UserPrincipal> search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> candidates = normalized.length() < GRAM_LENGTH
+                ? prefixCandidates(normalized)
+                : gramCandidates(normalized);
+        return rank(normalized, candidates, maxResults);
+    }
+
+    /**
+     * Returns at most limit users whose first name, last name, full name or email starts with the prefix.
+     */
+    public List<UserPrincipal> autocomplete(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return rank(normalized, prefixCandidates(normalized), limit);
+    }
+
+    /**
+     * Collects the users with a term starting with the prefix, walking the sorted terms in order.
+     */
+    private Set<Long> prefixCandidates(String prefix) {
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (Set<Long> ids : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            candidates.addAll(ids);
+            if (candidates.size() >= maxResults) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Intersects the posting sets of all trigrams of the query, starting from the smallest one.
+     * The result may contain false positives whose trigrams occur in a different order.
+     */
+    private Set<Long> gramCandidates(String query) {
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : gramsOf(query)) {
+            Set<Long> ids = grams.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> candidates = new HashSet<>();
+        for (Long id : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(id);
+            }
+            if (inAll) {
+                candidates.add(id);
+            }
+        }
+        return candidates;
+    }
+
+    private List<UserPrincipal> rank(String query, Set<Long> candidates, int limit) {
+        List<Match> matches = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            Document document = documents.get(id);
+            int score = document != null ? document.score(query) : -1;
+            if (score >= 0) {
+                matches.add(new Match(document, score));
+            }
+        }
+        matches.sort(Comparator.comparingInt((Match match) -> match.score)
+                .thenComparing(match -> match.document.fullName)
+                .thenComparing(match -> match.document.principal.getId()));
+
+        List<UserPrincipal> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(matches.get(i).document.principal);
+        }
+        return result;
+    }
+
+    private void link(Document document) {
+        Long id = document.principal.getId();
+        for (String gram : document.grams()) {
+            grams.compute(gram, (key, ids) -> {
+                Set<Long> postings = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                postings.add(id);
+                return postings;
+            });
+        }
+        for (String term : document.terms()) {
+            terms.compute(term, (key, ids) -> {
+                Set<Long> postings = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                postings.add(id);
+                return postings;
+            });
+        }
+    }
+
+    private void unlink(Document document) {
+        Long id = document.principal.getId();
+        for (String gram : document.grams()) {
+            grams.computeIfPresent(gram, (key, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+        for (String term : document.terms()) {
+            terms.computeIfPresent(term, (key, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    /**
+     * The normalized searchable fields of one user.
+     * Trigrams are taken per field, so no trigram spans the boundary between the email and the name.
+     */
+    private static final class Document {
+        private final UserPrincipal principal;
+        private final String email;
+        private final String fullName;
+        private final Set<String> terms = new HashSet<>();
+
+        Document(UserPrincipal principal) {
+            this.principal = principal;
+            String firstName = normalize(principal.getFirstName());
+            String lastName = normalize(principal.getLastName());
+            this.email = normalize(principal.getEmail());
+            this.fullName = (firstName + " " + lastName).trim();
+            for (String term : new String[]{email, firstName, lastName, fullName}) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+        }
+
+        Set<String> grams() {
+            Set<String> result = gramsOf(email);
+            result.addAll(gramsOf(fullName));
+            return result;
+        }
+
+        Set<String> terms() {
+            return terms;
+        }
+
+        /**
+         * Returns the rank of the query against this user, or -1 if no field contains it.
+         */
+        int score(String query) {
+            int score = -1;
+            for (String term : terms) {
+                if (term.equals(query)) {
+                    return EXACT;
+                }
+                if (term.startsWith(query)) {
+                    score = PREFIX;
+                } else if (score < 0 && term.contains(query)) {
+                    score = SUBSTRING;
+                }
+            }
+            return score;
+        }
+    }
+
+    private record Match(Document document, int score) {
+    }
+}
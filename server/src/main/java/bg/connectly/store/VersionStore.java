@@ -0,0 +1,95 @@
+package bg.connectly.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static bg.connectly.configuration.TransactionHooks.afterCommit;
+
+/**
+ * Node-local version stamps of the collections clients poll, used to answer conditional GETs without
+ * querying the database.
+ * Every change takes the next value of one clock, so a collection's version only grows, even after it is
+ * evicted: a collection without an entry has the version of the latest eviction, which is at least the
+ * version it had. Versions start over on restart, so every ETag carries the start time of this node.
+ */
+@Component
+public class VersionStore {
+    public static final String POSTS = "posts";
+    // Authors are embedded in posts and comments, so every stamp includes the version of all profiles
+    public static final String PROFILES = "profiles";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final BoundedCache<String, Version> versions;
+    private volatile Version floor = new Version(0, System.currentTimeMillis());
+
+    public VersionStore(@Value("${connectly.versions.cache-size:100000}") int capacity) {
+        // Dropped versions fall back to the floor, which is raised to the latest version first, so no
+        // collection moves back to a stamp a client may still hold
+        this.versions = new BoundedCache<>(capacity, 0, false,
+                () -> floor = new Version(clock.get(), System.currentTimeMillis()));
+    }
+
+    public static String postsOf(Long authorId) {
+        return "posts:" + authorId;
+    }
+
+    public static String commentsOf(Long postId) {
+        return "comments:" + postId;
+    }
+
+    // Follows decide which posts a viewer may see, so viewer-dependent stamps include them
+    public static String followsOf(Long userId) {
+        return "follows:" + userId;
+    }
+
+    public static String profile(Long userId) {
+        return "profile:" + userId;
+    }
+
+    /**
+     * Returns the stamp of the given collections together with the version of all profiles.
+     */
+    public Stamp stamp(String... keys) {
+        Version profiles = get(PROFILES);
+        StringBuilder etag = new StringBuilder("W/\"").append(epoch).append('-').append(profiles.value);
+        long lastModified = profiles.modifiedAt;
+        for (String key : keys) {
+            Version version = get(key);
+            etag.append('-').append(version.value);
+            lastModified = Math.max(lastModified, version.modifiedAt);
+        }
+        return new Stamp(etag.append('"').toString(), lastModified);
+    }
+
+    /**
+     * Moves the given collections to a new version. Inside a transaction this happens after the commit, so a
+     * client never gets the new stamp with the old data.
+     */
+    public void bump(String... keys) {
+        afterCommit(() -> apply(keys));
+    }
+
+    private Version get(String key) {
+        Version version = versions.get(key);
+        return version != null ? version : floor;
+    }
+
+    private void apply(String... keys) {
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            versions.put(key, new Version(clock.incrementAndGet(), now));
+        }
+    }
+
+    private record Version(long value, long modifiedAt) {
+    }
+
+    /**
+     * The validators of a response: a weak ETag, and the time of the latest change for Last-Modified.
+     */
+    public record Stamp(String etag, long lastModified) {
+    }
+}
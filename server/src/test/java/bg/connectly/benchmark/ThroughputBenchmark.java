@@ -0,0 +1,154 @@
+package bg.connectly.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop throughput benchmark against a running server.
+ * Every client sends a request, waits for the response and sends the next one, so the number of clients is
+ * the number of requests in flight. Clients are asynchronous, which lets a single process hold 10k of them
+ * without 10k threads.
+ * <p>
+ * Run it once against a server started with {@code spring.threads.virtual.enabled=false} and once with
+ * {@code true} on Java 21 to compare the two threading modes. For 10k clients the server also needs
+ * {@code server.tomcat.max-connections} above 10000 and enough open files.
+ * <pre>
+ * java -cp target/test-classes bg.connectly.benchmark.ThroughputBenchmark \
+ *     --url=http://localhost:8080/api/post/timeline --token=... --clients=1000,10000 --seconds=30
+ * </pre>
+ */
+public class ThroughputBenchmark {
+    private static final int MAX_LATENCY_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        URI uri = URI.create(options.getOrDefault("url", "http://localhost:8080/api/post/timeline"));
+        String token = options.get("token");
+        int[] clients = Arrays.stream(options.getOrDefault("clients", "1000,10000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "30")));
+        Duration warmUp = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warm-up-seconds", "5")));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest request = builder.build();
+
+        System.out.printf("%-8s %10s %8s %10s %8s %8s %8s%n", "clients", "requests", "errors", "req/s", "p50 ms",
+                "p99 ms", "max ms");
+        try {
+            for (int count : clients) {
+                run(httpClient, request, count, warmUp);
+                Result result = run(httpClient, request, count, duration);
+                System.out.printf("%-8d %10d %8d %10.1f %8d %8d %8d%n", count, result.requests(), result.errors(),
+                        result.requests() / (double) duration.toSeconds(), result.percentile(0.50),
+                        result.percentile(0.99), result.percentile(1.0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the given number of clients for the given duration and returns what they measured.
+     */
+    private static Result run(HttpClient httpClient, HttpRequest request, int clients, Duration duration)
+            throws InterruptedException {
+        Result result = new Result();
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            send(httpClient, request, deadline, result, finished);
+        }
+        if (!finished.await(duration.toSeconds() + 120, TimeUnit.SECONDS)) {
+            System.err.println("Some clients did not finish in time");
+        }
+        return result;
+    }
+
+    private static void send(HttpClient httpClient, HttpRequest request, long deadline, Result result,
+                             CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+        long start = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (System.nanoTime() < deadline) {
+                result.record(System.nanoTime() - start, error == null && response.statusCode() < 400);
+            }
+            send(httpClient, request, deadline, result, finished);
+        });
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Request counts and a histogram of latencies in whole milliseconds.
+     */
+    private static final class Result {
+        private final AtomicLongArray histogram = new AtomicLongArray(MAX_LATENCY_MILLIS + 1);
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+
+        void record(long nanos, boolean success) {
+            histogram.incrementAndGet((int) Math.min(MAX_LATENCY_MILLIS, TimeUnit.NANOSECONDS.toMillis(nanos)));
+            requestCount.increment();
+            if (!success) {
+                errorCount.increment();
+            }
+        }
+
+        long requests() {
+            return requestCount.sum();
+        }
+
+        long errors() {
+            return errorCount.sum();
+        }
+
+        long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < histogram.length(); i++) {
+                total += histogram.get(i);
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < histogram.length(); i++) {
+                seen += histogram.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package bg.connectly.configuration;
+
+import bg.connectly.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BoundedPasswordEncoderUnitTests {
+
+    private ThreadPoolExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordEncoder delegate;
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = mock(PasswordEncoder.class);
+        passwordEncoder = new BoundedPasswordEncoder(delegate, executor, 3, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void encodeAndMatchesRunOnPoolAndAreTimed() {
+        when(delegate.encode("secret")).thenAnswer(invocation -> Thread.currentThread().getName());
+        when(delegate.matches("secret", "hash")).thenReturn(true);
+
+        assertNotEquals(Thread.currentThread().getName(), passwordEncoder.encode("secret"));
+        assertTrue(passwordEncoder.matches("secret", "hash"));
+        assertEquals(1, meterRegistry.get("connectly.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("connectly.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void fullQueueFailsFast() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode("slow")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = callers.submit(() -> passwordEncoder.encode("slow"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> queued = callers.submit(() -> passwordEncoder.encode("slow"));
+            while (executor.getQueue().isEmpty()) {
+                Thread.onSpinWait();
+            }
+
+            ServiceUnavailableException exception =
+                    assertThrows(ServiceUnavailableException.class, () -> passwordEncoder.encode("slow"));
+            assertEquals(3, exception.getRetryAfterSeconds());
+            assertEquals(1.0, meterRegistry.get("connectly.password.hash.queue").gauge().value());
+            assertEquals(1.0, meterRegistry.get("connectly.password.hash.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void delegateExceptionsArePropagated() {
+        when(delegate.matches("secret", "bad")).thenThrow(new IllegalArgumentException("Invalid salt"));
+
+        assertThrows(IllegalArgumentException.class, () -> passwordEncoder.matches("secret", "bad"));
+    }
+}
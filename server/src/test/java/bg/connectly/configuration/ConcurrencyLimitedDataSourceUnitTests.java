@@ -0,0 +1,77 @@
+package bg.connectly.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitedDataSourceUnitTests {
+
+    private DataSource delegate;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        delegate = mock(DataSource.class);
+        when(delegate.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new ConcurrencyLimitedDataSource(delegate, 2, 50, meterRegistry);
+    }
+
+    @Test
+    void connectionsOverTheLimitTimeOut() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(2, meterRegistry.get("connectly.jdbc.limiter.active").gauge().value());
+        assertEquals(1, meterRegistry.get("connectly.jdbc.limiter.rejected").counter().count());
+
+        first.close();
+        second.close();
+        assertEquals(0, meterRegistry.get("connectly.jdbc.limiter.active").gauge().value());
+    }
+
+    @Test
+    void closingTwiceReleasesOnePermit() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        dataSource.getConnection();
+        dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    }
+
+    @Test
+    void failedConnectReleasesPermit() throws SQLException {
+        when(delegate.getConnection()).thenThrow(new SQLException("down"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLException.class, dataSource::getConnection);
+        }
+        assertEquals(0, meterRegistry.get("connectly.jdbc.limiter.active").gauge().value());
+    }
+
+    @Test
+    void callsAreForwardedToTheConnection() throws SQLException {
+        Connection target = mock(Connection.class);
+        when(delegate.getConnection()).thenReturn(target);
+        when(target.getAutoCommit()).thenReturn(true);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(connection.getAutoCommit());
+        }
+        verify(target).close();
+    }
+}
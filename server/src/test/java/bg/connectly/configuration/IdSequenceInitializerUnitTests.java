@@ -0,0 +1,49 @@
+package bg.connectly.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdSequenceInitializerUnitTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private IdSequenceInitializer idSequenceInitializer;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT MAX(id)"), eq(Long.class))).thenReturn(null);
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT CASE"), eq(Long.class))).thenReturn(0L);
+    }
+
+    @Test
+    void sequenceBehindTableIsMovedToHighestId() {
+        when(jdbcTemplate.queryForObject("SELECT MAX(id) FROM posts", Long.class)).thenReturn(120L);
+
+        idSequenceInitializer.synchronizeSequences();
+
+        verify(jdbcTemplate).queryForObject(anyString(), eq(Long.class), eq("posts_seq"), eq(120L));
+        verify(jdbcTemplate, times(1)).queryForObject(startsWith("SELECT setval"), eq(Long.class), any(), any());
+    }
+
+    @Test
+    void sequenceAheadOfTableIsLeftAlone() {
+        when(jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class)).thenReturn(40L);
+        when(jdbcTemplate.queryForObject(endsWith("FROM users_seq"), eq(Long.class))).thenReturn(100L);
+
+        idSequenceInitializer.synchronizeSequences();
+
+        verify(jdbcTemplate, never()).queryForObject(startsWith("SELECT setval"), eq(Long.class), any(), any());
+    }
+}
@@ -0,0 +1,36 @@
+package bg.connectly.configuration;
+
+import bg.connectly.exception.AuthenticationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilUnitTests {
+
+    private final JwtUtil jwtUtil = new JwtUtil(2);
+
+    @Test
+    void verifyReturnsClaimsOfGeneratedToken() {
+        String token = jwtUtil.generateToken("testuser@abv.bg");
+
+        assertEquals("testuser@abv.bg", jwtUtil.verify(token).getSubject());
+        assertSame(jwtUtil.verify(token), jwtUtil.verify(token));
+    }
+
+    @Test
+    void verifyRejectsTamperedToken() {
+        String token = jwtUtil.generateToken("testuser@abv.bg");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(AuthenticationException.class, () -> jwtUtil.verify(tampered));
+        assertFalse(jwtUtil.validateToken("not.a.token"));
+    }
+
+    @Test
+    void verifyKeepsWorkingWhenCacheIsFull() {
+        for (int i = 0; i < 5; i++) {
+            String email = "user" + i + "@abv.bg";
+            assertEquals(email, jwtUtil.extractEmail(jwtUtil.generateToken(email)));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package bg.connectly.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterUnitTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitFilter rateLimitFilter = new RateLimitFilter(new RateLimiter(100),
+            new String[]{"/api/auth/**=2/60", " /api/**=100/60"}, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void clientOverLimitGetsTooManyRequestsWithRetryAfter() throws Exception {
+        assertEquals(200, perform("/api/auth/login", "10.0.0.1").getStatus());
+        assertEquals(200, perform("/api/auth/login", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse response = perform("/api/auth/login", "10.0.0.1");
+
+        assertEquals(429, response.getStatus());
+        assertEquals("30", response.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("connectly.rate-limit.rejected").tag("pattern", "/api/auth/**")
+                .counter().count());
+    }
+
+    @Test
+    void firstMatchingRuleApplies() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            perform("/api/auth/login", "10.0.0.1");
+        }
+
+        assertEquals(200, perform("/api/post/get", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void anonymousClientsAreLimitedByAddress() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            perform("/api/auth/login", "10.0.0.1");
+        }
+
+        assertEquals(200, perform("/api/auth/login", "10.0.0.2").getStatus());
+    }
+
+    @Test
+    void signedInClientsAreLimitedByEmail() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user@abv.bg", "token", List.of()));
+        for (int i = 0; i < 2; i++) {
+            perform("/api/auth/refresh", "10.0.0." + i);
+        }
+
+        assertEquals(429, perform("/api/auth/refresh", "10.0.0.9").getStatus());
+        SecurityContextHolder.clearContext();
+        assertEquals(200, perform("/api/auth/refresh", "10.0.0.9").getStatus());
+    }
+
+    @Test
+    void pathsWithoutRuleAreNotLimited() throws Exception {
+        RateLimitFilter authOnly = new RateLimitFilter(new RateLimiter(100), new String[]{"/api/auth/**=1/60"},
+                new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            authOnly.doFilter(request("/swagger-ui/index.html", "10.0.0.1"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    void malformedRuleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitFilter(new RateLimiter(100),
+                new String[]{"/api/**"}, new SimpleMeterRegistry()));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitFilter(new RateLimiter(100),
+                new String[]{"/api/**=0/60"}, new SimpleMeterRegistry()));
+    }
+
+    private MockHttpServletResponse perform(String path, String remoteAddress) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request(path, remoteAddress), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+}
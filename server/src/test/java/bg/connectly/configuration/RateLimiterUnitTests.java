@@ -0,0 +1,117 @@
+package bg.connectly.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterUnitTests {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void burstIsAllowedThenClientWaitsForNextToken() {
+        RateLimiter rateLimiter = new RateLimiter(100, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.acquire("ip:1", SECOND, 3));
+        }
+        assertEquals(SECOND, rateLimiter.acquire("ip:1", SECOND, 3));
+
+        clock.addAndGet(SECOND / 2);
+        assertEquals(SECOND / 2, rateLimiter.acquire("ip:1", SECOND, 3));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(0, rateLimiter.acquire("ip:1", SECOND, 3));
+    }
+
+    @Test
+    void bucketsRefillOverTimeUpToBurst() {
+        RateLimiter rateLimiter = new RateLimiter(100, clock::get);
+        for (int i = 0; i < 2; i++) {
+            rateLimiter.acquire("ip:1", SECOND, 2);
+        }
+
+        clock.addAndGet(60 * SECOND);
+
+        assertEquals(0, rateLimiter.acquire("ip:1", SECOND, 2));
+        assertEquals(0, rateLimiter.acquire("ip:1", SECOND, 2));
+        assertTrue(rateLimiter.acquire("ip:1", SECOND, 2) > 0);
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        RateLimiter rateLimiter = new RateLimiter(100, clock::get);
+
+        assertEquals(0, rateLimiter.acquire("ip:1", SECOND, 1));
+        assertTrue(rateLimiter.acquire("ip:1", SECOND, 1) > 0);
+        assertEquals(0, rateLimiter.acquire("ip:2", SECOND, 1));
+    }
+
+    @Test
+    void fullBucketsAreEvictedFirst() {
+        RateLimiter rateLimiter = new RateLimiter(4, clock::get);
+        rateLimiter.acquire("ip:busy", 60 * SECOND, 1);
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire("ip:" + i, SECOND, 1);
+        }
+
+        clock.addAndGet(2 * SECOND);
+        rateLimiter.acquire("ip:new", SECOND, 1);
+
+        assertEquals(2, rateLimiter.size());
+        assertTrue(rateLimiter.acquire("ip:busy", 60 * SECOND, 1) > 0);
+    }
+
+    @Test
+    void newClientIsServedWhenEveryBucketIsStillLimiting() {
+        RateLimiter rateLimiter = new RateLimiter(4, clock::get);
+        rateLimiter.acquire("ip:soon", 60 * SECOND, 1);
+        clock.addAndGet(10 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire("ip:" + i, 60 * SECOND, 1);
+        }
+
+        assertEquals(0, rateLimiter.acquire("ip:new", SECOND, 1));
+
+        // Only the bucket closest to refilling was dropped; the others still limit their clients
+        assertEquals(4, rateLimiter.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.acquire("ip:" + i, 60 * SECOND, 1) > 0);
+        }
+    }
+
+    @Test
+    void concurrentClientsNeverTakeMoreThanBurst() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(100, clock::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (rateLimiter.acquire("user:a", SECOND, 100) == 0) {
+                        allowed.incrementAndGet();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(100, allowed.get());
+    }
+}
@@ -6,6 +6,7 @@ import bg.connectly.dto.LoginRequestDto;
 import bg.connectly.dto.RegisterRequestDto;
 import bg.connectly.exception.AlreadyExistsException;
 import bg.connectly.exception.AuthenticationException;
+import bg.connectly.exception.ServiceUnavailableException;
 import bg.connectly.service.AuthService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.MethodOrderer;
@@ -27,6 +28,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -149,4 +151,18 @@ public class AuthControllerUnitTests {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @Order(7)
+    void loginWhenHashingIsSaturatedReturnsServiceUnavailable() throws Exception {
+        LoginRequestDto loginRequestDto = new LoginRequestDto("email@example.com", "password");
+
+        when(authService.authenticateUser(any(LoginRequestDto.class)))
+                .thenThrow(new ServiceUnavailableException("Too many authentication requests", 2));
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequestDto)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+    }
 }
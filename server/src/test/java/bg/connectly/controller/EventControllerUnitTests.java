@@ -0,0 +1,134 @@
+package bg.connectly.controller;
+
+import bg.connectly.configuration.JwtUtil;
+import bg.connectly.exception.AuthenticationException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.EventService;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(EventController.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class EventControllerUnitTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EventService eventService;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @TestConfiguration
+    static class TestSecurityConfig {
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                    .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
+                    .authorizeHttpRequests(auth -> auth
+                            .anyRequest().permitAll()// unrestricted access to all endpoints
+                    )
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Stateless session for JWT
+                    );
+
+            return http.build();
+        }
+    }
+
+    @Test
+    @Order(1)
+    void streamCommentsSendsEvents() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(eventService.subscribeToPost(1L, null)).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/api/events/post/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("comment").data("{\"id\":5}", MediaType.APPLICATION_JSON));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(header().string("X-Accel-Buffering", "no"))
+                .andExpect(content().string("event:comment\ndata:{\"id\":5}\n\n"));
+    }
+
+    @Test
+    @Order(2)
+    void streamCommentsOfMissingPostReturnsNotFound() throws Exception {
+        when(eventService.subscribeToPost(2L, null)).thenThrow(new NotFoundException("Post not found"));
+
+        mockMvc.perform(get("/api/events/post/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(5)
+    void streamCommentsWithTokenSubscribesAsViewer() throws Exception {
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        when(eventService.subscribeToPost(1L, "test-user@abv.bg")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/events/post/1")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    @Order(6)
+    void streamCommentsWithInvalidTokenSubscribesAnonymously() throws Exception {
+        when(authService.getEmailFromToken(anyString())).thenThrow(new AuthenticationException("Unauthorized"));
+        when(eventService.subscribeToPost(1L, null)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/events/post/1")
+                        .header("Authorization", "Bearer invalid-token"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    @Order(3)
+    void streamFeedSubscribesAuthenticatedUser() throws Exception {
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        when(eventService.subscribeToFeed("test-user@abv.bg")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/events/feed")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    @Order(4)
+    void streamFeedWithInvalidTokenReturnsUnauthorized() throws Exception {
+        when(authService.getEmailFromToken(anyString())).thenThrow(new AuthenticationException("Unauthorized"));
+
+        mockMvc.perform(get("/api/events/feed")
+                        .header("Authorization", "Bearer invalid-token"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,165 @@
+package bg.connectly.controller;
+
+import bg.connectly.configuration.JwtUtil;
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.dto.response.FollowStatsDto;
+import bg.connectly.dto.response.SuggestionDto;
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.exception.AuthenticationException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.model.FollowRequest;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.SuggestionService;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(FollowController.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class FollowControllerUnitTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FollowService followService;
+
+    @MockBean
+    private SuggestionService suggestionService;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @TestConfiguration
+    static class TestSecurityConfig {
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                    .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
+                    .authorizeHttpRequests(auth -> auth
+                            .anyRequest().permitAll()// unrestricted access to all endpoints
+                    )
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Stateless session for JWT
+                    );
+
+            return http.build();
+        }
+    }
+
+    @Test
+    @Order(1)
+    void followReturnsRequest() throws Exception {
+        FollowRequestResponseDto followRequest = new FollowRequestResponseDto();
+        followRequest.setId(5L);
+        followRequest.setStatus(FollowRequest.STATUS_PENDING);
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        when(followService.follow("test-user@abv.bg", 2L)).thenReturn(followRequest);
+
+        mockMvc.perform(post("/api/follow/2")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(5))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @Order(2)
+    void followWithInvalidTokenReturnsUnauthorized() throws Exception {
+        when(authService.getEmailFromToken(anyString())).thenThrow(new AuthenticationException("Unauthorized"));
+
+        mockMvc.perform(post("/api/follow/2")
+                        .header("Authorization", "Bearer invalid-token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Order(3)
+    void unfollowWithoutFollowReturnsNotFound() throws Exception {
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        doThrow(new NotFoundException("Follow not found")).when(followService).unfollow("test-user@abv.bg", 2L);
+
+        mockMvc.perform(delete("/api/follow/2")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(4)
+    void acceptRequestReturnsAcceptedRequest() throws Exception {
+        FollowRequestResponseDto followRequest = new FollowRequestResponseDto();
+        followRequest.setId(5L);
+        followRequest.setStatus(FollowRequest.STATUS_ACCEPTED);
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        when(followService.acceptRequest("test-user@abv.bg", 5L)).thenReturn(followRequest);
+
+        mockMvc.perform(post("/api/follow/requests/5/accept")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ACCEPTED"));
+    }
+
+    @Test
+    @Order(5)
+    void getFollowersPassesPage() throws Exception {
+        UserResponseDto follower = new UserResponseDto();
+        follower.setId(1L);
+        when(followService.getFollowers(2L, 20, 10)).thenReturn(List.of(follower));
+
+        mockMvc.perform(get("/api/follow/2/followers")
+                        .param("offset", "20")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @Order(6)
+    void getStatsWithoutTokenHasNoViewer() throws Exception {
+        when(followService.getStats(2L, null)).thenReturn(new FollowStatsDto(2L, 3, 4, null));
+
+        mockMvc.perform(get("/api/follow/2/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.followersCount").value(3))
+                .andExpect(jsonPath("$.followingCount").value(4));
+        verifyNoInteractions(authService);
+    }
+
+    @Test
+    @Order(7)
+    void getSuggestionsReturnsMutualCounts() throws Exception {
+        UserResponseDto user = new UserResponseDto();
+        user.setId(3L);
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("test-user@abv.bg");
+        when(suggestionService.getSuggestions("test-user@abv.bg", 5)).thenReturn(List.of(new SuggestionDto(user, 2)));
+
+        mockMvc.perform(get("/api/follow/suggestions")
+                        .param("limit", "5")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].user.id").value(3))
+                .andExpect(jsonPath("$[0].mutualCount").value(2));
+    }
+}
@@ -0,0 +1,233 @@
+package bg.connectly.controller;
+
+import bg.connectly.configuration.JwtUtil;
+import bg.connectly.dto.response.MediaResponseDto;
+import bg.connectly.dto.response.UploadResponseDto;
+import bg.connectly.exception.ConflictException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.service.AuthService;
+import bg.connectly.service.MediaService;
+import bg.connectly.store.MediaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(MediaController.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MediaControllerUnitTests {
+    private static final String MEDIA_ID = "ab".repeat(32);
+    private static final String ETAG = "\"" + MEDIA_ID + "\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MediaService mediaService;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @TempDir
+    private Path directory;
+
+    @TestConfiguration
+    static class TestSecurityConfig {
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                    .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
+                    .authorizeHttpRequests(auth -> auth
+                            .anyRequest().permitAll()// unrestricted access to all endpoints
+                    )
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Stateless session for JWT
+                    );
+
+            return http.build();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.writeString(directory.resolve(MEDIA_ID), "0123456789");
+        when(mediaService.getMedia(MEDIA_ID)).thenReturn(new MediaStore.StoredMedia(MEDIA_ID, file, 10, "image/png"));
+        when(authService.getEmailFromToken(anyString())).thenReturn("test@abv.bg");
+    }
+
+    @Test
+    @Order(1)
+    void getMediaReturnsWholeFileWithCacheHeaders() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    @Order(2)
+    void getMediaWithMatchingETagReturnsNotModified() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(content().string(""));
+
+        verify(mediaService, never()).getMedia(anyString());
+    }
+
+    @Test
+    @Order(3)
+    void getMediaWithRangeReturnsPartialContent() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    @Order(4)
+    void getMediaWithUnsatisfiableRangeReturns416() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("Range", "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @Test
+    @Order(5)
+    void getMediaWithStaleIfRangeReturnsWholeFile() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("Range", "bytes=2-5").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    @Order(6)
+    void getMediaUsesSendfileWhenConnectorSupportsIt() throws Exception {
+        mockMvc.perform(get("/api/media/" + MEDIA_ID).header("Range", "bytes=4-")
+                        .requestAttr(MediaController.SENDFILE_SUPPORTED, true))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute(MediaController.SENDFILE_START, 4L))
+                .andExpect(request().attribute(MediaController.SENDFILE_END, 10L))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @Order(7)
+    void getMissingMediaReturnsNotFound() throws Exception {
+        when(mediaService.getMedia("missing")).thenThrow(new NotFoundException("Media not found"));
+
+        mockMvc.perform(get("/api/media/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(12)
+    void getMissingMediaWithStaleETagReturnsNotFoundWithoutMediaHeaders() throws Exception {
+        String otherId = "cd".repeat(32);
+        when(mediaService.getMedia(otherId)).thenThrow(new NotFoundException("Media not found"));
+
+        mockMvc.perform(get("/api/media/" + otherId).header("If-None-Match", ETAG))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("Cache-Control", not(containsString("immutable"))))
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    @Order(8)
+    void getDerivativeHasItsOwnETag() throws Exception {
+        Path file = Files.writeString(directory.resolve("320.jpg"), "resized");
+        when(mediaService.getDerivative(MEDIA_ID, 320)).thenReturn(new MediaStore.StoredMedia(MEDIA_ID, file, 7, "image/jpeg"));
+
+        mockMvc.perform(get("/api/media/" + MEDIA_ID + "/320"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + MEDIA_ID + "-320\""))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().string("resized"));
+    }
+
+    @Test
+    @Order(9)
+    void appendChunkPassesBodyToService() throws Exception {
+        when(mediaService.appendChunk(eq("upload-1"), eq("test@abv.bg"), eq(0L), any(InputStream.class)))
+                .thenReturn(new UploadResponseDto("upload-1", 4L));
+
+        mockMvc.perform(put("/api/media/uploads/upload-1").param("offset", "0")
+                        .header("Authorization", "Bearer valid-token")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[4]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offset").value(4));
+    }
+
+    @Test
+    @Order(10)
+    void appendChunkAtWrongOffsetReturnsConflict() throws Exception {
+        when(mediaService.appendChunk(anyString(), anyString(), anyLong(), any(InputStream.class)))
+                .thenThrow(new ConflictException("Chunk starts at 8 but the upload has 4 bytes"));
+
+        mockMvc.perform(put("/api/media/uploads/upload-1").param("offset", "8")
+                        .header("Authorization", "Bearer valid-token")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[4]))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @Order(11)
+    void completeUploadReturnsCreatedWithLocation() throws Exception {
+        when(mediaService.completeUpload("upload-1", "test@abv.bg"))
+                .thenReturn(new MediaResponseDto(MEDIA_ID, "image/png", 10L, "/api/media/" + MEDIA_ID));
+
+        mockMvc.perform(post("/api/media/uploads/upload-1/complete")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/api/media/" + MEDIA_ID))
+                .andExpect(jsonPath("$.id").value(MEDIA_ID));
+    }
+}
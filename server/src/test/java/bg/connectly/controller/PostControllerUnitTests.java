@@ -3,13 +3,18 @@ package bg.connectly.controller;
 import bg.connectly.configuration.JwtUtil;
 import bg.connectly.dto.CommentDto;
 import bg.connectly.dto.PostDto;
-import bg.connectly.model.Comment;
-import bg.connectly.model.Post;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.exception.AuthenticationException;
+import bg.connectly.exception.NotFoundException;
 import bg.connectly.service.AuthService;
 import bg.connectly.service.CommentService;
 import bg.connectly.service.PostService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.MethodOrderer;
+import bg.connectly.store.VersionStore;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -22,6 +27,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -33,6 +39,8 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -78,18 +86,22 @@ public class PostControllerUnitTests {
     @Test
     @Order(1)
     void getUserPostsReturnsPosts() throws Exception {
-        Post post = new Post();
+        PostResponseDto post = new PostResponseDto();
         post.setContent("Test Post");
-        Page<Post> postsPage = new PageImpl<>(Collections.singletonList(post));
+        Page<PostResponseDto> postsPage = new PageImpl<>(Collections.singletonList(post));
         Pageable pageable = PageRequest.of(0, 10);
 
-        when(postService.getPostsByEmail(anyString(), any(Pageable.class))).thenReturn(postsPage);
+        when(postService.getPostsStamp(anyString(), isNull())).thenReturn(new VersionStore.Stamp("W/\"1-0-3\"", 1_700_000_000_000L));
+        when(postService.getPostsByEmail(anyString(), any(Pageable.class), isNull())).thenReturn(postsPage);
 
         mockMvc.perform(get("/api/post/user")
                         .param("email", "someuser@abbv.bg")
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-0-3\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
                 .andExpect(jsonPath("$.content[0].content").value("Test Post"));
     }
 
@@ -98,7 +110,7 @@ public class PostControllerUnitTests {
     void createPostReturnsCreatedPost() throws Exception {
         PostDto postDto = new PostDto();
         postDto.setContent("New Post");
-        Post post = new Post();
+        PostResponseDto post = new PostResponseDto();
         post.setContent("New Post");
 
         when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
@@ -128,7 +140,7 @@ public class PostControllerUnitTests {
     void updatePostReturnsUpdatedPost() throws Exception {
         PostDto updatePostDto = new PostDto();
         updatePostDto.setContent("Updated Post");
-        Post updatedPost = new Post();
+        PostResponseDto updatedPost = new PostResponseDto();
         updatedPost.setContent("Updated Post");
 
         when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
@@ -147,7 +159,7 @@ public class PostControllerUnitTests {
     void addCommentReturnsCreatedComment() throws Exception {
         CommentDto commentDto = new CommentDto();
         commentDto.setContent("New Comment");
-        Comment comment = new Comment();
+        CommentResponseDto comment = new CommentResponseDto();
         comment.setContent("New Comment");
 
         when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
@@ -164,11 +176,12 @@ public class PostControllerUnitTests {
     @Test
     @Order(6)
     void getCommentsReturnsComments() throws Exception {
-        Comment comment = new Comment();
+        CommentResponseDto comment = new CommentResponseDto();
         comment.setContent("Test Comment");
-        List<Comment> comments = Collections.singletonList(comment);
+        List<CommentResponseDto> comments = Collections.singletonList(comment);
 
-        when(commentService.getComments(anyLong())).thenReturn(comments);
+        when(commentService.getCommentsStamp(anyLong(), isNull())).thenReturn(new VersionStore.Stamp("W/\"1-0-3\"", 1_700_000_000_000L));
+        when(commentService.getComments(anyLong(), isNull())).thenReturn(comments);
 
         mockMvc.perform(get("/api/post/{postId}/comments", 1L))
                 .andExpect(status().isOk())
@@ -178,12 +191,14 @@ public class PostControllerUnitTests {
     @Test
     @Order(7)
     void likeCommentReturnsLikedComment() throws Exception {
-        Comment comment = new Comment();
+        CommentResponseDto comment = new CommentResponseDto();
         comment.setContent("Liked Comment");
 
-        when(commentService.likeComment(anyLong())).thenReturn(comment);
+        when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
+        when(commentService.likeComment(anyLong(), anyString())).thenReturn(comment);
 
-        mockMvc.perform(post("/api/post/comment/{commentId}/like", 1L))
+        mockMvc.perform(post("/api/post/comment/{commentId}/like", 1L)
+                        .header("Authorization", "Bearer token"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content").value("Liked Comment"));
     }
@@ -193,7 +208,7 @@ public class PostControllerUnitTests {
     void replyToCommentReturnsCreatedReply() throws Exception {
         CommentDto commentDto = new CommentDto();
         commentDto.setContent("Reply Comment");
-        Comment comment = new Comment();
+        CommentResponseDto comment = new CommentResponseDto();
         comment.setContent("Reply Comment");
 
         when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
@@ -207,4 +222,173 @@ public class PostControllerUnitTests {
                 .andExpect(jsonPath("$.content").value("Reply Comment"));
     }
 
+    @Test
+    @Order(9)
+    void getTimelineReturnsPosts() throws Exception {
+        PostResponseDto post = new PostResponseDto();
+        post.setContent("Timeline Post");
+
+        when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
+        when(postService.getTimeline(anyString(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(post)));
+
+        mockMvc.perform(get("/api/post/timeline")
+                        .header("Authorization", "Bearer valid-token")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Timeline Post"));
+    }
+
+    @Test
+    @Order(10)
+    void scrollPostsReturnsNextCursor() throws Exception {
+        PostResponseDto post = new PostResponseDto();
+        post.setContent("Scrolled Post");
+
+        when(postService.getPosts(isNull(), eq(20), isNull()))
+                .thenReturn(new CursorPage<>(List.of(post), "next-cursor", true));
+
+        mockMvc.perform(get("/api/post/scroll"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Scrolled Post"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    @Order(11)
+    void getCommentThreadReturnsNestedReplies() throws Exception {
+        CommentResponseDto reply = new CommentResponseDto();
+        reply.setContent("Reply");
+        CommentResponseDto comment = new CommentResponseDto();
+        comment.setContent("Root");
+        comment.getReplies().add(reply);
+
+        when(commentService.getCommentThread(1L, 0, 10, 2, 5, null)).thenReturn(List.of(comment));
+
+        mockMvc.perform(get("/api/post/{postId}/comments/thread", 1L)
+                        .param("limit", "10")
+                        .param("depth", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content").value("Root"))
+                .andExpect(jsonPath("$[0].replies[0].content").value("Reply"));
+    }
+
+    @Test
+    @Order(12)
+    void likePostReturnsLikedPost() throws Exception {
+        PostResponseDto post = new PostResponseDto();
+        post.setLikesCount(1);
+        post.setLikedByViewer(true);
+
+        when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
+        when(postService.likePost(1L, "testuser@abv.bg")).thenReturn(post);
+
+        mockMvc.perform(post("/api/post/{postId}/like", 1L)
+                        .header("Authorization", "Bearer token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(1))
+                .andExpect(jsonPath("$.likedByViewer").value(true));
+    }
+
+    @Test
+    @Order(13)
+    void unlikeCommentReturnsComment() throws Exception {
+        CommentResponseDto comment = new CommentResponseDto();
+        comment.setLikedByViewer(false);
+
+        when(authService.getEmailFromToken(anyString())).thenReturn("testuser@abv.bg");
+        when(commentService.unlikeComment(1L, "testuser@abv.bg")).thenReturn(comment);
+
+        mockMvc.perform(delete("/api/post/comment/{commentId}/like", 1L)
+                        .header("Authorization", "Bearer token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likedByViewer").value(false));
+    }
+
+    @Test
+    @Order(14)
+    void searchPostsReturnsRankedPage() throws Exception {
+        PostSearchResultDto result = new PostSearchResultDto();
+        result.setId(1L);
+        result.setContent("Spring Boot tips");
+        result.setScore(1.5);
+
+        when(postService.searchPosts(eq("spring"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(result)));
+
+        mockMvc.perform(get("/api/post/search")
+                        .param("query", "spring"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].score").value(1.5));
+    }
+
+    @Test
+    @Order(15)
+    void getPostsWithMatchingETagReturnsNotModifiedWithoutQuery() throws Exception {
+        when(postService.getPostsStamp((String) isNull())).thenReturn(new VersionStore.Stamp("W/\"1-0-3\"", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/api/post/get")
+                        .header("If-None-Match", "W/\"1-0-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(postService, never()).getPosts(any(Pageable.class), any());
+    }
+
+    @Test
+    @Order(16)
+    void getCommentsWithStaleETagReturnsComments() throws Exception {
+        when(commentService.getCommentsStamp(1L, null)).thenReturn(new VersionStore.Stamp("W/\"1-0-3\"", 1_700_000_000_000L));
+        when(commentService.getComments(1L, null)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/post/{postId}/comments", 1L)
+                        .header("If-None-Match", "W/\"1-0-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-0-3\""));
+    }
+
+    @Test
+    @Order(17)
+    void getPostsWithTokenReadsAsViewer() throws Exception {
+        PostResponseDto post = new PostResponseDto();
+        post.setContent("Friends Post");
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("viewer@abv.bg");
+        when(postService.getPostsStamp("viewer@abv.bg")).thenReturn(new VersionStore.Stamp("W/\"1-0-3-7\"", 1_700_000_000_000L));
+        when(postService.getPosts(any(Pageable.class), eq("viewer@abv.bg")))
+                .thenReturn(new PageImpl<>(Collections.singletonList(post)));
+
+        mockMvc.perform(get("/api/post/get")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-0-3-7\""))
+                .andExpect(jsonPath("$.content[0].content").value("Friends Post"));
+    }
+
+    @Test
+    @Order(18)
+    void getPostsWithInvalidTokenReadsAnonymously() throws Exception {
+        when(authService.getEmailFromToken("Bearer expired-token")).thenThrow(new AuthenticationException("Invalid token"));
+        when(postService.getPostsStamp((String) isNull())).thenReturn(new VersionStore.Stamp("W/\"1-0-3\"", 1_700_000_000_000L));
+        when(postService.getPosts(any(Pageable.class), isNull())).thenReturn(new PageImpl<>(List.of()));
+
+        mockMvc.perform(get("/api/post/get")
+                        .header("Authorization", "Bearer expired-token"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @Order(19)
+    void getCommentsOfHiddenPostReturnsNotFound() throws Exception {
+        when(authService.getEmailFromToken("Bearer valid-token")).thenReturn("viewer@abv.bg");
+        when(commentService.getCommentsStamp(1L, "viewer@abv.bg")).thenThrow(new NotFoundException("Post not found"));
+
+        mockMvc.perform(get("/api/post/{postId}/comments", 1L)
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isNotFound());
+
+        verify(commentService, never()).getComments(anyLong(), any());
+    }
 }
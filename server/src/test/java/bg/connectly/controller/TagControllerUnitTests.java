@@ -0,0 +1,80 @@
+package bg.connectly.controller;
+
+import bg.connectly.configuration.JwtUtil;
+import bg.connectly.dto.response.TrendingTagDto;
+import bg.connectly.exception.BadRequestException;
+import bg.connectly.service.TagService;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(TagController.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class TagControllerUnitTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TagService tagService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @TestConfiguration
+    static class TestSecurityConfig {
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+            http
+                    .csrf(AbstractHttpConfigurer::disable) // Disable CSRF protection
+                    .authorizeHttpRequests(auth -> auth
+                            .anyRequest().permitAll()// unrestricted access to all endpoints
+                    )
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Stateless session for JWT
+                    );
+
+            return http.build();
+        }
+    }
+
+    @Test
+    @Order(1)
+    void getTrendingReturnsTagsOfWindow() throws Exception {
+        when(tagService.getTrending("1h", 5)).thenReturn(List.of(new TrendingTagDto("java", 12L)));
+
+        mockMvc.perform(get("/api/tags/trending")
+                        .param("window", "1h")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].tag").value("java"))
+                .andExpect(jsonPath("$[0].count").value(12));
+    }
+
+    @Test
+    @Order(2)
+    void getTrendingWithUnknownWindowReturnsBadRequest() throws Exception {
+        when(tagService.getTrending("2h", 10)).thenThrow(new BadRequestException("Unknown window 2h"));
+
+        mockMvc.perform(get("/api/tags/trending")
+                        .param("window", "2h"))
+                .andExpect(status().isBadRequest());
+    }
+}
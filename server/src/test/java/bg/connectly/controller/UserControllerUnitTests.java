@@ -2,10 +2,14 @@ package bg.connectly.controller;
 
 import bg.connectly.configuration.JwtUtil;
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.exception.AuthenticationException;
+import bg.connectly.exception.ServiceUnavailableException;
 import bg.connectly.model.User;
 import bg.connectly.service.AuthService;
+import bg.connectly.service.ExportService;
 import bg.connectly.service.UserService;
+import bg.connectly.store.VersionStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -25,16 +29,28 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -52,6 +68,9 @@ public class UserControllerUnitTests {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private ExportService exportService;
+
     @MockBean
     private JwtUtil jwtUtil;
 
@@ -156,4 +175,85 @@ public class UserControllerUnitTests {
                 .andExpect(jsonPath("$.content").isEmpty());
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(6)
+    void autocompleteUsersReturnsSuggestions() throws Exception {
+        UserResponseDto userResponseDto = new UserResponseDto();
+        userResponseDto.setId(1L);
+        userResponseDto.setEmail("test-user@abv.bg");
+
+        when(userService.autocomplete(eq("te"), eq(5))).thenReturn(List.of(userResponseDto));
+
+        mockMvc.perform(get("/api/user/autocomplete")
+                        .param("prefix", "te")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("test-user@abv.bg"));
+    }
+
+    @Test
+    @Order(7)
+    void exportUserStreamsNdjson() throws Exception {
+        String token = "Bearer valid-token";
+        when(authService.getEmailFromToken(token)).thenReturn("test-user@abv.bg");
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("{\"type\":\"user\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportUser(eq("test-user@abv.bg"), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/user/export")
+                        .header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string("{\"type\":\"user\"}\n"));
+    }
+
+    @Test
+    @Order(8)
+    void getProfileReturnsProfileWithValidators() throws Exception {
+        UserResponseDto profile = new UserResponseDto();
+        profile.setEmail("test-user@abv.bg");
+        when(userService.getProfileStamp("test-user@abv.bg")).thenReturn(new VersionStore.Stamp("W/\"1-4-7\"", 1_700_000_000_000L));
+        when(userService.getProfile("test-user@abv.bg")).thenReturn(profile);
+
+        mockMvc.perform(get("/api/user/profile").param("email", "test-user@abv.bg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-4-7\""))
+                .andExpect(jsonPath("$.email").value("test-user@abv.bg"));
+    }
+
+    @Test
+    @Order(9)
+    void getProfileNotModifiedSinceLastChange() throws Exception {
+        when(userService.getProfileStamp("test-user@abv.bg")).thenReturn(new VersionStore.Stamp("W/\"1-4-7\"", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/api/user/profile").param("email", "test-user@abv.bg")
+                        .header("If-Modified-Since", "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(userService, never()).getProfile(anyString());
+    }
+
+    @Test
+    @Order(10)
+    void exportUserAnswers503WhenTooManyExportsRun() throws Exception {
+        String token = "Bearer valid-token";
+        when(authService.getEmailFromToken(token)).thenReturn("test-user@abv.bg");
+        doThrow(new ServiceUnavailableException("Too many exports are running, please retry later", 10))
+                .when(exportService).exportUser(eq("test-user@abv.bg"), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/user/export")
+                        .header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "10"));
+    }
+}
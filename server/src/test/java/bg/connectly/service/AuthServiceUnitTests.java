@@ -10,21 +10,30 @@ import bg.connectly.mapper.UserMapper;
 import bg.connectly.model.User;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.impl.AuthServiceImpl;
+import bg.connectly.store.LastLoginStore;
+import bg.connectly.store.UserSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +50,12 @@ public class AuthServiceUnitTests {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private LastLoginStore lastLoginStore;
+
     @InjectMocks
     private AuthServiceImpl authService;
 
@@ -51,6 +66,7 @@ public class AuthServiceUnitTests {
     @BeforeEach
     void setUp() {
         user = new User();
+        user.setId(1L);
         user.setEmail("testuser");
         user.setPassword("encodedPassword");
 
@@ -70,7 +86,8 @@ public class AuthServiceUnitTests {
         String token = authService.authenticateUser(loginRequestDto);
 
         assertEquals("jwtToken", token);
-        verify(userRepository).save(user);
+        verify(lastLoginStore).record(eq(1L), any(LocalDateTime.class));
+        verify(userRepository, never()).save(any());
     }
 
     @Test
@@ -99,6 +116,7 @@ public class AuthServiceUnitTests {
 
         assertEquals("jwtToken", token);
         verify(userRepository).save(user);
+        verify(userSearchIndex).add(any());
     }
 
 
@@ -117,4 +135,23 @@ public class AuthServiceUnitTests {
 
         assertEquals("testuser@abv.bg", email);
     }
+
+    @Test
+    void getEmailFromTokenUsesVerifiedAuthentication() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser@abv.bg", JwtUtil.digest("jwtToken"), List.of()));
+        try {
+            String email = authService.getEmailFromToken("Bearer jwtToken");
+
+            assertEquals("testuser@abv.bg", email);
+            verifyNoInteractions(jwtUtil);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    void getEmailFromTokenWithoutBearerPrefix() {
+        assertThrows(AuthenticationException.class, () -> authService.getEmailFromToken("jwtToken"));
+    }
 }
@@ -1,22 +1,36 @@
 package bg.connectly.service;
 
 import bg.connectly.dto.CommentDto;
+import bg.connectly.dto.Cursor;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.CommentResponseDto;
+import bg.connectly.dto.response.CursorPage;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.CommentMapper;
 import bg.connectly.model.Comment;
+import bg.connectly.model.Like;
 import bg.connectly.model.Post;
 import bg.connectly.model.User;
 import bg.connectly.repository.CommentRepository;
+import bg.connectly.repository.CommentRow;
 import bg.connectly.repository.PostRepository;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.impl.CommentServiceImpl;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import bg.connectly.store.EventBroker;
+import bg.connectly.store.VersionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -42,21 +56,40 @@ public class CommentServiceUnitTests {
     @Mock
     private CommentMapper commentMapper;
 
+    @Mock
+    private CounterStore counterStore;
+
+    @Mock
+    private LikeService likeService;
+
+    @Mock
+    private PrincipalService principalService;
+
+    @Mock
+    private VersionStore versionStore;
+
+    @Mock
+    private EventBroker eventBroker;
+
     @InjectMocks
     private CommentServiceImpl commentService;
 
     private User user;
+    private UserPrincipal principal;
     private Post post;
     private Comment comment;
     private CommentDto commentDto;
+    private CommentResponseDto commentResponseDto;
 
     @BeforeEach
     void setUp() {
         user = new User();
         user.setEmail("testuser@abv.bg");
+        principal = new UserPrincipal(2L, "testuser@abv.bg", null, null, null);
 
         post = new Post();
         post.setId(1L);
+        post.setAuthor(user);
 
         comment = new Comment();
         comment.setId(1L);
@@ -65,43 +98,116 @@ public class CommentServiceUnitTests {
 
         commentDto = new CommentDto();
         commentDto.setContent("Test content");
+
+        commentResponseDto = new CommentResponseDto();
+        commentResponseDto.setId(1L);
     }
 
     @Test
     void getCommentsSuccess() {
-        when(commentRepository.findByPostId(anyLong())).thenReturn(Collections.singletonList(comment));
+        CommentRow row = commentRow(1L, null);
+        when(commentRepository.findThreadByPostId(anyLong(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(Collections.singletonList(row));
+        when(commentMapper.toCommentResponseDto(row)).thenReturn(commentResponseDto);
+        when(postRepository.existsVisibleById(1L, null)).thenReturn(true);
 
-        List<Comment> result = commentService.getComments(1L);
+        List<CommentResponseDto> result = commentService.getComments(1L, null);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(commentRepository).findByPostId(anyLong());
+        verify(commentRepository).findThreadByPostId(1L, 0, 20, 3, 5);
+    }
+
+    @Test
+    void getCommentThreadBuildsReplyTree() {
+        List<CommentRow> rows = List.of(commentRow(1L, null), commentRow(2L, null), commentRow(3L, 1L),
+                commentRow(4L, 3L), commentRow(5L, 1L));
+        when(postRepository.existsVisibleById(1L, null)).thenReturn(true);
+        when(commentRepository.findThreadByPostId(1L, 0, 100, 10, 5)).thenReturn(rows);
+        when(commentMapper.toCommentResponseDto(any(CommentRow.class))).thenAnswer(invocation -> {
+            CommentRow row = invocation.getArgument(0);
+            CommentResponseDto dto = new CommentResponseDto();
+            dto.setId(row.getId());
+            dto.setParentId(row.getParentId());
+            return dto;
+        });
+
+        List<CommentResponseDto> result = commentService.getCommentThread(1L, -1, 500, 50, 5, null);
+
+        assertEquals(2, result.size());
+        CommentResponseDto first = result.get(0);
+        assertEquals(List.of(3L, 5L), first.getReplies().stream().map(CommentResponseDto::getId).toList());
+        assertEquals(4L, first.getReplies().get(0).getReplies().get(0).getId());
+        assertTrue(result.get(1).getReplies().isEmpty());
+    }
+
+    @Test
+    void getRepliesTreatsDirectRepliesAsRoots() {
+        CommentRow row = commentRow(3L, 1L);
+        when(commentRepository.existsVisibleById(1L, null)).thenReturn(true);
+        when(commentRepository.findThreadByParentId(1L, 5, 5, 2, 5)).thenReturn(List.of(row));
+        when(commentMapper.toCommentResponseDto(row)).thenReturn(commentResponseDto);
+
+        List<CommentResponseDto> result = commentService.getReplies(1L, 5, 5, 2, 5, null);
+
+        assertEquals(List.of(commentResponseDto), result);
+    }
+
+    @Test
+    void getCommentsWithCursorSeeksAfterCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        comment.setCreatedAt(createdAt.plusMinutes(1));
+        when(postRepository.existsVisibleById(1L, null)).thenReturn(true);
+        when(commentRepository.findOldestByPostIdAfter(eq(1L), eq(createdAt), eq(7L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(comment), PageRequest.of(0, 1), true));
+
+        CursorPage<CommentResponseDto> result = commentService.getComments(1L, new Cursor(createdAt, 7L).encode(), 1, null);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(comment.getId(), Cursor.decode(result.getNextCursor()).getId());
+    }
+
+    @Test
+    void getCommentsOfPostHiddenFromViewerThrowsNotFound() {
+        when(principalService.getPrincipal("viewer@abv.bg")).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, principal.getId())).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> commentService.getComments(1L, "viewer@abv.bg"));
+        assertThrows(NotFoundException.class, () -> commentService.getCommentsStamp(1L, "viewer@abv.bg"));
+        verify(commentRepository, never()).findThreadByPostId(anyLong(), anyInt(), anyInt(), anyInt(), anyInt());
     }
 
     @Test
     void createCommentSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 2L)).thenReturn(true);
         when(postRepository.findById(anyLong())).thenReturn(Optional.of(post));
+        when(userRepository.getReferenceById(2L)).thenReturn(user);
         when(commentMapper.toComment(eq(commentDto), eq(user), eq(post), isNull())).thenReturn(comment);
         when(commentRepository.save(any(Comment.class))).thenReturn(comment);
+        when(commentMapper.toCommentResponseDto(comment, principal)).thenReturn(commentResponseDto);
 
-        Comment result = commentService.createComment(1L, "testuser@abv.bg", commentDto);
+        CommentResponseDto result = commentService.createComment(1L, "testuser@abv.bg", commentDto);
 
         assertNotNull(result);
         assertEquals(comment.getId(), result.getId());
         verify(commentRepository).save(any(Comment.class));
+        verify(counterStore).increment(CounterType.POST_COMMENTS, 1L, 1);
+        verify(versionStore).bump(VersionStore.commentsOf(1L), VersionStore.POSTS, VersionStore.postsOf(user.getId()));
+        verify(eventBroker).publish(EventBroker.postTopic(1L), "comment", commentResponseDto);
     }
 
     @Test
     void createCommentUserNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
 
         assertThrows(NotFoundException.class, () -> commentService.createComment(1L, "testuser@abv.bg", commentDto));
     }
 
     @Test
     void createCommentPostNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 2L)).thenReturn(true);
         when(postRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> commentService.createComment(1L, "testuser@abv.bg", commentDto));
@@ -109,48 +215,109 @@ public class CommentServiceUnitTests {
 
     @Test
     void likeCommentSuccess() {
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.of(comment));
-        when(commentRepository.save(any(Comment.class))).thenReturn(comment);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(true);
+        when(commentRepository.findWithAuthorById(anyLong())).thenReturn(Optional.of(comment));
+        when(commentMapper.toCommentResponseDto(comment)).thenReturn(commentResponseDto);
 
-        Comment result = commentService.likeComment(1L);
+        CommentResponseDto result = commentService.likeComment(1L, "testuser@abv.bg");
 
-        assertNotNull(result);
-        assertEquals(1, result.getLikesCount());
-        verify(commentRepository).save(any(Comment.class));
+        assertTrue(result.getLikedByViewer());
+        verify(likeService).like(2L, Like.TARGET_COMMENT, 1L);
+        verify(commentRepository, never()).save(any(Comment.class));
     }
 
     @Test
     void likeCommentNotFound() {
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(true);
+        when(commentRepository.findWithAuthorById(anyLong())).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> commentService.likeComment(1L));
+        assertThrows(NotFoundException.class, () -> commentService.likeComment(1L, "testuser@abv.bg"));
+        verifyNoInteractions(likeService);
+    }
+
+    @Test
+    void unlikeCommentSuccess() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(true);
+        when(commentRepository.findWithAuthorById(anyLong())).thenReturn(Optional.of(comment));
+        when(commentMapper.toCommentResponseDto(comment)).thenReturn(commentResponseDto);
+
+        CommentResponseDto result = commentService.unlikeComment(1L, "testuser@abv.bg");
+
+        assertFalse(result.getLikedByViewer());
+        verify(likeService).unlike(2L, Like.TARGET_COMMENT, 1L);
     }
 
     @Test
     void replyToCommentSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(true);
         when(commentRepository.findById(anyLong())).thenReturn(Optional.of(comment));
+        when(userRepository.getReferenceById(2L)).thenReturn(user);
         when(commentMapper.toComment(any(CommentDto.class), any(User.class), any(Post.class), any(Comment.class))).thenReturn(comment);
         when(commentRepository.save(any(Comment.class))).thenReturn(comment, comment);
+        when(commentMapper.toCommentResponseDto(comment, principal)).thenReturn(commentResponseDto);
 
-        Comment result = commentService.replyToComment(1L, "testuser@abv.bg", commentDto);
+        CommentResponseDto result = commentService.replyToComment(1L, "testuser@abv.bg", commentDto);
 
         assertNotNull(result);
         assertEquals(comment.getId(), result.getId());
+        verify(counterStore).increment(CounterType.POST_COMMENTS, 1L, 1);
     }
 
     @Test
     void replyToCommentUserNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
 
         assertThrows(NotFoundException.class, () -> commentService.replyToComment(1L, "testuser@abv.bg", commentDto));
     }
 
     @Test
     void replyToCommentNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(true);
         when(commentRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> commentService.replyToComment(1L, "testuser@abv.bg", commentDto));
     }
-}
\ No newline at end of file
+
+    @Test
+    void createCommentOnHiddenPostThrowsNotFound() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> commentService.createComment(1L, "testuser@abv.bg", commentDto));
+        verify(commentRepository, never()).save(any(Comment.class));
+        verifyNoInteractions(counterStore, versionStore, eventBroker);
+    }
+
+    @Test
+    void replyToCommentOnHiddenPostThrowsNotFound() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> commentService.replyToComment(1L, "testuser@abv.bg", commentDto));
+        verify(commentRepository, never()).save(any(Comment.class));
+        verifyNoInteractions(counterStore, versionStore, eventBroker);
+    }
+
+    @Test
+    void likeAndUnlikeCommentOnHiddenPostThrowNotFound() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(commentRepository.existsVisibleById(1L, 2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> commentService.likeComment(1L, "testuser@abv.bg"));
+        assertThrows(NotFoundException.class, () -> commentService.unlikeComment(1L, "testuser@abv.bg"));
+        verify(commentRepository, never()).findWithAuthorById(anyLong());
+        verifyNoInteractions(likeService, commentMapper);
+    }
+
+    private static CommentRow commentRow(Long id, Long parentId) {
+        CommentRow row = mock(CommentRow.class);
+        lenient().when(row.getId()).thenReturn(id);
+        lenient().when(row.getParentId()).thenReturn(parentId);
+        return row;
+    }
+}
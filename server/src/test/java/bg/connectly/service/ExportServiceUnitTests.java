@@ -0,0 +1,204 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.exception.ServiceUnavailableException;
+import bg.connectly.mapper.CommentMapper;
+import bg.connectly.mapper.MediaMapper;
+import bg.connectly.mapper.PostMapper;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.model.Comment;
+import bg.connectly.model.Post;
+import bg.connectly.model.User;
+import bg.connectly.repository.CommentRepository;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostValue;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.impl.ExportServiceImpl;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.DerivativeStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportServiceUnitTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private CounterStore counterStore;
+
+    @Mock
+    private DerivativeStore derivativeStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExportServiceImpl exportService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportServiceImpl(userRepository, postRepository, commentRepository, userMapper,
+                new PostMapper(userMapper, counterStore, new MediaMapper(derivativeStore)), new CommentMapper(userMapper, counterStore),
+                new ObjectMapper().findAndRegisterModules(), transactionManager, 1, 10);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("test@abv.bg");
+        UserResponseDto userResponseDto = new UserResponseDto();
+        userResponseDto.setId(1L);
+        userResponseDto.setEmail("test@abv.bg");
+        lenient().when(userRepository.findByEmail("test@abv.bg")).thenReturn(Optional.of(user));
+        lenient().when(userMapper.toUserResponseDto(any(User.class))).thenReturn(userResponseDto);
+    }
+
+    @Test
+    void exportWritesOneLinePerRecord() throws Exception {
+        Post first = post(10L);
+        Post second = post(11L);
+        Comment comment = new Comment();
+        comment.setId(20L);
+        comment.setContent("Nice");
+        comment.setAuthor(user);
+        comment.setPost(second);
+        when(postRepository.findExportChunk(eq(1L), eq(0L), any(Pageable.class))).thenReturn(List.of(first, second));
+        String mediaId = "ab".repeat(32);
+        when(postRepository.findMediaIdsByPostIds(List.of(10L, 11L))).thenReturn(List.of(value(10L, mediaId)));
+        when(postRepository.findTagsByPostIds(List.of(10L, 11L))).thenReturn(List.of(value(11L, "java")));
+        when(commentRepository.findExportChunk(eq(1L), eq(0L), any(Pageable.class))).thenReturn(List.of(comment));
+
+        List<JsonNode> lines = export();
+
+        assertEquals(List.of("user", "post", "post", "comment"), lines.stream().map(line -> line.get("type").asText()).toList());
+        assertEquals("/api/media/" + mediaId, lines.get(1).get("data").get("mediaUrls").get(0).asText());
+        assertEquals("java", lines.get(2).get("data").get("tags").get(0).asText());
+        assertEquals(11L, lines.get(3).get("postId").asLong());
+        assertEquals("Nice", lines.get(3).get("data").get("content").asText());
+    }
+
+    @Test
+    void exportReadsEachChunkInItsOwnTransaction() throws Exception {
+        int chunkSize = 500;
+        List<Post> full = LongStream.rangeClosed(1, chunkSize).mapToObj(this::post).toList();
+        when(postRepository.findExportChunk(eq(1L), eq(0L), any(Pageable.class))).thenReturn(full);
+        when(postRepository.findExportChunk(eq(1L), eq((long) chunkSize), any(Pageable.class)))
+                .thenReturn(List.of(post(chunkSize + 1)));
+        when(commentRepository.findExportChunk(eq(1L), anyLong(), any(Pageable.class))).thenReturn(List.of());
+
+        List<JsonNode> lines = export();
+
+        assertEquals(chunkSize + 2, lines.size());
+        verify(postRepository, times(2)).findTagsByPostIds(anyCollection());
+        // two post chunks and one empty comment chunk
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void exportBeyondMaxConcurrentIsRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(postRepository.findExportChunk(eq(1L), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        });
+        when(commentRepository.findExportChunk(eq(1L), anyLong(), any(Pageable.class))).thenReturn(List.of());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> running = executor.submit(() -> {
+                exportService.exportUser("test@abv.bg", new ByteArrayOutputStream());
+                return null;
+            });
+            started.await();
+
+            assertThrows(ServiceUnavailableException.class,
+                    () -> exportService.exportUser("test@abv.bg", new ByteArrayOutputStream()));
+            release.countDown();
+            running.get();
+        } finally {
+            executor.shutdown();
+        }
+        export();
+    }
+
+    @Test
+    void exportOfMissingUserThrowsNotFound() {
+        when(userRepository.findByEmail("missing@abv.bg")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class,
+                () -> exportService.exportUser("missing@abv.bg", new ByteArrayOutputStream()));
+    }
+
+    private List<JsonNode> export() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportUser("test@abv.bg", outputStream);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : outputStream.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private Post post(long id) {
+        Post post = new Post();
+        post.setId(id);
+        post.setContent("Post " + id);
+        post.setAuthor(user);
+        post.setCreatedAt(LocalDateTime.now());
+        return post;
+    }
+
+    private static PostValue value(Long postId, String item) {
+        return new PostValue() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public String getItem() {
+                return item;
+            }
+        };
+    }
+}
@@ -0,0 +1,228 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.FollowRequestResponseDto;
+import bg.connectly.dto.response.FollowStatsDto;
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.exception.BadRequestException;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.mapper.FollowRequestMapper;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.model.FollowRequest;
+import bg.connectly.model.User;
+import bg.connectly.repository.FollowEdge;
+import bg.connectly.repository.FollowRequestRepository;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.impl.FollowServiceImpl;
+import bg.connectly.store.FollowGraph;
+import bg.connectly.store.TimelineStore;
+import bg.connectly.store.VersionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowServiceUnitTests {
+
+    @Mock
+    private FollowRequestRepository followRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private PrincipalService principalService;
+
+    @Mock
+    private TimelineStore timelineStore;
+
+    @Mock
+    private VersionStore versionStore;
+
+    private FollowGraph followGraph;
+    private FollowServiceImpl followService;
+    private User follower;
+    private User followed;
+
+    @BeforeEach
+    void setUp() {
+        followGraph = new FollowGraph(100);
+        followGraph.load(new long[0], new long[0]);
+        followService = new FollowServiceImpl(followRequestRepository, userRepository,
+                new FollowRequestMapper(userMapper), userMapper, principalService, followGraph, timelineStore, versionStore, 2);
+
+        follower = user(1L, "follower@abv.bg");
+        followed = user(2L, "followed@abv.bg");
+        lenient().when(principalService.getPrincipal(follower.getEmail()))
+                .thenReturn(new UserPrincipal(1L, follower.getEmail(), null, null, null));
+        lenient().when(principalService.getPrincipal(followed.getEmail()))
+                .thenReturn(new UserPrincipal(2L, followed.getEmail(), null, null, null));
+        lenient().when(userRepository.findAllForUpdate(List.of(1L, 2L))).thenReturn(List.of(follower, followed));
+        lenient().when(userMapper.toUserResponseDto(any(User.class))).thenReturn(new UserResponseDto());
+        lenient().when(followRequestRepository.save(any(FollowRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void followPublicUserFollowsAtOnce() {
+        FollowRequestResponseDto result = followService.follow(follower.getEmail(), 2L);
+
+        assertEquals(FollowRequest.STATUS_ACCEPTED, result.getStatus());
+        assertEquals(1, follower.getFollowingCount());
+        assertEquals(1, followed.getFollowersCount());
+        assertTrue(followGraph.isFollowing(1L, 2L));
+        verify(timelineStore).remove(1L);
+        verify(versionStore).bump(VersionStore.followsOf(1L));
+    }
+
+    @Test
+    void followPrivateUserSendsRequest() {
+        followed.setIsPublic(false);
+
+        FollowRequestResponseDto result = followService.follow(follower.getEmail(), 2L);
+
+        assertEquals(FollowRequest.STATUS_PENDING, result.getStatus());
+        assertNull(followed.getFollowersCount());
+        assertFalse(followGraph.isFollowing(1L, 2L));
+    }
+
+    @Test
+    void followAgainReturnsExistingRequest() {
+        FollowRequest existing = new FollowRequest(5L, FollowRequest.STATUS_ACCEPTED, follower, followed, null);
+        when(followRequestRepository.findBySenderIdAndReceiverId(1L, 2L)).thenReturn(Optional.of(existing));
+
+        FollowRequestResponseDto result = followService.follow(follower.getEmail(), 2L);
+
+        assertEquals(5L, result.getId());
+        verify(followRequestRepository, never()).save(any(FollowRequest.class));
+    }
+
+    @Test
+    void followSelfIsRejected() {
+        assertThrows(BadRequestException.class, () -> followService.follow(follower.getEmail(), 1L));
+    }
+
+    @Test
+    void followMissingUserThrowsNotFound() {
+        when(userRepository.findAllForUpdate(List.of(1L, 3L))).thenReturn(List.of(follower));
+
+        assertThrows(NotFoundException.class, () -> followService.follow(follower.getEmail(), 3L));
+    }
+
+    @Test
+    void unfollowRemovesFollowAndCounts() {
+        followGraph.follow(1L, 2L);
+        follower.setFollowingCount(1);
+        followed.setFollowersCount(1);
+        when(followRequestRepository.deleteBySenderIdAndReceiverIdAndStatus(1L, 2L, FollowRequest.STATUS_ACCEPTED))
+                .thenReturn(1);
+
+        followService.unfollow(follower.getEmail(), 2L);
+
+        assertEquals(0, follower.getFollowingCount());
+        assertEquals(0, followed.getFollowersCount());
+        assertFalse(followGraph.isFollowing(1L, 2L));
+    }
+
+    @Test
+    void unfollowWithoutFollowThrowsNotFound() {
+        assertThrows(NotFoundException.class, () -> followService.unfollow(follower.getEmail(), 2L));
+    }
+
+    @Test
+    void acceptRequestMakesSenderFollower() {
+        FollowRequest request = new FollowRequest(5L, FollowRequest.STATUS_ACCEPTED, follower, followed, null);
+        when(followRequestRepository.acceptPending(5L, 2L)).thenReturn(1);
+        when(followRequestRepository.findById(5L)).thenReturn(Optional.of(request));
+
+        followService.acceptRequest(followed.getEmail(), 5L);
+
+        assertEquals(1, followed.getFollowersCount());
+        assertTrue(followGraph.isFollowing(1L, 2L));
+    }
+
+    @Test
+    void acceptRequestOfOtherUserThrowsNotFound() {
+        when(followRequestRepository.acceptPending(5L, 1L)).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> followService.acceptRequest(follower.getEmail(), 5L));
+        assertFalse(followGraph.isFollowing(1L, 2L));
+    }
+
+    @Test
+    void statsAndListsAreAnsweredFromGraph() {
+        followGraph.follow(1L, 2L);
+        followGraph.follow(3L, 2L);
+        when(userRepository.findPrincipalsByIds(List.of(1L, 3L))).thenReturn(List.of(
+                new UserPrincipal(3L, "c@abv.bg", null, null, null),
+                new UserPrincipal(1L, follower.getEmail(), null, null, null)));
+        when(userMapper.toUserResponseDto(any(UserPrincipal.class)))
+                .thenAnswer(invocation -> {
+                    UserResponseDto user = new UserResponseDto();
+                    user.setId(invocation.<UserPrincipal>getArgument(0).getId());
+                    return user;
+                });
+
+        FollowStatsDto stats = followService.getStats(2L, follower.getEmail());
+        List<UserResponseDto> followers = followService.getFollowers(2L, 0, 20);
+
+        assertEquals(2, stats.getFollowersCount());
+        assertEquals(0, stats.getFollowingCount());
+        assertTrue(stats.getFollowedByViewer());
+        assertEquals(List.of(1L, 3L), followers.stream().map(UserResponseDto::getId).toList());
+        verify(followRequestRepository, never()).findFollowerIds(anyLong());
+    }
+
+    @Test
+    void loadGraphReadsAcceptedFollowsInChunks() {
+        FollowGraph unloaded = new FollowGraph(100);
+        followService = new FollowServiceImpl(followRequestRepository, userRepository,
+                new FollowRequestMapper(userMapper), userMapper, principalService, unloaded, timelineStore, versionStore, 2);
+        when(followRequestRepository.findMaxId()).thenReturn(150_000L);
+        when(followRequestRepository.findAcceptedByIdRange(0L, 100_000L)).thenReturn(List.of(edge(1L, 2L)));
+        when(followRequestRepository.findAcceptedByIdRange(100_000L, 200_000L)).thenReturn(List.of(edge(3L, 2L)));
+
+        when(followRequestRepository.findFollowerIds(2L)).thenReturn(List.of(1L));
+
+        // Until the graph is loaded, follower ids come from the database
+        assertEquals(List.of(1L), followService.getFollowerIds(2L));
+        followService.loadGraph();
+
+        assertTrue(unloaded.isLoaded());
+        assertArrayEquals(new long[]{1L, 3L}, unloaded.getFollowerIds(2L));
+        verify(userRepository).initializeFollowCounts();
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static FollowEdge edge(Long followerId, Long followedId) {
+        return new FollowEdge() {
+            @Override
+            public Long getFollowerId() {
+                return followerId;
+            }
+
+            @Override
+            public Long getFollowedId() {
+                return followedId;
+            }
+        };
+    }
+}
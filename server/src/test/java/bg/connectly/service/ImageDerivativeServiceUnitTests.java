@@ -0,0 +1,106 @@
+package bg.connectly.service;
+
+import bg.connectly.service.impl.ImageDerivativeServiceImpl;
+import bg.connectly.store.DerivativeStore;
+import bg.connectly.store.MediaStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageDerivativeServiceUnitTests {
+
+    @TempDir
+    private Path directory;
+
+    private MediaStore mediaStore;
+    private DerivativeStore derivativeStore;
+    private ImageDerivativeServiceImpl imageDerivativeService;
+
+    @BeforeEach
+    void setUp() {
+        mediaStore = new MediaStore(directory.toString(), 10_000_000, 60, 5, 100);
+        mediaStore.init();
+        derivativeStore = new DerivativeStore(directory.toString(), 100);
+        derivativeStore.init();
+        imageDerivativeService = new ImageDerivativeServiceImpl(mediaStore, derivativeStore, List.of(320, 160, 1280), 50_000_000);
+    }
+
+    @Test
+    void createsEveryWidthSmallerThanTheImage() throws Exception {
+        String mediaId = upload(image(800, 400, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        imageDerivativeService.createDerivatives(List.of(mediaId));
+
+        List<DerivativeStore.Derivative> derivatives = derivativeStore.find(mediaId);
+        assertEquals(List.of(160, 320), derivatives.stream().map(DerivativeStore.Derivative::width).toList());
+        MediaStore.StoredMedia thumbnail = derivativeStore.get(mediaId, 160);
+        assertEquals("image/jpeg", thumbnail.contentType());
+        BufferedImage decoded = ImageIO.read(thumbnail.path().toFile());
+        assertEquals(160, decoded.getWidth());
+        assertEquals(80, decoded.getHeight());
+    }
+
+    @Test
+    void transparentImagesStayPng() throws Exception {
+        String mediaId = upload(image(400, 400, BufferedImage.TYPE_INT_ARGB), "png");
+
+        imageDerivativeService.createDerivatives(List.of(mediaId));
+
+        assertEquals("image/png", derivativeStore.get(mediaId, 320).contentType());
+    }
+
+    @Test
+    void imageIsProcessedOnce() throws Exception {
+        String mediaId = upload(image(400, 200, BufferedImage.TYPE_INT_RGB), "png");
+        imageDerivativeService.createDerivatives(List.of(mediaId));
+        Path thumbnail = derivativeStore.get(mediaId, 160).path();
+        long modified = Files.getLastModifiedTime(thumbnail).toMillis();
+
+        imageDerivativeService.createDerivatives(List.of(mediaId, mediaId));
+
+        assertFalse(derivativeStore.claim(mediaId));
+        assertEquals(modified, Files.getLastModifiedTime(thumbnail).toMillis());
+    }
+
+    @Test
+    void undecodableImageIsMarkedWithoutDerivatives() throws Exception {
+        byte[] corrupt = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4};
+        String mediaId = upload(corrupt);
+
+        imageDerivativeService.createDerivatives(List.of(mediaId));
+
+        assertEquals(List.of(), derivativeStore.find(mediaId));
+    }
+
+    private String upload(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return upload(output.toByteArray());
+    }
+
+    private String upload(byte[] content) throws Exception {
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+        mediaStore.append(upload, 0, new ByteArrayInputStream(content));
+        return mediaStore.complete(upload).id();
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, 0x80000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,100 @@
+package bg.connectly.service;
+
+import bg.connectly.model.Like;
+import bg.connectly.repository.LikeRepository;
+import bg.connectly.service.impl.LikeServiceImpl;
+import bg.connectly.store.CounterStore;
+import bg.connectly.store.CounterType;
+import bg.connectly.store.LikeFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LikeServiceUnitTests {
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private CounterStore counterStore;
+
+    private LikeFilter likeFilter;
+    private LikeServiceImpl likeService;
+
+    @BeforeEach
+    void setUp() {
+        likeFilter = new LikeFilter(1 << 16, 5);
+        likeFilter.markLoaded();
+        likeService = new LikeServiceImpl(likeRepository, likeFilter, counterStore);
+    }
+
+    @Test
+    void likeCountsOnlyNewLikes() {
+        when(likeRepository.insertIfAbsent(1L, Like.TARGET_POST, 10L)).thenReturn(1, 0);
+
+        assertTrue(likeService.like(1L, Like.TARGET_POST, 10L));
+        assertFalse(likeService.like(1L, Like.TARGET_POST, 10L));
+
+        verify(counterStore, times(1)).increment(CounterType.POST_LIKES, 10L, 1);
+        assertTrue(likeFilter.mightContain(1L, Like.TARGET_POST, 10L));
+    }
+
+    @Test
+    void unlikeDecrementsOnlyExistingLikes() {
+        when(likeRepository.deleteByUserAndTarget(1L, Like.TARGET_COMMENT, 10L)).thenReturn(1, 0);
+
+        assertTrue(likeService.unlike(1L, Like.TARGET_COMMENT, 10L));
+        assertFalse(likeService.unlike(1L, Like.TARGET_COMMENT, 10L));
+
+        verify(counterStore, times(1)).increment(CounterType.COMMENT_LIKES, 10L, -1);
+    }
+
+    @Test
+    void likeInsideTransactionCountsOnlyAfterCommit() {
+        when(likeRepository.insertIfAbsent(1L, Like.TARGET_POST, 10L)).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(likeService.like(1L, Like.TARGET_POST, 10L));
+            verifyNoInteractions(counterStore);
+            assertFalse(likeFilter.mightContain(1L, Like.TARGET_POST, 10L));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(counterStore).increment(CounterType.POST_LIKES, 10L, 1);
+        assertTrue(likeFilter.mightContain(1L, Like.TARGET_POST, 10L));
+    }
+
+    @Test
+    void getLikedTargetIdsSkipsQueryWhenFilterRulesAllOut() {
+        Set<Long> result = likeService.getLikedTargetIds(1L, Like.TARGET_POST, List.of(10L, 11L, 12L));
+
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(likeRepository);
+    }
+
+    @Test
+    void getLikedTargetIdsConfirmsCandidatesWithOneQuery() {
+        likeFilter.add(1L, Like.TARGET_POST, 11L);
+        when(likeRepository.findLikedTargetIds(eq(1L), eq(Like.TARGET_POST), anyCollection())).thenReturn(List.of(11L));
+
+        Set<Long> result = likeService.getLikedTargetIds(1L, Like.TARGET_POST, List.of(10L, 11L, 12L));
+
+        assertEquals(Set.of(11L), result);
+        verify(likeRepository).findLikedTargetIds(eq(1L), eq(Like.TARGET_POST), argThat(ids -> ids.contains(11L)));
+    }
+}
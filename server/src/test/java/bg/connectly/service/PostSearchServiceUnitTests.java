@@ -0,0 +1,111 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.response.PostSearchResultDto;
+import bg.connectly.mapper.PostMapper;
+import bg.connectly.model.Post;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostSearchRow;
+import bg.connectly.repository.PostValue;
+import bg.connectly.service.impl.PostSearchServiceImpl;
+import bg.connectly.store.PostDocument;
+import bg.connectly.store.PostSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostSearchServiceUnitTests {
+
+    @Mock
+    private PostSearchIndex postSearchIndex;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostMapper postMapper;
+
+    private PostSearchServiceImpl postSearchService;
+
+    @BeforeEach
+    void setUp() {
+        postSearchService = new PostSearchServiceImpl(postSearchIndex, postRepository, postMapper, 2, false);
+    }
+
+    @Test
+    void searchMapsHitsFromIndex() {
+        PostSearchIndex.SearchHit hit = new PostSearchIndex.SearchHit(
+                new PostDocument(1L, 2L, "Spring", Set.of(), LocalDateTime.now()), 1.5);
+        PostSearchResultDto result = new PostSearchResultDto();
+        when(postSearchIndex.search("spring", 10, 10)).thenReturn(new PostSearchIndex.SearchResult(List.of(hit), 11));
+        when(postMapper.toPostSearchResultDto(hit)).thenReturn(result);
+
+        Page<PostSearchResultDto> page = postSearchService.search("spring", PageRequest.of(1, 10));
+
+        assertEquals(List.of(result), page.getContent());
+        assertEquals(11, page.getTotalElements());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void indexAddsDocumentOutsideTransaction() {
+        Post post = new Post();
+        PostDocument document = new PostDocument(1L, 2L, "Spring", Set.of(), LocalDateTime.now());
+        when(postMapper.toPostDocument(post)).thenReturn(document);
+
+        postSearchService.index(post);
+
+        verify(postSearchIndex).add(document);
+    }
+
+    @Test
+    void loadIndexUsesSegmentsWhenPresent() {
+        when(postSearchIndex.loadSegments()).thenReturn(true);
+
+        postSearchService.loadIndex();
+
+        verify(postSearchIndex).markLoaded();
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void loadIndexRebuildsFromPostsInChunks() throws Exception {
+        PostSearchRow row = mock(PostSearchRow.class);
+        when(row.getId()).thenReturn(6000L);
+        when(row.getAuthorId()).thenReturn(2L);
+        when(row.getContent()).thenReturn("Spring");
+        PostValue tag = mock(PostValue.class);
+        when(tag.getPostId()).thenReturn(6000L);
+        when(tag.getItem()).thenReturn("java");
+
+        when(postSearchIndex.loadSegments()).thenReturn(false);
+        when(postRepository.findMaxId()).thenReturn(6000L);
+        when(postRepository.findSearchRowsByIdRange(anyLong(), anyLong())).thenReturn(List.of());
+        when(postRepository.findSearchRowsByIdRange(5000L, 10000L)).thenReturn(List.of(row));
+        when(postRepository.findTagsByIdRange(5000L, 10000L)).thenReturn(List.of(tag));
+
+        postSearchService.loadIndex();
+
+        ArgumentCaptor<PostDocument> document = ArgumentCaptor.forClass(PostDocument.class);
+        verify(postSearchIndex).addIfAbsent(document.capture());
+        assertEquals(6000L, document.getValue().id());
+        assertEquals(Set.of("java"), document.getValue().tags());
+        verify(postRepository).findSearchRowsByIdRange(0L, 5000L);
+        verify(postSearchIndex).clear();
+        verify(postSearchIndex).compact();
+        verify(postSearchIndex).markLoaded();
+    }
+}
@@ -1,13 +1,22 @@
 package bg.connectly.service;
 
+import bg.connectly.dto.Cursor;
 import bg.connectly.dto.PostDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.CursorPage;
+import bg.connectly.dto.response.PostResponseDto;
+import bg.connectly.exception.BadRequestException;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.PostMapper;
+import bg.connectly.model.Like;
 import bg.connectly.model.Post;
 import bg.connectly.model.User;
 import bg.connectly.repository.PostRepository;
+import bg.connectly.repository.PostValue;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.impl.PostServiceImpl;
+import bg.connectly.store.EventBroker;
+import bg.connectly.store.VersionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,9 +27,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,17 +54,48 @@ public class PostServiceUnitTests {
     @Mock
     private PostMapper postMapper;
 
+    @Mock
+    private TimelineService timelineService;
+
+    @Mock
+    private LikeService likeService;
+
+    @Mock
+    private PrincipalService principalService;
+
+    @Mock
+    private PostSearchService postSearchService;
+
+    @Mock
+    private TagService tagService;
+
+    @Mock
+    private MediaService mediaService;
+
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+
+    @Mock
+    private VersionStore versionStore;
+
+    @Mock
+    private EventBroker eventBroker;
+
     @InjectMocks
     private PostServiceImpl postService;
 
     private User user;
+    private UserPrincipal principal;
     private Post post;
     private PostDto postDto;
+    private PostResponseDto postResponseDto;
 
     @BeforeEach
     void setUp() {
         user = new User();
+        user.setId(1L);
         user.setEmail("testuser@abv.bg");
+        principal = new UserPrincipal(1L, "testuser@abv.bg", null, null, null);
 
         post = new Post();
         post.setId(1L);
@@ -58,61 +103,125 @@ public class PostServiceUnitTests {
 
         postDto = new PostDto();
         postDto.setContent("Test content");
+
+        postResponseDto = new PostResponseDto();
+        postResponseDto.setId(1L);
     }
 
     @Test
     void getPostsByEmailSuccess() {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Post> postPage = new PageImpl<>(Collections.singletonList(post));
-        when(postRepository.findByAuthorEmail(anyString(), any(Pageable.class))).thenReturn(postPage);
+        when(postRepository.findByAuthorEmail(anyString(), isNull(), any(Pageable.class))).thenReturn(postPage);
 
-        Page<Post> result = postService.getPostsByEmail("testuser@abv.bg", pageable);
+        Page<PostResponseDto> result = postService.getPostsByEmail("testuser@abv.bg", pageable, null);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
-        verify(postRepository).findByAuthorEmail(anyString(), any(Pageable.class));
+        verify(postRepository).findByAuthorEmail(anyString(), isNull(), any(Pageable.class));
+    }
+
+    @Test
+    void getPostsByEmailLoadsCollectionsInBulk() {
+        Post otherPost = new Post();
+        otherPost.setId(2L);
+        Page<Post> postPage = new PageImpl<>(List.of(post, otherPost));
+        when(postRepository.findByAuthorEmail(anyString(), isNull(), any(Pageable.class))).thenReturn(postPage);
+        when(postRepository.findTagsByPostIds(List.of(1L, 2L))).thenReturn(List.of(postValue(2L, "java")));
+
+        postService.getPostsByEmail("testuser@abv.bg", PageRequest.of(0, 10), null);
+
+        verify(postRepository, times(1)).findMediaIdsByPostIds(List.of(1L, 2L));
+        verify(postRepository, times(1)).findTagsByPostIds(List.of(1L, 2L));
+        verify(postMapper).toPostResponseDto(post, List.of(), Set.of());
+        verify(postMapper).toPostResponseDto(otherPost, List.of(), Set.of("java"));
     }
 
     @Test
     void createPostSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
-        when(postMapper.toPost(any(PostDto.class), any(User.class))).thenReturn(post);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(postMapper.toPost(postDto, user)).thenReturn(post);
         when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(postMapper.toPostResponseDto(post, principal)).thenReturn(postResponseDto);
 
-        Post result = postService.createPost(postDto, "testuser@abv.bg");
+        PostResponseDto result = postService.createPost(postDto, "testuser@abv.bg");
 
         assertNotNull(result);
         assertEquals(post.getId(), result.getId());
         verify(postRepository).save(any(Post.class));
+        verify(timelineService).fanOutPost(1L, 1L, null);
+        verify(postSearchService).index(post);
+        verify(tagService).recordTags(post);
+        verify(eventBroker).publish(EventBroker.authorTopic(1L), "post", postResponseDto);
+    }
+
+    @Test
+    void createPostWithMediaQueuesDerivatives() {
+        List<String> mediaIds = List.of("a".repeat(64));
+        postDto.setMediaIds(mediaIds);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(postMapper.toPost(postDto, user)).thenReturn(post);
+        when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(postMapper.toPostResponseDto(post, principal)).thenReturn(postResponseDto);
+
+        postService.createPost(postDto, "testuser@abv.bg");
+
+        verify(mediaService).validateMediaIds(mediaIds);
+        verify(imageDerivativeService).createDerivatives(mediaIds);
+    }
+
+    @Test
+    void createPostWithUnknownMedia() {
+        postDto.setMediaIds(List.of("a".repeat(64)));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        doThrow(new BadRequestException("Unknown media")).when(mediaService).validateMediaIds(postDto.getMediaIds());
+
+        assertThrows(BadRequestException.class, () -> postService.createPost(postDto, "testuser@abv.bg"));
+        verify(postRepository, never()).save(any(Post.class));
     }
 
     @Test
     void createPostUserNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
 
         assertThrows(NotFoundException.class, () -> postService.createPost(postDto, "testuser@abv.bg"));
     }
 
     @Test
     void deletePostSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
         when(postRepository.findById(anyLong())).thenReturn(Optional.of(post));
 
         postService.deletePost(1L, "testuser@abv.bg");
 
         verify(postRepository).delete(any(Post.class));
+        verify(postSearchService).remove(1L);
+    }
+
+    @Test
+    void deletePostOfAnotherUser() {
+        User author = new User();
+        author.setId(2L);
+        post.setAuthor(author);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.findById(anyLong())).thenReturn(Optional.of(post));
+
+        assertThrows(NotFoundException.class, () -> postService.deletePost(1L, "testuser@abv.bg"));
+        verify(postRepository, never()).delete(any(Post.class));
     }
 
     @Test
     void deletePostUserNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
 
         assertThrows(NotFoundException.class, () -> postService.deletePost(1L, "testuser@abv.bg"));
     }
 
     @Test
     void deletePostNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
         when(postRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> postService.deletePost(1L, "testuser@abv.bg"));
@@ -120,28 +229,42 @@ public class PostServiceUnitTests {
 
     @Test
     void updatePostSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
         when(postRepository.findById(anyLong())).thenReturn(Optional.of(post));
         when(postMapper.updatePostFromDto(any(PostDto.class), any(Post.class))).thenReturn(true);
         when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(postMapper.toPostResponseDto(post, principal)).thenReturn(postResponseDto);
 
-        Post result = postService.updatePost(1L, "testuser@abv.bg", postDto);
+        PostResponseDto result = postService.updatePost(1L, "testuser@abv.bg", postDto);
 
         assertNotNull(result);
         assertEquals(post.getId(), result.getId());
         verify(postRepository).save(any(Post.class));
     }
 
+    @Test
+    void updatePostValidatesMediaAgainstStoredValues() {
+        List<String> storedMedia = List.of("https://example.com/legacy.png");
+        post.setMediaIds(storedMedia);
+        postDto.setMediaIds(List.of("https://example.com/legacy.png", "a".repeat(64)));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.findById(anyLong())).thenReturn(Optional.of(post));
+
+        postService.updatePost(1L, "testuser@abv.bg", postDto);
+
+        verify(mediaService).validateMediaIds(postDto.getMediaIds(), storedMedia);
+    }
+
     @Test
     void updatePostUserNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
 
         assertThrows(NotFoundException.class, () -> postService.updatePost(1L, "testuser@abv.bg", postDto));
     }
 
     @Test
     void updatePostNotFound() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
         when(postRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> postService.updatePost(1L, "testuser@abv.bg", postDto));
@@ -151,12 +274,160 @@ public class PostServiceUnitTests {
     void getPostsSuccess() {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Post> postPage = new PageImpl<>(Collections.singletonList(post));
-        when(postRepository.findAllByOrderByCreatedAtDesc(any(Pageable.class))).thenReturn(postPage);
+        when(postRepository.findAllByOrderByCreatedAtDesc(isNull(), any(Pageable.class))).thenReturn(postPage);
 
-        Page<Post> result = postService.getPosts(pageable);
+        Page<PostResponseDto> result = postService.getPosts(pageable, null);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
-        verify(postRepository).findAllByOrderByCreatedAtDesc(any(Pageable.class));
+        verify(postRepository).findAllByOrderByCreatedAtDesc(isNull(), any(Pageable.class));
+    }
+
+    @Test
+    void getPostsAsViewerQueriesWithViewerId() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(principalService.getPrincipal("testuser@abv.bg")).thenReturn(principal);
+        when(postRepository.findAllByOrderByCreatedAtDesc(1L, pageable)).thenReturn(new PageImpl<>(List.of(post)));
+
+        Page<PostResponseDto> result = postService.getPosts(pageable, "testuser@abv.bg");
+
+        assertEquals(1, result.getTotalElements());
+        verify(principalService, times(1)).getPrincipal("testuser@abv.bg");
+    }
+
+    @Test
+    void getPostsStampOfViewerIncludesTheirFollows() {
+        when(principalService.getPrincipal("testuser@abv.bg")).thenReturn(principal);
+
+        postService.getPostsStamp("testuser@abv.bg");
+        postService.getPostsStamp((String) null);
+
+        verify(versionStore).stamp(VersionStore.POSTS, VersionStore.followsOf(1L));
+        verify(versionStore).stamp(VersionStore.POSTS);
+    }
+
+    @Test
+    void createPrivatePostIsNotPublishedToFollowers() {
+        post.setVisibility(Post.VISIBILITY_PRIVATE);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(postMapper.toPost(postDto, user)).thenReturn(post);
+        when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(postMapper.toPostResponseDto(post, principal)).thenReturn(postResponseDto);
+
+        postService.createPost(postDto, "testuser@abv.bg");
+
+        verify(timelineService).fanOutPost(1L, 1L, Post.VISIBILITY_PRIVATE);
+        verifyNoInteractions(eventBroker);
+    }
+
+    @Test
+    void getTimelineKeepsTimelineOrder() {
+        Post olderPost = new Post();
+        olderPost.setId(2L);
+        PostResponseDto olderPostResponseDto = new PostResponseDto();
+        olderPostResponseDto.setId(2L);
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(timelineService.getTimelinePostIds(1L, 0, 3)).thenReturn(List.of(1L, 2L));
+        when(postRepository.findVisibleWithAuthorByIdIn(List.of(1L, 2L), 1L)).thenReturn(List.of(olderPost, post));
+        when(postMapper.toPostResponseDto(eq(post), any(), any())).thenReturn(postResponseDto);
+        when(postMapper.toPostResponseDto(eq(olderPost), any(), any())).thenReturn(olderPostResponseDto);
+        when(likeService.getLikedTargetIds(1L, Like.TARGET_POST, List.of(1L, 2L))).thenReturn(Set.of(2L));
+
+        Slice<PostResponseDto> result = postService.getTimeline("testuser@abv.bg", PageRequest.of(0, 2));
+
+        assertEquals(List.of(postResponseDto, olderPostResponseDto), result.getContent());
+        assertFalse(result.hasNext());
+        assertFalse(postResponseDto.getLikedByViewer());
+        assertTrue(olderPostResponseDto.getLikedByViewer());
+    }
+
+    @Test
+    void likePostSuccess() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 1L)).thenReturn(true);
+        when(postRepository.findWithAuthorById(anyLong())).thenReturn(Optional.of(post));
+        when(postMapper.toPostResponseDto(eq(post), any(), any())).thenReturn(postResponseDto);
+
+        PostResponseDto result = postService.likePost(1L, "testuser@abv.bg");
+
+        assertTrue(result.getLikedByViewer());
+        verify(likeService).like(1L, Like.TARGET_POST, 1L);
+    }
+
+    @Test
+    void likePostNotFound() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 1L)).thenReturn(true);
+        when(postRepository.findWithAuthorById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> postService.likePost(1L, "testuser@abv.bg"));
+        verifyNoInteractions(likeService);
+    }
+
+    @Test
+    void likeAndUnlikeHiddenPostThrowNotFound() {
+        when(principalService.getPrincipal(anyString())).thenReturn(principal);
+        when(postRepository.existsVisibleById(1L, 1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> postService.likePost(1L, "testuser@abv.bg"));
+        assertThrows(NotFoundException.class, () -> postService.unlikePost(1L, "testuser@abv.bg"));
+        verify(postRepository, never()).findWithAuthorById(anyLong());
+        verifyNoInteractions(likeService, postMapper);
+    }
+
+    @Test
+    void getTimelineUserNotFound() {
+        when(principalService.getPrincipal(anyString())).thenThrow(new NotFoundException("Email testuser@abv.bg not found"));
+
+        assertThrows(NotFoundException.class, () -> postService.getTimeline("testuser@abv.bg", PageRequest.of(0, 2)));
+    }
+
+    @Test
+    void getPostsWithCursorReturnsNextCursor() {
+        post.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(postRepository.findLatest(isNull(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(post), PageRequest.of(0, 1), true));
+
+        CursorPage<PostResponseDto> result = postService.getPosts(null, 1, null);
+
+        assertTrue(result.isHasNext());
+        Cursor next = Cursor.decode(result.getNextCursor());
+        assertEquals(post.getCreatedAt(), next.getCreatedAt());
+        assertEquals(post.getId(), next.getId());
+    }
+
+    @Test
+    void getPostsByEmailSeeksAfterCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        String cursor = new Cursor(createdAt, 5L).encode();
+        when(postRepository.findLatestByAuthorEmailBefore(eq("testuser@abv.bg"), eq(createdAt), eq(5L), isNull(),
+                any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(post)));
+
+        CursorPage<PostResponseDto> result = postService.getPostsByEmail("testuser@abv.bg", cursor, 10, null);
+
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getPostsWithInvalidCursor() {
+        assertThrows(BadRequestException.class, () -> postService.getPosts("not-a-cursor", 10, null));
+    }
+
+    private static PostValue postValue(Long postId, String item) {
+        return new PostValue() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public String getItem() {
+                return item;
+            }
+        };
     }
-}
\ No newline at end of file
+}
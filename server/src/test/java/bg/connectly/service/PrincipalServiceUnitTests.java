@@ -0,0 +1,62 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.exception.NotFoundException;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.impl.PrincipalServiceImpl;
+import bg.connectly.store.PrincipalCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PrincipalServiceUnitTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private PrincipalServiceImpl principalService;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        principalService = new PrincipalServiceImpl(userRepository, new PrincipalCache(10, 300));
+        principal = new UserPrincipal(1L, "testuser@abv.bg", "Test", "User", null);
+    }
+
+    @Test
+    void getPrincipalIsCachedBetweenCalls() {
+        when(userRepository.findPrincipalByEmail("testuser@abv.bg")).thenReturn(Optional.of(principal));
+
+        assertSame(principal, principalService.getPrincipal("testuser@abv.bg"));
+        assertSame(principal, principalService.getPrincipal("testuser@abv.bg"));
+
+        verify(userRepository, times(1)).findPrincipalByEmail("testuser@abv.bg");
+    }
+
+    @Test
+    void evictReloadsPrincipal() {
+        when(userRepository.findPrincipalByEmail("testuser@abv.bg")).thenReturn(Optional.of(principal));
+
+        principalService.getPrincipal("testuser@abv.bg");
+        principalService.evict("testuser@abv.bg");
+        principalService.getPrincipal("testuser@abv.bg");
+
+        verify(userRepository, times(2)).findPrincipalByEmail("testuser@abv.bg");
+    }
+
+    @Test
+    void getPrincipalNotFound() {
+        when(userRepository.findPrincipalByEmail(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> principalService.getPrincipal("testuser@abv.bg"));
+    }
+}
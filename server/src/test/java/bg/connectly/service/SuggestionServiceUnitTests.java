@@ -0,0 +1,121 @@
+package bg.connectly.service;
+
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.SuggestionDto;
+import bg.connectly.dto.response.UserResponseDto;
+import bg.connectly.mapper.UserMapper;
+import bg.connectly.repository.UserRepository;
+import bg.connectly.service.impl.SuggestionServiceImpl;
+import bg.connectly.store.FollowGraph;
+import bg.connectly.store.SuggestionCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SuggestionServiceUnitTests {
+    private static final String EMAIL = "test-user@abv.bg";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private PrincipalService principalService;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private FollowGraph followGraph;
+
+    @BeforeEach
+    void setUp() {
+        followGraph = new FollowGraph(100);
+        when(principalService.getPrincipal(EMAIL)).thenReturn(principal(1L));
+        lenient().when(userRepository.findPrincipalsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(SuggestionServiceUnitTests::principal).toList();
+        });
+        lenient().when(userMapper.toUserResponseDto(any(UserPrincipal.class))).thenAnswer(invocation -> {
+            UserResponseDto user = new UserResponseDto();
+            user.setId(invocation.<UserPrincipal>getArgument(0).getId());
+            return user;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void suggestionsAreRankedByMutualCount() {
+        // 1 follows 2 and 3; both follow 4, only 2 follows 5, and 3 follows 1 back
+        followGraph.load(new long[]{1, 1, 2, 2, 3, 3}, new long[]{2, 3, 4, 5, 4, 1});
+
+        List<SuggestionDto> suggestions = service(1000, 1000).getSuggestions(EMAIL, 10);
+
+        assertEquals(List.of(4L, 5L), suggestions.stream().map(s -> s.getUser().getId()).toList());
+        assertEquals(List.of(2, 1), suggestions.stream().map(SuggestionDto::getMutualCount).toList());
+    }
+
+    @Test
+    void suggestionsAreCachedAndSkipUsersFollowedSince() {
+        followGraph.load(new long[]{1, 1, 2, 2, 3}, new long[]{2, 3, 4, 5, 4});
+        SuggestionService suggestionService = service(1000, 1000);
+        suggestionService.getSuggestions(EMAIL, 10);
+
+        followGraph.follow(1, 4);
+        followGraph.follow(2, 6);
+        List<SuggestionDto> suggestions = suggestionService.getSuggestions(EMAIL, 10);
+
+        assertEquals(List.of(5L), suggestions.stream().map(s -> s.getUser().getId()).toList());
+    }
+
+    @Test
+    void walkStopsAtEdgeBudget() {
+        followGraph.load(new long[]{1, 1, 2, 2, 3, 3}, new long[]{2, 3, 4, 5, 6, 7});
+
+        List<SuggestionDto> suggestions = service(1000, 2).getSuggestions(EMAIL, 10);
+
+        assertEquals(2, suggestions.stream().mapToInt(SuggestionDto::getMutualCount).sum());
+    }
+
+    @Test
+    void walkTakesAtMostFanOutFollowsOfEachUser() {
+        followGraph.load(new long[]{1, 2, 2, 2}, new long[]{2, 3, 4, 5});
+
+        List<SuggestionDto> suggestions = service(1, 1000).getSuggestions(EMAIL, 10);
+
+        assertEquals(1, suggestions.size());
+    }
+
+    @Test
+    void noSuggestionsBeforeGraphIsLoaded() {
+        List<SuggestionDto> suggestions = service(1000, 1000).getSuggestions(EMAIL, 10);
+
+        assertTrue(suggestions.isEmpty());
+        verifyNoInteractions(userRepository);
+    }
+
+    private SuggestionService service(int maxFanOut, long maxEdges) {
+        return new SuggestionServiceImpl(followGraph, new SuggestionCache(100, 30), userRepository, userMapper,
+                principalService, pool, 20, 1000, maxFanOut, maxEdges);
+    }
+
+    private static UserPrincipal principal(Long id) {
+        return new UserPrincipal(id, "user" + id + "@abv.bg", "First", "Last", null);
+    }
+}
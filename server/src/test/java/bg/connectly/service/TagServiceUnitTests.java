@@ -0,0 +1,58 @@
+package bg.connectly.service;
+
+import bg.connectly.model.Post;
+import bg.connectly.service.impl.TagServiceImpl;
+import bg.connectly.store.TrendingTags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TagServiceUnitTests {
+
+    @Mock
+    private TrendingTags trendingTags;
+
+    private TagServiceImpl tagService;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        tagService = new TagServiceImpl(trendingTags);
+        post = new Post();
+        post.setTags(Set.of("java"));
+        post.setVisibility(Post.VISIBILITY_PUBLIC);
+    }
+
+    @Test
+    void recordTagsInsideTransactionCountsOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tagService.recordTags(post);
+            verifyNoInteractions(trendingTags);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(trendingTags).record(Set.of("java"));
+    }
+
+    @Test
+    void recordTagsSkipsPostsThatAreNotPublic() {
+        post.setVisibility(Post.VISIBILITY_FRIENDS);
+        tagService.recordTags(post);
+        post.setVisibility(Post.VISIBILITY_PRIVATE);
+        tagService.recordTags(post);
+
+        verifyNoInteractions(trendingTags);
+    }
+}
@@ -0,0 +1,100 @@
+package bg.connectly.service;
+
+import bg.connectly.model.Post;
+import bg.connectly.repository.PostRepository;
+import bg.connectly.service.FollowService;
+import bg.connectly.service.impl.TimelineServiceImpl;
+import bg.connectly.store.TimelineStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TimelineServiceUnitTests {
+
+    @Mock
+    private FollowService followService;
+
+    @Mock
+    private PostRepository postRepository;
+
+    private TimelineStore timelineStore;
+    private TimelineServiceImpl timelineService;
+
+    @BeforeEach
+    void setUp() {
+        timelineStore = new TimelineStore(3, 100, 60);
+        timelineService = new TimelineServiceImpl(timelineStore, followService, postRepository);
+    }
+
+    @Test
+    void getTimelineBackfillsOnFirstRead() {
+        when(followService.getFollowingIds(1L)).thenReturn(List.of(2L));
+        when(postRepository.findIdsByAuthorIds(anyCollection(), eq(1L), any(Pageable.class))).thenReturn(List.of(30L, 20L, 10L));
+
+        assertEquals(List.of(30L, 20L), timelineService.getTimelinePostIds(1L, 0, 2));
+        assertEquals(List.of(10L), timelineService.getTimelinePostIds(1L, 2, 2));
+        verify(postRepository, times(1)).findIdsByAuthorIds(List.of(2L, 1L), 1L, Pageable.ofSize(3));
+    }
+
+    @Test
+    void fanOutPushesIntoMaterializedTimelines() {
+        when(followService.getFollowingIds(1L)).thenReturn(List.of(2L));
+        when(postRepository.findIdsByAuthorIds(anyCollection(), eq(1L), any(Pageable.class))).thenReturn(List.of(20L, 10L));
+        timelineService.getTimelinePostIds(1L, 0, 10);
+
+        when(followService.getFollowerIds(2L)).thenReturn(List.of(1L, 3L));
+        timelineService.fanOutPost(2L, 40L, Post.VISIBILITY_PUBLIC);
+
+        assertEquals(List.of(40L, 20L, 10L), timelineService.getTimelinePostIds(1L, 0, 10));
+        assertNull(timelineStore.get(3L));
+    }
+
+    @Test
+    void privatePostOnlyGoesIntoAuthorTimeline() {
+        timelineStore.getOrCreate(1L).backfill(new long[]{10L});
+        timelineStore.getOrCreate(2L).backfill(new long[]{20L});
+
+        timelineService.fanOutPost(2L, 40L, Post.VISIBILITY_PRIVATE);
+
+        assertEquals(List.of(10L), timelineService.getTimelinePostIds(1L, 0, 10));
+        assertEquals(List.of(40L, 20L), timelineService.getTimelinePostIds(2L, 0, 10));
+        verifyNoInteractions(followService);
+    }
+
+    @Test
+    void timelinesBeyondMaxUsersAreDroppedAndRebuiltOnRead() {
+        timelineStore = new TimelineStore(3, 2, 60);
+        timelineService = new TimelineServiceImpl(timelineStore, followService, postRepository);
+        when(postRepository.findIdsByAuthorIds(anyCollection(), anyLong(), any(Pageable.class))).thenReturn(List.of(10L));
+
+        timelineService.getTimelinePostIds(1L, 0, 10);
+        timelineService.getTimelinePostIds(2L, 0, 10);
+        timelineService.getTimelinePostIds(3L, 0, 10);
+        assertTrue(timelineStore.get(1L) == null || timelineStore.get(2L) == null);
+
+        assertEquals(List.of(10L), timelineService.getTimelinePostIds(1L, 0, 10));
+        assertEquals(List.of(10L), timelineService.getTimelinePostIds(2L, 0, 10));
+    }
+
+    @Test
+    void timelineDropsOldestPostsWhenFull() {
+        TimelineStore.Timeline timeline = timelineStore.getOrCreate(1L);
+        timeline.backfill(new long[]{3L, 2L, 1L});
+        timeline.push(4L);
+        timeline.push(4L);
+
+        assertArrayEquals(new long[]{4L, 3L, 2L}, timeline.page(0, 10));
+    }
+}
@@ -2,12 +2,17 @@ package bg.connectly.service;
 
 
 import bg.connectly.dto.UserDto;
+import bg.connectly.dto.UserPrincipal;
+import bg.connectly.dto.response.UserResponseDto;
 import bg.connectly.exception.AlreadyExistsException;
 import bg.connectly.exception.NotFoundException;
 import bg.connectly.mapper.UserMapper;
 import bg.connectly.model.User;
 import bg.connectly.repository.UserRepository;
 import bg.connectly.service.impl.UserServiceImpl;
+import bg.connectly.store.LastLoginStore;
+import bg.connectly.store.UserSearchIndex;
+import bg.connectly.store.VersionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,15 +25,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +49,14 @@ public class UserServiceUnitTests {
     private PasswordEncoder passwordEncoder;
     @Mock
     private UserMapper userMapper;
+    @Mock
+    private PrincipalService principalService;
+    @Mock
+    private UserSearchIndex userSearchIndex;
+    @Mock
+    private LastLoginStore lastLoginStore;
+    @Mock
+    private VersionStore versionStore;
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -68,6 +86,40 @@ public class UserServiceUnitTests {
         verify(userRepository).findAll(any(Specification.class), any(Pageable.class));
     }
 
+    @Test
+    void searchUsersUsesIndexInRankedOrder() {
+        User first = new User();
+        first.setId(2L);
+        User second = new User();
+        second.setId(1L);
+        when(userSearchIndex.isLoaded()).thenReturn(true);
+        when(userSearchIndex.search("test")).thenReturn(List.of(
+                new UserPrincipal(2L, "test@example.com", null, null, null),
+                new UserPrincipal(1L, "a.test@example.com", null, null, null),
+                new UserPrincipal(3L, "b.test@example.com", null, null, null)));
+        when(userRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(second, first));
+
+        Page<User> result = userService.searchUsers("test", PageRequest.of(0, 2));
+
+        assertEquals(List.of(first, second), result.getContent());
+        assertEquals(3, result.getTotalElements());
+        verify(userRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void autocompleteUsesIndex() {
+        UserPrincipal principal = new UserPrincipal(1L, "test@example.com", "Test", "User", null);
+        UserResponseDto userResponseDto = new UserResponseDto();
+        when(userSearchIndex.isLoaded()).thenReturn(true);
+        when(userSearchIndex.autocomplete("te", 10)).thenReturn(List.of(principal));
+        when(userMapper.toUserResponseDto(principal)).thenReturn(userResponseDto);
+
+        List<UserResponseDto> result = userService.autocomplete("te", 10);
+
+        assertEquals(List.of(userResponseDto), result);
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void updateUserSuccess() {
         when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
@@ -81,6 +133,29 @@ public class UserServiceUnitTests {
         assertNotNull(updatedUser);
         assertEquals("newemail@example.com", updatedUser.getEmail());
         verify(userRepository).save(any(User.class));
+        verify(principalService).evict("testuser");
+        verify(principalService).evict("newemail@example.com");
+        verify(userSearchIndex).add(any());
+    }
+
+    @Test
+    void updateUserInsideTransactionReindexesOnlyAfterCommit() {
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        user.setEmail(userDto.getEmail());
+        when(userMapper.updateUserFromDto(any(UserDto.class), any(User.class))).thenReturn(user);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.updateUser(userDto, "testuser");
+            verifyNoInteractions(userSearchIndex, principalService);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(principalService).evict("testuser");
+        verify(userSearchIndex).add(any());
     }
 
     @Test
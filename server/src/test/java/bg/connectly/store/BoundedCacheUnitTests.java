@@ -0,0 +1,77 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheUnitTests {
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    @Test
+    void entriesExpireAfterWrite() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, false, () -> { }, now::get);
+        cache.put("a", "1");
+
+        now.addAndGet(99);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void readsExtendEntriesThatExpireAfterAccess() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, true, () -> { }, now::get);
+        cache.put("a", "1");
+
+        now.addAndGet(80);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(80);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(100);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void peekReturnsExpiredEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 0, false, () -> { }, now::get);
+        cache.put("a", "1", 1_050);
+
+        now.addAndGet(100);
+        assertEquals("1", cache.peek("a"));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void computeIfAbsentReplacesExpiredEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, false, () -> { }, now::get);
+
+        assertEquals("1", cache.computeIfAbsent("a", key -> "1"));
+        assertEquals("1", cache.computeIfAbsent("a", key -> "2"));
+        now.addAndGet(100);
+        assertEquals("3", cache.computeIfAbsent("a", key -> "3"));
+    }
+
+    @Test
+    void fullCacheDropsExpiredThenSoonestToExpire() {
+        AtomicInteger evictions = new AtomicInteger();
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(4, 0, false, evictions::incrementAndGet, now::get);
+        cache.put(1, 1, 1_010);
+        cache.put(2, 2, 2_000);
+        cache.put(3, 3, 3_000);
+        cache.put(4, 4, BoundedCache.NEVER);
+        now.set(1_500);
+
+        cache.put(5, 5);
+
+        assertEquals(1, evictions.get());
+        assertNull(cache.peek(1));
+        assertNull(cache.peek(2));
+        assertEquals(3, cache.peek(3));
+        assertEquals(4, cache.peek(4));
+        assertEquals(5, cache.peek(5));
+    }
+}
@@ -0,0 +1,139 @@
+package bg.connectly.store;
+
+import bg.connectly.model.Comment;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CounterStoreUnitTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache cache;
+
+    private CounterStore counterStore;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(entityManagerFactory.getCache()).thenReturn(cache);
+        counterStore = new CounterStore(jdbcTemplate, new TransactionTemplate(transactionManager), entityManagerFactory);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesBatchedDeltas() {
+        counterStore.increment(CounterType.COMMENT_LIKES, 1L, 1);
+        counterStore.increment(CounterType.COMMENT_LIKES, 1L, 1);
+        counterStore.increment(CounterType.COMMENT_LIKES, 2L, 1);
+        assertEquals(7, counterStore.overlay(CounterType.COMMENT_LIKES, 1L, 5));
+
+        counterStore.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(CounterType.COMMENT_LIKES.incrementSql()), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertEquals(0, counterStore.getPending(CounterType.COMMENT_LIKES, 1L));
+        verify(cache).evict(Comment.class, 1L);
+        verify(cache).evict(Comment.class, 2L);
+    }
+
+    @Test
+    void flushSkipsDatabaseWhenNothingChanged() {
+        counterStore.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void failedFlushKeepsDeltas() {
+        counterStore.increment(CounterType.POST_COMMENTS, 1L, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        counterStore.flush();
+
+        assertEquals(3, counterStore.getPending(CounterType.POST_COMMENTS, 1L));
+    }
+
+    @Test
+    void flushThatCannotStartTransactionKeepsDeltas() {
+        counterStore.increment(CounterType.POST_LIKES, 1L, 2);
+        when(transactionManager.getTransaction(any())).thenThrow(new CannotCreateTransactionException("no connection"));
+
+        counterStore.flush();
+
+        assertEquals(2, counterStore.getPending(CounterType.POST_LIKES, 1L));
+        verifyNoInteractions(jdbcTemplate, cache);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentIncrementsAreNotLostWhileFlushing() throws Exception {
+        AtomicLong flushed = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            for (Object[] args : (List<Object[]>) invocation.getArgument(1)) {
+                flushed.addAndGet((Long) args[0]);
+            }
+            return new int[0];
+        });
+
+        int threads = 8;
+        int increments = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < increments; j++) {
+                    counterStore.increment(CounterType.POST_LIKES, (long) (j % 4), 1);
+                    if (j % 1000 == 0) {
+                        counterStore.flush();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        counterStore.flush();
+        // a second flush with no new increments retires the idle cells
+        counterStore.flush();
+
+        assertEquals((long) threads * increments, flushed.get());
+    }
+}
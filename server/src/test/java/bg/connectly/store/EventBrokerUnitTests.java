@@ -0,0 +1,137 @@
+package bg.connectly.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBrokerUnitTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void publishDeliversSerializedEventToSubscribersOfTopic() {
+        EventBroker eventBroker = broker(Runnable::run, 4);
+        RecordingSink post = new RecordingSink();
+        RecordingSink other = new RecordingSink();
+        eventBroker.subscribe(List.of(EventBroker.postTopic(1L)), post);
+        eventBroker.subscribe(List.of(EventBroker.postTopic(2L)), other);
+
+        eventBroker.publish(EventBroker.postTopic(1L), "comment", Map.of("content", "Nice"));
+
+        assertEquals(List.of(new EventBroker.Event("comment", "{\"content\":\"Nice\"}")), post.events);
+        assertTrue(other.events.isEmpty());
+    }
+
+    @Test
+    void subscriberThatFallsBehindIsDropped() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        EventBroker eventBroker = broker(pending::add, 2);
+        RecordingSink slow = new RecordingSink();
+        EventBroker.Subscription subscription = eventBroker.subscribe(List.of(EventBroker.authorTopic(1L)), slow);
+
+        for (int i = 0; i < 3; i++) {
+            eventBroker.publish(EventBroker.authorTopic(1L), "post", i);
+        }
+        pending.forEach(Runnable::run);
+
+        assertTrue(subscription.isClosed());
+        assertTrue(slow.closed);
+        assertTrue(slow.events.isEmpty());
+        assertEquals(0, eventBroker.getSubscriberCount());
+        assertEquals(1.0, meterRegistry.get("connectly.events.dropped").counter().count());
+    }
+
+    @Test
+    void failedSendUnsubscribes() {
+        EventBroker eventBroker = broker(Runnable::run, 4);
+        RecordingSink broken = new RecordingSink();
+        broken.failing = true;
+        EventBroker.Subscription subscription = eventBroker.subscribe(List.of(EventBroker.postTopic(1L)), broken);
+
+        eventBroker.sendHeartbeats();
+
+        assertTrue(subscription.isClosed());
+        assertFalse(broken.closed);
+        assertEquals(0, eventBroker.getSubscriberCount());
+    }
+
+    @Test
+    void subscriberIsDroppedWhenExecutorIsFull() {
+        EventBroker eventBroker = broker(task -> {
+            throw new RejectedExecutionException("full");
+        }, 4);
+        RecordingSink sink = new RecordingSink();
+        EventBroker.Subscription subscription = eventBroker.subscribe(List.of(EventBroker.postTopic(1L)), sink);
+
+        eventBroker.publish(EventBroker.postTopic(1L), "comment", "Nice");
+
+        assertTrue(subscription.isClosed());
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    void closedSubscriptionReceivesNoEvents() {
+        EventBroker eventBroker = broker(Runnable::run, 4);
+        RecordingSink sink = new RecordingSink();
+        eventBroker.subscribe(List.of(EventBroker.postTopic(1L)), sink).close();
+
+        eventBroker.publish(EventBroker.postTopic(1L), "comment", "Nice");
+        eventBroker.sendHeartbeats();
+
+        assertTrue(sink.events.isEmpty());
+        assertEquals(0, eventBroker.getSubscriberCount());
+    }
+
+    @Test
+    void publishInsideTransactionWaitsForCommit() {
+        EventBroker eventBroker = broker(Runnable::run, 4);
+        RecordingSink sink = new RecordingSink();
+        eventBroker.subscribe(List.of(EventBroker.postTopic(1L)), sink);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            eventBroker.publish(EventBroker.postTopic(1L), "comment", "Nice");
+            assertTrue(sink.events.isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, sink.events.size());
+    }
+
+    private EventBroker broker(Executor executor, int bufferSize) {
+        return new EventBroker(new ObjectMapper(), executor, bufferSize, meterRegistry);
+    }
+
+    private static class RecordingSink implements EventBroker.EventSink {
+        private final List<EventBroker.Event> events = new ArrayList<>();
+        private boolean failing;
+        private boolean closed;
+
+        @Override
+        public void send(EventBroker.Event event) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
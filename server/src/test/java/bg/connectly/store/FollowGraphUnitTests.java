@@ -0,0 +1,78 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FollowGraphUnitTests {
+
+    @Test
+    void loadBuildsBothDirectionsSorted() {
+        FollowGraph followGraph = new FollowGraph(100);
+
+        followGraph.load(new long[]{3, 1, 2, 1, 3}, new long[]{1, 5, 1, 2, 1});
+
+        assertTrue(followGraph.isLoaded());
+        assertArrayEquals(new long[]{2, 3}, followGraph.getFollowerIds(1));
+        assertArrayEquals(new long[]{2, 5}, followGraph.getFollowingIds(1));
+        assertEquals(2, followGraph.getFollowerCount(1));
+        assertEquals(1, followGraph.getFollowingCount(3));
+        assertTrue(followGraph.isFollowing(3, 1));
+        assertFalse(followGraph.isFollowing(1, 3));
+        assertArrayEquals(new long[0], followGraph.getFollowerIds(42));
+    }
+
+    @Test
+    void followAndUnfollowUpdateBothDirections() {
+        FollowGraph followGraph = new FollowGraph(100);
+        followGraph.load(new long[]{1}, new long[]{2});
+
+        followGraph.follow(3, 2);
+        followGraph.follow(3, 2);
+        followGraph.unfollow(1, 2);
+
+        assertArrayEquals(new long[]{3}, followGraph.getFollowerIds(2));
+        assertArrayEquals(new long[0], followGraph.getFollowingIds(1));
+        assertTrue(followGraph.isFollowing(3, 2));
+        assertEquals(1, followGraph.getFollowerCount(2));
+    }
+
+    @Test
+    void compactionKeepsEveryRow() {
+        FollowGraph followGraph = new FollowGraph(4);
+        followGraph.load(new long[]{1, 2}, new long[]{10, 10});
+
+        for (long follower = 3; follower <= 12; follower++) {
+            followGraph.follow(follower, 10);
+        }
+        followGraph.unfollow(1, 10);
+
+        assertEquals(11, followGraph.getFollowerCount(10));
+        assertFalse(followGraph.isFollowing(1, 10));
+        assertArrayEquals(new long[0], followGraph.getFollowingIds(1));
+        assertArrayEquals(new long[]{10}, followGraph.getFollowingIds(12));
+        assertArrayEquals(new long[]{4, 5, 6}, followGraph.getFollowerIds(10, 2, 3));
+    }
+
+    @Test
+    void changesBeforeLoadAreReplayed() {
+        FollowGraph followGraph = new FollowGraph(100);
+
+        followGraph.follow(1, 2);
+        followGraph.unfollow(3, 2);
+        assertFalse(followGraph.isLoaded());
+        // The load read the unfollowed row before the change, and missed the new follow
+        followGraph.load(new long[]{3}, new long[]{2});
+
+        assertArrayEquals(new long[]{1}, followGraph.getFollowerIds(2));
+    }
+
+    @Test
+    void pageIsClampedToRow() {
+        FollowGraph followGraph = new FollowGraph(100);
+        followGraph.load(new long[]{1, 2, 3}, new long[]{9, 9, 9});
+
+        assertArrayEquals(new long[]{2, 3}, followGraph.getFollowerIds(9, 1, 10));
+        assertArrayEquals(new long[0], followGraph.getFollowerIds(9, 5, 10));
+    }
+}
@@ -0,0 +1,112 @@
+package bg.connectly.store;
+
+import bg.connectly.model.User;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LastLoginStoreUnitTests {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache cache;
+
+    private LastLoginStore lastLoginStore;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(entityManagerFactory.getCache()).thenReturn(cache);
+        lastLoginStore = new LastLoginStore(jdbcTemplate, new TransactionTemplate(transactionManager),
+                entityManagerFactory);
+    }
+
+    @Test
+    void overlayReturnsNewestLoginTime() {
+        lastLoginStore.record(1L, NOW);
+        lastLoginStore.record(1L, NOW.minusMinutes(5));
+
+        assertEquals(NOW, lastLoginStore.overlay(1L, NOW.minusDays(1)));
+        assertEquals(NOW.plusDays(1), lastLoginStore.overlay(1L, NOW.plusDays(1)));
+        assertEquals(NOW.minusDays(1), lastLoginStore.overlay(2L, NOW.minusDays(1)));
+        assertNull(lastLoginStore.overlay(2L, null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushCoalescesLoginsIntoOneBatch() {
+        lastLoginStore.record(1L, NOW.minusMinutes(1));
+        lastLoginStore.record(1L, NOW);
+        lastLoginStore.record(2L, NOW);
+
+        lastLoginStore.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        for (Object[] args : batch.getValue()) {
+            assertEquals(Timestamp.valueOf(NOW), args[0]);
+        }
+        assertNull(lastLoginStore.overlay(1L, null));
+        verify(cache).evict(User.class, 1L);
+        verify(cache).evict(User.class, 2L);
+    }
+
+    @Test
+    void flushSkipsDatabaseWhenNobodyLoggedIn() {
+        lastLoginStore.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void failedFlushKeepsLoginTimes() {
+        lastLoginStore.record(1L, NOW);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        lastLoginStore.flush();
+
+        assertEquals(NOW, lastLoginStore.overlay(1L, null));
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void flushThatCannotStartTransactionKeepsLoginTimes() {
+        lastLoginStore.record(1L, NOW);
+        when(transactionManager.getTransaction(any())).thenThrow(new CannotCreateTransactionException("no connection"));
+
+        lastLoginStore.flush();
+
+        assertEquals(NOW, lastLoginStore.overlay(1L, null));
+        verifyNoInteractions(jdbcTemplate, cache);
+    }
+}
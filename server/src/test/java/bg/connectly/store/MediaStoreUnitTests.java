@@ -0,0 +1,140 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaStoreUnitTests {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    private Path directory;
+
+    private MediaStore mediaStore;
+
+    @BeforeEach
+    void setUp() {
+        mediaStore = new MediaStore(directory.toString(), 1024, 60, 2, 100);
+        mediaStore.init();
+    }
+
+    @Test
+    void chunkedUploadIsStoredUnderContentHash() throws Exception {
+        byte[] content = png(300);
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+
+        mediaStore.append(upload, 0, new ByteArrayInputStream(content, 0, 100));
+        long size = mediaStore.append(upload, 100, new ByteArrayInputStream(content, 100, 200));
+        MediaStore.StoredMedia media = mediaStore.complete(upload);
+
+        assertEquals(300, size);
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), media.id());
+        assertEquals("image/png", media.contentType());
+        assertArrayEquals(content, Files.readAllBytes(media.path()));
+        assertNull(mediaStore.getUpload(upload.getId()));
+        assertEquals(300, mediaStore.get(media.id()).size());
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws Exception {
+        byte[] content = png(50);
+
+        MediaStore.StoredMedia first = upload(content);
+        MediaStore.StoredMedia second = upload(content);
+
+        assertEquals(first.id(), second.id());
+        assertTrue(mediaStore.exists(first.id()));
+        try (var parts = Files.list(directory.resolve("uploads"))) {
+            assertEquals(0, parts.count());
+        }
+    }
+
+    @Test
+    void chunkAtWrongOffsetIsRejected() throws Exception {
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+        mediaStore.append(upload, 0, new ByteArrayInputStream(png(20)));
+
+        assertThrows(IllegalStateException.class,
+                () -> mediaStore.append(upload, 10, new ByteArrayInputStream(new byte[10])));
+        assertEquals(20, upload.getSize());
+    }
+
+    @Test
+    void chunkOverMaxSizeIsRolledBack() throws Exception {
+        byte[] content = png(1000);
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+        mediaStore.append(upload, 0, new ByteArrayInputStream(content, 0, 600));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> mediaStore.append(upload, 600, new ByteArrayInputStream(new byte[600])));
+        assertEquals(600, upload.getSize());
+
+        // The upload can still be finished with a chunk that fits
+        mediaStore.append(upload, 600, new ByteArrayInputStream(content, 600, 400));
+        MediaStore.StoredMedia media = mediaStore.complete(upload);
+        assertArrayEquals(content, Files.readAllBytes(media.path()));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), media.id());
+    }
+
+    @Test
+    void unsupportedContentIsRejected() throws Exception {
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+        mediaStore.append(upload, 0, new ByteArrayInputStream("<html><script></script></html>".getBytes()));
+
+        assertThrows(IllegalArgumentException.class, () -> mediaStore.complete(upload));
+        assertNull(mediaStore.getUpload(upload.getId()));
+    }
+
+    @Test
+    void pendingUploadsArePerUserCapped() throws Exception {
+        MediaStore.Upload first = mediaStore.startUpload("test@abv.bg");
+        mediaStore.startUpload("test@abv.bg");
+
+        assertThrows(IllegalStateException.class, () -> mediaStore.startUpload("test@abv.bg"));
+        assertNotNull(mediaStore.startUpload("other@abv.bg"));
+
+        // Completing an upload frees its place, even when the content is rejected
+        assertThrows(IllegalArgumentException.class, () -> mediaStore.complete(first));
+        assertNotNull(mediaStore.startUpload("test@abv.bg"));
+    }
+
+    @Test
+    void storedTypeIsNotSniffedAgainOnEveryRead() throws Exception {
+        MediaStore.StoredMedia media = upload(png(50));
+        // Stored files never change; overwriting one here shows that reads no longer open it
+        Files.write(media.path(), new byte[50]);
+
+        assertEquals("image/png", mediaStore.get(media.id()).contentType());
+        assertTrue(mediaStore.exists(media.id()));
+    }
+
+    @Test
+    void invalidIdsAreNotLookedUp() throws Exception {
+        assertFalse(mediaStore.exists("../../etc/passwd"));
+        assertNull(mediaStore.get("https://example.com/a.png"));
+    }
+
+    private MediaStore.StoredMedia upload(byte[] content) throws Exception {
+        MediaStore.Upload upload = mediaStore.startUpload("test@abv.bg");
+        mediaStore.append(upload, 0, new ByteArrayInputStream(content));
+        return mediaStore.complete(upload);
+    }
+
+    private static byte[] png(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) i;
+        }
+        System.arraycopy(PNG_SIGNATURE, 0, content, 0, PNG_SIGNATURE.length);
+        return Arrays.copyOf(content, size);
+    }
+}
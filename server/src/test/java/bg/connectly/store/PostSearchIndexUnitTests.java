@@ -0,0 +1,132 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostSearchIndexUnitTests {
+
+    @TempDir
+    Path directory;
+
+    private PostSearchIndex postSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        postSearchIndex = new PostSearchIndex(directory.toString(), 3);
+        postSearchIndex.markLoaded();
+        postSearchIndex.add(document(1L, "Hiking in the Rila mountains this weekend", Set.of("travel")));
+        postSearchIndex.add(document(2L, "New Spring Boot release, Spring is great", Set.of("java", "spring")));
+        postSearchIndex.add(document(3L, "Coffee and a good book", Set.of()));
+    }
+
+    @Test
+    void searchRanksByTermFrequencyAndTags() {
+        postSearchIndex.add(document(4L, "Spring cleaning at home", Set.of()));
+
+        PostSearchIndex.SearchResult result = postSearchIndex.search("spring", 0, 10);
+
+        assertEquals(List.of(2L, 4L), ids(result));
+        assertEquals(2, result.total());
+        assertTrue(result.hits().get(0).score() > result.hits().get(1).score());
+    }
+
+    @Test
+    void searchMatchesAnyTermCaseInsensitively() {
+        assertEquals(List.of(1L), ids(postSearchIndex.search("RILA", 0, 10)));
+        assertEquals(List.of(1L), ids(postSearchIndex.search("#travel", 0, 10)));
+        assertEquals(2, postSearchIndex.search("coffee hiking", 0, 10).total());
+        assertEquals(0, postSearchIndex.search("tea", 0, 10).total());
+    }
+
+    @Test
+    void searchReturnsRequestedPage() {
+        postSearchIndex.add(document(4L, "Spring cleaning at home", Set.of()));
+
+        PostSearchIndex.SearchResult result = postSearchIndex.search("spring", 1, 10);
+
+        assertEquals(List.of(4L), ids(result));
+        assertEquals(2, result.total());
+    }
+
+    @Test
+    void addReplacesAndRemoveDeletesPost() {
+        postSearchIndex.add(document(3L, "Tea and a good book", Set.of()));
+        postSearchIndex.remove(1L);
+
+        assertEquals(0, postSearchIndex.search("coffee", 0, 10).total());
+        assertEquals(List.of(3L), ids(postSearchIndex.search("tea", 0, 10)));
+        assertEquals(0, postSearchIndex.search("hiking", 0, 10).total());
+    }
+
+    @Test
+    void segmentsRestoreIndex() {
+        postSearchIndex.flush();
+        postSearchIndex.remove(2L);
+        postSearchIndex.add(document(3L, "Tea and a good book", Set.of()));
+        postSearchIndex.flush();
+
+        PostSearchIndex restored = new PostSearchIndex(directory.toString(), 3);
+
+        assertTrue(restored.loadSegments());
+        assertEquals(2, restored.size());
+        assertEquals(0, restored.search("spring", 0, 10).total());
+        assertEquals(List.of(3L), ids(restored.search("tea", 0, 10)));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 0, 0, 500),
+                restored.search("hiking", 0, 10).hits().get(0).document().createdAt());
+    }
+
+    @Test
+    void flushCompactsTooManySegments() throws Exception {
+        for (long id = 10; id < 14; id++) {
+            postSearchIndex.add(document(id, "Post number " + id, Set.of()));
+            postSearchIndex.flush();
+        }
+
+        assertEquals(1, segmentCount());
+        PostSearchIndex restored = new PostSearchIndex(directory.toString(), 3);
+        assertTrue(restored.loadSegments());
+        assertEquals(7, restored.size());
+    }
+
+    @Test
+    void loadSegmentsWithoutSegmentsReturnsFalse() {
+        assertFalse(new PostSearchIndex(directory.resolve("empty").toString(), 3).loadSegments());
+    }
+
+    @Test
+    void addIfAbsentSkipsPostsDeletedDuringRebuild() {
+        PostSearchIndex rebuilding = new PostSearchIndex(directory.toString(), 3);
+        rebuilding.remove(1L);
+        rebuilding.addIfAbsent(document(1L, "Deleted post", Set.of()));
+        rebuilding.add(document(2L, "Updated post", Set.of()));
+        rebuilding.addIfAbsent(document(2L, "Stale post", Set.of()));
+
+        assertEquals(0, rebuilding.search("deleted", 0, 10).total());
+        assertEquals(0, rebuilding.search("stale", 0, 10).total());
+        assertEquals(1, rebuilding.search("updated", 0, 10).total());
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static PostDocument document(Long id, String content, Set<String> tags) {
+        return new PostDocument(id, 7L, content, tags, LocalDateTime.of(2024, 1, 1, 12, 0, 0, 500));
+    }
+
+    private static List<Long> ids(PostSearchIndex.SearchResult result) {
+        return result.hits().stream().map(hit -> hit.document().id()).toList();
+    }
+}
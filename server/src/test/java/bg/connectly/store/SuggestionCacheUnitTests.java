@@ -0,0 +1,53 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionCacheUnitTests {
+
+    @Test
+    void putReturnsEntryUntilItExpires() {
+        SuggestionCache cache = new SuggestionCache(10, 30);
+
+        SuggestionCache.Suggestions entry = cache.put(1L, new long[]{2, 3}, new int[]{5, 4});
+
+        assertSame(entry, cache.get(1L));
+        assertArrayEquals(new long[]{2, 3}, entry.userIds());
+        assertFalse(entry.isExpired());
+    }
+
+    @Test
+    void expiredEntryIsStillReturned() {
+        SuggestionCache cache = new SuggestionCache(10, 0);
+        cache.put(1L, new long[]{2}, new int[]{1});
+
+        assertTrue(cache.get(1L).isExpired());
+    }
+
+    @Test
+    void onlyOneRefreshRunsPerUser() {
+        SuggestionCache cache = new SuggestionCache(10, 30);
+
+        assertTrue(cache.startRefresh(1L));
+        assertFalse(cache.startRefresh(1L));
+        assertTrue(cache.startRefresh(2L));
+        cache.finishRefresh(1L);
+        assertTrue(cache.startRefresh(1L));
+    }
+
+    @Test
+    void fullCacheEvicts() {
+        SuggestionCache cache = new SuggestionCache(4, 30);
+        for (long userId = 1; userId <= 10; userId++) {
+            cache.put(userId, new long[0], new int[0]);
+        }
+
+        int cached = 0;
+        for (long userId = 1; userId <= 10; userId++) {
+            cached += cache.get(userId) != null ? 1 : 0;
+        }
+        assertTrue(cached <= 4);
+        assertNotNull(cache.get(10L));
+    }
+}
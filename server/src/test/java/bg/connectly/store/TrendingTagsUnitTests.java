@@ -0,0 +1,84 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrendingTagsUnitTests {
+    private static final long MINUTE = 60_000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private TrendingTags trendingTags;
+
+    @BeforeEach
+    void setUp() {
+        trendingTags = new TrendingTags(3, directory.resolve("trending.bin").toString());
+    }
+
+    @Test
+    void topReturnsMostUsedTagsAfterRefresh() {
+        record(5, NOW, "java", "#Spring");
+        record(3, NOW, "spring");
+        record(1, NOW, "travel", "coffee");
+
+        assertTrue(trendingTags.top(TrendingWindow.HOUR, 10).isEmpty());
+        trendingTags.refresh(NOW);
+
+        assertEquals(List.of(new TrendingTags.TagCount("spring", 8), new TrendingTags.TagCount("java", 5),
+                new TrendingTags.TagCount("coffee", 1)), trendingTags.top(TrendingWindow.HOUR, 10));
+        assertEquals(2, trendingTags.top(TrendingWindow.WEEK, 2).size());
+    }
+
+    @Test
+    void expiredBucketsLeaveTheWindow() {
+        record(4, NOW, "java");
+        record(2, NOW + 30 * MINUTE, "kotlin");
+
+        trendingTags.refresh(NOW + 65 * MINUTE);
+
+        assertEquals(List.of(new TrendingTags.TagCount("kotlin", 2)), trendingTags.top(TrendingWindow.HOUR, 10));
+        assertEquals(List.of(new TrendingTags.TagCount("java", 4), new TrendingTags.TagCount("kotlin", 2)),
+                trendingTags.top(TrendingWindow.DAY, 10));
+    }
+
+    @Test
+    void sketchNeverUndercounts() {
+        TrendingTags.Sketch sketch = new TrendingTags.Sketch(TrendingWindow.DAY, 100);
+        for (int i = 0; i < 5000; i++) {
+            sketch.add(Set.of("tag" + (i % 500)), NOW);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(sketch.estimate("tag" + i) >= 10);
+        }
+    }
+
+    @Test
+    void checkpointRestoresCounts() {
+        // Restoring drops the buckets that expired until the current time
+        long now = System.currentTimeMillis();
+        record(4, now, "java");
+        trendingTags.checkpoint();
+
+        TrendingTags restored = new TrendingTags(3, directory.resolve("trending.bin").toString());
+        restored.restore();
+        restored.refresh(now);
+
+        assertEquals(List.of(new TrendingTags.TagCount("java", 4)), restored.top(TrendingWindow.WEEK, 10));
+    }
+
+    private void record(int times, long now, String... tags) {
+        for (int i = 0; i < times; i++) {
+            trendingTags.record(List.of(tags), now);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package bg.connectly.store;
+
+import bg.connectly.dto.UserPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSearchIndexUnitTests {
+
+    private UserSearchIndex userSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userSearchIndex = new UserSearchIndex(1000);
+        userSearchIndex.add(new UserPrincipal(1L, "ivan.petrov@abv.bg", "Ivan", "Petrov", null));
+        userSearchIndex.add(new UserPrincipal(2L, "maria@abv.bg", "Maria", "Ivanova", null));
+        userSearchIndex.add(new UserPrincipal(3L, "georgi@abv.bg", "Georgi", "Dimitrov", null));
+        userSearchIndex.add(new UserPrincipal(4L, "ivan@abv.bg", "Ivan", null, null));
+    }
+
+    @Test
+    void searchRanksExactThenPrefixThenSubstring() {
+        List<Long> ids = ids(userSearchIndex.search("Ivan"));
+
+        assertEquals(List.of(4L, 1L, 2L), ids);
+    }
+
+    @Test
+    void searchMatchesSubstringOfEmailAndName() {
+        assertEquals(List.of(3L), ids(userSearchIndex.search("mitro")));
+        assertEquals(List.of(1L), ids(userSearchIndex.search("n.pet")));
+        assertEquals(List.of(1L), ids(userSearchIndex.search("ivan  PETROV")));
+    }
+
+    @Test
+    void searchDropsCandidatesWithTrigramsOutOfOrder() {
+        // "ovan" shares the trigrams of "ova" and "van" with Ivanova and Ivan, but no field contains it
+        assertTrue(userSearchIndex.search("ovan").isEmpty());
+        assertTrue(userSearchIndex.search("xyz").isEmpty());
+    }
+
+    @Test
+    void shortQueriesMatchPrefixesOnly() {
+        assertEquals(List.of(3L), ids(userSearchIndex.search("ge")));
+        assertTrue(userSearchIndex.search("ov").isEmpty());
+    }
+
+    @Test
+    void autocompleteMatchesPrefixesWithLimit() {
+        assertEquals(List.of(4L, 1L), ids(userSearchIndex.autocomplete("iva", 2)));
+        assertEquals(List.of(2L), ids(userSearchIndex.autocomplete("maria iv", 10)));
+        assertTrue(userSearchIndex.autocomplete("petrov@", 10).isEmpty());
+    }
+
+    @Test
+    void addReplacesPreviousTermsOfUser() {
+        userSearchIndex.add(new UserPrincipal(3L, "gosho@abv.bg", "Gosho", "Dimitrov", null));
+
+        assertTrue(userSearchIndex.search("georgi").isEmpty());
+        assertEquals(List.of(3L), ids(userSearchIndex.search("gosho")));
+        assertEquals(4, userSearchIndex.size());
+    }
+
+    @Test
+    void addIfAbsentKeepsIndexedUser() {
+        userSearchIndex.addIfAbsent(new UserPrincipal(3L, "old@abv.bg", "Old", "Name", null));
+
+        assertTrue(userSearchIndex.search("old").isEmpty());
+        assertEquals(List.of(3L), ids(userSearchIndex.search("georgi")));
+    }
+
+    @Test
+    void removeDropsUserFromResults() {
+        userSearchIndex.remove(4L);
+
+        assertEquals(List.of(1L, 2L), ids(userSearchIndex.search("ivan")));
+    }
+
+    private static List<Long> ids(List<UserPrincipal> principals) {
+        return principals.stream().map(UserPrincipal::getId).toList();
+    }
+}
@@ -0,0 +1,67 @@
+package bg.connectly.store;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionStoreUnitTests {
+
+    @Test
+    void bumpChangesOnlyStampsOfThatCollection() {
+        VersionStore versionStore = new VersionStore(100);
+        VersionStore.Stamp posts = versionStore.stamp(VersionStore.POSTS);
+        VersionStore.Stamp comments = versionStore.stamp(VersionStore.commentsOf(1L));
+
+        versionStore.bump(VersionStore.POSTS);
+
+        assertNotEquals(posts.etag(), versionStore.stamp(VersionStore.POSTS).etag());
+        assertEquals(comments.etag(), versionStore.stamp(VersionStore.commentsOf(1L)).etag());
+        assertTrue(versionStore.stamp(VersionStore.POSTS).etag().startsWith("W/\""));
+    }
+
+    @Test
+    void profileChangeChangesEveryStamp() {
+        VersionStore versionStore = new VersionStore(100);
+        VersionStore.Stamp comments = versionStore.stamp(VersionStore.commentsOf(1L));
+
+        versionStore.bump(VersionStore.PROFILES);
+
+        assertNotEquals(comments.etag(), versionStore.stamp(VersionStore.commentsOf(1L)).etag());
+    }
+
+    @Test
+    void evictedCollectionNeverReturnsToAnOlderStamp() {
+        VersionStore versionStore = new VersionStore(4);
+        versionStore.bump(VersionStore.commentsOf(1L));
+        VersionStore.Stamp before = versionStore.stamp(VersionStore.commentsOf(1L));
+        versionStore.bump(VersionStore.commentsOf(1L));
+        VersionStore.Stamp current = versionStore.stamp(VersionStore.commentsOf(1L));
+
+        for (long postId = 2; postId < 20; postId++) {
+            versionStore.bump(VersionStore.commentsOf(postId));
+        }
+
+        String afterEviction = versionStore.stamp(VersionStore.commentsOf(1L)).etag();
+        assertNotEquals(before.etag(), afterEviction);
+        assertNotEquals(current.etag(), afterEviction);
+    }
+
+    @Test
+    void bumpInsideTransactionWaitsForCommit() {
+        VersionStore versionStore = new VersionStore(100);
+        VersionStore.Stamp before = versionStore.stamp(VersionStore.POSTS);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            versionStore.bump(VersionStore.POSTS);
+            assertEquals(before.etag(), versionStore.stamp(VersionStore.POSTS).etag());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNotEquals(before.etag(), versionStore.stamp(VersionStore.POSTS).etag());
+    }
+}